@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.StandardException;
+
+/**
+ * A condition compiled by {@link BatchPredicateCompiler} for selecting
+ * rows from a {@link ColumnBatch}.
+ *
+ * The conjuncts are applied one after another, each narrowing the
+ * selection vector in place, so that later ones only look at rows that
+ * survived the earlier ones. A row is selected only if the condition is
+ * TRUE for it, not FALSE or unknown.
+ */
+public class BatchPredicate
+{
+    private final BatchPredicateCompiler.Conjunct[] conjuncts;
+
+    BatchPredicate(BatchPredicateCompiler.Conjunct[] conjuncts) {
+        this.conjuncts = conjuncts;
+    }
+
+    /** The number of conjuncts, after dropping any that are always TRUE. */
+    public int getConjunctCount() {
+        return conjuncts.length;
+    }
+
+    /** The number of conjuncts that are evaluated a column at a time,
+     * rather than a row at a time. */
+    public int getVectorizedConjunctCount() {
+        int count = 0;
+        for (BatchPredicateCompiler.Conjunct conjunct : conjuncts) {
+            if (!(conjunct instanceof BatchPredicateCompiler.RowConjunct))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Select the rows of the batch that satisfy the condition.
+     *
+     * @param selection Receives the positions of the selected rows, in
+     * order. It must have room for every row of the batch.
+     *
+     * @return The number of rows selected.
+     */
+    public int select(ColumnBatch batch, int[] selection) throws StandardException {
+        int count = batch.getRowCount();
+        for (int i = 0; i < count; i++) {
+            selection[i] = i;
+        }
+        return select(batch, selection, count);
+    }
+
+    /**
+     * Narrow an existing selection of the batch's rows in place.
+     *
+     * @param count The number of rows selected on entry.
+     *
+     * @return The number of rows still selected.
+     */
+    public int select(ColumnBatch batch, int[] selection, int count) 
+            throws StandardException {
+        for (BatchPredicateCompiler.Conjunct conjunct : conjuncts) {
+            if (count == 0)
+                break;
+            count = conjunct.filter(batch, selection, count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,652 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import com.akiban.sql.compiler.PredicateCompiler.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Compile a condition into a {@link BatchPredicate} that filters
+ * columnar batches of rows.
+ *
+ * The condition is split into its top-level conjuncts, as produced by
+ * {@link BooleanNormalizer}. Each one is first compiled by a
+ * {@link PredicateCompiler}. If the result is a simple test of a single
+ * column, it becomes a loop directly over that column's array:
+ * comparison with a constant, <code>BETWEEN</code> constants, an
+ * <code>IN</code> list of constants, <code>IS [NOT] NULL</code> or a
+ * boolean column. Anything else is evaluated a row at a time, but
+ * still only for the rows selected so far. The column loops run
+ * first, since they are cheapest.
+ */
+public class BatchPredicateCompiler
+{
+    private PredicateCompiler rowCompiler;
+
+    /** @param columnNames the names of the batch's columns, in order. */
+    public BatchPredicateCompiler(List<String> columnNames) {
+        rowCompiler = new PredicateCompiler(columnNames);
+    }
+
+    public BatchPredicate compile(ValueNode condition) throws StandardException {
+        List<ValueNode> nodes = new ArrayList<ValueNode>();
+        addConjuncts(condition, nodes);
+        List<Conjunct> vectorized = new ArrayList<Conjunct>();
+        List<Conjunct> rowwise = new ArrayList<Conjunct>();
+        for (ValueNode node : nodes) {
+            CompiledPredicate predicate = rowCompiler.compile(node);
+            if (predicate instanceof ConstantCondition) {
+                if (((ConstantCondition)predicate).value == Boolean.TRUE)
+                    continue;
+                // FALSE or unknown: nothing can be selected.
+                return new BatchPredicate(new Conjunct[] { new NoneConjunct() });
+            }
+            Conjunct conjunct = columnConjunct(predicate);
+            if (conjunct != null)
+                vectorized.add(conjunct);
+            else
+                rowwise.add(new RowConjunct(predicate));
+        }
+        vectorized.addAll(rowwise);
+        return new BatchPredicate(vectorized.toArray(new Conjunct[vectorized.size()]));
+    }
+
+    protected void addConjuncts(ValueNode node, List<ValueNode> into) {
+        if (node instanceof AndNode) {
+            AndNode andNode = (AndNode)node;
+            addConjuncts(andNode.getLeftOperand(), into);
+            addConjuncts(andNode.getRightOperand(), into);
+        }
+        else {
+            into.add(node);
+        }
+    }
+
+    /** Get a column loop for a compiled conjunct, if it has a
+     * suitable form. */
+    protected Conjunct columnConjunct(CompiledPredicate predicate) {
+        if (predicate instanceof LongColumnComparison) {
+            LongColumnComparison comparison = (LongColumnComparison)predicate;
+            return new LongComparisonConjunct(comparison.operator, comparison.column,
+                                              comparison.value);
+        }
+        else if (predicate instanceof DecimalColumnComparison) {
+            DecimalColumnComparison comparison = (DecimalColumnComparison)predicate;
+            return new DecimalComparisonConjunct(comparison.operator, comparison.column,
+                                                 comparison.value);
+        }
+        else if (predicate instanceof DoubleColumnComparison) {
+            DoubleColumnComparison comparison = (DoubleColumnComparison)predicate;
+            return new DoubleComparisonConjunct(comparison.operator, comparison.column,
+                                                comparison.value);
+        }
+        else if (predicate instanceof StringColumnComparison) {
+            StringColumnComparison comparison = (StringColumnComparison)predicate;
+            return new StringComparisonConjunct(comparison.operator, comparison.column,
+                                                comparison.value);
+        }
+        else if (predicate instanceof BetweenCondition) {
+            BetweenCondition between = (BetweenCondition)predicate;
+            if (!(between.operand instanceof Column) ||
+                (between.operand.kind != between.kind) ||
+                !(between.low instanceof Constant) ||
+                !(between.high instanceof Constant))
+                return null;
+            int column = ((Column)between.operand).column;
+            try {
+                switch (between.kind) {
+                case LONG:
+                    return new LongBetweenConjunct(column, 
+                                                   between.low.getLong(null),
+                                                   between.high.getLong(null));
+                case DECIMAL:
+                    return new DecimalBetweenConjunct(column, 
+                                                      between.low.getDecimal(null),
+                                                      between.high.getDecimal(null));
+                case DOUBLE:
+                    return new DoubleBetweenConjunct(column, 
+                                                     between.low.getDouble(null),
+                                                     between.high.getDouble(null));
+                case STRING:
+                    return new StringBetweenConjunct(column, 
+                                                     between.low.getString(null),
+                                                     between.high.getString(null));
+                default:
+                    return null;
+                }
+            }
+            catch (StandardException ex) {
+                // Constants do not raise errors.
+                return null;
+            }
+        }
+        else if (predicate instanceof LongInListCondition) {
+            LongInListCondition in = (LongInListCondition)predicate;
+            if (!(in.operand instanceof LongColumn))
+                return null;
+            return new LongInListConjunct(((Column)in.operand).column, in.values);
+        }
+        else if (predicate instanceof DecimalInListCondition) {
+            DecimalInListCondition in = (DecimalInListCondition)predicate;
+            if (!(in.operand instanceof DecimalColumn))
+                return null;
+            return new DecimalInListConjunct(((Column)in.operand).column, in.values);
+        }
+        else if (predicate instanceof DoubleInListCondition) {
+            DoubleInListCondition in = (DoubleInListCondition)predicate;
+            if (!(in.operand instanceof DoubleColumn))
+                return null;
+            return new DoubleInListConjunct(((Column)in.operand).column, in.values);
+        }
+        else if (predicate instanceof StringInListCondition) {
+            StringInListCondition in = (StringInListCondition)predicate;
+            if (!(in.operand instanceof StringColumn))
+                return null;
+            return new StringInListConjunct(((Column)in.operand).column, in.values);
+        }
+        else if (predicate instanceof ColumnIsNullCondition) {
+            ColumnIsNullCondition isNull = (ColumnIsNullCondition)predicate;
+            return new IsNullConjunct(isNull.column, isNull.negated);
+        }
+        else if (predicate instanceof BooleanColumnCondition) {
+            return new BooleanColumnConjunct(((BooleanColumnCondition)predicate).column,
+                                             true);
+        }
+        else if ((predicate instanceof NotCondition) &&
+                 (((NotCondition)predicate).operand instanceof BooleanColumnCondition)) {
+            BooleanColumnCondition operand = 
+                (BooleanColumnCondition)((NotCondition)predicate).operand;
+            return new BooleanColumnConjunct(operand.column, false);
+        }
+        else
+            return null;
+    }
+
+    /** One conjunct of a {@link BatchPredicate}. */
+    static abstract class Conjunct {
+        /** Keep only those of the <code>count</code> rows at the
+         * start of <code>selection</code> that satisfy this conjunct,
+         * compacting them toward the start.
+         * @return the number kept.
+         */
+        abstract int filter(ColumnBatch batch, int[] selection, int count)
+                throws StandardException;
+    }
+
+    /** Drop the selected rows that are null. */
+    static int removeNulls(long[] nullBits, int[] selection, int count) {
+        if (nullBits == null)
+            return count;
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int row = selection[i];
+            selection[n] = row;
+            n += ((nullBits[row >>> 6] & (1L << row)) == 0) ? 1 : 0;
+        }
+        return n;
+    }
+
+    static final class NoneConjunct extends Conjunct {
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            return 0;
+        }
+    }
+
+    static final class RowConjunct extends Conjunct {
+        final CompiledPredicate predicate;
+
+        RowConjunct(CompiledPredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) 
+                throws StandardException {
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                batch.setPosition(row);
+                if (predicate.evaluate(batch) == Boolean.TRUE)
+                    selection[n++] = row;
+            }
+            return n;
+        }
+    }
+
+    static final class IsNullConjunct extends Conjunct {
+        final int column;
+        final boolean negated;
+
+        IsNullConjunct(int column, boolean negated) {
+            this.column = column;
+            this.negated = negated;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            long[] nullBits = batch.nulls[column];
+            if (nullBits == null)
+                return (negated) ? count : 0;
+            long match = (negated) ? 0 : 1;
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                selection[n] = row;
+                n += (((nullBits[row >>> 6] >>> row) & 1) == match) ? 1 : 0;
+            }
+            return n;
+        }
+    }
+
+    static final class BooleanColumnConjunct extends Conjunct {
+        final int column;
+        final boolean value;
+
+        BooleanColumnConjunct(int column, boolean value) {
+            this.column = column;
+            this.value = value;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            boolean[] values = batch.booleans[column];
+            boolean value = this.value;
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                selection[n] = row;
+                n += (values[row] == value) ? 1 : 0;
+            }
+            return removeNulls(batch.nulls[column], selection, n);
+        }
+    }
+
+    static final class LongComparisonConjunct extends Conjunct {
+        final int operator, column;
+        final long value;
+
+        LongComparisonConjunct(int operator, int column, long value) {
+            this.operator = operator;
+            this.column = column;
+            this.value = value;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            long[] values = batch.longs[column];
+            long value = this.value;
+            int n = 0;
+            switch (operator) {
+            case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] == value) ? 1 : 0;
+                }
+                break;
+            case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] != value) ? 1 : 0;
+                }
+                break;
+            case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] > value) ? 1 : 0;
+                }
+                break;
+            case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] >= value) ? 1 : 0;
+                }
+                break;
+            case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] < value) ? 1 : 0;
+                }
+                break;
+            case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] <= value) ? 1 : 0;
+                }
+                break;
+            default:
+                assert false : "Not a comparison " + operator;
+            }
+            return removeNulls(batch.nulls[column], selection, n);
+        }
+    }
+
+    static final class DoubleComparisonConjunct extends Conjunct {
+        final int operator, column;
+        final double value;
+
+        DoubleComparisonConjunct(int operator, int column, double value) {
+            this.operator = operator;
+            this.column = column;
+            this.value = value;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            double[] values = batch.doubles[column];
+            double value = this.value;
+            int n = 0;
+            switch (operator) {
+            case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] == value) ? 1 : 0;
+                }
+                break;
+            case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] != value) ? 1 : 0;
+                }
+                break;
+            case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] > value) ? 1 : 0;
+                }
+                break;
+            case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] >= value) ? 1 : 0;
+                }
+                break;
+            case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] < value) ? 1 : 0;
+                }
+                break;
+            case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+                for (int i = 0; i < count; i++) {
+                    int row = selection[i];
+                    selection[n] = row;
+                    n += (values[row] <= value) ? 1 : 0;
+                }
+                break;
+            default:
+                assert false : "Not a comparison " + operator;
+            }
+            return removeNulls(batch.nulls[column], selection, n);
+        }
+    }
+
+    static final class DecimalComparisonConjunct extends Conjunct {
+        final int operator, column;
+        final BigDecimal value;
+
+        DecimalComparisonConjunct(int operator, int column, BigDecimal value) {
+            this.operator = operator;
+            this.column = column;
+            this.value = value;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            // Nulls first, since their decimals may be missing.
+            count = removeNulls(batch.nulls[column], selection, count);
+            BigDecimal[] values = batch.decimals[column];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                int comparison = values[row].compareTo(value);
+                if (PredicateCompiler.comparisonTest(operator, comparison))
+                    selection[n++] = row;
+            }
+            return n;
+        }
+    }
+
+    static final class StringComparisonConjunct extends Conjunct {
+        final int operator, column;
+        final String value;
+
+        StringComparisonConjunct(int operator, int column, String value) {
+            this.operator = operator;
+            this.column = column;
+            this.value = value;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            // Nulls first, since their strings may be missing.
+            count = removeNulls(batch.nulls[column], selection, count);
+            String[] values = batch.strings[column];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                int comparison = PredicateCompiler.compareStrings(values[row], value);
+                if (PredicateCompiler.comparisonTest(operator, comparison))
+                    selection[n++] = row;
+            }
+            return n;
+        }
+    }
+
+    static final class LongBetweenConjunct extends Conjunct {
+        final int column;
+        final long low, high;
+
+        LongBetweenConjunct(int column, long low, long high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            long[] values = batch.longs[column];
+            long low = this.low, high = this.high;
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                long value = values[row];
+                selection[n] = row;
+                n += ((value >= low) & (value <= high)) ? 1 : 0;
+            }
+            return removeNulls(batch.nulls[column], selection, n);
+        }
+    }
+
+    static final class DoubleBetweenConjunct extends Conjunct {
+        final int column;
+        final double low, high;
+
+        DoubleBetweenConjunct(int column, double low, double high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            double[] values = batch.doubles[column];
+            double low = this.low, high = this.high;
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                double value = values[row];
+                selection[n] = row;
+                n += ((value >= low) & (value <= high)) ? 1 : 0;
+            }
+            return removeNulls(batch.nulls[column], selection, n);
+        }
+    }
+
+    static final class DecimalBetweenConjunct extends Conjunct {
+        final int column;
+        final BigDecimal low, high;
+
+        DecimalBetweenConjunct(int column, BigDecimal low, BigDecimal high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            count = removeNulls(batch.nulls[column], selection, count);
+            BigDecimal[] values = batch.decimals[column];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                BigDecimal value = values[row];
+                if ((value.compareTo(low) >= 0) && (value.compareTo(high) <= 0))
+                    selection[n++] = row;
+            }
+            return n;
+        }
+    }
+
+    static final class StringBetweenConjunct extends Conjunct {
+        final int column;
+        final String low, high;
+
+        StringBetweenConjunct(int column, String low, String high) {
+            this.column = column;
+            this.low = low;
+            this.high = high;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            count = removeNulls(batch.nulls[column], selection, count);
+            String[] values = batch.strings[column];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                String value = values[row];
+                if ((PredicateCompiler.compareStrings(value, low) >= 0) &&
+                    (PredicateCompiler.compareStrings(value, high) <= 0))
+                    selection[n++] = row;
+            }
+            return n;
+        }
+    }
+
+    static final class LongInListConjunct extends Conjunct {
+        final int column;
+        final long[] values;
+
+        /** @param values sorted. */
+        LongInListConjunct(int column, long[] values) {
+            this.column = column;
+            this.values = values;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            long[] columnValues = batch.longs[column];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                if (Arrays.binarySearch(values, columnValues[row]) >= 0)
+                    selection[n++] = row;
+            }
+            return removeNulls(batch.nulls[column], selection, n);
+        }
+    }
+
+    static final class DoubleInListConjunct extends Conjunct {
+        final int column;
+        final double[] values;
+
+        /** @param values sorted, with no negative zero. */
+        DoubleInListConjunct(int column, double[] values) {
+            this.column = column;
+            this.values = values;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            double[] columnValues = batch.doubles[column];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                double value = columnValues[row];
+                if (value == 0.0)
+                    value = 0.0;
+                if (Arrays.binarySearch(values, value) >= 0)
+                    selection[n++] = row;
+            }
+            return removeNulls(batch.nulls[column], selection, n);
+        }
+    }
+
+    static final class DecimalInListConjunct extends Conjunct {
+        final int column;
+        final BigDecimal[] values;
+
+        /** @param values sorted. */
+        DecimalInListConjunct(int column, BigDecimal[] values) {
+            this.column = column;
+            this.values = values;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            count = removeNulls(batch.nulls[column], selection, count);
+            BigDecimal[] columnValues = batch.decimals[column];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                if (Arrays.binarySearch(values, columnValues[row]) >= 0)
+                    selection[n++] = row;
+            }
+            return n;
+        }
+    }
+
+    static final class StringInListConjunct extends Conjunct {
+        final int column;
+        final String[] values;
+
+        /** @param values sorted in {@link PredicateCompiler#PADDED_ORDER}. */
+        StringInListConjunct(int column, String[] values) {
+            this.column = column;
+            this.values = values;
+        }
+
+        int filter(ColumnBatch batch, int[] selection, int count) {
+            count = removeNulls(batch.nulls[column], selection, count);
+            String[] columnValues = batch.strings[column];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                if (Arrays.binarySearch(values, columnValues[row],
+                                        PredicateCompiler.PADDED_ORDER) >= 0)
+                    selection[n++] = row;
+            }
+            return n;
+        }
+    }
+
+}
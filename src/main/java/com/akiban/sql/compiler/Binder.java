@@ -0,0 +1,617 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Bind the names in a statement to a {@link Catalog}.
+ *
+ * Each {@link FromBaseTable} gets its {@link Catalog.Table} as user
+ * data and each {@link ColumnReference} its {@link ColumnBinding}, which
+ * {@link TypeComputer} then uses to type it. <code>*</code> in a select
+ * list is replaced by a column for each column of the tables it stands
+ * for, leaving out the duplicates from joins with <code>USING</code>
+ * or <code>NATURAL</code>.
+ *
+ * A qualified column is looked for in the table with that exposed
+ * name in the nearest FROM list that has one; an unqualified column in
+ * the nearest FROM list with a table that has it, and it is an error if
+ * more than one does. Tables, exposed names and columns are all found
+ * by hashing, so binding does not slow down as the catalog grows.
+ */
+public class Binder implements Visitor
+{
+    /** The tables visible from some part of a statement. */
+    static class Scope {
+        Scope outer;
+        List<FromTable> tables = new ArrayList<FromTable>();
+        Map<String,FromTable> exposedNames = new HashMap<String,FromTable>();
+        Map<FromTable,Boolean> nullable = new IdentityHashMap<FromTable,Boolean>();
+        // Columns merged into the same column of another table by a join.
+        Map<FromTable,Set<String>> hidden = new IdentityHashMap<FromTable,Set<String>>();
+        // The target of an INSERT, for its RETURNING list.
+        Catalog.Table target;
+
+        Scope(Scope outer) {
+            this.outer = outer;
+        }
+
+        boolean isHidden(FromTable table, String columnName) {
+            Set<String> columns = hidden.get(table);
+            return ((columns != null) && columns.contains(columnName));
+        }
+
+        void hide(FromTable table, String columnName) {
+            Set<String> columns = hidden.get(table);
+            if (columns == null) {
+                columns = new HashSet<String>();
+                hidden.put(table, columns);
+            }
+            columns.add(columnName);
+        }
+    }
+
+    private SQLParserContext parserContext;
+    private NodeFactory nodeFactory;
+    private Catalog catalog;
+    private String defaultSchemaName;
+    private Scope scope;
+
+    public Binder(SQLParserContext parserContext, 
+                  Catalog catalog, String defaultSchemaName) {
+        this.parserContext = parserContext;
+        this.nodeFactory = parserContext.getNodeFactory();
+        this.catalog = catalog;
+        this.defaultSchemaName = defaultSchemaName;
+    }
+
+    public Catalog getCatalog() {
+        return catalog;
+    }
+
+    public String getDefaultSchemaName() {
+        return defaultSchemaName;
+    }
+
+    public void setDefaultSchemaName(String defaultSchemaName) {
+        this.defaultSchemaName = defaultSchemaName;
+    }
+
+    /** Bind all the names in this statement. */
+    public StatementNode bind(StatementNode stmt) throws StandardException {
+        scope = null;
+        switch (stmt.getNodeType()) {
+        case NodeTypes.CURSOR_NODE:
+            {
+                CursorNode cursor = (CursorNode)stmt;
+                ResultSetNode resultSet = cursor.getResultSetNode();
+                Scope selectScope = bindResultSet(resultSet, null);
+                bindOrderBy(cursor.getOrderByList(), resultSet, selectScope);
+            }
+            break;
+        case NodeTypes.INSERT_NODE:
+            {
+                InsertNode insert = (InsertNode)stmt;
+                Catalog.Table target = getTable(insert.getTargetTableName());
+                if (insert.getTargetColumnList() != null) {
+                    for (ResultColumn resultColumn : insert.getTargetColumnList()) {
+                        Catalog.Column column = target.getColumn(resultColumn.getName());
+                        if (column == null)
+                            throw new StandardException("Column not found: " + 
+                                                        resultColumn.getName());
+                        if (resultColumn.getReference() != null)
+                            resultColumn.getReference()
+                                .setUserData(new ColumnBinding(null, column, false));
+                    }
+                }
+                ResultSetNode resultSet = insert.getResultSetNode();
+                Scope selectScope = bindResultSet(resultSet, null);
+                bindOrderBy(insert.getOrderByList(), resultSet, selectScope);
+                Scope targetScope = new Scope(null);
+                targetScope.target = target;
+                bindReturning(insert, targetScope);
+            }
+            break;
+        case NodeTypes.UPDATE_NODE:
+        case NodeTypes.DELETE_NODE:
+            {
+                DMLModStatementNode dml = (DMLModStatementNode)stmt;
+                SelectNode select = (SelectNode)dml.getResultSetNode();
+                Scope selectScope = bindSelect(select, null);
+                if ((stmt.getNodeType() == NodeTypes.UPDATE_NODE) &&
+                    (select.getResultColumns() != null)) {
+                    FromTable target = select.getFromList().get(0);
+                    for (ResultColumn resultColumn : select.getResultColumns()) {
+                        ColumnReference column = resultColumn.getReference();
+                        if (column == null)
+                            continue;
+                        ColumnBinding binding = getColumnBinding(target, 
+                                                                 column.getColumnName(),
+                                                                 selectScope);
+                        if (binding == null)
+                            throw new StandardException("Column not found: " + 
+                                                        column.getColumnName());
+                        column.setUserData(binding);
+                    }
+                }
+                bindReturning(dml, selectScope);
+            }
+            break;
+        default:
+            // Other statements, such as CREATE VIEW, may contain queries.
+            stmt.accept(new Visitor() {
+                    public Visitable visit(Visitable node) throws StandardException {
+                        if (node instanceof ResultSetNode)
+                            bindResultSet((ResultSetNode)node, null);
+                        return node;
+                    }
+                    public boolean visitChildrenFirst(Visitable node) {
+                        return false;
+                    }
+                    public boolean stopTraversal() {
+                        return false;
+                    }
+                    public boolean skipChildren(Visitable node) {
+                        return (node instanceof ResultSetNode);
+                    }
+                });
+        }
+        return stmt;
+    }
+
+    /** Bind a query.
+     * @return the scope of its result columns, if it is a SELECT.
+     */
+    protected Scope bindResultSet(ResultSetNode node, Scope outer) 
+            throws StandardException {
+        if (node instanceof SelectNode)
+            return bindSelect((SelectNode)node, outer);
+        else if (node instanceof SetOperatorNode) {
+            SetOperatorNode setOperator = (SetOperatorNode)node;
+            bindResultSet(setOperator.getLeftResultSet(), outer);
+            bindResultSet(setOperator.getRightResultSet(), outer);
+        }
+        else if (node instanceof RowsResultSetNode) {
+            for (RowResultSetNode row : ((RowsResultSetNode)node).getRows()) {
+                bindExpression(row.getResultColumns(), outer);
+            }
+        }
+        else
+            bindExpression(node, outer);
+        return null;
+    }
+
+    protected Scope bindSelect(SelectNode select, Scope outer) 
+            throws StandardException {
+        Scope selectScope = new Scope(outer);
+        for (FromTable fromTable : select.getFromList()) {
+            bindFromTable(fromTable, selectScope, false);
+        }
+        ResultColumnList resultColumns = select.getResultColumns();
+        if (resultColumns != null) {
+            expandAllResultColumns(resultColumns, selectScope);
+            for (ResultColumn resultColumn : resultColumns) {
+                bindExpression(resultColumn.getExpression(), selectScope);
+            }
+        }
+        bindExpression(select.getWhereClause(), selectScope);
+        bindExpression(select.getGroupByList(), selectScope);
+        bindExpression(select.getHavingClause(), selectScope);
+        bindExpression(select.getWindows(), selectScope);
+        return selectScope;
+    }
+
+    protected void bindFromTable(ResultSetNode node, Scope selectScope, boolean nullable)
+            throws StandardException {
+        if (node instanceof FromBaseTable) {
+            FromBaseTable fromBaseTable = (FromBaseTable)node;
+            fromBaseTable.setUserData(getTable(fromBaseTable.getOrigTableName()));
+            addFromTable(fromBaseTable, selectScope, nullable);
+        }
+        else if (node instanceof FromSubquery) {
+            FromSubquery fromSubquery = (FromSubquery)node;
+            ResultSetNode subquery = fromSubquery.getSubquery();
+            Scope subqueryScope = bindResultSet(subquery, selectScope.outer);
+            bindOrderBy(fromSubquery.getOrderByList(), subquery, subqueryScope);
+            addFromTable(fromSubquery, selectScope, nullable);
+        }
+        else if (node instanceof JoinNode) {
+            JoinNode join = (JoinNode)node;
+            boolean leftNullable = nullable, rightNullable = nullable;
+            boolean rightOuter = false;
+            if (join instanceof HalfOuterJoinNode) {
+                rightOuter = ((HalfOuterJoinNode)join).isRightOuterJoin();
+                if (rightOuter)
+                    leftNullable = true;
+                else
+                    rightNullable = true;
+            }
+            int start = selectScope.tables.size();
+            bindFromTable(join.getLeftResultSet(), selectScope, leftNullable);
+            int middle = selectScope.tables.size();
+            bindFromTable(join.getRightResultSet(), selectScope, rightNullable);
+            int end = selectScope.tables.size();
+            Scope leftScope = subScope(selectScope, start, middle);
+            Scope rightScope = subScope(selectScope, middle, end);
+            // The merged column is the one from the preserved side.
+            Scope hiddenScope = (rightOuter) ? leftScope : rightScope;
+            if (join.getUsingClause() != null) {
+                for (ResultColumn resultColumn : join.getUsingClause()) {
+                    String columnName = resultColumn.getName();
+                    if ((findColumnBinding(columnName, leftScope) == null) ||
+                        (findColumnBinding(columnName, rightScope) == null))
+                        throw new StandardException("Column not found: " + columnName);
+                    hideJoinColumn(columnName, selectScope, hiddenScope);
+                }
+            }
+            else if (join.isNaturalJoin()) {
+                List<String> columnNames = new ArrayList<String>();
+                for (FromTable fromTable : rightScope.tables) {
+                    for (String columnName : getColumnNames(fromTable)) {
+                        if (!rightScope.isHidden(fromTable, columnName) &&
+                            (findColumnBinding(columnName, leftScope) != null) &&
+                            !columnNames.contains(columnName))
+                            columnNames.add(columnName);
+                    }
+                }
+                for (String columnName : columnNames) {
+                    hideJoinColumn(columnName, selectScope, hiddenScope);
+                }
+            }
+            if (join.getJoinClause() != null)
+                bindExpression(join.getJoinClause(), subScope(selectScope, start, end));
+        }
+        else
+            bindResultSet(node, selectScope.outer);
+    }
+
+    protected void addFromTable(FromTable fromTable, Scope selectScope, boolean nullable) {
+        selectScope.tables.add(fromTable);
+        if (nullable)
+            selectScope.nullable.put(fromTable, Boolean.TRUE);
+        if (fromTable.getCorrelationName() != null)
+            addExposedName(fromTable.getCorrelationName(), fromTable, selectScope);
+        else if (fromTable instanceof FromBaseTable) {
+            Catalog.Table table = (Catalog.Table)fromTable.getUserData();
+            addExposedName(table.getTableName(), fromTable, selectScope);
+            addExposedName(table.getSchemaName() + "." + table.getTableName(), 
+                           fromTable, selectScope);
+        }
+    }
+
+    protected static void addExposedName(String name, FromTable fromTable, Scope selectScope) {
+        if (!selectScope.exposedNames.containsKey(name))
+            selectScope.exposedNames.put(name, fromTable);
+    }
+
+    /** A scope with some of the tables of another, for a join. */
+    protected static Scope subScope(Scope selectScope, int start, int end) {
+        Scope subScope = new Scope(selectScope.outer);
+        Set<FromTable> tables = 
+            Collections.newSetFromMap(new IdentityHashMap<FromTable,Boolean>());
+        for (FromTable fromTable : selectScope.tables.subList(start, end)) {
+            subScope.tables.add(fromTable);
+            tables.add(fromTable);
+            if (selectScope.nullable.containsKey(fromTable))
+                subScope.nullable.put(fromTable, Boolean.TRUE);
+            if (selectScope.hidden.containsKey(fromTable))
+                subScope.hidden.put(fromTable, selectScope.hidden.get(fromTable));
+        }
+        for (Map.Entry<String,FromTable> entry : selectScope.exposedNames.entrySet()) {
+            if (tables.contains(entry.getValue()))
+                subScope.exposedNames.put(entry.getKey(), entry.getValue());
+        }
+        return subScope;
+    }
+
+    /** Hide one side's copy of a column merged by a join: the right
+     * side's, except for a right outer join, where only the right side's
+     * copy is never null. A full outer join would need a
+     * <code>COALESCE</code> of both, but the parser only makes inner
+     * and half outer joins.
+     */
+    protected static void hideJoinColumn(String columnName, Scope selectScope, Scope sideScope) {
+        for (FromTable fromTable : sideScope.tables) {
+            if (!sideScope.isHidden(fromTable, columnName) &&
+                (getColumnBinding(fromTable, columnName, sideScope) != null)) {
+                selectScope.hide(fromTable, columnName);
+                sideScope.hide(fromTable, columnName);
+            }
+        }
+    }
+
+    /** Replace each <code>*</code> with the columns it stands for. */
+    protected void expandAllResultColumns(ResultColumnList resultColumns, Scope selectScope)
+            throws StandardException {
+        boolean found = false;
+        for (ResultColumn resultColumn : resultColumns) {
+            if (resultColumn instanceof AllResultColumn) {
+                found = true;
+                break;
+            }
+        }
+        if (!found)
+            return;
+        List<ResultColumn> expanded = new ArrayList<ResultColumn>();
+        for (ResultColumn resultColumn : resultColumns) {
+            if (!(resultColumn instanceof AllResultColumn)) {
+                expanded.add(resultColumn);
+                continue;
+            }
+            TableName tableName = ((AllResultColumn)resultColumn).getTableNameObject();
+            if (tableName == null) {
+                for (FromTable fromTable : selectScope.tables) {
+                    expandAllColumns(fromTable, selectScope, true, expanded);
+                }
+            }
+            else {
+                FromTable fromTable = selectScope.exposedNames.get(exposedName(tableName));
+                if (fromTable == null)
+                    throw new StandardException("Table not found: " + 
+                                                tableName.getFullTableName());
+                expandAllColumns(fromTable, selectScope, false, expanded);
+            }
+        }
+        resultColumns.clear();
+        for (ResultColumn resultColumn : expanded) {
+            resultColumns.addResultColumn(resultColumn);
+        }
+    }
+
+    protected void expandAllColumns(FromTable fromTable, Scope selectScope, 
+                                    boolean skipHidden, List<ResultColumn> expanded)
+            throws StandardException {
+        for (String columnName : getColumnNames(fromTable)) {
+            if (skipHidden && selectScope.isHidden(fromTable, columnName))
+                continue;
+            TableName tableName;
+            if (fromTable.getCorrelationName() != null)
+                tableName = fromTable.makeTableName(null, fromTable.getCorrelationName());
+            else
+                tableName = (TableName)nodeFactory.copyNode(fromTable.getOrigTableName(),
+                                                            parserContext);
+            ColumnReference column = (ColumnReference)
+                nodeFactory.getNode(NodeTypes.COLUMN_REFERENCE,
+                                    columnName, tableName,
+                                    parserContext);
+            column.setUserData(getColumnBinding(fromTable, columnName, selectScope));
+            ResultColumn resultColumn = (ResultColumn)
+                nodeFactory.getNode(NodeTypes.RESULT_COLUMN,
+                                    columnName, column,
+                                    parserContext);
+            expanded.add(resultColumn);
+        }
+    }
+
+    /** Bind the columns of a sort, which can also name result columns. */
+    protected void bindOrderBy(OrderByList orderBy, ResultSetNode resultSet, 
+                               Scope selectScope)
+            throws StandardException {
+        if (orderBy == null)
+            return;
+        for (OrderByColumn orderByColumn : orderBy) {
+            ValueNode expression = orderByColumn.getExpression();
+            if ((expression instanceof ColumnReference) &&
+                (((ColumnReference)expression).getTableNameNode() == null)) {
+                ColumnReference column = (ColumnReference)expression;
+                ResultColumn resultColumn = 
+                    resultSet.getResultColumns().findResultColumn(column.getColumnName());
+                if (resultColumn != null) {
+                    Object binding = null;
+                    if (resultColumn.getExpression() instanceof ColumnReference)
+                        binding = resultColumn.getExpression().getUserData();
+                    if (!(binding instanceof ColumnBinding))
+                        binding = new ColumnBinding(null, resultColumn, false);
+                    column.setUserData(binding);
+                    continue;
+                }
+            }
+            if (selectScope == null)
+                throw new StandardException("ORDER BY must name a result column: " + 
+                                            expression);
+            bindExpression(expression, selectScope);
+        }
+    }
+
+    protected void bindReturning(DMLModStatementNode dml, Scope selectScope)
+            throws StandardException {
+        if (dml.getReturningList() == null)
+            return;
+        for (ResultColumn resultColumn : dml.getReturningList()) {
+            if (!(resultColumn instanceof AllResultColumn))
+                bindExpression(resultColumn.getExpression(), selectScope);
+        }
+    }
+
+    /** Bind the columns in an expression and its subqueries. */
+    protected void bindExpression(QueryTreeNode node, Scope expressionScope) 
+            throws StandardException {
+        if (node == null)
+            return;
+        Scope saved = scope;
+        scope = expressionScope;
+        try {
+            node.accept(this);
+        }
+        finally {
+            scope = saved;
+        }
+    }
+
+    protected void columnReference(ColumnReference column) throws StandardException {
+        String columnName = column.getColumnName();
+        TableName tableName = column.getTableNameNode();
+        ColumnBinding binding = null;
+        if (tableName != null) {
+            String exposedName = exposedName(tableName);
+            Scope tableScope = scope;
+            while (tableScope != null) {
+                FromTable fromTable = tableScope.exposedNames.get(exposedName);
+                if (fromTable != null) {
+                    binding = getColumnBinding(fromTable, columnName, tableScope);
+                    if (binding == null)
+                        throw new StandardException("Column not found: " + 
+                                                    column.getSQLColumnName());
+                    break;
+                }
+                tableScope = tableScope.outer;
+            }
+            if (binding == null)
+                throw new StandardException("Table not found: " + 
+                                            tableName.getFullTableName());
+        }
+        else {
+            Scope columnScope = scope;
+            while (columnScope != null) {
+                binding = findColumnBinding(columnName, columnScope);
+                if (binding != null)
+                    break;
+                columnScope = columnScope.outer;
+            }
+            if (binding == null)
+                throw new StandardException("Column not found: " + columnName);
+        }
+        column.setUserData(binding);
+    }
+
+    /** Find the only visible column with this name among the tables of
+     * a scope.
+     * @return null if there is none.
+     */
+    protected static ColumnBinding findColumnBinding(String columnName, Scope columnScope)
+            throws StandardException {
+        if (columnScope.target != null) {
+            Catalog.Column column = columnScope.target.getColumn(columnName);
+            if (column == null)
+                return null;
+            return new ColumnBinding(null, column, false);
+        }
+        ColumnBinding result = null;
+        for (FromTable fromTable : columnScope.tables) {
+            if (columnScope.isHidden(fromTable, columnName))
+                continue;
+            ColumnBinding binding = getColumnBinding(fromTable, columnName, columnScope);
+            if (binding != null) {
+                if (result != null)
+                    throw new StandardException("Ambiguous column name: " + columnName);
+                result = binding;
+            }
+        }
+        return result;
+    }
+
+    /** Get the binding for a column of the given table.
+     * @return null if it has no such column.
+     */
+    protected static ColumnBinding getColumnBinding(FromTable fromTable, String columnName,
+                                                    Scope columnScope) {
+        boolean nullable = columnScope.nullable.containsKey(fromTable);
+        if (fromTable instanceof FromBaseTable) {
+            Catalog.Table table = (Catalog.Table)fromTable.getUserData();
+            Catalog.Column column = table.getColumn(columnName);
+            if (column == null)
+                return null;
+            return new ColumnBinding(fromTable, column, nullable);
+        }
+        else {
+            ResultColumn resultColumn = derivedColumns(fromTable).getResultColumn(columnName);
+            if (resultColumn == null)
+                return null;
+            return new ColumnBinding(fromTable, resultColumn, nullable);
+        }
+    }
+
+    protected static List<String> getColumnNames(FromTable fromTable) {
+        List<String> columnNames = new ArrayList<String>();
+        if (fromTable instanceof FromBaseTable) {
+            Catalog.Table table = (Catalog.Table)fromTable.getUserData();
+            for (Catalog.Column column : table.getColumns()) {
+                columnNames.add(column.getName());
+            }
+        }
+        else {
+            for (ResultColumn resultColumn : derivedColumns(fromTable)) {
+                columnNames.add(resultColumn.getName());
+            }
+        }
+        return columnNames;
+    }
+
+    /** The columns of a derived table, from its own list if it has one. */
+    protected static ResultColumnList derivedColumns(FromTable fromTable) {
+        if (fromTable.getResultColumns() != null)
+            return fromTable.getResultColumns();
+        return ((FromSubquery)fromTable).getSubquery().getResultColumns();
+    }
+
+    protected String exposedName(TableName tableName) {
+        if (tableName.hasSchema())
+            return tableName.getFullTableName();
+        else
+            return tableName.getTableName();
+    }
+
+    protected Catalog.Table getTable(TableName tableName) throws StandardException {
+        String schemaName = tableName.getSchemaName();
+        if (schemaName == null)
+            schemaName = defaultSchemaName;
+        Catalog.Table table = catalog.getTable(schemaName, tableName.getTableName());
+        if (table == null)
+            throw new StandardException("Table not found: " + 
+                                        schemaName + "." + tableName.getTableName());
+        return table;
+    }
+
+    /* Visitor interface */
+
+    public Visitable visit(Visitable node) throws StandardException {
+        if (node instanceof ColumnReference)
+            columnReference((ColumnReference)node);
+        else if (node instanceof SubqueryNode) {
+            SubqueryNode subquery = (SubqueryNode)node;
+            if (subquery.getLeftOperand() != null)
+                subquery.getLeftOperand().accept(this);
+            ResultSetNode resultSet = subquery.getResultSet();
+            Scope subqueryScope = bindResultSet(resultSet, scope);
+            bindOrderBy(subquery.getOrderByList(), resultSet, subqueryScope);
+        }
+        return node;
+    }
+
+    public boolean visitChildrenFirst(Visitable node) {
+        return false;
+    }
+    public boolean stopTraversal() {
+        return false;
+    }
+    public boolean skipChildren(Visitable node) throws StandardException {
+        return (node instanceof SubqueryNode);
+    }
+
+}
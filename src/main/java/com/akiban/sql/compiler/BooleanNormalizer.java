@@ -46,6 +46,11 @@ import com.akiban.sql.StandardException;
 import com.akiban.sql.types.DataTypeDescriptor;
 import com.akiban.sql.types.TypeId;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /** Perform normalization such as CNF on boolean expressions. */
 public class BooleanNormalizer implements Visitor
 {
@@ -53,11 +58,22 @@ public class BooleanNormalizer implements Visitor
 
     SQLParserContext parserContext;
     NodeFactory nodeFactory;
+    boolean collapseComparisons;
     public BooleanNormalizer(SQLParserContext parserContext) {
         this.parserContext = parserContext;
         this.nodeFactory = parserContext.getNodeFactory();
     }
 
+    /** Whether <code>OR</code>s of equalities on the same column are
+     * turned into an IN list and adjacent lower and upper bounds into
+     * BETWEEN after conversion to CNF. */
+    public boolean isCollapseComparisons() {
+        return collapseComparisons;
+    }
+    public void setCollapseComparisons(boolean collapseComparisons) {
+        this.collapseComparisons = collapseComparisons;
+    }
+
     /** Normalize conditions anywhere in this statement. */
     public StatementNode normalize(StatementNode stmt) throws StandardException {
         return (StatementNode)stmt.accept(this);
@@ -94,6 +110,10 @@ public class BooleanNormalizer implements Visitor
             assert verifyPutAndsOnTop(boolClause);
             boolClause = changeToCNF(boolClause, true);
             assert verifyChangeToCNF(boolClause, true);
+            if (collapseComparisons) {
+                boolClause = collapseComparisons(boolClause);
+                assert verifyChangeToCNF(boolClause, true);
+            }
         }
         return boolClause;
     }
@@ -478,6 +498,227 @@ public class BooleanNormalizer implements Visitor
         return result;                
     }
     
+    /**
+     * Collapse comparisons in an expression already in CNF: equalities
+     * of the same column in an <code>OR</code> chain become a single
+     * <code>IN</code> and adjacent conjuncts giving the lower and upper
+     * bound of the same column become a single <code>BETWEEN</code>.
+     *
+     * @param node An expression node in CNF.
+     *
+     * @return The modified expression, still in CNF.
+     *
+     * @exception StandardException Thrown on error
+     */
+    protected ValueNode collapseComparisons(ValueNode node) throws StandardException {
+        ValueNode next = node;
+        while (next instanceof AndNode) {
+            AndNode andNode = (AndNode)next;
+            ValueNode leftOperand = andNode.getLeftOperand();
+            if (leftOperand instanceof OrNode) {
+                leftOperand = orsToInList((OrNode)leftOperand);
+                andNode.setLeftOperand(leftOperand);
+            }
+            next = andNode.getRightOperand();
+            if (next instanceof AndNode) {
+                AndNode nextAnd = (AndNode)next;
+                ValueNode between = boundsToBetween(leftOperand, 
+                                                    nextAnd.getLeftOperand());
+                if (between != null) {
+                    andNode.setLeftOperand(between);
+                    andNode.setRightOperand(nextAnd.getRightOperand());
+                    next = andNode.getRightOperand();
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Replace equalities between the same column and a constant or
+     * parameter in this <code>OR</code> chain with <code>IN</code>.
+     */
+    protected ValueNode orsToInList(OrNode node) throws StandardException {
+        List<ValueNode> disjuncts = new ArrayList<ValueNode>();
+        Map<String,List<BinaryComparisonOperatorNode>> equalities = 
+            new HashMap<String,List<BinaryComparisonOperatorNode>>();
+        boolean collapse = false;
+        ValueNode next = node;
+        while (next instanceof OrNode) {
+            OrNode orNode = (OrNode)next;
+            ValueNode disjunct = orNode.getLeftOperand();
+            disjuncts.add(disjunct);
+            ColumnReference column = inListColumn(disjunct);
+            if (column != null) {
+                String key = PredicateRangeMerger.columnKey(column);
+                List<BinaryComparisonOperatorNode> equals = equalities.get(key);
+                if (equals == null) {
+                    equals = new ArrayList<BinaryComparisonOperatorNode>();
+                    equalities.put(key, equals);
+                }
+                equals.add((BinaryComparisonOperatorNode)disjunct);
+                if (equals.size() > 1)
+                    collapse = true;
+            }
+            next = orNode.getRightOperand();
+        }
+        if (!collapse)
+            return node;
+        ValueNode result = next; // The FALSE terminator.
+        for (int i = disjuncts.size() - 1; i >= 0; i--) {
+            ValueNode disjunct = disjuncts.get(i);
+            ColumnReference column = inListColumn(disjunct);
+            if (column != null) {
+                List<BinaryComparisonOperatorNode> equals = 
+                    equalities.get(PredicateRangeMerger.columnKey(column));
+                if (equals.size() > 1) {
+                    if (equals.get(0) != disjunct)
+                        continue;
+                    disjunct = equalitiesToInList(column, equals);
+                }
+            }
+            OrNode orNode = (OrNode)nodeFactory.getNode(NodeTypes.OR_NODE,
+                                                        disjunct, result,
+                                                        parserContext);
+            orNode.setType(node.getType());
+            result = orNode;
+        }
+        return result;
+    }
+
+    /**
+     * If this is a <code>column = value</code> or <code>value =
+     * column</code> where value could be an <code>IN</code> list
+     * element, return the column.
+     */
+    protected ColumnReference inListColumn(ValueNode node) {
+        if (node.getNodeType() != NodeTypes.BINARY_EQUALS_OPERATOR_NODE)
+            return null;
+        BinaryComparisonOperatorNode equals = (BinaryComparisonOperatorNode)node;
+        if ((equals.getLeftOperand() instanceof ColumnReference) &&
+            isInListValue(equals.getRightOperand()))
+            return (ColumnReference)equals.getLeftOperand();
+        if ((equals.getRightOperand() instanceof ColumnReference) &&
+            isInListValue(equals.getLeftOperand()))
+            return (ColumnReference)equals.getRightOperand();
+        return null;
+    }
+
+    protected static boolean isInListValue(ValueNode node) {
+        return ((node.getNodeType() == NodeTypes.PARAMETER_NODE) ||
+                (node instanceof ConstantNode));
+    }
+
+    /** The value side of an equality accepted by {@link #inListColumn}. */
+    protected static ValueNode inListValue(BinaryComparisonOperatorNode equals) {
+        if ((equals.getLeftOperand() instanceof ColumnReference) &&
+            isInListValue(equals.getRightOperand()))
+            return equals.getRightOperand();
+        return equals.getLeftOperand();
+    }
+
+    protected ValueNode equalitiesToInList(ColumnReference column,
+                                           List<BinaryComparisonOperatorNode> equals)
+            throws StandardException {
+        ValueNodeList values = (ValueNodeList)
+            nodeFactory.getNode(NodeTypes.VALUE_NODE_LIST,
+                                parserContext);
+        boolean typed = true, nullable = false;
+        for (BinaryComparisonOperatorNode equal : equals) {
+            values.addValueNode(inListValue(equal));
+            if (equal.getType() == null)
+                typed = false;
+            else if (equal.getType().isNullable())
+                nullable = true;
+        }
+        RowConstructorNode row = (RowConstructorNode)
+            nodeFactory.getNode(NodeTypes.ROW_CTOR_NODE,
+                                values, new int[] { 1 },
+                                parserContext);
+        ValueNode inList = (ValueNode)
+            nodeFactory.getNode(NodeTypes.IN_LIST_OPERATOR_NODE,
+                                column, row,
+                                parserContext);
+        if (typed)
+            inList.setType(new DataTypeDescriptor(TypeId.BOOLEAN_ID, nullable));
+        return inList;
+    }
+
+    /**
+     * If these are the lower and upper bounds (in either order) of
+     * the same column, return the equivalent <code>BETWEEN</code>.
+     */
+    protected ValueNode boundsToBetween(ValueNode node1, ValueNode node2)
+            throws StandardException {
+        BinaryComparisonOperatorNode lower = null, upper = null;
+        if (isBound(node1, true) && isBound(node2, false)) {
+            lower = (BinaryComparisonOperatorNode)node1;
+            upper = (BinaryComparisonOperatorNode)node2;
+        }
+        else if (isBound(node1, false) && isBound(node2, true)) {
+            lower = (BinaryComparisonOperatorNode)node2;
+            upper = (BinaryComparisonOperatorNode)node1;
+        }
+        else
+            return null;
+        ColumnReference column = boundColumn(lower);
+        if (!PredicateRangeMerger.columnKey(column)
+            .equals(PredicateRangeMerger.columnKey(boundColumn(upper))))
+            return null;
+        ValueNodeList bounds = (ValueNodeList)
+            nodeFactory.getNode(NodeTypes.VALUE_NODE_LIST,
+                                parserContext);
+        bounds.addValueNode(boundValue(lower));
+        bounds.addValueNode(boundValue(upper));
+        ValueNode between = (ValueNode)
+            nodeFactory.getNode(NodeTypes.BETWEEN_OPERATOR_NODE,
+                                column, bounds,
+                                parserContext);
+        if ((lower.getType() != null) && (upper.getType() != null))
+            between.setType(new DataTypeDescriptor(TypeId.BOOLEAN_ID,
+                                                   lower.getType().isNullable() ||
+                                                   upper.getType().isNullable()));
+        return between;
+    }
+
+    /** Is this <code>column &gt;= value</code> (<code>lower</code>) or
+     * <code>column &lt;= value</code>, with the column on either side? */
+    protected boolean isBound(ValueNode node, boolean lower) {
+        int nodeType = node.getNodeType();
+        boolean greater;
+        switch (nodeType) {
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+            greater = true;
+            break;
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+            greater = false;
+            break;
+        default:
+            return false;
+        }
+        BinaryComparisonOperatorNode bnode = (BinaryComparisonOperatorNode)node;
+        if (bnode.getLeftOperand() instanceof ColumnReference)
+            return (greater == lower);
+        else if (bnode.getRightOperand() instanceof ColumnReference)
+            return (greater != lower);
+        else
+            return false;
+    }
+
+    protected ColumnReference boundColumn(BinaryComparisonOperatorNode node) {
+        if (node.getLeftOperand() instanceof ColumnReference)
+            return (ColumnReference)node.getLeftOperand();
+        else
+            return (ColumnReference)node.getRightOperand();
+    }
+
+    protected ValueNode boundValue(BinaryComparisonOperatorNode node) {
+        if (node.getLeftOperand() instanceof ColumnReference)
+            return node.getRightOperand();
+        else
+            return node.getLeftOperand();
+    }
+
     protected ValueNode castToBoolean(ValueNode node) throws StandardException {
         if ((node.getType() == null) ||
             (node.getType().getTypeId().isBooleanTypeId()))
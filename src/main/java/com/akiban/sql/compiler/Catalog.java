@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.types.DataTypeDescriptor;
+
+import java.util.List;
+
+/** The schemas, tables and columns that statements are bound against
+ * by a {@link Binder}.
+ */
+public interface Catalog
+{
+    public interface Table {
+        public String getSchemaName();
+        public String getTableName();
+        /** The columns, in the order of <code>SELECT *</code>. */
+        public List<? extends Column> getColumns();
+        /** @return null if there is no such column. */
+        public Column getColumn(String columnName);
+    }
+
+    public interface Column {
+        public Table getTable();
+        public String getName();
+        /** The column's 0-based position in its table. */
+        public int getPosition();
+        public DataTypeDescriptor getType();
+    }
+
+    /** Get a table.
+     * @return null if there is no such table.
+     */
+    public Table getTable(String schemaName, String tableName);
+}
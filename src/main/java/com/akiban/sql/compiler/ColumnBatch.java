@@ -0,0 +1,137 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import java.math.BigDecimal;
+
+/**
+ * A batch of rows stored by column, for a {@link BatchPredicate}.
+ *
+ * Each column is an array of primitive values (or strings or
+ * decimals) plus an optional null bitmap, in which bit
+ * <code>i % 64</code> of word <code>i / 64</code> is set when row
+ * <code>i</code> is null; a <code>null</code> bitmap means no nulls. The value stored for a null
+ * row is ignored. Columns are numbered as for {@link RowAccessor} and
+ * only the kind of array matching a column's type is used.
+ *
+ * The arrays are referenced, not copied, so a batch can be refilled in
+ * place. A batch is also a {@link RowAccessor} positioned at one of its
+ * rows, so it is not safe to share among threads.
+ */
+public class ColumnBatch implements RowAccessor
+{
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    int rowCount;
+    final long[][] longs;
+    final BigDecimal[][] decimals;
+    final double[][] doubles;
+    final String[][] strings;
+    final boolean[][] booleans;
+    final long[][] nulls;
+    int position;
+
+    public ColumnBatch(int ncolumns) {
+        longs = new long[ncolumns][];
+        decimals = new BigDecimal[ncolumns][];
+        doubles = new double[ncolumns][];
+        strings = new String[ncolumns][];
+        booleans = new boolean[ncolumns][];
+        nulls = new long[ncolumns][];
+    }
+
+    public int getColumnCount() {
+        return nulls.length;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public void setLongColumn(int column, long[] values, long[] nullBits) {
+        longs[column] = values;
+        nulls[column] = nullBits;
+    }
+
+    public void setDecimalColumn(int column, BigDecimal[] values, long[] nullBits) {
+        decimals[column] = values;
+        nulls[column] = nullBits;
+    }
+
+    public void setDoubleColumn(int column, double[] values, long[] nullBits) {
+        doubles[column] = values;
+        nulls[column] = nullBits;
+    }
+
+    public void setStringColumn(int column, String[] values, long[] nullBits) {
+        strings[column] = values;
+        nulls[column] = nullBits;
+    }
+
+    public void setBooleanColumn(int column, boolean[] values, long[] nullBits) {
+        booleans[column] = values;
+        nulls[column] = nullBits;
+    }
+
+    /** Make a null bitmap large enough for the given number of rows. */
+    public static long[] newNullBits(int nrows) {
+        return new long[(nrows + 63) >>> 6];
+    }
+
+    public static void setNull(long[] nullBits, int row) {
+        nullBits[row >>> 6] |= (1L << row);
+    }
+
+    public static boolean isNull(long[] nullBits, int row) {
+        return ((nullBits != null) && ((nullBits[row >>> 6] & (1L << row)) != 0));
+    }
+
+    /** Position the {@link RowAccessor} view at the given row. */
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    /* RowAccessor */
+
+    public boolean isNull(int column) {
+        return isNull(nulls[column], position);
+    }
+
+    public long getLong(int column) {
+        return longs[column][position];
+    }
+
+    public BigDecimal getDecimal(int column) {
+        return decimals[column][position];
+    }
+
+    public double getDouble(int column) {
+        return doubles[column][position];
+    }
+
+    public String getString(int column) {
+        return strings[column][position];
+    }
+
+    public boolean getBoolean(int column) {
+        return booleans[column][position];
+    }
+}
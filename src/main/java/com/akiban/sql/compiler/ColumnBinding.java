@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.FromTable;
+import com.akiban.sql.parser.ResultColumn;
+
+import com.akiban.sql.types.DataTypeDescriptor;
+
+/** What a {@link com.akiban.sql.parser.ColumnReference} was bound to by
+ * a {@link Binder}: either a column of a base table or a result column
+ * of a derived table. Kept as the reference's user data.
+ */
+public class ColumnBinding
+{
+    private FromTable fromTable;
+    private Catalog.Column column;
+    private ResultColumn resultColumn;
+    private boolean nullable;
+
+    public ColumnBinding(FromTable fromTable, Catalog.Column column, boolean nullable) {
+        this.fromTable = fromTable;
+        this.column = column;
+        this.nullable = nullable;
+    }
+
+    public ColumnBinding(FromTable fromTable, ResultColumn resultColumn, boolean nullable) {
+        this.fromTable = fromTable;
+        this.resultColumn = resultColumn;
+        this.nullable = nullable;
+    }
+
+    /** The table in the FROM list. */
+    public FromTable getFromTable() {
+        return fromTable;
+    }
+
+    /** The base table column, or null for a derived table. */
+    public Catalog.Column getColumn() {
+        return column;
+    }
+
+    /** The derived table's result column, or null for a base table. */
+    public ResultColumn getResultColumn() {
+        return resultColumn;
+    }
+
+    /** Whether the table is on the inner side of an outer join, so that
+     * the column can be null even if its type is not.
+     */
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /** The column's type, if known. */
+    public DataTypeDescriptor getType() {
+        DataTypeDescriptor type;
+        if (column != null)
+            type = column.getType();
+        else
+            type = resultColumn.getType();
+        if ((type != null) && nullable && !type.isNullable())
+            type = type.getNullabilityType(true);
+        return type;
+    }
+
+    public String toString() {
+        if (column != null)
+            return column.toString();
+        else if (fromTable == null)
+            // A select list column named by ORDER BY.
+            return resultColumn.getName();
+        else
+            return fromTable.getCorrelationName() + "." + resultColumn.getName();
+    }
+
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Remove the columns of derived tables, such as expanded views, that
+ * the query selecting from them never refers to.
+ *
+ * Statements are processed from the top down. Once a subquery's select
+ * list has shrunk, the subqueries beneath it need fewer columns in turn.
+ * Under <code>UNION ALL</code>, the same columns are removed from every
+ * branch. A <code>DISTINCT</code>, <code>UNION</code>,
+ * <code>INTERSECT</code> or <code>EXCEPT</code> result depends on all
+ * its columns, so these are left alone.
+ *
+ * This runs before binding, so references are matched by name. An
+ * unqualified reference keeps any column of that name. So does a
+ * reference from a nested subquery, which might be correlated.
+ * <code>SELECT *</code> and <code>NATURAL JOIN</code> keep everything.
+ */
+public class ColumnPruner implements Visitor
+{
+    SQLParserContext parserContext;
+    NodeFactory nodeFactory;
+    Map<SelectNode,OrderByList> orderings;
+    public ColumnPruner(SQLParserContext parserContext) {
+        this.parserContext = parserContext;
+        this.nodeFactory = parserContext.getNodeFactory();
+    }
+
+    /** Prune unused columns anywhere in this statement. */
+    public StatementNode prune(StatementNode stmt) throws StandardException {
+        orderings = new IdentityHashMap<SelectNode,OrderByList>();
+        stmt.accept(new ViewMerger.OrderingFinder(orderings));
+        try {
+            return (StatementNode)stmt.accept(this);
+        }
+        finally {
+            orderings = null;
+        }
+    }
+
+    /** Prune the subqueries in this SELECT's FROM list down to the
+     * columns it uses.
+     */
+    public void selectNode(SelectNode node) throws StandardException {
+        List<FromSubquery> subqueries = new ArrayList<FromSubquery>();
+        Set<String> usingNames = new HashSet<String>();
+        for (FromTable fromTable : node.getFromList()) {
+            addSubqueries(fromTable, subqueries, usingNames);
+        }
+        if (subqueries.isEmpty())
+            return;
+
+        ReferenceFinder finder = new ReferenceFinder(subqueries);
+        node.accept(finder);
+        OrderByList ordering = orderings.get(node);
+        if (ordering != null)
+            ordering.accept(finder);
+
+        for (ResultColumn resultColumn : node.getResultColumns()) {
+            if ((resultColumn instanceof AllResultColumn) &&
+                (resultColumn.getTableNameObject() == null))
+                return;
+        }
+
+        for (FromSubquery subquery : subqueries) {
+            String name = subquery.getCorrelationName();
+            if ((name == null) || finder.allColumnTables.contains(name))
+                continue;
+            Set<String> used = new HashSet<String>(usingNames);
+            for (ColumnReference reference : finder.references) {
+                TableName tableName = reference.getTableNameNode();
+                if ((tableName == null) || name.equals(tableName.getTableName()))
+                    used.add(reference.getColumnName());
+            }
+            pruneSubquery(subquery, used);
+        }
+    }
+
+    /** Add the subqueries among this FROM list entry, except those whose
+     * columns are all used by <code>NATURAL JOIN</code>.
+     */
+    protected static void addSubqueries(ResultSetNode fromTable,
+                                        List<FromSubquery> subqueries,
+                                        Set<String> usingNames) {
+        if (fromTable instanceof FromSubquery)
+            subqueries.add((FromSubquery)fromTable);
+        else if (fromTable instanceof JoinNode) {
+            JoinNode joinNode = (JoinNode)fromTable;
+            if (joinNode.isNaturalJoin())
+                return;
+            if (joinNode.getUsingClause() != null) {
+                for (ResultColumn resultColumn : joinNode.getUsingClause()) {
+                    usingNames.add(resultColumn.getName());
+                }
+            }
+            addSubqueries(joinNode.getLeftResultSet(), subqueries, usingNames);
+            addSubqueries(joinNode.getRightResultSet(), subqueries, usingNames);
+        }
+    }
+
+    /** Remove the columns of this subquery whose names are not in
+     * <code>used</code>, if that is possible.
+     */
+    protected void pruneSubquery(FromSubquery fromSubquery, Set<String> used)
+            throws StandardException {
+        List<SelectNode> selects = new ArrayList<SelectNode>();
+        List<ResultColumnList> lists = new ArrayList<ResultColumnList>();
+        if (!addUnionAll(fromSubquery.getSubquery(), selects, lists))
+            return;
+        ResultColumnList derivedColumns = fromSubquery.getResultColumns();
+        if (derivedColumns != null)
+            lists.add(derivedColumns);
+        int ncols = selects.get(0).getResultColumns().size();
+        for (ResultColumnList list : lists) {
+            if (list.size() != ncols)
+                return;
+            for (ResultColumn resultColumn : list) {
+                if (resultColumn instanceof AllResultColumn)
+                    return;
+            }
+        }
+
+        ResultColumnList names = (derivedColumns != null) ? derivedColumns :
+            selects.get(0).getResultColumns();
+        boolean[] needed = new boolean[ncols];
+        for (int i = 0; i < ncols; i++) {
+            String name = names.get(i).getName();
+            if ((name != null) && used.contains(name))
+                needed[i] = true;
+        }
+
+        // An ORDER BY on the subquery can use its select list.
+        Set<String> aliases = new HashSet<String>();
+        OrderByList orderByList = fromSubquery.getOrderByList();
+        if (orderByList != null) {
+            for (OrderByColumn orderByColumn : orderByList) {
+                if (orderByColumn.getExpression() instanceof ConstantNode)
+                    return;     // By position.
+            }
+            addUnqualifiedNames(orderByList, aliases);
+        }
+        for (SelectNode select : selects) {
+            ResultColumnList resultColumns = select.getResultColumns();
+            // Some dialects allow a select alias in GROUP BY or HAVING.
+            Set<String> selectAliases = new HashSet<String>(aliases);
+            if (select.getGroupByList() != null)
+                addUnqualifiedNames(select.getGroupByList(), selectAliases);
+            if (select.getHavingClause() != null)
+                addUnqualifiedNames(select.getHavingClause(), selectAliases);
+            // Without GROUP BY, aggregates make it return just one row.
+            boolean scalarAggregate = ((select.getGroupByList() == null) &&
+                                       ((select.getHavingClause() != null) ||
+                                        ViewMerger.hasNode(resultColumns,
+                                                           AggregateNode.class)));
+            for (int i = 0; i < ncols; i++) {
+                ResultColumn resultColumn = resultColumns.get(i);
+                if (selectAliases.contains(resultColumn.getName()) ||
+                    (scalarAggregate &&
+                     ViewMerger.hasNode(resultColumn, AggregateNode.class)))
+                    needed[i] = true;
+            }
+        }
+
+        boolean any = false;
+        for (int i = 0; i < ncols; i++) {
+            if (needed[i]) {
+                any = true;
+                break;
+            }
+        }
+        if (!any)
+            needed[0] = true;   // A select list cannot be empty.
+        for (int i = ncols - 1; i >= 0; i--) {
+            if (!needed[i]) {
+                for (ResultColumnList list : lists) {
+                    list.remove(i);
+                }
+            }
+        }
+    }
+
+    /** Add the SELECTs beneath any number of <code>UNION ALL</code>s and
+     * all the select lists that need to stay in step.
+     * @return false if the result set is anything else.
+     */
+    protected static boolean addUnionAll(ResultSetNode resultSet,
+                                         List<SelectNode> selects,
+                                         List<ResultColumnList> lists) {
+        if (resultSet instanceof SelectNode) {
+            SelectNode select = (SelectNode)resultSet;
+            if (select.isDistinct())
+                return false;
+            selects.add(select);
+            lists.add(select.getResultColumns());
+            return true;
+        }
+        else if (resultSet instanceof UnionNode) {
+            UnionNode union = (UnionNode)resultSet;
+            if (!union.isAll())
+                return false;
+            if (union.getResultColumns() != null)
+                lists.add(union.getResultColumns());
+            return (addUnionAll(union.getLeftResultSet(), selects, lists) &&
+                    addUnionAll(union.getRightResultSet(), selects, lists));
+        }
+        else
+            return false;
+    }
+
+    protected static void addUnqualifiedNames(QueryTreeNode node, Set<String> names)
+            throws StandardException {
+        ReferenceFinder finder = new ReferenceFinder(new ArrayList<FromSubquery>());
+        node.accept(finder);
+        for (ColumnReference reference : finder.references) {
+            if (reference.getTableNameNode() == null)
+                names.add(reference.getColumnName());
+        }
+    }
+
+    /** Find the column references in a query block and anything nested
+     * in it except the given subqueries, whose columns are being decided.
+     */
+    static class ReferenceFinder implements Visitor {
+        List<FromSubquery> subqueries;
+        List<ColumnReference> references = new ArrayList<ColumnReference>();
+        Set<String> allColumnTables = new HashSet<String>();
+
+        public ReferenceFinder(List<FromSubquery> subqueries) {
+            this.subqueries = subqueries;
+        }
+
+        public Visitable visit(Visitable node) throws StandardException {
+            if (node instanceof ColumnReference)
+                references.add((ColumnReference)node);
+            else if (node instanceof AllResultColumn) {
+                TableName tableName = ((AllResultColumn)node).getTableNameObject();
+                if (tableName != null)
+                    allColumnTables.add(tableName.getTableName());
+            }
+            return node;
+        }
+
+        public boolean visitChildrenFirst(Visitable node) {
+            return false;
+        }
+        public boolean stopTraversal() {
+            return false;
+        }
+        public boolean skipChildren(Visitable node) throws StandardException {
+            if (node instanceof FromSubquery) {
+                for (FromSubquery subquery : subqueries) {
+                    if (subquery == node)
+                        return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /* Visitor interface */
+
+    public Visitable visit(Visitable node) throws StandardException {
+        switch (((QueryTreeNode)node).getNodeType()) {
+        case NodeTypes.SELECT_NODE:
+            selectNode((SelectNode)node);
+            break;
+        }
+        return node;
+    }
+
+    public boolean visitChildrenFirst(Visitable node) {
+        return false;
+    }
+    public boolean stopTraversal() {
+        return false;
+    }
+    public boolean skipChildren(Visitable node) throws StandardException {
+        return false;
+    }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.StandardException;
+
+/**
+ * A boolean condition compiled by {@link PredicateCompiler}.
+ *
+ * Instances hold no per-row state, so one can be shared by any number
+ * of threads, and evaluating a row does not allocate.
+ */
+public abstract class CompiledPredicate
+{
+    /**
+     * Evaluate the condition against a row.
+     *
+     * @return {@link Boolean#TRUE}, {@link Boolean#FALSE} or
+     * <code>null</code> for unknown; never any other instance.
+     *
+     * @exception StandardException Thrown on a runtime error such as
+     * division by zero or overflow.
+     */
+    public abstract Boolean evaluate(RowAccessor row) throws StandardException;
+
+    /** Does the row satisfy the condition, that is, is it TRUE? */
+    public boolean matches(RowAccessor row) throws StandardException {
+        return (evaluate(row) == Boolean.TRUE);
+    }
+}
@@ -0,0 +1,667 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+import com.akiban.sql.types.CharacterTypeAttributes;
+import com.akiban.sql.types.DataTypeDescriptor;
+import com.akiban.sql.types.TypeId;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/** Fold constant expressions into literals and simplify constant conditions.
+ *
+ * Types are taken from the nodes if {@link TypeComputer} has already
+ * been run and otherwise derived from the operands using the
+ * appropriate {@link TypeCompiler}. Anything that would raise an
+ * error at runtime, such as overflow or division by zero, is left
+ * alone so that the error still happens then.
+ *
+ * Since <code>x AND TRUE</code> is simplified to <code>x</code>, this
+ * should be run before {@link BooleanNormalizer}.
+ */
+public class ConstantFolder implements Visitor
+{
+    SQLParserContext parserContext;
+    NodeFactory nodeFactory;
+    public ConstantFolder(SQLParserContext parserContext) {
+        this.parserContext = parserContext;
+        this.nodeFactory = parserContext.getNodeFactory();
+    }
+
+    /** Fold constants anywhere in this statement. */
+    public StatementNode fold(StatementNode stmt) throws StandardException {
+        return (StatementNode)stmt.accept(this);
+    }
+
+    /** Remove a WHERE / HAVING clause that is always TRUE. */
+    public void selectNode(SelectNode node) throws StandardException {
+        if (isBooleanConstant(node.getWhereClause(), Boolean.TRUE))
+            node.setWhereClause(null);
+        if (isBooleanConstant(node.getHavingClause(), Boolean.TRUE))
+            node.setHavingClause(null);
+    }
+
+    /** Fold the given expression, whose operands have already been
+     * folded, if possible.
+     * @return the replacement or the original node.
+     */
+    protected ValueNode foldExpression(ValueNode node) throws StandardException {
+        switch (node.getNodeType()) {
+        case NodeTypes.BINARY_PLUS_OPERATOR_NODE:
+        case NodeTypes.BINARY_MINUS_OPERATOR_NODE:
+        case NodeTypes.BINARY_TIMES_OPERATOR_NODE:
+        case NodeTypes.BINARY_DIVIDE_OPERATOR_NODE:
+        case NodeTypes.BINARY_DIV_OPERATOR_NODE:
+        case NodeTypes.MOD_OPERATOR_NODE:
+            return binaryArithmeticOperatorNode((BinaryArithmeticOperatorNode)node);
+        case NodeTypes.UNARY_MINUS_OPERATOR_NODE:
+        case NodeTypes.UNARY_PLUS_OPERATOR_NODE:
+            return unaryArithmeticOperatorNode((UnaryArithmeticOperatorNode)node);
+        case NodeTypes.CONCATENATION_OPERATOR_NODE:
+            return concatenationOperatorNode((ConcatenationOperatorNode)node);
+        case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+            return binaryComparisonOperatorNode((BinaryComparisonOperatorNode)node);
+        case NodeTypes.IS_NULL_NODE:
+        case NodeTypes.IS_NOT_NULL_NODE:
+            return isNullNode((UnaryOperatorNode)node);
+        case NodeTypes.CAST_NODE:
+            return castNode((CastNode)node);
+        case NodeTypes.NOT_NODE:
+            return notNode((NotNode)node);
+        case NodeTypes.AND_NODE:
+            return andNode((AndNode)node);
+        case NodeTypes.OR_NODE:
+            return orNode((OrNode)node);
+        default:
+            return node;
+        }
+    }
+
+    protected ValueNode binaryArithmeticOperatorNode(BinaryArithmeticOperatorNode node)
+            throws StandardException {
+        ValueNode leftOperand = node.getLeftOperand();
+        ValueNode rightOperand = node.getRightOperand();
+        if (!(leftOperand instanceof ConstantNode) ||
+            !(rightOperand instanceof ConstantNode))
+            return node;
+        DataTypeDescriptor leftType = leftOperand.getType();
+        DataTypeDescriptor rightType = rightOperand.getType();
+        if ((leftType == null) || (rightType == null) ||
+            !leftType.getTypeId().isNumericTypeId() ||
+            !rightType.getTypeId().isNumericTypeId())
+            return node;
+        String operator = node.getOperator();
+        DataTypeDescriptor resultType = node.getType();
+        if (resultType == null)
+            resultType = TypeCompiler.getTypeCompiler(leftType.getTypeId())
+                .resolveArithmeticOperation(leftType, rightType, operator);
+        Object leftValue = ((ConstantNode)leftOperand).getValue();
+        Object rightValue = ((ConstantNode)rightOperand).getValue();
+        if ((leftValue == null) || (rightValue == null))
+            return node.getNullNode(resultType);
+        if (!(leftValue instanceof Number) || !(rightValue instanceof Number))
+            return node;
+        TypeId resultTypeId = resultType.getTypeId();
+        if (resultTypeId.isFloatingPointTypeId()) {
+            if (TypeCompiler.MOD_OP.equals(operator) ||
+                TypeCompiler.DIV_OP.equals(operator))
+                return node;
+            double left = ((Number)leftValue).doubleValue();
+            double right = ((Number)rightValue).doubleValue();
+            double result;
+            if (TypeCompiler.PLUS_OP.equals(operator))
+                result = left + right;
+            else if (TypeCompiler.MINUS_OP.equals(operator))
+                result = left - right;
+            else if (TypeCompiler.TIMES_OP.equals(operator))
+                result = left * right;
+            else if (TypeCompiler.DIVIDE_OP.equals(operator)) {
+                if (right == 0.0)
+                    return node;
+                result = left / right;
+            }
+            else
+                return node;
+            return numericConstant(node, resultType, result);
+        }
+        else {
+            BigDecimal left = toBigDecimal(leftValue);
+            BigDecimal right = toBigDecimal(rightValue);
+            boolean integer = resultTypeId.isIntegerTypeId();
+            BigDecimal result;
+            if (TypeCompiler.PLUS_OP.equals(operator))
+                result = left.add(right);
+            else if (TypeCompiler.MINUS_OP.equals(operator))
+                result = left.subtract(right);
+            else if (TypeCompiler.TIMES_OP.equals(operator))
+                result = left.multiply(right);
+            else if (TypeCompiler.DIVIDE_OP.equals(operator) ||
+                     TypeCompiler.DIV_OP.equals(operator)) {
+                if (right.signum() == 0)
+                    return node;
+                if (integer || TypeCompiler.DIV_OP.equals(operator))
+                    result = left.divideToIntegralValue(right);
+                else
+                    result = left.divide(right, resultType.getScale(),
+                                         RoundingMode.DOWN);
+            }
+            else if (TypeCompiler.MOD_OP.equals(operator)) {
+                if (right.signum() == 0)
+                    return node;
+                result = left.remainder(right);
+            }
+            else
+                return node;
+            return numericConstant(node, resultType, result);
+        }
+    }
+
+    protected ValueNode unaryArithmeticOperatorNode(UnaryArithmeticOperatorNode node)
+            throws StandardException {
+        ValueNode operand = node.getOperand();
+        if (!(operand instanceof ConstantNode))
+            return node;
+        DataTypeDescriptor type = operand.getType();
+        if ((type == null) || !type.getTypeId().isNumericTypeId())
+            return node;
+        Object value = ((ConstantNode)operand).getValue();
+        if (value == null)
+            return node.getNullNode(type);
+        if (!(value instanceof Number))
+            return node;
+        if (node.getNodeType() == NodeTypes.UNARY_PLUS_OPERATOR_NODE)
+            return operand;
+        if (type.getTypeId().isFloatingPointTypeId())
+            return numericConstant(node, type, -((Number)value).doubleValue());
+        else
+            return numericConstant(node, type, toBigDecimal(value).negate());
+    }
+
+    protected ValueNode concatenationOperatorNode(ConcatenationOperatorNode node)
+            throws StandardException {
+        ValueNode leftOperand = node.getLeftOperand();
+        ValueNode rightOperand = node.getRightOperand();
+        if (!(leftOperand instanceof ConstantNode) ||
+            !(rightOperand instanceof ConstantNode))
+            return node;
+        Object leftValue = ((ConstantNode)leftOperand).getValue();
+        Object rightValue = ((ConstantNode)rightOperand).getValue();
+        if ((leftValue == null) || (rightValue == null)) {
+            if (node.getType() == null)
+                return node;
+            return node.getNullNode(node.getType());
+        }
+        if (!(leftValue instanceof String) || !(rightValue instanceof String))
+            return node;
+        return charConstant(node, node.getType(),
+                            (String)leftValue + (String)rightValue);
+    }
+
+    protected ValueNode binaryComparisonOperatorNode(BinaryComparisonOperatorNode node)
+            throws StandardException {
+        ValueNode leftOperand = node.getLeftOperand();
+        ValueNode rightOperand = node.getRightOperand();
+        if (!(leftOperand instanceof ConstantNode) ||
+            !(rightOperand instanceof ConstantNode))
+            return node;
+        Object leftValue = ((ConstantNode)leftOperand).getValue();
+        Object rightValue = ((ConstantNode)rightOperand).getValue();
+        if ((leftValue == null) || (rightValue == null))
+            return booleanConstant(node, null);
+        if (hasCollation(leftOperand) || hasCollation(rightOperand))
+            return node;
+        Integer cmp = compareValues(leftValue, rightValue);
+        if (cmp == null)
+            return node;
+        boolean result;
+        switch (node.getNodeType()) {
+        case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+            result = (cmp == 0);
+            break;
+        case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+            result = (cmp != 0);
+            break;
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+            result = (cmp > 0);
+            break;
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+            result = (cmp >= 0);
+            break;
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+            result = (cmp < 0);
+            break;
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+            result = (cmp <= 0);
+            break;
+        default:
+            return node;
+        }
+        return booleanConstant(node, result);
+    }
+
+    protected ValueNode isNullNode(UnaryOperatorNode node) throws StandardException {
+        ValueNode operand = node.getOperand();
+        if (!(operand instanceof ConstantNode))
+            return node;
+        boolean isNull = (((ConstantNode)operand).getValue() == null);
+        if (node.getNodeType() == NodeTypes.IS_NOT_NULL_NODE)
+            isNull = !isNull;
+        return booleanConstant(node, isNull);
+    }
+
+    protected ValueNode castNode(CastNode node) throws StandardException {
+        ValueNode operand = node.getCastOperand();
+        DataTypeDescriptor targetType = node.getType();
+        if (!(operand instanceof ConstantNode) || (targetType == null))
+            return node;
+        Object value = ((ConstantNode)operand).getValue();
+        // A CAST of NULL is how one gets a typed null: leave it.
+        if (value == null)
+            return node;
+        TypeId targetTypeId = targetType.getTypeId();
+        if (targetTypeId.isNumericTypeId()) {
+            if (targetTypeId.isUnsigned())
+                return node;
+            BigDecimal number;
+            if (value instanceof Number) {
+                if (targetTypeId.isFloatingPointTypeId())
+                    return numericConstant(node, targetType,
+                                           ((Number)value).doubleValue());
+                number = toBigDecimal(value);
+            }
+            else if (value instanceof String) {
+                try {
+                    number = new BigDecimal(((String)value).trim());
+                }
+                catch (NumberFormatException ex) {
+                    return node;
+                }
+                if (targetTypeId.isFloatingPointTypeId())
+                    return numericConstant(node, targetType, number.doubleValue());
+            }
+            else
+                return node;
+            // Whether the cast rounds or truncates is up to the
+            // runtime, so only fold one that is exact.
+            try {
+                if (targetTypeId.isIntegerTypeId())
+                    number = number.setScale(0);
+                else
+                    number = number.setScale(targetType.getScale());
+            }
+            catch (ArithmeticException ex) {
+                return node;
+            }
+            return numericConstant(node, targetType, number);
+        }
+        else if (targetTypeId.isStringTypeId() &&
+                 !targetTypeId.isLOBTypeId()) {
+            String string;
+            if (value instanceof String)
+                string = (String)value;
+            else if ((value instanceof BigDecimal) ||
+                     (value instanceof Long) ||
+                     (value instanceof Integer) ||
+                     (value instanceof Short) ||
+                     (value instanceof Byte))
+                string = toBigDecimal(value).toPlainString();
+            else
+                return node;
+            int width = targetType.getMaximumWidth();
+            if (string.length() > width) {
+                // Only trailing blanks may be truncated silently.
+                for (int i = width; i < string.length(); i++) {
+                    if (string.charAt(i) != ' ')
+                        return node;
+                }
+                string = string.substring(0, width);
+            }
+            else if (targetTypeId.isFixedStringTypeId()) {
+                StringBuilder str = new StringBuilder(string);
+                while (str.length() < width)
+                    str.append(' ');
+                string = str.toString();
+            }
+            return charConstant(node, targetType, string);
+        }
+        else if (targetTypeId.isBooleanTypeId()) {
+            if (value instanceof Boolean)
+                return booleanConstant(node, (Boolean)value);
+            else if (value instanceof String) {
+                String string = ((String)value).trim();
+                if ("true".equalsIgnoreCase(string))
+                    return booleanConstant(node, Boolean.TRUE);
+                else if ("false".equalsIgnoreCase(string))
+                    return booleanConstant(node, Boolean.FALSE);
+            }
+            return node;
+        }
+        else if (value instanceof String) {
+            String string = ((String)value).trim();
+            Object datetime;
+            try {
+                switch (targetTypeId.getJDBCTypeId()) {
+                case Types.DATE:
+                    datetime = Date.valueOf(string);
+                    break;
+                case Types.TIME:
+                    datetime = Time.valueOf(string);
+                    break;
+                case Types.TIMESTAMP:
+                    datetime = Timestamp.valueOf(string);
+                    break;
+                default:
+                    return node;
+                }
+            }
+            catch (IllegalArgumentException ex) {
+                return node;
+            }
+            // valueOf is lenient about out of range fields, such as
+            // February 30: only fold what reads back the same.
+            String reread = datetime.toString();
+            if (!reread.equals(string) &&
+                !((datetime instanceof Timestamp) && reread.equals(string + ".0")))
+                return node;
+            return (ValueNode)nodeFactory.getNode(NodeTypes.USERTYPE_CONSTANT_NODE,
+                                                  datetime, parserContext);
+        }
+        return node;
+    }
+
+    protected ValueNode notNode(NotNode node) throws StandardException {
+        ValueNode operand = node.getOperand();
+        if (!isBooleanConstant(operand))
+            return node;
+        Object value = ((ConstantNode)operand).getValue();
+        if (value == null)
+            return operand;
+        if (!(value instanceof Boolean))
+            return node;
+        return booleanConstant(node, !((Boolean)value).booleanValue());
+    }
+
+    protected ValueNode andNode(AndNode node) throws StandardException {
+        ValueNode leftOperand = node.getLeftOperand();
+        ValueNode rightOperand = node.getRightOperand();
+        if (isBooleanConstant(leftOperand, Boolean.FALSE))
+            return leftOperand;
+        if (isBooleanConstant(rightOperand, Boolean.FALSE))
+            return rightOperand;
+        if (isBooleanConstant(leftOperand, Boolean.TRUE))
+            return rightOperand;
+        if (isBooleanConstant(rightOperand, Boolean.TRUE))
+            return leftOperand;
+        if (isBooleanConstant(leftOperand, null) &&
+            isBooleanConstant(rightOperand, null))
+            return leftOperand;
+        return node;
+    }
+
+    protected ValueNode orNode(OrNode node) throws StandardException {
+        ValueNode leftOperand = node.getLeftOperand();
+        ValueNode rightOperand = node.getRightOperand();
+        if (isBooleanConstant(leftOperand, Boolean.TRUE))
+            return leftOperand;
+        if (isBooleanConstant(rightOperand, Boolean.TRUE))
+            return rightOperand;
+        if (isBooleanConstant(leftOperand, Boolean.FALSE))
+            return rightOperand;
+        if (isBooleanConstant(rightOperand, Boolean.FALSE))
+            return leftOperand;
+        if (isBooleanConstant(leftOperand, null) &&
+            isBooleanConstant(rightOperand, null))
+            return leftOperand;
+        return node;
+    }
+
+    /** Is this a boolean literal, including the unknown truth value? */
+    protected static boolean isBooleanConstant(ValueNode node) {
+        if (!(node instanceof ConstantNode))
+            return false;
+        switch (node.getNodeType()) {
+        case NodeTypes.BOOLEAN_CONSTANT_NODE:
+        case NodeTypes.SQL_BOOLEAN_CONSTANT_NODE:
+            return true;
+        case NodeTypes.UNTYPED_NULL_CONSTANT_NODE:
+            return false;
+        default:
+            return ((node.getType() != null) &&
+                    node.getType().getTypeId().isBooleanTypeId());
+        }
+    }
+
+    /** Is this the given boolean literal, where <code>null</code> is unknown? */
+    protected static boolean isBooleanConstant(ValueNode node, Boolean value) {
+        if ((node == null) || !isBooleanConstant(node))
+            return false;
+        Object nodeValue = ((ConstantNode)node).getValue();
+        if (value == null)
+            return (nodeValue == null);
+        else
+            return value.equals(nodeValue);
+    }
+
+    protected static boolean hasCollation(ValueNode node) {
+        DataTypeDescriptor type = node.getType();
+        if (type == null)
+            return false;
+        CharacterTypeAttributes attrs = type.getCharacterAttributes();
+        return ((attrs != null) && (attrs.getCollation() != null));
+    }
+
+    /** Compare two non-null literal values.
+     * @return the comparison result or <code>null</code> if they
+     * cannot be compared here.
+     */
+    @SuppressWarnings("unchecked")
+    protected static Integer compareValues(Object leftValue, Object rightValue) {
+        if ((leftValue instanceof Number) && (rightValue instanceof Number)) {
+            return toBigDecimal(leftValue).compareTo(toBigDecimal(rightValue));
+        }
+        else if ((leftValue instanceof String) && (rightValue instanceof String)) {
+            // SQL pads the shorter string with blanks.
+            return trimTrailing((String)leftValue)
+                .compareTo(trimTrailing((String)rightValue));
+        }
+        else if ((leftValue instanceof Boolean) && (rightValue instanceof Boolean)) {
+            return ((Boolean)leftValue).compareTo((Boolean)rightValue);
+        }
+        else if ((leftValue instanceof Comparable) &&
+                 (leftValue.getClass() == rightValue.getClass())) {
+            return ((Comparable<Object>)leftValue).compareTo(rightValue);
+        }
+        else
+            return null;
+    }
+
+    protected static String trimTrailing(String str) {
+        int len = str.length();
+        while ((len > 0) && (str.charAt(len - 1) == ' '))
+            len--;
+        return str.substring(0, len);
+    }
+
+    protected static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal)
+            return (BigDecimal)value;
+        else if ((value instanceof Double) || (value instanceof Float))
+            // The decimal that the double prints as, so that 0.1e0 = 0.1.
+            return BigDecimal.valueOf(((Number)value).doubleValue());
+        else
+            return BigDecimal.valueOf(((Number)value).longValue());
+    }
+
+    protected static final BigDecimal MIN_TINYINT = BigDecimal.valueOf(Byte.MIN_VALUE);
+    protected static final BigDecimal MAX_TINYINT = BigDecimal.valueOf(Byte.MAX_VALUE);
+    protected static final BigDecimal MIN_SMALLINT = BigDecimal.valueOf(Short.MIN_VALUE);
+    protected static final BigDecimal MAX_SMALLINT = BigDecimal.valueOf(Short.MAX_VALUE);
+    protected static final BigDecimal MIN_INTEGER = BigDecimal.valueOf(Integer.MIN_VALUE);
+    protected static final BigDecimal MAX_INTEGER = BigDecimal.valueOf(Integer.MAX_VALUE);
+    protected static final BigDecimal MIN_BIGINT = BigDecimal.valueOf(Long.MIN_VALUE);
+    protected static final BigDecimal MAX_BIGINT = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    protected static boolean inRange(BigDecimal value, BigDecimal min, BigDecimal max) {
+        return ((value.compareTo(min) >= 0) && (value.compareTo(max) <= 0));
+    }
+
+    /** Make an exact numeric literal of the given type.
+     * @return the new constant or <code>node</code> if the value does
+     * not fit.
+     */
+    protected ValueNode numericConstant(ValueNode node, DataTypeDescriptor type,
+                                        BigDecimal value)
+            throws StandardException {
+        if (type.getTypeId().isUnsigned())
+            return node;
+        int nodeType;
+        Object arg;
+        switch (type.getJDBCTypeId()) {
+        case Types.TINYINT:
+            if (!inRange(value, MIN_TINYINT, MAX_TINYINT))
+                return node;
+            nodeType = NodeTypes.TINYINT_CONSTANT_NODE;
+            arg = value.byteValue();
+            break;
+        case Types.SMALLINT:
+            if (!inRange(value, MIN_SMALLINT, MAX_SMALLINT))
+                return node;
+            nodeType = NodeTypes.SMALLINT_CONSTANT_NODE;
+            arg = value.shortValue();
+            break;
+        case Types.INTEGER:
+            if (!inRange(value, MIN_INTEGER, MAX_INTEGER))
+                return node;
+            nodeType = NodeTypes.INT_CONSTANT_NODE;
+            arg = value.intValue();
+            break;
+        case Types.BIGINT:
+            if (!inRange(value, MIN_BIGINT, MAX_BIGINT))
+                return node;
+            nodeType = NodeTypes.LONGINT_CONSTANT_NODE;
+            arg = value.longValue();
+            break;
+        case Types.DECIMAL:
+        case Types.NUMERIC:
+            if (value.precision() - value.scale() >
+                type.getPrecision() - type.getScale())
+                return node;
+            nodeType = NodeTypes.DECIMAL_CONSTANT_NODE;
+            arg = value.toPlainString();
+            break;
+        default:
+            return node;
+        }
+        ConstantNode result = (ConstantNode)nodeFactory.getNode(nodeType, arg,
+                                                                parserContext);
+        if (node.getType() != null)
+            result.setType(type.getNullabilityType(false));
+        return result;
+    }
+
+    /** Make an approximate numeric literal of the given type.
+     * @return the new constant or <code>node</code> if the value does
+     * not fit.
+     */
+    protected ValueNode numericConstant(ValueNode node, DataTypeDescriptor type,
+                                        double value)
+            throws StandardException {
+        int nodeType;
+        Object arg;
+        switch (type.getJDBCTypeId()) {
+        case Types.REAL:
+            float fvalue = (float)value;
+            if (Float.isInfinite(fvalue) || Float.isNaN(fvalue))
+                return node;
+            nodeType = NodeTypes.FLOAT_CONSTANT_NODE;
+            arg = fvalue;
+            break;
+        case Types.DOUBLE:
+        case Types.FLOAT:
+            if (Double.isInfinite(value) || Double.isNaN(value))
+                return node;
+            nodeType = NodeTypes.DOUBLE_CONSTANT_NODE;
+            arg = value;
+            break;
+        default:
+            return node;
+        }
+        ConstantNode result = (ConstantNode)nodeFactory.getNode(nodeType, arg,
+                                                                parserContext);
+        if (node.getType() != null)
+            result.setType(type.getNullabilityType(false));
+        return result;
+    }
+
+    protected ValueNode charConstant(ValueNode node, DataTypeDescriptor type,
+                                     String value)
+            throws StandardException {
+        ConstantNode result = (ConstantNode)
+            nodeFactory.getNode(NodeTypes.CHAR_CONSTANT_NODE, value, parserContext);
+        if (type != null)
+            result.setType(new DataTypeDescriptor(type.getNullabilityType(false),
+                                                  type.getCharacterAttributes()));
+        return result;
+    }
+
+    protected ValueNode booleanConstant(ValueNode node, Boolean value)
+            throws StandardException {
+        return (ValueNode)nodeFactory.getNode(NodeTypes.BOOLEAN_CONSTANT_NODE,
+                                              value, parserContext);
+    }
+
+    /* Visitor interface */
+
+    public Visitable visit(Visitable node) throws StandardException {
+        switch (((QueryTreeNode)node).getNodeType()) {
+        case NodeTypes.SELECT_NODE:
+            selectNode((SelectNode)node);
+            break;
+        default:
+            if (node instanceof ValueNode)
+                return foldExpression((ValueNode)node);
+        }
+        return node;
+    }
+
+    public boolean visitChildrenFirst(Visitable node) {
+        return true;
+    }
+    public boolean stopTraversal() {
+        return false;
+    }
+    public boolean skipChildren(Visitable node) throws StandardException {
+        // A sort or grouping key folded to an integer would become a
+        // column position.
+        return ((node instanceof OrderByColumn) || (node instanceof GroupByColumn));
+    }
+
+}
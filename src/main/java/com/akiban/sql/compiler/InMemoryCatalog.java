@@ -0,0 +1,138 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.types.DataTypeDescriptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A {@link Catalog} built up by calls to {@link #addTable} and
+ * {@link InMemoryCatalog.InMemoryTable#addColumn}.
+ *
+ * Tables are hashed by schema and then by name, and columns by name, so
+ * that lookups do not get slower as the catalog grows. Names are
+ * interned, so that bound statements share them.
+ */
+public class InMemoryCatalog implements Catalog
+{
+    public static class InMemoryTable implements Catalog.Table {
+        private String schemaName, tableName;
+        private List<InMemoryColumn> columns = new ArrayList<InMemoryColumn>();
+        private Map<String,InMemoryColumn> columnsByName = 
+            new HashMap<String,InMemoryColumn>();
+
+        public InMemoryTable(String schemaName, String tableName) {
+            this.schemaName = schemaName.intern();
+            this.tableName = tableName.intern();
+        }
+
+        public String getSchemaName() {
+            return schemaName;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public List<InMemoryColumn> getColumns() {
+            return Collections.unmodifiableList(columns);
+        }
+
+        public InMemoryColumn getColumn(String columnName) {
+            return columnsByName.get(columnName);
+        }
+
+        /** Add a column after the existing ones. */
+        public InMemoryColumn addColumn(String columnName, DataTypeDescriptor type) {
+            if (columnsByName.containsKey(columnName))
+                throw new IllegalArgumentException("Duplicate column " + columnName + 
+                                                   " in " + this);
+            InMemoryColumn column = new InMemoryColumn(this, columnName, 
+                                                       columns.size(), type);
+            columns.add(column);
+            columnsByName.put(column.getName(), column);
+            return column;
+        }
+
+        public String toString() {
+            return schemaName + "." + tableName;
+        }
+    }
+
+    public static class InMemoryColumn implements Catalog.Column {
+        private InMemoryTable table;
+        private String name;
+        private int position;
+        private DataTypeDescriptor type;
+
+        public InMemoryColumn(InMemoryTable table, String name, 
+                              int position, DataTypeDescriptor type) {
+            this.table = table;
+            this.name = name.intern();
+            this.position = position;
+            this.type = type;
+        }
+
+        public InMemoryTable getTable() {
+            return table;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public DataTypeDescriptor getType() {
+            return type;
+        }
+
+        public String toString() {
+            return table + "." + name;
+        }
+    }
+
+    private Map<String,Map<String,InMemoryTable>> schemas = 
+        new HashMap<String,Map<String,InMemoryTable>>();
+
+    /** Add an empty table, replacing any of the same name. */
+    public InMemoryTable addTable(String schemaName, String tableName) {
+        Map<String,InMemoryTable> tables = schemas.get(schemaName);
+        if (tables == null) {
+            tables = new HashMap<String,InMemoryTable>();
+            schemas.put(schemaName.intern(), tables);
+        }
+        InMemoryTable table = new InMemoryTable(schemaName, tableName);
+        tables.put(table.getTableName(), table);
+        return table;
+    }
+
+    public InMemoryTable getTable(String schemaName, String tableName) {
+        Map<String,InMemoryTable> tables = schemas.get(schemaName);
+        if (tables == null)
+            return null;
+        return tables.get(tableName);
+    }
+
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/** Turn outer joins into inner joins when a condition above them
+ * rejects the rows in which the inner side is all <code>NULL</code>.
+ * <pre>
+ * FROM t LEFT OUTER JOIN u ON t.k = u.k WHERE u.x > 0
+ * FROM t INNER JOIN u ON t.k = u.k WHERE u.x > 0
+ * </pre>
+ * A condition is null-rejecting for a table if it cannot be true when
+ * the table's columns are <code>NULL</code>: comparisons, <code>LIKE</code>,
+ * <code>BETWEEN</code>, <code>IN</code> and <code>IS NOT NULL</code> of
+ * columns, possibly in arithmetic. Those come from <code>WHERE</code>
+ * conjuncts and from the <code>ON</code> clauses of joins that are
+ * already inner, which filter both sides. The <code>ON</code> clause of
+ * an outer join only filters its inner side.
+ *
+ * A <code>RIGHT OUTER JOIN</code> that remains is turned into a
+ * <code>LEFT OUTER JOIN</code> with its operands swapped, except when
+ * that would change the order of the columns of a <code>SELECT *</code>.
+ *
+ * This runs before binding, so only qualified column references count.
+ * <code>NATURAL</code> joins are left alone.
+ */
+public class OuterJoinSimplifier implements Visitor
+{
+    SQLParserContext parserContext;
+    NodeFactory nodeFactory;
+    public OuterJoinSimplifier(SQLParserContext parserContext) {
+        this.parserContext = parserContext;
+        this.nodeFactory = parserContext.getNodeFactory();
+    }
+
+    /** Simplify outer joins anywhere in this statement. */
+    public StatementNode simplify(StatementNode stmt) throws StandardException {
+        return (StatementNode)stmt.accept(this);
+    }
+
+    /** Simplify the joins in this SELECT's FROM list. */
+    public void selectNode(SelectNode node) throws StandardException {
+        Set<String> rejected = new HashSet<String>();
+        if (node.getWhereClause() != null) {
+            List<ValueNode> conjuncts = new ArrayList<ValueNode>();
+            PredicatePushdown.addConjuncts(node.getWhereClause(), conjuncts);
+            for (ValueNode conjunct : conjuncts) {
+                addNullRejected(conjunct, rejected);
+            }
+        }
+        boolean swap = true;
+        for (ResultColumn resultColumn : node.getResultColumns()) {
+            if ((resultColumn instanceof AllResultColumn) &&
+                (resultColumn.getTableNameObject() == null)) {
+                swap = false;
+                break;
+            }
+        }
+        FromList fromList = node.getFromList();
+        for (int i = 0; i < fromList.size(); i++) {
+            fromList.set(i, (FromTable)simplifyJoins(fromList.get(i), rejected, swap));
+        }
+    }
+
+    /** Simplify this FROM list entry.
+     * @param rejected the tables whose <code>NULL</code> rows are
+     * filtered out above it.
+     * @param swap whether right outer joins can be made left.
+     * @return the possibly replaced node.
+     */
+    protected ResultSetNode simplifyJoins(ResultSetNode node, Set<String> rejected,
+                                          boolean swap)
+            throws StandardException {
+        if (!(node instanceof JoinNode))
+            return node;
+        JoinNode join = (JoinNode)node;
+        if (join.isNaturalJoin())
+            return node;
+        Set<String> joinRejected = new HashSet<String>();
+        if (join.getJoinClause() != null) {
+            List<ValueNode> conjuncts = new ArrayList<ValueNode>();
+            PredicatePushdown.addConjuncts(join.getJoinClause(), conjuncts);
+            for (ValueNode conjunct : conjuncts) {
+                addNullRejected(conjunct, joinRejected);
+            }
+        }
+        if (join instanceof HalfOuterJoinNode) {
+            boolean rightOuter = ((HalfOuterJoinNode)join).isRightOuterJoin();
+            ResultSetNode preserved, inner;
+            if (rightOuter) {
+                preserved = join.getRightResultSet();
+                inner = join.getLeftResultSet();
+            }
+            else {
+                preserved = join.getLeftResultSet();
+                inner = join.getRightResultSet();
+            }
+            Set<String> innerNames = new HashSet<String>();
+            ViewMerger.exposedNames(inner, innerNames);
+            innerNames.retainAll(rejected);
+            if (innerNames.isEmpty()) {
+                preserved = simplifyJoins(preserved, rejected, swap);
+                inner = simplifyJoins(inner, joinRejected, swap);
+                if (rightOuter && swap)
+                    return (ResultSetNode)
+                        nodeFactory.getNode(NodeTypes.HALF_OUTER_JOIN_NODE,
+                                            preserved, inner,
+                                            join.getJoinClause(),
+                                            join.getUsingClause(),
+                                            Boolean.FALSE, null,
+                                            parserContext);
+                if (rightOuter) {
+                    join.setLeftResultSet(inner);
+                    join.setRightResultSet(preserved);
+                }
+                else {
+                    join.setLeftResultSet(preserved);
+                    join.setRightResultSet(inner);
+                }
+                return join;
+            }
+            join = (JoinNode)nodeFactory.getNode(NodeTypes.JOIN_NODE,
+                                                 join.getLeftResultSet(),
+                                                 join.getRightResultSet(),
+                                                 join.getJoinClause(),
+                                                 join.getUsingClause(),
+                                                 null, null, null,
+                                                 parserContext);
+        }
+        // An inner join filters both sides with its own and any outer conditions.
+        joinRejected.addAll(rejected);
+        join.setLeftResultSet(simplifyJoins(join.getLeftResultSet(), joinRejected, swap));
+        join.setRightResultSet(simplifyJoins(join.getRightResultSet(), joinRejected, swap));
+        return join;
+    }
+
+    /** Is the left side of this <code>IN</code> a single value rather than a row? */
+    protected static boolean isSingleColumn(InListOperatorNode inList) {
+        RowConstructorNode leftOperand = inList.getLeftOperand();
+        return ((leftOperand.getDepth() == 0) &&
+                (leftOperand.getNodeList().size() == 1));
+    }
+
+    /** Add the tables for which this condition is null-rejecting. */
+    protected static void addNullRejected(ValueNode condition, Set<String> tables) {
+        if (condition instanceof BinaryComparisonOperatorNode) {
+            BinaryComparisonOperatorNode comparison = (BinaryComparisonOperatorNode)condition;
+            addStrictTables(comparison.getLeftOperand(), tables);
+            addStrictTables(comparison.getRightOperand(), tables);
+        }
+        else if (condition instanceof LikeEscapeOperatorNode) {
+            LikeEscapeOperatorNode like = (LikeEscapeOperatorNode)condition;
+            addStrictTables(like.getReceiver(), tables);
+            addStrictTables(like.getLeftOperand(), tables);
+        }
+        else if (condition instanceof BetweenOperatorNode) {
+            addStrictTables(((BetweenOperatorNode)condition).getLeftOperand(), tables);
+        }
+        else if (condition instanceof InListOperatorNode) {
+            InListOperatorNode inList = (InListOperatorNode)condition;
+            if (inList.isNegated() && !isSingleColumn(inList))
+                return;
+            for (ValueNode operand : inList.getLeftOperand().getNodeList()) {
+                addStrictTables(operand, tables);
+            }
+        }
+        else if (condition instanceof IsNullNode) {
+            if (condition.getNodeType() == NodeTypes.IS_NOT_NULL_NODE)
+                addStrictTables(((IsNullNode)condition).getOperand(), tables);
+        }
+        else if (condition instanceof NotNode) {
+            // NOT of UNKNOWN is still UNKNOWN.
+            ValueNode operand = ((NotNode)condition).getOperand();
+            if ((operand instanceof BinaryComparisonOperatorNode) ||
+                (operand instanceof LikeEscapeOperatorNode) ||
+                (operand instanceof BetweenOperatorNode))
+                addNullRejected(operand, tables);
+            else if (operand instanceof InListOperatorNode) {
+                // A row with one NULL element can differ from every
+                // row in the list in some other element, making NOT
+                // IN true.
+                InListOperatorNode inList = (InListOperatorNode)operand;
+                if (!inList.isNegated() && isSingleColumn(inList))
+                    addNullRejected(operand, tables);
+            }
+        }
+        else if (condition instanceof AndNode) {
+            AndNode and = (AndNode)condition;
+            addNullRejected(and.getLeftOperand(), tables);
+            addNullRejected(and.getRightOperand(), tables);
+        }
+        else if (condition instanceof OrNode) {
+            // Only those rejected by every alternative, ignoring the
+            // FALSE that ends a normalized OR.
+            OrNode or = (OrNode)condition;
+            ValueNode left = or.getLeftOperand();
+            ValueNode right = or.getRightOperand();
+            if (right.isBooleanFalse())
+                addNullRejected(left, tables);
+            else if (left.isBooleanFalse())
+                addNullRejected(right, tables);
+            else {
+                Set<String> leftTables = new HashSet<String>();
+                addNullRejected(left, leftTables);
+                Set<String> rightTables = new HashSet<String>();
+                addNullRejected(right, rightTables);
+                leftTables.retainAll(rightTables);
+                tables.addAll(leftTables);
+            }
+        }
+    }
+
+    /** Add the tables of columns that make this expression
+     * <code>NULL</code> when they are.
+     */
+    protected static void addStrictTables(ValueNode expression, Set<String> tables) {
+        if (expression instanceof ColumnReference) {
+            TableName tableName = ((ColumnReference)expression).getTableNameNode();
+            if (tableName != null)
+                tables.add(tableName.getTableName());
+        }
+        else if ((expression instanceof BinaryArithmeticOperatorNode) ||
+                 (expression instanceof ConcatenationOperatorNode)) {
+            BinaryOperatorNode operator = (BinaryOperatorNode)expression;
+            addStrictTables(operator.getLeftOperand(), tables);
+            addStrictTables(operator.getRightOperand(), tables);
+        }
+        else if (expression instanceof UnaryArithmeticOperatorNode) {
+            addStrictTables(((UnaryArithmeticOperatorNode)expression).getOperand(), tables);
+        }
+        else if (expression instanceof CastNode) {
+            addStrictTables(((CastNode)expression).getCastOperand(), tables);
+        }
+    }
+
+    /* Visitor interface */
+
+    public Visitable visit(Visitable node) throws StandardException {
+        switch (((QueryTreeNode)node).getNodeType()) {
+        case NodeTypes.SELECT_NODE:
+            selectNode((SelectNode)node);
+            break;
+        }
+        return node;
+    }
+
+    public boolean visitChildrenFirst(Visitable node) {
+        return false;
+    }
+    public boolean stopTraversal() {
+        return false;
+    }
+    public boolean skipChildren(Visitable node) throws StandardException {
+        return false;
+    }
+
+}
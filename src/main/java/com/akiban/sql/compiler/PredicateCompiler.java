@@ -0,0 +1,1602 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+import com.akiban.sql.types.DataTypeDescriptor;
+import com.akiban.sql.types.TypeId;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Compile a boolean condition into a {@link CompiledPredicate}, a tree
+ * of small evaluators specialized for the operators and operand types
+ * involved, so that it can be tested against many rows without
+ * interpreting the parse tree each time.
+ *
+ * Column references must already be typed, normally by a
+ * {@link TypeComputer} that knows the schema, and are resolved to
+ * positions in the {@link RowAccessor} when compiling. Integers are
+ * evaluated as <code>long</code>, decimals as {@link BigDecimal} and
+ * approximate numbers as <code>double</code>; mixed operands are
+ * evaluated in the least exact of their kinds. Character strings
+ * compare as if blank padded and ignore any collation.
+ *
+ * Anything else, including subqueries, parameters and row-valued
+ * comparisons, is rejected when compiling.
+ */
+public class PredicateCompiler
+{
+    /** How an expression's value is represented. */
+    static enum Kind { LONG, DECIMAL, DOUBLE, STRING, BOOLEAN }
+
+    private Map<String,Integer> columns;
+    private List<String> columnNames;
+
+    /** @param columnNames the names of the row's columns, in the order
+     * that the {@link RowAccessor} numbers them. */
+    public PredicateCompiler(List<String> columnNames) {
+        this.columnNames = columnNames;
+        columns = new HashMap<String,Integer>(columnNames.size());
+        for (int i = 0; i < columnNames.size(); i++) {
+            columns.put(columnNames.get(i), i);
+        }
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /** Compile the given boolean expression. */
+    public CompiledPredicate compile(ValueNode condition) throws StandardException {
+        return condition(condition);
+    }
+
+    protected CompiledPredicate condition(ValueNode node) throws StandardException {
+        switch (node.getNodeType()) {
+        case NodeTypes.AND_NODE:
+        case NodeTypes.OR_NODE:
+            return logicalCondition((BinaryLogicalOperatorNode)node);
+        case NodeTypes.NOT_NODE:
+            return new NotCondition(condition(((NotNode)node).getOperand()));
+        case NodeTypes.IS_NULL_NODE:
+        case NodeTypes.IS_NOT_NULL_NODE:
+            return isNullCondition((IsNullNode)node);
+        case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+            return comparisonCondition((BinaryComparisonOperatorNode)node);
+        case NodeTypes.BETWEEN_OPERATOR_NODE:
+            return betweenCondition((BetweenOperatorNode)node);
+        case NodeTypes.IN_LIST_OPERATOR_NODE:
+            return inListCondition((InListOperatorNode)node);
+        case NodeTypes.LIKE_OPERATOR_NODE:
+            return likeCondition((LikeEscapeOperatorNode)node);
+        case NodeTypes.BOOLEAN_CONSTANT_NODE:
+        case NodeTypes.UNTYPED_NULL_CONSTANT_NODE:
+            return ConstantCondition.of((Boolean)((ConstantNode)node).getValue());
+        case NodeTypes.COLUMN_REFERENCE:
+            {
+                ColumnReference column = (ColumnReference)node;
+                if (columnKind(column) != Kind.BOOLEAN)
+                    throw new StandardException("Not a boolean column: " + 
+                                                column.getColumnName());
+                return new BooleanColumnCondition(columnIndex(column));
+            }
+        default:
+            throw unsupported(node);
+        }
+    }
+
+    /** Flatten a chain of the same logical operator into a single
+     * condition, dropping the identity constants that terminate the
+     * chains produced by {@link BooleanNormalizer}. */
+    protected CompiledPredicate logicalCondition(BinaryLogicalOperatorNode node)
+            throws StandardException {
+        boolean and = (node.getNodeType() == NodeTypes.AND_NODE);
+        List<CompiledPredicate> operands = new ArrayList<CompiledPredicate>();
+        addLogicalOperands(node, node.getNodeType(), operands);
+        Boolean identity = (and) ? Boolean.TRUE : Boolean.FALSE;
+        for (int i = operands.size() - 1; i >= 0; i--) {
+            CompiledPredicate operand = operands.get(i);
+            if (operand instanceof ConstantCondition) {
+                Boolean value = ((ConstantCondition)operand).value;
+                if (value == identity)
+                    operands.remove(i);
+                else if (value != null)
+                    // FALSE in an AND or TRUE in an OR decides it.
+                    return operand;
+            }
+        }
+        switch (operands.size()) {
+        case 0:
+            return ConstantCondition.of(identity);
+        case 1:
+            return operands.get(0);
+        default:
+            {
+                CompiledPredicate[] array = 
+                    operands.toArray(new CompiledPredicate[operands.size()]);
+                if (and)
+                    return new AndCondition(array);
+                else
+                    return new OrCondition(array);
+            }
+        }
+    }
+
+    protected void addLogicalOperands(ValueNode node, int nodeType,
+                                      List<CompiledPredicate> operands)
+            throws StandardException {
+        if (node.getNodeType() == nodeType) {
+            BinaryLogicalOperatorNode logical = (BinaryLogicalOperatorNode)node;
+            addLogicalOperands(logical.getLeftOperand(), nodeType, operands);
+            addLogicalOperands(logical.getRightOperand(), nodeType, operands);
+        }
+        else {
+            operands.add(condition(node));
+        }
+    }
+
+    protected CompiledPredicate isNullCondition(IsNullNode node) 
+            throws StandardException {
+        boolean negated = (node.getNodeType() == NodeTypes.IS_NOT_NULL_NODE);
+        ValueNode operand = node.getOperand();
+        if (operand instanceof ColumnReference)
+            return new ColumnIsNullCondition(columnIndex((ColumnReference)operand),
+                                             negated);
+        Expression expression = expression(operand);
+        return new IsNullCondition(expression, negated);
+    }
+
+    protected CompiledPredicate comparisonCondition(BinaryComparisonOperatorNode node)
+            throws StandardException {
+        int operator = node.getNodeType();
+        ValueNode leftOperand = node.getLeftOperand();
+        ValueNode rightOperand = node.getRightOperand();
+        if (isNullConstant(leftOperand) || isNullConstant(rightOperand))
+            return ConstantCondition.UNKNOWN;
+        // BooleanNormalizer turns a boolean column x into x = TRUE.
+        if (((operator == NodeTypes.BINARY_EQUALS_OPERATOR_NODE) ||
+             (operator == NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE)) &&
+            ((leftOperand instanceof BooleanConstantNode) ||
+             (rightOperand instanceof BooleanConstantNode))) {
+            if (leftOperand instanceof BooleanConstantNode) {
+                ValueNode temp = leftOperand;
+                leftOperand = rightOperand;
+                rightOperand = temp;
+            }
+            boolean value = ((BooleanConstantNode)rightOperand).isBooleanTrue();
+            CompiledPredicate result = condition(leftOperand);
+            if (value != (operator == NodeTypes.BINARY_EQUALS_OPERATOR_NODE))
+                result = new NotCondition(result);
+            return result;
+        }
+        Expression left = expression(leftOperand);
+        Expression right = expression(rightOperand);
+        if ((left instanceof Constant) && !(right instanceof Constant)) {
+            Expression temp = left;
+            left = right;
+            right = temp;
+            operator = PredicateRangeMerger.reverseComparison(operator);
+        }
+        Kind kind = comparisonKind(left, right, node);
+        if ((left instanceof Column) && (left.kind == kind) &&
+            (right instanceof Constant)) {
+            int column = ((Column)left).column;
+            switch (kind) {
+            case LONG:
+                return new LongColumnComparison(operator, column, 
+                                                right.getLong(null));
+            case DECIMAL:
+                return new DecimalColumnComparison(operator, column, 
+                                                   right.getDecimal(null));
+            case DOUBLE:
+                return new DoubleColumnComparison(operator, column, 
+                                                  right.getDouble(null));
+            case STRING:
+                return new StringColumnComparison(operator, column, 
+                                                  right.getString(null));
+            }
+        }
+        return new Comparison(operator, kind, left, right);
+    }
+
+    protected CompiledPredicate betweenCondition(BetweenOperatorNode node)
+            throws StandardException {
+        ValueNodeList bounds = node.getRightOperandList();
+        ValueNode lowOperand = bounds.get(0);
+        ValueNode highOperand = bounds.get(1);
+        if (isNullConstant(lowOperand) || isNullConstant(highOperand)) {
+            // Can still be FALSE on account of the other bound.
+            return logical(NodeTypes.AND_NODE,
+                           comparison(NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE,
+                                      node.getLeftOperand(), lowOperand),
+                           comparison(NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE,
+                                      node.getLeftOperand(), highOperand));
+        }
+        Expression operand = expression(node.getLeftOperand());
+        Expression low = expression(lowOperand);
+        Expression high = expression(highOperand);
+        Kind kind = comparisonKind(comparisonKind(operand, low, node), 
+                                   comparisonKind(operand, high, node));
+        return new BetweenCondition(kind, operand, low, high);
+    }
+
+    protected CompiledPredicate inListCondition(InListOperatorNode node)
+            throws StandardException {
+        RowConstructorNode leftList = node.getLeftOperand();
+        if (leftList.getDepth() > 0)
+            throw unsupported(node);
+        Expression operand = expression(leftList.getNodeList().get(0));
+        ValueNodeList items = node.getRightOperandList().getNodeList();
+        List<Expression> values = new ArrayList<Expression>(items.size());
+        boolean hasNull = false, allConstant = true;
+        Kind kind = null;
+        for (ValueNode item : items) {
+            if (isNullConstant(item)) {
+                hasNull = true;
+                continue;
+            }
+            Expression value = expression(item);
+            Kind itemKind = comparisonKind(operand, value, node);
+            kind = (kind == null) ? itemKind : comparisonKind(kind, itemKind);
+            if (!(value instanceof Constant))
+                allConstant = false;
+            values.add(value);
+        }
+        CompiledPredicate result;
+        if (values.isEmpty())
+            result = ConstantCondition.UNKNOWN;
+        else if (allConstant) {
+            int n = values.size();
+            switch (kind) {
+            case LONG:
+                {
+                    long[] longs = new long[n];
+                    for (int i = 0; i < n; i++)
+                        longs[i] = values.get(i).getLong(null);
+                    Arrays.sort(longs);
+                    result = new LongInListCondition(operand, longs, hasNull);
+                }
+                break;
+            case DECIMAL:
+                {
+                    BigDecimal[] decimals = new BigDecimal[n];
+                    for (int i = 0; i < n; i++)
+                        decimals[i] = values.get(i).getDecimal(null);
+                    Arrays.sort(decimals);
+                    result = new DecimalInListCondition(operand, decimals, hasNull);
+                }
+                break;
+            case DOUBLE:
+                {
+                    double[] doubles = new double[n];
+                    for (int i = 0; i < n; i++) {
+                        doubles[i] = values.get(i).getDouble(null);
+                        if (doubles[i] == 0.0)
+                            doubles[i] = 0.0;
+                    }
+                    Arrays.sort(doubles);
+                    result = new DoubleInListCondition(operand, doubles, hasNull);
+                }
+                break;
+            default:
+                {
+                    String[] strings = new String[n];
+                    for (int i = 0; i < n; i++)
+                        strings[i] = values.get(i).getString(null);
+                    Arrays.sort(strings, PADDED_ORDER);
+                    result = new StringInListCondition(operand, strings, hasNull);
+                }
+                break;
+            }
+        }
+        else {
+            result = new InListCondition(kind, operand, 
+                                         values.toArray(new Expression[values.size()]),
+                                         hasNull);
+        }
+        if (node.isNegated())
+            result = new NotCondition(result);
+        return result;
+    }
+
+    protected CompiledPredicate likeCondition(LikeEscapeOperatorNode node)
+            throws StandardException {
+        ValueNode patternOperand = node.getLeftOperand();
+        ValueNode escapeOperand = node.getRightOperand();
+        if (isNullConstant(patternOperand) || isNullConstant(escapeOperand))
+            return ConstantCondition.UNKNOWN;
+        Expression operand = expression(node.getReceiver());
+        if (operand.kind != Kind.STRING)
+            throw new StandardException("LIKE requires a character operand");
+        if (!(patternOperand instanceof CharConstantNode) ||
+            ((escapeOperand != null) && !(escapeOperand instanceof CharConstantNode)))
+            throw new StandardException("LIKE pattern must be a constant");
+        String pattern = (String)((CharConstantNode)patternOperand).getValue();
+        char escape = 0;
+        boolean hasEscape = false;
+        if (escapeOperand != null) {
+            String escapeString = (String)((CharConstantNode)escapeOperand).getValue();
+            if (escapeString.length() != 1)
+                throw new StandardException("LIKE escape must be a single character: " +
+                                            escapeString);
+            escape = escapeString.charAt(0);
+            hasEscape = true;
+        }
+        int length = pattern.length();
+        char[] chars = new char[length];
+        byte[] kinds = new byte[length];
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            char ch = pattern.charAt(i);
+            if (hasEscape && (ch == escape)) {
+                if (++i >= length)
+                    throw new StandardException("LIKE pattern ends with escape: " +
+                                                pattern);
+                chars[n] = pattern.charAt(i);
+                kinds[n++] = LikeCondition.LITERAL;
+            }
+            else if (ch == '%') {
+                // Consecutive %'s match the same as one.
+                if ((n == 0) || (kinds[n-1] != LikeCondition.ANY))
+                    kinds[n++] = LikeCondition.ANY;
+            }
+            else if (ch == '_') {
+                kinds[n++] = LikeCondition.ONE;
+            }
+            else {
+                chars[n] = ch;
+                kinds[n++] = LikeCondition.LITERAL;
+            }
+        }
+        return new LikeCondition(operand, 
+                                 Arrays.copyOf(chars, n), Arrays.copyOf(kinds, n));
+    }
+
+    /** Compile a value expression. */
+    protected Expression expression(ValueNode node) throws StandardException {
+        switch (node.getNodeType()) {
+        case NodeTypes.COLUMN_REFERENCE:
+            {
+                ColumnReference column = (ColumnReference)node;
+                int index = columnIndex(column);
+                switch (columnKind(column)) {
+                case LONG:
+                    return new LongColumn(index);
+                case DECIMAL:
+                    return new DecimalColumn(index);
+                case DOUBLE:
+                    return new DoubleColumn(index);
+                case STRING:
+                    return new StringColumn(index);
+                default:
+                    throw unsupported(node);
+                }
+            }
+        case NodeTypes.BINARY_PLUS_OPERATOR_NODE:
+        case NodeTypes.BINARY_MINUS_OPERATOR_NODE:
+        case NodeTypes.BINARY_TIMES_OPERATOR_NODE:
+        case NodeTypes.BINARY_DIVIDE_OPERATOR_NODE:
+        case NodeTypes.BINARY_DIV_OPERATOR_NODE:
+        case NodeTypes.MOD_OPERATOR_NODE:
+            return arithmetic((BinaryArithmeticOperatorNode)node);
+        case NodeTypes.UNARY_MINUS_OPERATOR_NODE:
+        case NodeTypes.UNARY_PLUS_OPERATOR_NODE:
+            {
+                Expression operand = expression(((UnaryOperatorNode)node).getOperand());
+                if (!isNumeric(operand.kind))
+                    throw unsupported(node);
+                if (node.getNodeType() == NodeTypes.UNARY_PLUS_OPERATOR_NODE)
+                    return operand;
+                return new Negate(operand);
+            }
+        case NodeTypes.CAST_NODE:
+            return cast((CastNode)node);
+        default:
+            if (node instanceof ConstantNode)
+                return constant((ConstantNode)node);
+            throw unsupported(node);
+        }
+    }
+
+    protected Expression arithmetic(BinaryArithmeticOperatorNode node) 
+            throws StandardException {
+        Expression left = expression(node.getLeftOperand());
+        Expression right = expression(node.getRightOperand());
+        if (!isNumeric(left.kind) || !isNumeric(right.kind))
+            throw unsupported(node);
+        int operator = node.getNodeType();
+        Kind operandKind = comparisonKind(left.kind, right.kind);
+        if (operator == NodeTypes.BINARY_DIV_OPERATOR_NODE) {
+            // Integer division, whatever the operands.
+            switch (operandKind) {
+            case LONG:
+                return new LongArithmetic(operator, left, right);
+            case DECIMAL:
+                return new Convert(Kind.LONG, Long.MIN_VALUE, Long.MAX_VALUE, -1,
+                                   new DecimalArithmetic(operator, -1, left, right));
+            default:
+                return new Convert(Kind.LONG, Long.MIN_VALUE, Long.MAX_VALUE, -1,
+                                   new DoubleArithmetic(NodeTypes.BINARY_DIVIDE_OPERATOR_NODE,
+                                                        left, right));
+            }
+        }
+        // The declared result type decides, so that a decimal quotient
+        // keeps its fraction and an INTEGER result is checked as one.
+        DataTypeDescriptor type = node.getType();
+        Kind kind = typeKind(type);
+        if (kind == null)
+            kind = operandKind;
+        else if (!isNumeric(kind))
+            throw unsupported(node);
+        if (kind == Kind.DOUBLE)
+            return new DoubleArithmetic(operator, left, right);
+        Expression result;
+        switch (operandKind) {
+        case LONG:
+            result = new LongArithmetic(operator, left, right);
+            break;
+        case DECIMAL:
+            result = new DecimalArithmetic(operator, decimalScale(kind, type), 
+                                           left, right);
+            break;
+        default:
+            result = new DoubleArithmetic(operator, left, right);
+            break;
+        }
+        if ((kind == Kind.DECIMAL) && (operandKind == Kind.DECIMAL))
+            // Exact, or a quotient already truncated to the scale.
+            return result;
+        return convert(kind, type, result);
+    }
+
+    protected Expression cast(CastNode node) throws StandardException {
+        Expression operand = expression(node.getCastOperand());
+        DataTypeDescriptor type = node.getType();
+        Kind kind = typeKind(type);
+        if (kind == null)
+            throw unsupported(node);
+        switch (kind) {
+        case LONG:
+        case DECIMAL:
+        case DOUBLE:
+            if (!isNumeric(operand.kind))
+                throw unsupported(node);
+            return convert(kind, type, operand);
+        case STRING:
+            // Only a cast that cannot truncate.
+            if ((operand.kind == Kind.STRING) &&
+                (node.getCastOperand().getType() != null) &&
+                (node.getCastOperand().getType().getMaximumWidth() <=
+                 type.getMaximumWidth()))
+                return operand;
+            throw unsupported(node);
+        default:
+            throw unsupported(node);
+        }
+    }
+
+    /** Convert a numeric operand to the given kind, checking that a
+     * whole number fits the given type and truncating a decimal to its
+     * scale. */
+    protected static Expression convert(Kind kind, DataTypeDescriptor type, 
+                                        Expression operand) {
+        long min = Long.MIN_VALUE, max = Long.MAX_VALUE;
+        if ((kind == Kind.LONG) && (type != null)) {
+            switch (type.getTypeId().getTypeFormatId()) {
+            case TypeId.FormatIds.TINYINT_TYPE_ID:
+                min = Byte.MIN_VALUE; max = Byte.MAX_VALUE;
+                break;
+            case TypeId.FormatIds.SMALLINT_TYPE_ID:
+                min = Short.MIN_VALUE; max = Short.MAX_VALUE;
+                break;
+            case TypeId.FormatIds.INT_TYPE_ID:
+                min = Integer.MIN_VALUE; max = Integer.MAX_VALUE;
+                break;
+            }
+        }
+        int scale = decimalScale(kind, type);
+        if ((kind == operand.kind) && 
+            (min == Long.MIN_VALUE) && (max == Long.MAX_VALUE) && (scale < 0))
+            return operand;
+        return new Convert(kind, min, max, scale, operand);
+    }
+
+    /** The scale of a decimal type, or -1 if not known. */
+    protected static int decimalScale(Kind kind, DataTypeDescriptor type) {
+        if ((kind == Kind.DECIMAL) && (type != null) && 
+            type.getTypeId().isDecimalTypeId())
+            return type.getScale();
+        return -1;
+    }
+
+    protected Expression constant(ConstantNode node) throws StandardException {
+        Object value = node.getValue();
+        if (value == null) {
+            Kind kind = typeKind(node.getType());
+            if ((kind == null) || (kind == Kind.BOOLEAN))
+                kind = Kind.LONG;
+            return new NullConstant(kind);
+        }
+        else if ((value instanceof Long) || (value instanceof Integer) ||
+                 (value instanceof Short) || (value instanceof Byte))
+            return new LongConstant(((Number)value).longValue());
+        else if (value instanceof BigDecimal)
+            return new DecimalConstant((BigDecimal)value);
+        else if ((value instanceof Double) || (value instanceof Float))
+            return new DoubleConstant(((Number)value).doubleValue());
+        else if (value instanceof String)
+            return new StringConstant((String)value);
+        else
+            throw unsupported(node);
+    }
+
+    protected int columnIndex(ColumnReference column) throws StandardException {
+        Integer index = columns.get(column.getColumnName());
+        if (index == null)
+            throw new StandardException("Unknown column: " + column.getColumnName());
+        return index;
+    }
+
+    protected Kind columnKind(ColumnReference column) throws StandardException {
+        DataTypeDescriptor type = column.getType();
+        if (type == null)
+            throw new StandardException("Column type not known: " + 
+                                        column.getColumnName());
+        Kind kind = typeKind(type);
+        if (kind == null)
+            throw new StandardException("Unsupported column type: " + 
+                                        column.getColumnName() + " " + type);
+        return kind;
+    }
+
+    /** The representation for values of the given type, or
+     * <code>null</code> if it has none. */
+    protected static Kind typeKind(DataTypeDescriptor type) {
+        if (type == null)
+            return null;
+        TypeId typeId = type.getTypeId();
+        if (typeId.isIntegerTypeId())
+            return Kind.LONG;
+        else if (typeId.isDecimalTypeId())
+            return Kind.DECIMAL;
+        else if (typeId.isFloatingPointTypeId())
+            return Kind.DOUBLE;
+        else if (typeId.isStringTypeId())
+            return Kind.STRING;
+        else if (typeId.isBooleanTypeId())
+            return Kind.BOOLEAN;
+        else
+            return null;
+    }
+
+    protected static boolean isNumeric(Kind kind) {
+        return ((kind == Kind.LONG) || (kind == Kind.DECIMAL) || (kind == Kind.DOUBLE));
+    }
+
+    protected static Kind comparisonKind(Expression left, Expression right, 
+                                         ValueNode node)
+            throws StandardException {
+        Kind kind = comparisonKind(left.kind, right.kind);
+        if (kind == null)
+            throw new StandardException("Cannot compare " + left.kind + 
+                                        " and " + right.kind + " in " + 
+                                        node.getClass().getName());
+        return kind;
+    }
+
+    protected static Kind comparisonKind(Kind left, Kind right) {
+        if (left == right)
+            return left;
+        else if (isNumeric(left) && isNumeric(right))
+            // Declared in order of decreasing exactness.
+            return (left.compareTo(right) > 0) ? left : right;
+        else
+            return null;
+    }
+
+    protected static boolean isNullConstant(ValueNode node) {
+        return ((node instanceof ConstantNode) &&
+                (((ConstantNode)node).getValue() == null));
+    }
+
+    protected StandardException unsupported(ValueNode node) {
+        return new StandardException("Unsupported in compiled predicate: " + 
+                                     node.getClass().getName());
+    }
+
+    // Helpers for the rare conditions built from other nodes.
+
+    protected CompiledPredicate comparison(int operator, 
+                                           ValueNode left, ValueNode right)
+            throws StandardException {
+        if (isNullConstant(left) || isNullConstant(right))
+            return ConstantCondition.UNKNOWN;
+        Expression leftExpression = expression(left);
+        Expression rightExpression = expression(right);
+        return new Comparison(operator, 
+                              comparisonKind(leftExpression, rightExpression, left),
+                              leftExpression, rightExpression);
+    }
+
+    protected static CompiledPredicate logical(int nodeType, 
+                                               CompiledPredicate left, 
+                                               CompiledPredicate right) {
+        CompiledPredicate[] operands = { left, right };
+        if (nodeType == NodeTypes.AND_NODE)
+            return new AndCondition(operands);
+        else
+            return new OrCondition(operands);
+    }
+
+    /* Comparison primitives */
+
+    static Boolean comparisonResult(int operator, int comparison) {
+        return (comparisonTest(operator, comparison)) ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    static boolean comparisonTest(int operator, int comparison) {
+        switch (operator) {
+        case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+            return (comparison == 0);
+        case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+            return (comparison != 0);
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+            return (comparison > 0);
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+            return (comparison >= 0);
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+            return (comparison < 0);
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+            return (comparison <= 0);
+        default:
+            assert false : "Not a comparison " + operator;
+            return false;
+        }
+    }
+
+    static int compareLongs(long left, long right) {
+        return (left < right) ? -1 : ((left == right) ? 0 : 1);
+    }
+
+    static int compareDoubles(double left, double right) {
+        return (left < right) ? -1 : ((left == right) ? 0 : 1);
+    }
+
+    /** Compare two strings as though the shorter were padded with blanks. */
+    static int compareStrings(String left, String right) {
+        int leftLength = left.length(), rightLength = right.length();
+        int length = Math.min(leftLength, rightLength);
+        for (int i = 0; i < length; i++) {
+            char leftChar = left.charAt(i), rightChar = right.charAt(i);
+            if (leftChar != rightChar)
+                return (leftChar < rightChar) ? -1 : 1;
+        }
+        for (int i = length; i < leftLength; i++) {
+            char leftChar = left.charAt(i);
+            if (leftChar != ' ')
+                return (leftChar < ' ') ? -1 : 1;
+        }
+        for (int i = length; i < rightLength; i++) {
+            char rightChar = right.charAt(i);
+            if (rightChar != ' ')
+                return (' ' < rightChar) ? -1 : 1;
+        }
+        return 0;
+    }
+
+    static final Comparator<String> PADDED_ORDER = new Comparator<String>() {
+            public int compare(String left, String right) {
+                return compareStrings(left, right);
+            }
+        };
+
+    static int compare(Kind kind, Expression left, Expression right, 
+                       RowAccessor row)
+            throws StandardException {
+        switch (kind) {
+        case LONG:
+            return compareLongs(left.getLong(row), right.getLong(row));
+        case DECIMAL:
+            return left.getDecimal(row).compareTo(right.getDecimal(row));
+        case DOUBLE:
+            return compareDoubles(left.getDouble(row), right.getDouble(row));
+        default:
+            return compareStrings(left.getString(row), right.getString(row));
+        }
+    }
+
+    /* Expressions */
+
+    /** A compiled value expression. Only the accessor for its
+     * <code>kind</code> is meaningful, except that numeric
+     * expressions convert among <code>long</code>,
+     * <code>BigDecimal</code> and <code>double</code>, truncating
+     * toward <code>long</code>. None is called when
+     * <code>isNull</code>.
+     */
+    static abstract class Expression {
+        final Kind kind;
+
+        Expression(Kind kind) {
+            this.kind = kind;
+        }
+
+        abstract boolean isNull(RowAccessor row);
+
+        long getLong(RowAccessor row) throws StandardException {
+            if (kind == Kind.DECIMAL)
+                return getDecimal(row).longValue();
+            return (long)getDouble(row);
+        }
+
+        BigDecimal getDecimal(RowAccessor row) throws StandardException {
+            if (kind == Kind.LONG)
+                return BigDecimal.valueOf(getLong(row));
+            return BigDecimal.valueOf(getDouble(row));
+        }
+
+        double getDouble(RowAccessor row) throws StandardException {
+            if (kind == Kind.DECIMAL)
+                return getDecimal(row).doubleValue();
+            return getLong(row);
+        }
+
+        String getString(RowAccessor row) throws StandardException {
+            throw new UnsupportedOperationException("Not a string expression: " + 
+                                                    kind);
+        }
+    }
+
+    static abstract class Column extends Expression {
+        final int column;
+
+        Column(Kind kind, int column) {
+            super(kind);
+            this.column = column;
+        }
+
+        boolean isNull(RowAccessor row) {
+            return row.isNull(column);
+        }
+    }
+
+    static final class LongColumn extends Column {
+        LongColumn(int column) {
+            super(Kind.LONG, column);
+        }
+
+        long getLong(RowAccessor row) {
+            return row.getLong(column);
+        }
+    }
+
+    static final class DecimalColumn extends Column {
+        DecimalColumn(int column) {
+            super(Kind.DECIMAL, column);
+        }
+
+        BigDecimal getDecimal(RowAccessor row) {
+            return row.getDecimal(column);
+        }
+    }
+
+    static final class DoubleColumn extends Column {
+        DoubleColumn(int column) {
+            super(Kind.DOUBLE, column);
+        }
+
+        double getDouble(RowAccessor row) {
+            return row.getDouble(column);
+        }
+    }
+
+    static final class StringColumn extends Column {
+        StringColumn(int column) {
+            super(Kind.STRING, column);
+        }
+
+        String getString(RowAccessor row) {
+            return row.getString(column);
+        }
+    }
+
+    /** A constant, whose value can be had with a <code>null</code> row. */
+    static abstract class Constant extends Expression {
+        Constant(Kind kind) {
+            super(kind);
+        }
+
+        boolean isNull(RowAccessor row) {
+            return false;
+        }
+    }
+
+    static final class LongConstant extends Constant {
+        final long value;
+
+        LongConstant(long value) {
+            super(Kind.LONG);
+            this.value = value;
+        }
+
+        long getLong(RowAccessor row) {
+            return value;
+        }
+    }
+
+    static final class DecimalConstant extends Constant {
+        final BigDecimal value;
+
+        DecimalConstant(BigDecimal value) {
+            super(Kind.DECIMAL);
+            this.value = value;
+        }
+
+        BigDecimal getDecimal(RowAccessor row) {
+            return value;
+        }
+    }
+
+    static final class DoubleConstant extends Constant {
+        final double value;
+
+        DoubleConstant(double value) {
+            super(Kind.DOUBLE);
+            this.value = value;
+        }
+
+        double getDouble(RowAccessor row) {
+            return value;
+        }
+    }
+
+    static final class StringConstant extends Constant {
+        final String value;
+
+        StringConstant(String value) {
+            super(Kind.STRING);
+            this.value = value;
+        }
+
+        String getString(RowAccessor row) {
+            return value;
+        }
+    }
+
+    static final class NullConstant extends Expression {
+        NullConstant(Kind kind) {
+            super(kind);
+        }
+
+        boolean isNull(RowAccessor row) {
+            return true;
+        }
+
+        long getLong(RowAccessor row) {
+            return 0;
+        }
+
+        BigDecimal getDecimal(RowAccessor row) {
+            return BigDecimal.ZERO;
+        }
+
+        double getDouble(RowAccessor row) {
+            return 0.0;
+        }
+
+        String getString(RowAccessor row) {
+            return null;
+        }
+    }
+
+    static final class LongArithmetic extends Expression {
+        final int operator;
+        final Expression left, right;
+
+        LongArithmetic(int operator, Expression left, Expression right) {
+            super(Kind.LONG);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        boolean isNull(RowAccessor row) {
+            return left.isNull(row) || right.isNull(row);
+        }
+
+        long getLong(RowAccessor row) throws StandardException {
+            long x = left.getLong(row);
+            long y = right.getLong(row);
+            long result;
+            switch (operator) {
+            case NodeTypes.BINARY_PLUS_OPERATOR_NODE:
+                result = x + y;
+                // Overflow iff both operands have the sign the result lacks.
+                if (((x ^ result) & (y ^ result)) < 0)
+                    throw overflow();
+                return result;
+            case NodeTypes.BINARY_MINUS_OPERATOR_NODE:
+                result = x - y;
+                if (((x ^ y) & (x ^ result)) < 0)
+                    throw overflow();
+                return result;
+            case NodeTypes.BINARY_TIMES_OPERATOR_NODE:
+                result = x * y;
+                if ((x != 0) &&
+                    (((result / x) != y) || ((x == -1) && (y == Long.MIN_VALUE))))
+                    throw overflow();
+                return result;
+            case NodeTypes.BINARY_DIVIDE_OPERATOR_NODE:
+            case NodeTypes.BINARY_DIV_OPERATOR_NODE:
+                if (y == 0)
+                    throw divideByZero();
+                if ((x == Long.MIN_VALUE) && (y == -1))
+                    throw overflow();
+                return x / y;
+            case NodeTypes.MOD_OPERATOR_NODE:
+                if (y == 0)
+                    throw divideByZero();
+                return x % y;
+            default:
+                assert false : "Not arithmetic " + operator;
+                return 0;
+            }
+        }
+    }
+
+    /** Exact decimal arithmetic. A quotient is truncated to the given
+     * scale, or, if that is not known, rounded to 34 digits. */
+    static final class DecimalArithmetic extends Expression {
+        final int operator, scale;
+        final Expression left, right;
+
+        DecimalArithmetic(int operator, int scale, Expression left, Expression right) {
+            super(Kind.DECIMAL);
+            this.operator = operator;
+            this.scale = scale;
+            this.left = left;
+            this.right = right;
+        }
+
+        boolean isNull(RowAccessor row) {
+            return left.isNull(row) || right.isNull(row);
+        }
+
+        BigDecimal getDecimal(RowAccessor row) throws StandardException {
+            BigDecimal x = left.getDecimal(row);
+            BigDecimal y = right.getDecimal(row);
+            switch (operator) {
+            case NodeTypes.BINARY_PLUS_OPERATOR_NODE:
+                return x.add(y);
+            case NodeTypes.BINARY_MINUS_OPERATOR_NODE:
+                return x.subtract(y);
+            case NodeTypes.BINARY_TIMES_OPERATOR_NODE:
+                return x.multiply(y);
+            case NodeTypes.BINARY_DIVIDE_OPERATOR_NODE:
+                if (y.signum() == 0)
+                    throw divideByZero();
+                if (scale < 0)
+                    return x.divide(y, MathContext.DECIMAL128);
+                return x.divide(y, scale, RoundingMode.DOWN);
+            case NodeTypes.BINARY_DIV_OPERATOR_NODE:
+                if (y.signum() == 0)
+                    throw divideByZero();
+                return x.divideToIntegralValue(y);
+            case NodeTypes.MOD_OPERATOR_NODE:
+                if (y.signum() == 0)
+                    throw divideByZero();
+                return x.remainder(y);
+            default:
+                assert false : "Not arithmetic " + operator;
+                return BigDecimal.ZERO;
+            }
+        }
+    }
+
+    static final class DoubleArithmetic extends Expression {
+        final int operator;
+        final Expression left, right;
+
+        DoubleArithmetic(int operator, Expression left, Expression right) {
+            super(Kind.DOUBLE);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        boolean isNull(RowAccessor row) {
+            return left.isNull(row) || right.isNull(row);
+        }
+
+        double getDouble(RowAccessor row) throws StandardException {
+            double x = left.getDouble(row);
+            double y = right.getDouble(row);
+            switch (operator) {
+            case NodeTypes.BINARY_PLUS_OPERATOR_NODE:
+                return x + y;
+            case NodeTypes.BINARY_MINUS_OPERATOR_NODE:
+                return x - y;
+            case NodeTypes.BINARY_TIMES_OPERATOR_NODE:
+                return x * y;
+            case NodeTypes.BINARY_DIVIDE_OPERATOR_NODE:
+                if (y == 0.0)
+                    throw divideByZero();
+                return x / y;
+            case NodeTypes.MOD_OPERATOR_NODE:
+                if (y == 0.0)
+                    throw divideByZero();
+                return x % y;
+            default:
+                assert false : "Not arithmetic " + operator;
+                return 0.0;
+            }
+        }
+    }
+
+    static final class Negate extends Expression {
+        final Expression operand;
+
+        Negate(Expression operand) {
+            super(operand.kind);
+            this.operand = operand;
+        }
+
+        boolean isNull(RowAccessor row) {
+            return operand.isNull(row);
+        }
+
+        long getLong(RowAccessor row) throws StandardException {
+            long value = operand.getLong(row);
+            if (value == Long.MIN_VALUE)
+                throw overflow();
+            return -value;
+        }
+
+        BigDecimal getDecimal(RowAccessor row) throws StandardException {
+            return operand.getDecimal(row).negate();
+        }
+
+        double getDouble(RowAccessor row) throws StandardException {
+            if (kind == Kind.LONG)
+                return getLong(row);
+            return -operand.getDouble(row);
+        }
+    }
+
+    /** A numeric <code>CAST</code>, truncating toward zero and checking
+     * the range of integer targets. */
+    static final class Convert extends Expression {
+        final long min, max;
+        final int scale;
+        final Expression operand;
+
+        /** @param scale for a decimal target, or -1 to keep the operand's. */
+        Convert(Kind kind, long min, long max, int scale, Expression operand) {
+            super(kind);
+            this.min = min;
+            this.max = max;
+            this.scale = scale;
+            this.operand = operand;
+        }
+
+        boolean isNull(RowAccessor row) {
+            return operand.isNull(row);
+        }
+
+        long getLong(RowAccessor row) throws StandardException {
+            if (kind == Kind.DECIMAL)
+                return getDecimal(row).longValue();
+            if (kind == Kind.DOUBLE)
+                return (long)operand.getDouble(row);
+            long value;
+            switch (operand.kind) {
+            case LONG:
+                value = operand.getLong(row);
+                break;
+            case DECIMAL:
+                {
+                    BigDecimal dvalue = operand.getDecimal(row)
+                        .setScale(0, RoundingMode.DOWN);
+                    if ((dvalue.compareTo(LONG_MIN) < 0) ||
+                        (dvalue.compareTo(LONG_MAX) > 0))
+                        throw overflow();
+                    value = dvalue.longValue();
+                }
+                break;
+            default:
+                {
+                    double dvalue = operand.getDouble(row);
+                    if ((dvalue < -9.223372036854775808E18) || 
+                        (dvalue >= 9.223372036854775808E18) ||
+                        Double.isNaN(dvalue))
+                        throw overflow();
+                    value = (long)dvalue;
+                }
+                break;
+            }
+            if ((value < min) || (value > max))
+                throw overflow();
+            return value;
+        }
+
+        BigDecimal getDecimal(RowAccessor row) throws StandardException {
+            if (kind != Kind.DECIMAL)
+                return super.getDecimal(row);
+            BigDecimal value;
+            if (operand.kind == Kind.DOUBLE) {
+                double dvalue = operand.getDouble(row);
+                if (Double.isNaN(dvalue) || Double.isInfinite(dvalue))
+                    throw overflow();
+                value = BigDecimal.valueOf(dvalue);
+            }
+            else
+                value = operand.getDecimal(row);
+            if ((scale >= 0) && (value.scale() > scale))
+                value = value.setScale(scale, RoundingMode.DOWN);
+            return value;
+        }
+
+        double getDouble(RowAccessor row) throws StandardException {
+            if (kind == Kind.LONG)
+                return getLong(row);
+            if (kind == Kind.DECIMAL)
+                return getDecimal(row).doubleValue();
+            return operand.getDouble(row);
+        }
+    }
+
+    static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+    static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    static StandardException overflow() {
+        return new StandardException("Arithmetic overflow");
+    }
+
+    static StandardException divideByZero() {
+        return new StandardException("Division by zero");
+    }
+
+    /* Conditions */
+
+    static final class ConstantCondition extends CompiledPredicate {
+        static final ConstantCondition TRUE = new ConstantCondition(Boolean.TRUE);
+        static final ConstantCondition FALSE = new ConstantCondition(Boolean.FALSE);
+        static final ConstantCondition UNKNOWN = new ConstantCondition(null);
+
+        final Boolean value;
+
+        private ConstantCondition(Boolean value) {
+            this.value = value;
+        }
+
+        static ConstantCondition of(Boolean value) {
+            if (value == null)
+                return UNKNOWN;
+            else if (value.booleanValue())
+                return TRUE;
+            else
+                return FALSE;
+        }
+
+        public Boolean evaluate(RowAccessor row) {
+            return value;
+        }
+    }
+
+    static final class AndCondition extends CompiledPredicate {
+        final CompiledPredicate[] operands;
+
+        AndCondition(CompiledPredicate[] operands) {
+            this.operands = operands;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            boolean unknown = false;
+            for (CompiledPredicate operand : operands) {
+                Boolean value = operand.evaluate(row);
+                if (value == Boolean.FALSE)
+                    return Boolean.FALSE;
+                if (value == null)
+                    unknown = true;
+            }
+            return (unknown) ? null : Boolean.TRUE;
+        }
+    }
+
+    static final class OrCondition extends CompiledPredicate {
+        final CompiledPredicate[] operands;
+
+        OrCondition(CompiledPredicate[] operands) {
+            this.operands = operands;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            boolean unknown = false;
+            for (CompiledPredicate operand : operands) {
+                Boolean value = operand.evaluate(row);
+                if (value == Boolean.TRUE)
+                    return Boolean.TRUE;
+                if (value == null)
+                    unknown = true;
+            }
+            return (unknown) ? null : Boolean.FALSE;
+        }
+    }
+
+    static final class NotCondition extends CompiledPredicate {
+        final CompiledPredicate operand;
+
+        NotCondition(CompiledPredicate operand) {
+            this.operand = operand;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            Boolean value = operand.evaluate(row);
+            if (value == null)
+                return null;
+            return (value == Boolean.TRUE) ? Boolean.FALSE : Boolean.TRUE;
+        }
+    }
+
+    static final class BooleanColumnCondition extends CompiledPredicate {
+        final int column;
+
+        BooleanColumnCondition(int column) {
+            this.column = column;
+        }
+
+        public Boolean evaluate(RowAccessor row) {
+            if (row.isNull(column))
+                return null;
+            return (row.getBoolean(column)) ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+
+    static final class ColumnIsNullCondition extends CompiledPredicate {
+        final int column;
+        final boolean negated;
+
+        ColumnIsNullCondition(int column, boolean negated) {
+            this.column = column;
+            this.negated = negated;
+        }
+
+        public Boolean evaluate(RowAccessor row) {
+            return (row.isNull(column) != negated) ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+
+    static final class IsNullCondition extends CompiledPredicate {
+        final Expression operand;
+        final boolean negated;
+
+        IsNullCondition(Expression operand, boolean negated) {
+            this.operand = operand;
+            this.negated = negated;
+        }
+
+        public Boolean evaluate(RowAccessor row) {
+            return (operand.isNull(row) != negated) ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+
+    static final class Comparison extends CompiledPredicate {
+        final int operator;
+        final Kind kind;
+        final Expression left, right;
+
+        Comparison(int operator, Kind kind, Expression left, Expression right) {
+            this.operator = operator;
+            this.kind = kind;
+            this.left = left;
+            this.right = right;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            if (left.isNull(row) || right.isNull(row))
+                return null;
+            return comparisonResult(operator, compare(kind, left, right, row));
+        }
+    }
+
+    static final class LongColumnComparison extends CompiledPredicate {
+        final int operator, column;
+        final long value;
+
+        LongColumnComparison(int operator, int column, long value) {
+            this.operator = operator;
+            this.column = column;
+            this.value = value;
+        }
+
+        public Boolean evaluate(RowAccessor row) {
+            if (row.isNull(column))
+                return null;
+            return comparisonResult(operator, 
+                                    compareLongs(row.getLong(column), value));
+        }
+    }
+
+    static final class DecimalColumnComparison extends CompiledPredicate {
+        final int operator, column;
+        final BigDecimal value;
+
+        DecimalColumnComparison(int operator, int column, BigDecimal value) {
+            this.operator = operator;
+            this.column = column;
+            this.value = value;
+        }
+
+        public Boolean evaluate(RowAccessor row) {
+            if (row.isNull(column))
+                return null;
+            return comparisonResult(operator, 
+                                    row.getDecimal(column).compareTo(value));
+        }
+    }
+
+    static final class DoubleColumnComparison extends CompiledPredicate {
+        final int operator, column;
+        final double value;
+
+        DoubleColumnComparison(int operator, int column, double value) {
+            this.operator = operator;
+            this.column = column;
+            this.value = value;
+        }
+
+        public Boolean evaluate(RowAccessor row) {
+            if (row.isNull(column))
+                return null;
+            return comparisonResult(operator, 
+                                    compareDoubles(row.getDouble(column), value));
+        }
+    }
+
+    static final class StringColumnComparison extends CompiledPredicate {
+        final int operator, column;
+        final String value;
+
+        StringColumnComparison(int operator, int column, String value) {
+            this.operator = operator;
+            this.column = column;
+            this.value = value;
+        }
+
+        public Boolean evaluate(RowAccessor row) {
+            if (row.isNull(column))
+                return null;
+            return comparisonResult(operator, 
+                                    compareStrings(row.getString(column), value));
+        }
+    }
+
+    static final class BetweenCondition extends CompiledPredicate {
+        final Kind kind;
+        final Expression operand, low, high;
+
+        BetweenCondition(Kind kind, Expression operand, 
+                         Expression low, Expression high) {
+            this.kind = kind;
+            this.operand = operand;
+            this.low = low;
+            this.high = high;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            if (operand.isNull(row))
+                return null;
+            boolean unknown = false;
+            if (low.isNull(row))
+                unknown = true;
+            else if (compare(kind, operand, low, row) < 0)
+                return Boolean.FALSE;
+            if (high.isNull(row))
+                unknown = true;
+            else if (compare(kind, operand, high, row) > 0)
+                return Boolean.FALSE;
+            return (unknown) ? null : Boolean.TRUE;
+        }
+    }
+
+    static final class InListCondition extends CompiledPredicate {
+        final Kind kind;
+        final Expression operand;
+        final Expression[] values;
+        final boolean hasNull;
+
+        InListCondition(Kind kind, Expression operand, Expression[] values,
+                        boolean hasNull) {
+            this.kind = kind;
+            this.operand = operand;
+            this.values = values;
+            this.hasNull = hasNull;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            if (operand.isNull(row))
+                return null;
+            boolean unknown = hasNull;
+            for (Expression value : values) {
+                if (value.isNull(row))
+                    unknown = true;
+                else if (compare(kind, operand, value, row) == 0)
+                    return Boolean.TRUE;
+            }
+            return (unknown) ? null : Boolean.FALSE;
+        }
+    }
+
+    static final class LongInListCondition extends CompiledPredicate {
+        final Expression operand;
+        final long[] values;
+        final Boolean notFound;
+
+        LongInListCondition(Expression operand, long[] values, boolean hasNull) {
+            this.operand = operand;
+            this.values = values;
+            this.notFound = (hasNull) ? null : Boolean.FALSE;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            if (operand.isNull(row))
+                return null;
+            if (Arrays.binarySearch(values, operand.getLong(row)) >= 0)
+                return Boolean.TRUE;
+            return notFound;
+        }
+    }
+
+    static final class DecimalInListCondition extends CompiledPredicate {
+        final Expression operand;
+        final BigDecimal[] values;
+        final Boolean notFound;
+
+        /** @param values sorted, so that equal values of different
+         * scales are found. */
+        DecimalInListCondition(Expression operand, BigDecimal[] values, boolean hasNull) {
+            this.operand = operand;
+            this.values = values;
+            this.notFound = (hasNull) ? null : Boolean.FALSE;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            if (operand.isNull(row))
+                return null;
+            if (Arrays.binarySearch(values, operand.getDecimal(row)) >= 0)
+                return Boolean.TRUE;
+            return notFound;
+        }
+    }
+
+    static final class DoubleInListCondition extends CompiledPredicate {
+        final Expression operand;
+        final double[] values;
+        final Boolean notFound;
+
+        DoubleInListCondition(Expression operand, double[] values, boolean hasNull) {
+            this.operand = operand;
+            this.values = values;
+            this.notFound = (hasNull) ? null : Boolean.FALSE;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            if (operand.isNull(row))
+                return null;
+            double value = operand.getDouble(row);
+            if (value == 0.0)
+                value = 0.0;    // -0.0 sorts apart from 0.0.
+            if (Arrays.binarySearch(values, value) >= 0)
+                return Boolean.TRUE;
+            return notFound;
+        }
+    }
+
+    static final class StringInListCondition extends CompiledPredicate {
+        final Expression operand;
+        final String[] values;
+        final Boolean notFound;
+
+        /** @param values sorted in {@link #PADDED_ORDER}. */
+        StringInListCondition(Expression operand, String[] values, boolean hasNull) {
+            this.operand = operand;
+            this.values = values;
+            this.notFound = (hasNull) ? null : Boolean.FALSE;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            if (operand.isNull(row))
+                return null;
+            String value = operand.getString(row);
+            int low = 0, high = values.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int comparison = compareStrings(values[mid], value);
+                if (comparison < 0)
+                    low = mid + 1;
+                else if (comparison > 0)
+                    high = mid - 1;
+                else
+                    return Boolean.TRUE;
+            }
+            return notFound;
+        }
+    }
+
+    static final class LikeCondition extends CompiledPredicate {
+        static final byte LITERAL = 0, ONE = 1, ANY = 2;
+
+        final Expression operand;
+        final char[] chars;
+        final byte[] kinds;
+
+        LikeCondition(Expression operand, char[] chars, byte[] kinds) {
+            this.operand = operand;
+            this.chars = chars;
+            this.kinds = kinds;
+        }
+
+        public Boolean evaluate(RowAccessor row) throws StandardException {
+            if (operand.isNull(row))
+                return null;
+            return (matches(operand.getString(row))) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        /** Match, backing up to the most recent <code>%</code> on failure. */
+        boolean matches(String string) {
+            int length = string.length(), plength = kinds.length;
+            int si = 0, pi = 0, anyPi = -1, anySi = 0;
+            while (si < length) {
+                if ((pi < plength) && (kinds[pi] == ANY)) {
+                    anyPi = pi++;
+                    anySi = si;
+                }
+                else if ((pi < plength) && 
+                         ((kinds[pi] == ONE) || (chars[pi] == string.charAt(si)))) {
+                    si++;
+                    pi++;
+                }
+                else if (anyPi >= 0) {
+                    pi = anyPi + 1;
+                    si = ++anySi;
+                }
+                else
+                    return false;
+            }
+            while ((pi < plength) && (kinds[pi] == ANY))
+                pi++;
+            return (pi == plength);
+        }
+    }
+
+}
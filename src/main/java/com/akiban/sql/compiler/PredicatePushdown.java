@@ -0,0 +1,417 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Push conditions from a <code>WHERE</code> clause into the derived
+ * tables they restrict.
+ *
+ * A conjunct of the outer <code>WHERE</code> can be pushed if it refers
+ * only to the columns of a single subquery in the <code>FROM</code>
+ * list. In its place, a copy goes into the <code>WHERE</code> of the
+ * subquery's <code>SELECT</code>, or of every <code>SELECT</code>
+ * beneath a <code>UNION</code>, <code>INTERSECT</code> or
+ * <code>EXCEPT</code>. In the copy, column references are replaced by
+ * the matching select expressions.
+ *
+ * Nothing is pushed past <code>OFFSET</code> / <code>FETCH FIRST</code>
+ * or into a <code>SELECT</code> with window functions, since either
+ * would change which rows are counted. For a grouped <code>SELECT</code>,
+ * only conditions on its non-aggregate columns are pushed. Nothing is
+ * pushed into a <code>SELECT</code> with aggregates and no
+ * <code>GROUP BY</code>, nor onto a column whose expression calls a
+ * function.
+ *
+ * Conditions are only split at <code>AND</code>, so this does the most
+ * after {@link BooleanNormalizer}. Statements are processed from the
+ * top down, so a pushed condition can continue into subqueries nested
+ * further down.
+ */
+public class PredicatePushdown implements Visitor
+{
+    SQLParserContext parserContext;
+    NodeFactory nodeFactory;
+    public PredicatePushdown(SQLParserContext parserContext) {
+        this.parserContext = parserContext;
+        this.nodeFactory = parserContext.getNodeFactory();
+    }
+
+    /** Push down conditions anywhere in this statement. */
+    public StatementNode pushDown(StatementNode stmt) throws StandardException {
+        return (StatementNode)stmt.accept(this);
+    }
+
+    /** Push conjuncts of this SELECT's WHERE clause into subqueries in its
+     * FROM list.
+     */
+    public void selectNode(SelectNode node) throws StandardException {
+        ValueNode whereClause = node.getWhereClause();
+        if (whereClause == null)
+            return;
+        FromList fromList = node.getFromList();
+        List<FromSubquery> subqueries = new ArrayList<FromSubquery>();
+        for (FromTable fromTable : fromList) {
+            if (fromTable instanceof FromSubquery)
+                subqueries.add((FromSubquery)fromTable);
+        }
+        if (subqueries.isEmpty())
+            return;
+        boolean cnf = isConjunctiveNormalForm(whereClause);
+        List<ValueNode> conjuncts = new ArrayList<ValueNode>();
+        addConjuncts(whereClause, conjuncts);
+        boolean changed = false;
+        for (int i = 0; i < conjuncts.size(); i++) {
+            ValueNode conjunct = conjuncts.get(i);
+            if (isBooleanTrue(conjunct))
+                continue;
+            for (FromSubquery subquery : subqueries) {
+                if (pushConjunct(conjunct, subquery, (fromList.size() == 1), cnf)) {
+                    conjuncts.remove(i--);
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        if (changed)
+            node.setWhereClause(combineConjuncts(conjuncts, cnf, parserContext));
+    }
+
+    /** Push one conjunct into the given subquery if that is possible.
+     * @param alone whether the subquery is the only table, so that
+     * unqualified column names must be its.
+     */
+    protected boolean pushConjunct(ValueNode conjunct, FromSubquery fromSubquery,
+                                   boolean alone, boolean cnf)
+            throws StandardException {
+        String name = fromSubquery.getCorrelationName();
+        if ((name == null) ||
+            (fromSubquery.getOffset() != null) ||
+            (fromSubquery.getFetchFirst() != null))
+            return false;
+        Map<String,Integer> positions = columnPositions(fromSubquery);
+        if (positions == null)
+            return false;
+
+        ReferenceFinder finder = new ReferenceFinder();
+        conjunct.accept(finder);
+        if (finder.hasSubquery || finder.references.isEmpty())
+            return false;
+        List<Integer> referencePositions = new ArrayList<Integer>();
+        for (ColumnReference reference : finder.references) {
+            TableName tableName = reference.getTableNameNode();
+            if (tableName != null) {
+                if (tableName.hasSchema() || !name.equals(tableName.getTableName()))
+                    return false;
+            }
+            else if (!alone)
+                return false;
+            Integer position = positions.get(reference.getColumnName());
+            if (position == null)
+                return false;
+            referencePositions.add(position);
+        }
+
+        List<SelectNode> targets = new ArrayList<SelectNode>();
+        if (!addTargets(fromSubquery.getSubquery(), targets))
+            return false;
+        for (SelectNode target : targets) {
+            if (!canPushInto(target, referencePositions))
+                return false;
+        }
+        for (SelectNode target : targets) {
+            ValueNode copy = (ValueNode)nodeFactory.copyNode(conjunct, parserContext);
+            copy = (ValueNode)copy.accept(new ColumnReplacer(target.getResultColumns(),
+                                                             positions));
+            target.setWhereClause(addConjunct(target.getWhereClause(), copy, cnf));
+        }
+        return true;
+    }
+
+    /** Get the positions of the subquery's columns by name. An ambiguous
+     * name maps to <code>null</code>.
+     * @return null if the columns cannot be determined.
+     */
+    protected static Map<String,Integer> columnPositions(FromSubquery fromSubquery) {
+        ResultSetNode first = fromSubquery.getSubquery();
+        while (first instanceof SetOperatorNode) {
+            first = ((SetOperatorNode)first).getLeftResultSet();
+        }
+        if (!(first instanceof SelectNode))
+            return null;
+        ResultColumnList resultColumns = first.getResultColumns();
+        ResultColumnList derivedColumns = fromSubquery.getResultColumns();
+        if ((derivedColumns != null) &&
+            (derivedColumns.size() != resultColumns.size()))
+            return null;
+        Map<String,Integer> positions = new HashMap<String,Integer>();
+        for (int i = 0; i < resultColumns.size(); i++) {
+            ResultColumn resultColumn = resultColumns.get(i);
+            if (resultColumn instanceof AllResultColumn)
+                return null;
+            String name;
+            if (derivedColumns != null)
+                name = derivedColumns.get(i).getName();
+            else
+                name = resultColumn.getName();
+            if (name == null)
+                continue;
+            if (positions.containsKey(name))
+                positions.put(name, null);
+            else
+                positions.put(name, i);
+        }
+        return positions;
+    }
+
+    /** Add the SELECTs that produce the rows of this result set.
+     * @return false if some of the rows come from something else.
+     */
+    protected static boolean addTargets(ResultSetNode resultSet,
+                                        List<SelectNode> targets) {
+        if (resultSet instanceof SelectNode) {
+            targets.add((SelectNode)resultSet);
+            return true;
+        }
+        else if (resultSet instanceof SetOperatorNode) {
+            SetOperatorNode setOperator = (SetOperatorNode)resultSet;
+            return (addTargets(setOperator.getLeftResultSet(), targets) &&
+                    addTargets(setOperator.getRightResultSet(), targets));
+        }
+        else
+            return false;
+    }
+
+    /** Can a condition on the given columns of this SELECT go into its
+     * WHERE clause?
+     */
+    protected static boolean canPushInto(SelectNode select,
+                                         Iterable<Integer> positions)
+            throws StandardException {
+        ResultColumnList resultColumns = select.getResultColumns();
+        if (select.hasWindows() ||
+            ViewMerger.hasNode(resultColumns, WindowFunctionNode.class))
+            return false;
+        if ((select.getGroupByList() == null) &&
+            ViewMerger.hasNode(resultColumns, AggregateNode.class))
+            return false;
+        // ROLLUP adds super-aggregate rows with NULL for the grouping
+        // columns, which a WHERE filter below it could not see.
+        if ((select.getGroupByList() != null) &&
+            select.getGroupByList().isRollup())
+            return false;
+        for (ResultColumn resultColumn : resultColumns) {
+            if (resultColumn instanceof AllResultColumn)
+                return false;
+        }
+        for (Integer position : positions) {
+            if (position >= resultColumns.size())
+                return false;
+            ValueNode expression = resultColumns.get(position).getExpression();
+            if ((expression == null) ||
+                ViewMerger.hasNode(expression, AggregateNode.class) ||
+                ViewMerger.hasNode(expression, SubqueryNode.class) ||
+                // Evaluated again in the copy, maybe differently.
+                ViewMerger.isVolatile(expression))
+                return false;
+        }
+        return true;
+    }
+
+    /** Is this an <code>AND</code> chain ending in <code>TRUE</code>, as
+     * left by {@link BooleanNormalizer}?
+     */
+    protected static boolean isConjunctiveNormalForm(ValueNode node) {
+        while (node instanceof AndNode) {
+            node = ((AndNode)node).getRightOperand();
+        }
+        return isBooleanTrue(node);
+    }
+
+    protected static boolean isBooleanTrue(ValueNode node) {
+        return ((node instanceof BooleanConstantNode) &&
+                ((BooleanConstantNode)node).isBooleanTrue());
+    }
+
+    protected static void addConjuncts(ValueNode node, List<ValueNode> conjuncts) {
+        if (node instanceof AndNode) {
+            AndNode andNode = (AndNode)node;
+            addConjuncts(andNode.getLeftOperand(), conjuncts);
+            addConjuncts(andNode.getRightOperand(), conjuncts);
+        }
+        else
+            conjuncts.add(node);
+    }
+
+    /** Rebuild a WHERE clause from what remains of its conjuncts. */
+    protected static ValueNode combineConjuncts(List<ValueNode> conjuncts, boolean cnf,
+                                                SQLParserContext parserContext)
+            throws StandardException {
+        NodeFactory nodeFactory = parserContext.getNodeFactory();
+        if (cnf) {
+            ValueNode result = null;
+            for (int i = conjuncts.size() - 1; i >= 0; i--) {
+                ValueNode conjunct = conjuncts.get(i);
+                if (result == null)
+                    result = conjunct; // The final TRUE.
+                else
+                    result = (ValueNode)nodeFactory.getNode(NodeTypes.AND_NODE,
+                                                            conjunct, result,
+                                                            parserContext);
+            }
+            if (isBooleanTrue(result))
+                return null;
+            return result;
+        }
+        else {
+            ValueNode result = null;
+            for (ValueNode conjunct : conjuncts) {
+                if (result == null)
+                    result = conjunct;
+                else
+                    result = (ValueNode)nodeFactory.getNode(NodeTypes.AND_NODE,
+                                                            result, conjunct,
+                                                            parserContext);
+            }
+            return result;
+        }
+    }
+
+    /** Add a conjunct to a WHERE clause, keeping it in conjunctive
+     * normal form if that is what it came from.
+     */
+    protected ValueNode addConjunct(ValueNode whereClause, ValueNode conjunct,
+                                    boolean cnf)
+            throws StandardException {
+        if (cnf) {
+            if (whereClause == null)
+                whereClause = (ValueNode)nodeFactory.getNode(NodeTypes.BOOLEAN_CONSTANT_NODE,
+                                                             Boolean.TRUE,
+                                                             parserContext);
+            if (isConjunctiveNormalForm(whereClause)) {
+                // Insert just before the final TRUE.
+                ValueNode end = (ValueNode)nodeFactory.getNode(NodeTypes.AND_NODE,
+                                                               conjunct,
+                                                               nodeFactory.getNode(NodeTypes.BOOLEAN_CONSTANT_NODE,
+                                                                                   Boolean.TRUE,
+                                                                                   parserContext),
+                                                               parserContext);
+                if (!(whereClause instanceof AndNode))
+                    return end;
+                AndNode last = (AndNode)whereClause;
+                while (last.getRightOperand() instanceof AndNode) {
+                    last = (AndNode)last.getRightOperand();
+                }
+                last.setRightOperand(end);
+                return whereClause;
+            }
+        }
+        if (whereClause == null)
+            return conjunct;
+        return (ValueNode)nodeFactory.getNode(NodeTypes.AND_NODE,
+                                              whereClause, conjunct,
+                                              parserContext);
+    }
+
+    /** Find the column references in a condition. */
+    static class ReferenceFinder implements Visitor {
+        List<ColumnReference> references = new ArrayList<ColumnReference>();
+        boolean hasSubquery;
+
+        public Visitable visit(Visitable node) throws StandardException {
+            if (node instanceof ColumnReference)
+                references.add((ColumnReference)node);
+            else if (node instanceof SubqueryNode)
+                hasSubquery = true;
+            return node;
+        }
+
+        public boolean visitChildrenFirst(Visitable node) {
+            return false;
+        }
+        public boolean stopTraversal() {
+            return hasSubquery;
+        }
+        public boolean skipChildren(Visitable node) throws StandardException {
+            return false;
+        }
+    }
+
+    /** Replace the column references in a copied condition, which are
+     * all to the subquery, with the expressions of one of the SELECTs
+     * beneath it.
+     */
+    class ColumnReplacer implements Visitor {
+        ResultColumnList resultColumns;
+        Map<String,Integer> positions;
+
+        public ColumnReplacer(ResultColumnList resultColumns,
+                              Map<String,Integer> positions) {
+            this.resultColumns = resultColumns;
+            this.positions = positions;
+        }
+
+        public Visitable visit(Visitable node) throws StandardException {
+            if (node instanceof ColumnReference) {
+                Integer position = positions.get(((ColumnReference)node).getColumnName());
+                return nodeFactory.copyNode(resultColumns.get(position).getExpression(),
+                                            parserContext);
+            }
+            return node;
+        }
+
+        public boolean visitChildrenFirst(Visitable node) {
+            return false;
+        }
+        public boolean stopTraversal() {
+            return false;
+        }
+        public boolean skipChildren(Visitable node) throws StandardException {
+            return false;
+        }
+    }
+
+    /* Visitor interface */
+
+    public Visitable visit(Visitable node) throws StandardException {
+        switch (((QueryTreeNode)node).getNodeType()) {
+        case NodeTypes.SELECT_NODE:
+            selectNode((SelectNode)node);
+            break;
+        }
+        return node;
+    }
+
+    public boolean visitChildrenFirst(Visitable node) {
+        return false;
+    }
+    public boolean stopTraversal() {
+        return false;
+    }
+    public boolean skipChildren(Visitable node) throws StandardException {
+        return false;
+    }
+
+}
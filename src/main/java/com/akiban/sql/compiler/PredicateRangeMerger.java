@@ -0,0 +1,502 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+import com.akiban.sql.types.DataTypeDescriptor;
+import com.akiban.sql.types.TypeId;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Merge comparisons of the same column against constants into a
+ * single range per column and replace unsatisfiable conjunctions with
+ * FALSE.
+ *
+ * Meant to be run on the CNF produced by {@link BooleanNormalizer},
+ * but any tree of <code>AND</code>s will do. Only the top-level
+ * conjuncts of WHERE, HAVING and ON clauses are considered, where
+ * UNKNOWN and FALSE are equivalent.
+ */
+public class PredicateRangeMerger implements Visitor
+{
+    SQLParserContext parserContext;
+    NodeFactory nodeFactory;
+    public PredicateRangeMerger(SQLParserContext parserContext) {
+        this.parserContext = parserContext;
+        this.nodeFactory = parserContext.getNodeFactory();
+    }
+
+    /** Merge ranges anywhere in this statement. */
+    public StatementNode merge(StatementNode stmt) throws StandardException {
+        return (StatementNode)stmt.accept(this);
+    }
+
+    /** Merge ranges in WHERE and HAVING clauses of this SELECT node. */
+    public void selectNode(SelectNode node) throws StandardException {
+        node.setWhereClause(mergeConditions(node.getWhereClause()));
+        node.setHavingClause(mergeConditions(node.getHavingClause()));
+    }
+
+    /** Merge ranges in ON clause of this JOIN node. */
+    public void joinNode(JoinNode node) throws StandardException {
+        node.setJoinClause(mergeConditions(node.getJoinClause()));
+    }
+
+    /** The bounds implied by all the conjuncts on one column. */
+    static class ColumnRange {
+        ColumnReference column;
+        List<ValueNode> conditions = new ArrayList<ValueNode>();
+        ConstantNode low, high;
+        boolean lowInclusive, highInclusive;
+        List<ConstantNode> excluded = new ArrayList<ConstantNode>();
+        boolean point, empty, incomparable;
+
+        public ColumnRange(ColumnReference column) {
+            this.column = column;
+        }
+
+        public boolean isMerged() {
+            return (conditions.size() > 1) && !incomparable;
+        }
+
+        public boolean isEmpty() {
+            return empty && !incomparable;
+        }
+
+        public void addCondition(ValueNode condition) {
+            conditions.add(condition);
+        }
+
+        public void intersect(int nodeType, ConstantNode value) {
+            if (value.getValue() == null) {
+                // Comparison with NULL is never true.
+                empty = true;
+                return;
+            }
+            // Constants are compared without collation, so neither
+            // side may have one.
+            if (ConstantFolder.hasCollation(value) ||
+                ConstantFolder.hasCollation(column)) {
+                incomparable = true;
+                return;
+            }
+            switch (nodeType) {
+            case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+                tightenLow(value, true);
+                tightenHigh(value, true);
+                break;
+            case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+                excluded.add(value);
+                break;
+            case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+                tightenLow(value, false);
+                break;
+            case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+                tightenLow(value, true);
+                break;
+            case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+                tightenHigh(value, false);
+                break;
+            case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+                tightenHigh(value, true);
+                break;
+            default:
+                assert false : "Unexpected nodeType = " + nodeType;
+                incomparable = true;
+            }
+        }
+
+        protected void tightenLow(ConstantNode value, boolean inclusive) {
+            if (low == null) {
+                low = value;
+                lowInclusive = inclusive;
+                return;
+            }
+            Integer cmp = compare(value, low);
+            if (cmp == null) return;
+            if (cmp > 0) {
+                low = value;
+                lowInclusive = inclusive;
+            }
+            else if ((cmp == 0) && !inclusive)
+                lowInclusive = false;
+        }
+
+        protected void tightenHigh(ConstantNode value, boolean inclusive) {
+            if (high == null) {
+                high = value;
+                highInclusive = inclusive;
+                return;
+            }
+            Integer cmp = compare(value, high);
+            if (cmp == null) return;
+            if (cmp < 0) {
+                high = value;
+                highInclusive = inclusive;
+            }
+            else if ((cmp == 0) && !inclusive)
+                highInclusive = false;
+        }
+
+        /** Check for an empty range once all the conditions are in. */
+        public void finish() {
+            if (empty || incomparable) return;
+            if ((low != null) && (high != null)) {
+                Integer cmp = compare(low, high);
+                if (cmp == null) return;
+                if ((cmp > 0) || ((cmp == 0) && !(lowInclusive && highInclusive))) {
+                    empty = true;
+                    return;
+                }
+                point = (cmp == 0);
+            }
+            for (ConstantNode value : excluded) {
+                if (isPoint()) {
+                    Integer cmp = compare(value, low);
+                    if (cmp == null) return;
+                    if (cmp == 0) {
+                        empty = true;
+                        return;
+                    }
+                }
+                else if (!isComparable(value))
+                    return;
+            }
+        }
+
+        public boolean isPoint() {
+            return point;
+        }
+
+        /** Does this excluded value fall within the range? */
+        public boolean isWithin(ConstantNode value) {
+            if (low != null) {
+                int cmp = compare(value, low);
+                if ((cmp < 0) || ((cmp == 0) && !lowInclusive))
+                    return false;
+            }
+            if (high != null) {
+                int cmp = compare(value, high);
+                if ((cmp > 0) || ((cmp == 0) && !highInclusive))
+                    return false;
+            }
+            return true;
+        }
+
+        protected boolean isComparable(ConstantNode value) {
+            return (((low == null) || (compare(value, low) != null)) &&
+                    ((high == null) || (compare(value, high) != null)));
+        }
+
+        protected Integer compare(ConstantNode v1, ConstantNode v2) {
+            Integer cmp = ConstantFolder.compareValues(v1.getValue(), v2.getValue());
+            if (cmp == null)
+                incomparable = true;
+            return cmp;
+        }
+    }
+
+    /** Merge ranges among the conjuncts of the given condition. */
+    public ValueNode mergeConditions(ValueNode clause) throws StandardException {
+        if (clause == null)
+            return null;
+        List<ValueNode> conjuncts = new ArrayList<ValueNode>();
+        boolean terminated = getConjuncts(clause, conjuncts);
+        Map<String,ColumnRange> ranges = new LinkedHashMap<String,ColumnRange>();
+        Map<ValueNode,ColumnRange> rangesByCondition = new LinkedHashMap<ValueNode,ColumnRange>();
+        for (ValueNode conjunct : conjuncts) {
+            ColumnRange range = addCondition(conjunct, ranges);
+            if (range != null)
+                rangesByCondition.put(conjunct, range);
+        }
+        boolean changed = false;
+        for (ColumnRange range : ranges.values()) {
+            range.finish();
+            if (range.isEmpty())
+                return andConditions(new ArrayList<ValueNode>(),
+                                     Boolean.FALSE, terminated);
+            if (range.isMerged())
+                changed = true;
+        }
+        if (!changed)
+            return clause;
+        List<ValueNode> newConjuncts = new ArrayList<ValueNode>();
+        for (ValueNode conjunct : conjuncts) {
+            ColumnRange range = rangesByCondition.get(conjunct);
+            if ((range == null) || !range.isMerged())
+                newConjuncts.add(conjunct);
+            else if (range.conditions.get(0) == conjunct)
+                rangeConditions(range, newConjuncts);
+        }
+        return andConditions(newConjuncts, null, terminated);
+    }
+
+    /** Collect the conjuncts of an <code>AND</code> tree.
+     * @return whether there was a <code>TRUE</code> terminator.
+     */
+    protected boolean getConjuncts(ValueNode node, List<ValueNode> conjuncts) {
+        if (node instanceof AndNode) {
+            AndNode and = (AndNode)node;
+            boolean left = getConjuncts(and.getLeftOperand(), conjuncts);
+            boolean right = getConjuncts(and.getRightOperand(), conjuncts);
+            return left || right;
+        }
+        else if (node.isBooleanTrue()) {
+            return true;
+        }
+        else {
+            conjuncts.add(node);
+            return false;
+        }
+    }
+
+    /** If the given condition compares a column with a constant, add it
+     * to that column's range.
+     */
+    protected ColumnRange addCondition(ValueNode condition,
+                                       Map<String,ColumnRange> ranges) {
+        ColumnReference column = null;
+        int nodeType = condition.getNodeType();
+        ConstantNode value = null, value2 = null;
+        switch (nodeType) {
+        case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+            {
+                BinaryRelationalOperatorNode binop =
+                    (BinaryRelationalOperatorNode)condition;
+                ValueNode left = binop.getLeftOperand();
+                ValueNode right = binop.getRightOperand();
+                if ((left instanceof ColumnReference) &&
+                    (right instanceof ConstantNode)) {
+                    column = (ColumnReference)left;
+                    value = (ConstantNode)right;
+                }
+                else if ((right instanceof ColumnReference) &&
+                         (left instanceof ConstantNode)) {
+                    column = (ColumnReference)right;
+                    value = (ConstantNode)left;
+                    nodeType = reverseComparison(nodeType);
+                }
+                else
+                    return null;
+            }
+            break;
+        case NodeTypes.BETWEEN_OPERATOR_NODE:
+            {
+                BetweenOperatorNode between = (BetweenOperatorNode)condition;
+                ValueNode left = between.getLeftOperand();
+                ValueNodeList bounds = between.getRightOperandList();
+                if (!(left instanceof ColumnReference) ||
+                    !(bounds.get(0) instanceof ConstantNode) ||
+                    !(bounds.get(1) instanceof ConstantNode))
+                    return null;
+                column = (ColumnReference)left;
+                value = (ConstantNode)bounds.get(0);
+                value2 = (ConstantNode)bounds.get(1);
+            }
+            break;
+        default:
+            return null;
+        }
+        String key = columnKey(column);
+        ColumnRange range = ranges.get(key);
+        if (range == null) {
+            range = new ColumnRange(column);
+            ranges.put(key, range);
+        }
+        range.addCondition(condition);
+        if (value2 == null) {
+            range.intersect(nodeType, value);
+        }
+        else {
+            range.intersect(NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE, value);
+            range.intersect(NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE, value2);
+        }
+        return range;
+    }
+
+    protected static String columnKey(ColumnReference column) {
+        StringBuilder str = new StringBuilder();
+        if (column.getSchemaName() != null)
+            str.append(column.getSchemaName()).append('.');
+        if (column.getTableName() != null)
+            str.append(column.getTableName()).append('.');
+        str.append(column.getColumnName());
+        return str.toString();
+    }
+
+    protected static int reverseComparison(int nodeType) {
+        switch (nodeType) {
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+            return NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE;
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+            return NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE;
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+            return NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE;
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+            return NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE;
+        default:
+            return nodeType;
+        }
+    }
+
+    /** Generate the conditions that make up the merged range. */
+    protected void rangeConditions(ColumnRange range, List<ValueNode> into)
+            throws StandardException {
+        boolean first = true;
+        if (range.isPoint()) {
+            into.add(comparison(NodeTypes.BINARY_EQUALS_OPERATOR_NODE,
+                                range.column, range.low, first));
+            first = false;
+        }
+        else if ((range.low != null) && (range.high != null) &&
+                 range.lowInclusive && range.highInclusive) {
+            ValueNodeList bounds = (ValueNodeList)
+                nodeFactory.getNode(NodeTypes.VALUE_NODE_LIST, parserContext);
+            bounds.addValueNode(range.low);
+            bounds.addValueNode(range.high);
+            ValueNode between = (ValueNode)
+                nodeFactory.getNode(NodeTypes.BETWEEN_OPERATOR_NODE,
+                                    range.column, bounds,
+                                    parserContext);
+            setBooleanType(between, range.column, range.low, range.high);
+            into.add(between);
+            first = false;
+        }
+        else {
+            if (range.low != null) {
+                into.add(comparison(range.lowInclusive ?
+                                    NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE :
+                                    NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE,
+                                    range.column, range.low, first));
+                first = false;
+            }
+            if (range.high != null) {
+                into.add(comparison(range.highInclusive ?
+                                    NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE :
+                                    NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE,
+                                    range.column, range.high, first));
+                first = false;
+            }
+        }
+        if (range.isPoint())
+            return;             // Checked against all in finish().
+        for (ConstantNode value : range.excluded) {
+            if (range.isWithin(value)) {
+                into.add(comparison(NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE,
+                                    range.column, value, first));
+                first = false;
+            }
+        }
+    }
+
+    protected ValueNode comparison(int nodeType, ColumnReference column,
+                                   ConstantNode value, boolean first)
+            throws StandardException {
+        ValueNode left = column;
+        if (!first)
+            left = (ValueNode)nodeFactory.copyNode(column, parserContext);
+        ValueNode result = (ValueNode)nodeFactory.getNode(nodeType,
+                                                          left, value,
+                                                          parserContext);
+        setBooleanType(result, column, value, value);
+        return result;
+    }
+
+    protected void setBooleanType(ValueNode node, ValueNode column,
+                                  ValueNode value1, ValueNode value2)
+            throws StandardException {
+        DataTypeDescriptor columnType = column.getType();
+        DataTypeDescriptor type1 = value1.getType();
+        DataTypeDescriptor type2 = value2.getType();
+        if ((columnType != null) && (type1 != null) && (type2 != null)) {
+            boolean nullable = columnType.isNullable() ||
+                type1.isNullable() || type2.isNullable();
+            node.setType(new DataTypeDescriptor(TypeId.BOOLEAN_ID, nullable));
+        }
+    }
+
+    /** Make a right-leaning <code>AND</code> chain of the given
+     * conditions, in CNF form if <code>terminated</code>.
+     */
+    protected ValueNode andConditions(List<ValueNode> conditions,
+                                      Boolean constant, boolean terminated)
+            throws StandardException {
+        if (constant != null)
+            conditions.add((ValueNode)nodeFactory.getNode(NodeTypes.BOOLEAN_CONSTANT_NODE,
+                                                          constant,
+                                                          parserContext));
+        ValueNode result = null;
+        if (terminated)
+            result = (ValueNode)nodeFactory.getNode(NodeTypes.BOOLEAN_CONSTANT_NODE,
+                                                    Boolean.TRUE,
+                                                    parserContext);
+        for (int i = conditions.size() - 1; i >= 0; i--) {
+            ValueNode condition = conditions.get(i);
+            if (result == null) {
+                result = condition;
+            }
+            else {
+                AndNode and = (AndNode)nodeFactory.getNode(NodeTypes.AND_NODE,
+                                                           condition, result,
+                                                           parserContext);
+                if ((condition.getType() != null) && (result.getType() != null))
+                    and.setType(new DataTypeDescriptor(TypeId.BOOLEAN_ID,
+                                                       condition.getType().isNullable() ||
+                                                       result.getType().isNullable()));
+                result = and;
+            }
+        }
+        return result;
+    }
+
+    /* Visitor interface */
+
+    public Visitable visit(Visitable node) throws StandardException {
+        switch (((QueryTreeNode)node).getNodeType()) {
+        case NodeTypes.SELECT_NODE:
+            selectNode((SelectNode)node);
+            break;
+        case NodeTypes.JOIN_NODE:
+        case NodeTypes.HALF_OUTER_JOIN_NODE:
+            joinNode((JoinNode)node);
+            break;
+        }
+        return node;
+    }
+
+    public boolean visitChildrenFirst(Visitable node) {
+        return true;
+    }
+    public boolean stopTraversal() {
+        return false;
+    }
+    public boolean skipChildren(Visitable node) throws StandardException {
+        return false;
+    }
+
+}
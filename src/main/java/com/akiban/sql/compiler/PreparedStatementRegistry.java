@@ -0,0 +1,343 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Prepared statements shared by all sessions.
+ *
+ * Sessions preparing the same SQL text share a single {@link
+ * SharedStatement}, which is only parsed and prepared once. Each name
+ * a session gives it holds a reference. A statement with no references
+ * is kept for a later <code>PREPARE</code> of the same text until the
+ * {@link EvictionPolicy} says to drop it.
+ *
+ * Instances of the shared trees share most of their nodes, which must
+ * therefore be treated as read-only.
+ */
+public class PreparedStatementRegistry
+{
+    /** Estimated bytes of memory used by each node of a tree. */
+    public static final int NODE_SIZE_ESTIMATE = 96;
+
+    /** What is done to a newly parsed statement before it is shared,
+     * such as binding and computing types.
+     */
+    public interface StatementPreparer {
+        public StatementNode prepare(StatementNode statement,
+                                     SQLParserContext parserContext)
+                throws StandardException;
+    }
+
+    /** Decide when to drop unreferenced statements. */
+    public interface EvictionPolicy {
+        /** Whether to drop the given unreferenced statement, which is
+         * the least recently used of those not referenced.
+         */
+        public boolean evict(PreparedStatementRegistry registry, 
+                             SharedStatement statement);
+    }
+
+    /** Keep at most a given number of unreferenced statements and keep
+     * the estimated memory use of all statements within a limit, where
+     * dropping unreferenced ones can do that.
+     */
+    public static class Limits implements EvictionPolicy {
+        private int maxIdle;
+        private long maxMemory;
+
+        public Limits(int maxIdle, long maxMemory) {
+            this.maxIdle = maxIdle;
+            this.maxMemory = maxMemory;
+        }
+
+        public int getMaxIdle() {
+            return maxIdle;
+        }
+
+        public long getMaxMemory() {
+            return maxMemory;
+        }
+
+        public boolean evict(PreparedStatementRegistry registry, 
+                             SharedStatement statement) {
+            return ((registry.getIdleCount() > maxIdle) ||
+                    (registry.getMemoryUsage() > maxMemory));
+        }
+    }
+
+    public static final int DEFAULT_MAX_IDLE = 1000;
+    public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+
+    /** A prepared statement and the number of session names for it. */
+    public static class SharedStatement {
+        private String sql;
+        private StatementTemplate template;
+        private long memoryUsage;
+        private int referenceCount;
+
+        protected SharedStatement(String sql, StatementTemplate template, 
+                                  long memoryUsage) {
+            this.sql = sql;
+            this.template = template;
+            this.memoryUsage = memoryUsage;
+        }
+
+        /** The text under which this is shared, or <code>null</code> if
+         * it is not shared.
+         */
+        public String getSQL() {
+            return sql;
+        }
+
+        public StatementTemplate getTemplate() {
+            return template;
+        }
+
+        /** The estimated bytes used by the statement's tree. */
+        public long getMemoryUsage() {
+            return memoryUsage;
+        }
+
+        public int getReferenceCount() {
+            return referenceCount;
+        }
+
+        public String toString() {
+            return sql + " [" + referenceCount + "]";
+        }
+    }
+
+    private StatementPreparer preparer;
+    private EvictionPolicy evictionPolicy = new Limits(DEFAULT_MAX_IDLE, DEFAULT_MAX_MEMORY);
+    private Map<String,SharedStatement> statements = new HashMap<String,SharedStatement>();
+    // Unreferenced statements, least recently used first.
+    private Set<SharedStatement> idle = new LinkedHashSet<SharedStatement>();
+    private int statementCount;
+    private long memoryUsage;
+
+    public PreparedStatementRegistry() {
+    }
+
+    public PreparedStatementRegistry(StatementPreparer preparer) {
+        this.preparer = preparer;
+    }
+
+    public synchronized EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public synchronized void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+        evict();
+    }
+
+    /** The estimated bytes used by all the statements held. */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /** The number of statements held, referenced or not. */
+    public synchronized int getStatementCount() {
+        return statementCount;
+    }
+
+    /** The number of statements held that are not referenced. */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /** Get a reference to the statement for the given text, parsing
+     * it with the given parser if it is not already held.
+     */
+    public SharedStatement acquire(String sql, SQLParser parser) 
+            throws StandardException {
+        SharedStatement shared = acquireExisting(sql);
+        if (shared != null)
+            return shared;
+        StatementNode statement = parser.parseStatement(sql);
+        return acquireNew(sql, statement, parser);
+    }
+
+    /** Get a reference to the statement for the given already parsed
+     * statement, such as that of a <code>PREPARE</code>, which is
+     * shared under its own part of the text it was parsed from.
+     * @param sqlText the whole text parsed, or <code>null</code> if not
+     * known, in which case the statement is not shared.
+     */
+    public SharedStatement acquire(StatementNode statement, String sqlText,
+                                   SQLParserContext parserContext)
+            throws StandardException {
+        String sql = statementText(statement, sqlText);
+        if (sql != null) {
+            SharedStatement shared = acquireExisting(sql);
+            if (shared != null)
+                return shared;
+        }
+        return acquireNew(sql, statement, parserContext);
+    }
+
+    /** Get the part of the given text that the statement was parsed
+     * from, or <code>null</code> if that is not known.
+     */
+    protected static String statementText(StatementNode statement, String sqlText) {
+        int begin = statement.getBeginOffset();
+        int end = statement.getEndOffset();
+        if ((sqlText == null) || (begin < 0) || (end < begin) || (end >= sqlText.length()))
+            return null;
+        return sqlText.substring(begin, end + 1);
+    }
+
+    protected synchronized SharedStatement acquireExisting(String sql) {
+        SharedStatement shared = statements.get(sql);
+        if (shared != null)
+            reference(shared);
+        return shared;
+    }
+
+    protected SharedStatement acquireNew(String sql, StatementNode statement,
+                                         SQLParserContext parserContext)
+            throws StandardException {
+        if (preparer != null)
+            statement = preparer.prepare(statement, parserContext);
+        ParameterCollector parameters = new ParameterCollector();
+        statement.accept(parameters);
+        StatementTemplate template = new StatementTemplate(parserContext, statement,
+                                                           parameters.get());
+        SharedStatement shared = new SharedStatement(sql, template, 
+                                                     estimateMemoryUsage(sql, parameters.nodeCount));
+        synchronized (this) {
+            if (sql != null) {
+                // Another session may have got there first.
+                SharedStatement existing = statements.get(sql);
+                if (existing != null) {
+                    reference(existing);
+                    return existing;
+                }
+                statements.put(sql, shared);
+            }
+            statementCount++;
+            memoryUsage += shared.memoryUsage;
+            shared.referenceCount = 1;
+            evict();
+        }
+        return shared;
+    }
+
+    protected long estimateMemoryUsage(String sql, int nodeCount) {
+        long size = (long)nodeCount * NODE_SIZE_ESTIMATE;
+        if (sql != null)
+            size += sql.length() * 2;
+        return size;
+    }
+
+    /** Give up a reference got from {@link #acquire}. */
+    public synchronized void release(SharedStatement shared) {
+        if (shared.referenceCount <= 0)
+            throw new IllegalStateException("Statement not referenced: " + shared);
+        if (--shared.referenceCount > 0)
+            return;
+        if (shared.sql == null)
+            drop(shared);
+        else {
+            idle.add(shared);
+            evict();
+        }
+    }
+
+    /** Drop all unreferenced statements. */
+    public synchronized void clear() {
+        for (SharedStatement shared : idle) {
+            drop(shared);
+        }
+        idle.clear();
+    }
+
+    protected void reference(SharedStatement shared) {
+        if (shared.referenceCount++ == 0) {
+            idle.remove(shared);
+        }
+        else if (idle.remove(shared)) {
+            throw new IllegalStateException("Referenced statement idle: " + shared);
+        }
+    }
+
+    protected void evict() {
+        Iterator<SharedStatement> iter = idle.iterator();
+        while (iter.hasNext()) {
+            SharedStatement shared = iter.next();
+            if (!evictionPolicy.evict(this, shared))
+                break;
+            iter.remove();
+            drop(shared);
+        }
+    }
+
+    protected void drop(SharedStatement shared) {
+        if (shared.sql != null)
+            statements.remove(shared.sql);
+        statementCount--;
+        memoryUsage -= shared.memoryUsage;
+    }
+
+    /** The parameters of a statement, in order, and the number of
+     * nodes in it.
+     */
+    static class ParameterCollector implements Visitor {
+        private List<ParameterNode> parameters = new ArrayList<ParameterNode>();
+        private int nodeCount;
+
+        public List<ParameterNode> get() {
+            Collections.sort(parameters, new Comparator<ParameterNode>() {
+                                 public int compare(ParameterNode p1, ParameterNode p2) {
+                                     return p1.getParameterNumber() - p2.getParameterNumber();
+                                 }
+                             });
+            return parameters;
+        }
+
+        public Visitable visit(Visitable node) {
+            nodeCount++;
+            if (node instanceof ParameterNode)
+                parameters.add((ParameterNode)node);
+            return node;
+        }
+
+        public boolean visitChildrenFirst(Visitable node) {
+            return false;
+        }
+        public boolean stopTraversal() {
+            return false;
+        }
+        public boolean skipChildren(Visitable node) {
+            return false;
+        }
+    }
+
+}
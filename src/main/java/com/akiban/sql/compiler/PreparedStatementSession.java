@@ -0,0 +1,144 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.compiler.PreparedStatementRegistry.SharedStatement;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/** The prepared statements of one session, by name.
+ *
+ * Each holds a reference to a statement in a {@link
+ * PreparedStatementRegistry}, which is given up on
+ * <code>DEALLOCATE</code> or when the session is closed.
+ *
+ * Like {@link SQLParser}, this is only for use by one thread at a time.
+ */
+public class PreparedStatementSession
+{
+    private PreparedStatementRegistry registry;
+    private SQLParser parser;
+    private Map<String,SharedStatement> statements = new HashMap<String,SharedStatement>();
+
+    public PreparedStatementSession(PreparedStatementRegistry registry, 
+                                    SQLParser parser) {
+        this.registry = registry;
+        this.parser = parser;
+    }
+
+    public PreparedStatementRegistry getRegistry() {
+        return registry;
+    }
+
+    /** Prepare the given text under the given name. */
+    public SharedStatement prepare(String name, String sql) throws StandardException {
+        checkNotPrepared(name);
+        SharedStatement shared = registry.acquire(sql, parser);
+        statements.put(name, shared);
+        return shared;
+    }
+
+    /** Prepare the statement of a <code>PREPARE</code> just parsed by
+     * this session's parser.
+     */
+    public SharedStatement prepare(PrepareStatementNode node) throws StandardException {
+        return prepare(node, parser.getSQLText());
+    }
+
+    /** Prepare the statement of a <code>PREPARE</code> parsed from the
+     * given text. If the text is <code>null</code>, the statement is
+     * not shared with other sessions.
+     */
+    public SharedStatement prepare(PrepareStatementNode node, String sqlText) 
+            throws StandardException {
+        checkNotPrepared(node.getName());
+        SharedStatement shared = registry.acquire(node.getStatement(), sqlText, parser);
+        statements.put(node.getName(), shared);
+        return shared;
+    }
+
+    protected void checkNotPrepared(String name) throws StandardException {
+        if (statements.containsKey(name))
+            throw new StandardException("Prepared statement already exists: " + name);
+    }
+
+    /** Get the statement prepared under the given name. */
+    public SharedStatement getStatement(String name) throws StandardException {
+        SharedStatement shared = statements.get(name);
+        if (shared == null)
+            throw new StandardException("Prepared statement not found: " + name);
+        return shared;
+    }
+
+    public Set<String> getNames() {
+        return statements.keySet();
+    }
+
+    /** Get an instance of the named statement with its parameters
+     * replaced by those of an <code>EXECUTE</code>.
+     */
+    public StatementNode execute(ExecuteStatementNode node) throws StandardException {
+        return getStatement(node.getName()).getTemplate()
+            .instantiate(node.getParameterList());
+    }
+
+    /** Get an instance of the named statement with its parameters
+     * replaced by constants with the given values.
+     */
+    public StatementNode execute(String name, Object... values) 
+            throws StandardException {
+        return getStatement(name).getTemplate().instantiate(values);
+    }
+
+    /** Drop the named statement. */
+    public void deallocate(String name) throws StandardException {
+        SharedStatement shared = getStatement(name);
+        statements.remove(name);
+        registry.release(shared);
+    }
+
+    /** Drop the statement of a <code>DEALLOCATE</code>. */
+    public void deallocate(DeallocateStatementNode node) throws StandardException {
+        deallocate(node.getName());
+    }
+
+    /** The estimated bytes used by the statements this session has
+     * prepared, including any shared with other sessions.
+     */
+    public long getMemoryUsage() {
+        long total = 0;
+        for (SharedStatement shared : statements.values()) {
+            total += shared.getMemoryUsage();
+        }
+        return total;
+    }
+
+    /** Drop all the statements. */
+    public void close() {
+        for (SharedStatement shared : statements.values()) {
+            registry.release(shared);
+        }
+        statements.clear();
+    }
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import java.math.BigDecimal;
+
+/**
+ * Access to the values of the current row for a {@link CompiledPredicate}.
+ *
+ * Columns are numbered by their position in the list of names given to
+ * the {@link PredicateCompiler}. Only the accessor matching a column's
+ * type is called: <code>getLong</code> for integers,
+ * <code>getDecimal</code> for <code>DECIMAL</code> and
+ * <code>NUMERIC</code>, <code>getDouble</code> for approximate
+ * numerics, <code>getString</code> for character types and
+ * <code>getBoolean</code> for booleans. None of them is called for a
+ * column that <code>isNull</code>.
+ */
+public interface RowAccessor
+{
+    public boolean isNull(int column);
+    public long getLong(int column);
+    public BigDecimal getDecimal(int column);
+    public double getDouble(int column);
+    public String getString(int column);
+    public boolean getBoolean(int column);
+}
@@ -0,0 +1,412 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/** The tables and columns that a statement reads and writes.
+ *
+ * Names are resolved without binding: a column qualified by a
+ * correlation name belongs to the table with that exposed name in the
+ * nearest enclosing FROM list; an unqualified column belongs to the
+ * only table of its own FROM list and, in a subquery, to all the tables
+ * of the enclosing FROM lists as well, since it might be an outer
+ * reference; it is otherwise unresolved.
+ * Columns of derived tables are not base table columns and are left
+ * out. A <code>*</code> is recorded as {@link #ALL_COLUMNS}.
+ *
+ * The target of <code>UPDATE</code> or <code>DELETE</code> is written
+ * and only counts as read if it appears again elsewhere, though the
+ * columns of it that are used are read columns.
+ *
+ * {@link #get} only works out the dependencies of a given statement
+ * once, so the statement must not be changed afterwards without
+ * {@link #forget}ting it.
+ */
+public class StatementDependencies
+{
+    public static final String ALL_COLUMNS = "*";
+
+    private static final Map<StatementNode,StatementDependencies> cache =
+        Collections.synchronizedMap(new WeakHashMap<StatementNode,StatementDependencies>());
+
+    /** Get the dependencies of a statement, working them out if this is
+     * the first time.
+     */
+    public static StatementDependencies get(StatementNode stmt) 
+            throws StandardException {
+        StatementDependencies dependencies = cache.get(stmt);
+        if (dependencies == null) {
+            dependencies = new StatementDependencies(stmt);
+            cache.put(stmt, dependencies);
+        }
+        return dependencies;
+    }
+
+    /** Forget any remembered dependencies of a statement that has changed. */
+    public static void forget(StatementNode stmt) {
+        cache.remove(stmt);
+    }
+
+    /** The tables visible from some part of a statement, by exposed name.
+     * Derived tables have a null base table.
+     */
+    static class Scope {
+        Scope outer;
+        Map<String,TableName> tables = new LinkedHashMap<String,TableName>();
+
+        Scope(Scope outer) {
+            this.outer = outer;
+        }
+    }
+
+    private Set<TableName> readTables = new LinkedHashSet<TableName>();
+    private Set<TableName> writeTables = new LinkedHashSet<TableName>();
+    private Map<TableName,Set<String>> readColumns = 
+        new LinkedHashMap<TableName,Set<String>>();
+    private Map<TableName,Set<String>> writeColumns = 
+        new LinkedHashMap<TableName,Set<String>>();
+    private Set<String> unresolvedColumns = new LinkedHashSet<String>();
+
+    /** Work out the dependencies of a statement, without remembering them. */
+    public StatementDependencies(StatementNode stmt) throws StandardException {
+        statement(stmt);
+    }
+
+    /** The base tables whose rows are read. */
+    public Set<TableName> getReadTables() {
+        return Collections.unmodifiableSet(readTables);
+    }
+
+    /** The base tables whose rows are inserted, updated or deleted. */
+    public Set<TableName> getWriteTables() {
+        return Collections.unmodifiableSet(writeTables);
+    }
+
+    /** The columns read from each table. */
+    public Map<TableName,Set<String>> getReadColumns() {
+        return Collections.unmodifiableMap(readColumns);
+    }
+
+    /** The columns written in each table. */
+    public Map<TableName,Set<String>> getWriteColumns() {
+        return Collections.unmodifiableMap(writeColumns);
+    }
+
+    /** Columns whose table could not be told without binding. */
+    public Set<String> getUnresolvedColumns() {
+        return Collections.unmodifiableSet(unresolvedColumns);
+    }
+
+    public String toString() {
+        return "read " + readTables + " " + readColumns +
+            ", write " + writeTables + " " + writeColumns +
+            ", unresolved " + unresolvedColumns;
+    }
+
+    protected void statement(StatementNode stmt) throws StandardException {
+        switch (stmt.getNodeType()) {
+        case NodeTypes.CURSOR_NODE:
+            {
+                CursorNode cursor = (CursorNode)stmt;
+                ResultSetNode resultSet = cursor.getResultSetNode();
+                Scope scope = resultSet(resultSet, null);
+                orderBy(cursor.getOrderByList(), resultSet, scope);
+            }
+            break;
+        case NodeTypes.INSERT_NODE:
+            {
+                InsertNode insert = (InsertNode)stmt;
+                TableName target = insert.getTargetTableName();
+                writeTables.add(target);
+                if (insert.getTargetColumnList() == null)
+                    addColumn(writeColumns, target, ALL_COLUMNS);
+                else {
+                    for (ResultColumn resultColumn : insert.getTargetColumnList()) {
+                        addColumn(writeColumns, target, resultColumn.getName());
+                    }
+                }
+                ResultSetNode resultSet = insert.getResultSetNode();
+                Scope scope = resultSet(resultSet, null);
+                orderBy(insert.getOrderByList(), resultSet, scope);
+                returning(insert, null);
+            }
+            break;
+        case NodeTypes.UPDATE_NODE:
+        case NodeTypes.DELETE_NODE:
+            {
+                DMLModStatementNode dml = (DMLModStatementNode)stmt;
+                TableName target = dml.getTargetTableName();
+                writeTables.add(target);
+                SelectNode select = (SelectNode)dml.getResultSetNode();
+                FromBaseTable targetTable = null;
+                if (select.getFromList().get(0) instanceof FromBaseTable)
+                    targetTable = (FromBaseTable)select.getFromList().get(0);
+                Scope scope = select(select, null, targetTable);
+                if (stmt.getNodeType() == NodeTypes.UPDATE_NODE) {
+                    for (ResultColumn resultColumn : select.getResultColumns()) {
+                        addColumn(writeColumns, target, resultColumn.getName());
+                    }
+                }
+                else
+                    addColumn(writeColumns, target, ALL_COLUMNS);
+                returning(dml, scope);
+            }
+            break;
+        default:
+            // Other statements, such as CREATE VIEW, may contain queries.
+            stmt.accept(new Visitor() {
+                    public Visitable visit(Visitable node) throws StandardException {
+                        if (node instanceof ResultSetNode)
+                            resultSet((ResultSetNode)node, null);
+                        return node;
+                    }
+                    public boolean visitChildrenFirst(Visitable node) {
+                        return false;
+                    }
+                    public boolean stopTraversal() {
+                        return false;
+                    }
+                    public boolean skipChildren(Visitable node) {
+                        return (node instanceof ResultSetNode);
+                    }
+                });
+        }
+    }
+
+    /** Add the dependencies of a query.
+     * @return the scope of its result columns, if it is a SELECT.
+     */
+    protected Scope resultSet(ResultSetNode node, Scope outer) 
+            throws StandardException {
+        if (node instanceof SelectNode)
+            return select((SelectNode)node, outer, null);
+        else if (node instanceof SetOperatorNode) {
+            SetOperatorNode setOperator = (SetOperatorNode)node;
+            resultSet(setOperator.getLeftResultSet(), outer);
+            resultSet(setOperator.getRightResultSet(), outer);
+        }
+        else if (node instanceof RowsResultSetNode) {
+            for (RowResultSetNode row : ((RowsResultSetNode)node).getRows()) {
+                expression(row.getResultColumns(), outer);
+            }
+        }
+        else
+            expression(node, outer);
+        return null;
+    }
+
+    protected Scope select(SelectNode select, Scope outer, FromBaseTable target)
+            throws StandardException {
+        Scope scope = new Scope(outer);
+        for (FromTable fromTable : select.getFromList()) {
+            fromTable(fromTable, scope, target);
+        }
+        for (FromTable fromTable : select.getFromList()) {
+            joinConditions(fromTable, scope);
+        }
+        if (select.getResultColumns() != null) {
+            for (ResultColumn resultColumn : select.getResultColumns()) {
+                if (resultColumn instanceof AllResultColumn)
+                    allColumns((AllResultColumn)resultColumn, scope);
+                else if (resultColumn.getExpression() != null)
+                    expression(resultColumn.getExpression(), scope);
+            }
+        }
+        expression(select.getWhereClause(), scope);
+        expression(select.getGroupByList(), scope);
+        expression(select.getHavingClause(), scope);
+        expression(select.getWindows(), scope);
+        return scope;
+    }
+
+    protected void fromTable(ResultSetNode fromTable, Scope scope, FromBaseTable target)
+            throws StandardException {
+        if (fromTable instanceof FromBaseTable) {
+            FromBaseTable baseTable = (FromBaseTable)fromTable;
+            TableName tableName = baseTable.getOrigTableName();
+            if (baseTable.getCorrelationName() != null)
+                scope.tables.put(baseTable.getCorrelationName(), tableName);
+            else
+                scope.tables.put(tableName.getTableName(), tableName);
+            if (baseTable != target)
+                readTables.add(tableName);
+        }
+        else if (fromTable instanceof FromSubquery) {
+            FromSubquery fromSubquery = (FromSubquery)fromTable;
+            scope.tables.put(fromSubquery.getCorrelationName(), null);
+            ResultSetNode subquery = fromSubquery.getSubquery();
+            Scope subqueryScope = resultSet(subquery, scope.outer);
+            orderBy(fromSubquery.getOrderByList(), subquery, subqueryScope);
+        }
+        else if (fromTable instanceof JoinNode) {
+            JoinNode join = (JoinNode)fromTable;
+            fromTable(join.getLeftResultSet(), scope, target);
+            fromTable(join.getRightResultSet(), scope, target);
+        }
+        else
+            resultSet(fromTable, scope.outer);
+    }
+
+    protected void joinConditions(ResultSetNode fromTable, Scope scope)
+            throws StandardException {
+        if (!(fromTable instanceof JoinNode))
+            return;
+        JoinNode join = (JoinNode)fromTable;
+        joinConditions(join.getLeftResultSet(), scope);
+        joinConditions(join.getRightResultSet(), scope);
+        expression(join.getJoinClause(), scope);
+        if (join.getUsingClause() != null) {
+            for (ResultColumn resultColumn : join.getUsingClause()) {
+                usingColumn(join.getLeftResultSet(), resultColumn.getName());
+                usingColumn(join.getRightResultSet(), resultColumn.getName());
+            }
+        }
+    }
+
+    protected void usingColumn(ResultSetNode side, String columnName) {
+        if (side instanceof FromBaseTable)
+            addColumn(readColumns, ((FromBaseTable)side).getOrigTableName(), columnName);
+        else if (!(side instanceof FromSubquery))
+            unresolvedColumns.add(columnName);
+    }
+
+    protected void allColumns(AllResultColumn allColumns, Scope scope) {
+        TableName tableName = allColumns.getTableNameObject();
+        for (Map.Entry<String,TableName> entry : scope.tables.entrySet()) {
+            if ((entry.getValue() != null) &&
+                ((tableName == null) || 
+                 entry.getKey().equals(tableName.getTableName())))
+                addColumn(readColumns, entry.getValue(), ALL_COLUMNS);
+        }
+    }
+
+    /** Add the columns of a sort, except those naming result columns. */
+    protected void orderBy(OrderByList orderBy, ResultSetNode resultSet, Scope scope)
+            throws StandardException {
+        if ((orderBy == null) || (scope == null))
+            return;
+        for (OrderByColumn orderByColumn : orderBy) {
+            ValueNode expression = orderByColumn.getExpression();
+            if ((expression instanceof ColumnReference) &&
+                (((ColumnReference)expression).getTableName() == null) &&
+                (resultSet.getResultColumns().getResultColumn(((ColumnReference)expression).getColumnName()) != null))
+                continue;
+            expression(expression, scope);
+        }
+    }
+
+    protected void returning(DMLModStatementNode dml, Scope scope) 
+            throws StandardException {
+        if (dml.getReturningList() == null)
+            return;
+        if (scope == null) {
+            scope = new Scope(null);
+            scope.tables.put(dml.getTargetTableName().getTableName(), 
+                             dml.getTargetTableName());
+        }
+        for (ResultColumn resultColumn : dml.getReturningList()) {
+            if (resultColumn instanceof AllResultColumn)
+                allColumns((AllResultColumn)resultColumn, scope);
+            else
+                expression(resultColumn.getExpression(), scope);
+        }
+    }
+
+    /** Add the columns referred to by an expression and its subqueries. */
+    protected void expression(QueryTreeNode node, final Scope scope) 
+            throws StandardException {
+        if (node == null)
+            return;
+        node.accept(new Visitor() {
+                public Visitable visit(Visitable node) throws StandardException {
+                    if (node instanceof ColumnReference)
+                        column((ColumnReference)node, scope);
+                    else if (node instanceof SubqueryNode) {
+                        SubqueryNode subquery = (SubqueryNode)node;
+                        if (subquery.getLeftOperand() != null)
+                            expression(subquery.getLeftOperand(), scope);
+                        ResultSetNode resultSet = subquery.getResultSet();
+                        Scope subqueryScope = resultSet(resultSet, scope);
+                        orderBy(subquery.getOrderByList(), resultSet, subqueryScope);
+                    }
+                    return node;
+                }
+                public boolean visitChildrenFirst(Visitable node) {
+                    return false;
+                }
+                public boolean stopTraversal() {
+                    return false;
+                }
+                public boolean skipChildren(Visitable node) {
+                    return (node instanceof SubqueryNode);
+                }
+            });
+    }
+
+    protected void column(ColumnReference column, Scope scope) {
+        String tableName = column.getTableName();
+        if (tableName == null) {
+            if ((scope != null) && (scope.tables.size() == 1)) {
+                // Without a catalog, a column in a subquery may just as
+                // well be an outer reference: count it against every
+                // table it could belong to.
+                while (scope != null) {
+                    for (TableName table : scope.tables.values()) {
+                        if (table != null)
+                            addColumn(readColumns, table, column.getColumnName());
+                    }
+                    scope = scope.outer;
+                }
+            }
+            else
+                unresolvedColumns.add(column.getColumnName());
+            return;
+        }
+        while (scope != null) {
+            if (scope.tables.containsKey(tableName)) {
+                TableName table = scope.tables.get(tableName);
+                if (table != null)
+                    addColumn(readColumns, table, column.getColumnName());
+                return;
+            }
+            scope = scope.outer;
+        }
+        unresolvedColumns.add(column.getSQLColumnName());
+    }
+
+    protected static void addColumn(Map<TableName,Set<String>> columns, 
+                                    TableName table, String columnName) {
+        Set<String> names = columns.get(table);
+        if (names == null) {
+            names = new LinkedHashSet<String>();
+            columns.put(table, names);
+        }
+        names.add(columnName);
+    }
+
+}
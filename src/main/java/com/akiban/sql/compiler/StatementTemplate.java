@@ -0,0 +1,271 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+import com.akiban.sql.types.DataTypeDescriptor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** A parsed statement with parameters, from which instances with
+ * those parameters replaced by values can be made quickly.
+ *
+ * An instance only copies the nodes on the path from the statement
+ * down to each parameter. Everything else is shared with the template
+ * and with every other instance, and so must not be changed by those
+ * using them. An instance that needs changing all over should be deep
+ * copied with {@link NodeFactory#copyNode} instead.
+ */
+public class StatementTemplate
+{
+    private SQLParserContext parserContext;
+    private NodeFactory nodeFactory;
+    private StatementNode statement;
+    private List<ParameterNode> parameters;
+    private Map<ParameterNode,Integer> parameterPositions;
+    private Set<QueryTreeNode> spine;
+
+    /** Make a template from a statement and the parameters in it, in
+     * the order their values will be given, such as
+     * {@link SQLParser#getParameterList} right after parsing it.
+     */
+    public StatementTemplate(SQLParserContext parserContext,
+                             StatementNode statement, List<ParameterNode> parameters)
+            throws StandardException {
+        this.parserContext = parserContext;
+        this.nodeFactory = parserContext.getNodeFactory();
+        this.statement = statement;
+        this.parameters = new ArrayList<ParameterNode>(parameters);
+        parameterPositions = new IdentityHashMap<ParameterNode,Integer>();
+        for (int i = 0; i < parameters.size(); i++) {
+            parameterPositions.put(parameters.get(i), i);
+        }
+        spine = Collections.newSetFromMap(new IdentityHashMap<QueryTreeNode,Boolean>());
+        Set<ParameterNode> found = 
+            Collections.newSetFromMap(new IdentityHashMap<ParameterNode,Boolean>());
+        findSpine(statement, found);
+        if (found.size() < parameters.size()) {
+            for (ParameterNode parameter : parameters) {
+                if (!found.contains(parameter))
+                    throw new StandardException("Parameter not in statement: $" + 
+                                                (parameter.getParameterNumber() + 1));
+            }
+        }
+    }
+
+    public StatementNode getStatement() {
+        return statement;
+    }
+
+    public List<ParameterNode> getParameters() {
+        return parameters;
+    }
+
+    /** Get the number of nodes copied by each instance. */
+    public int getCopiedNodeCount() {
+        return spine.size();
+    }
+
+    /** Make an instance with each parameter replaced by a constant
+     * with the corresponding value.
+     */
+    public StatementNode instantiate(Object... values) throws StandardException {
+        checkCount(values.length);
+        List<ValueNode> nodes = new ArrayList<ValueNode>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            nodes.add(constantNode(parameters.get(i), values[i]));
+        }
+        return instantiate(nodes);
+    }
+
+    /** Make an instance with each parameter replaced by the
+     * corresponding expression. The expressions themselves are not
+     * copied.
+     */
+    public StatementNode instantiate(List<? extends ValueNode> values) 
+            throws StandardException {
+        checkCount(values.size());
+        return (StatementNode)new Instantiator(values).instantiate(statement);
+    }
+
+    /** Make an instance from the parameters of an <code>EXECUTE</code>
+     * statement.
+     */
+    public StatementNode instantiate(ValueNodeList values) throws StandardException {
+        List<ValueNode> nodes = new ArrayList<ValueNode>(values.size());
+        for (ValueNode value : values) {
+            nodes.add(value);
+        }
+        return instantiate(nodes);
+    }
+
+    protected void checkCount(int count) throws StandardException {
+        if (count != parameters.size())
+            throw new StandardException("Wrong number of parameters: expected " + 
+                                        parameters.size() + ", got " + count);
+    }
+
+    /** Get a constant node for the given value of the given parameter. */
+    protected ValueNode constantNode(ParameterNode parameter, Object value)
+            throws StandardException {
+        if (value == null) {
+            DataTypeDescriptor type = parameter.getType();
+            if (type != null)
+                return parameter.getNullNode(type);
+            return (ValueNode)nodeFactory.getNode(NodeTypes.UNTYPED_NULL_CONSTANT_NODE,
+                                                  parserContext);
+        }
+        int nodeType;
+        Object arg = value;
+        if (value instanceof String)
+            nodeType = NodeTypes.CHAR_CONSTANT_NODE;
+        else if (value instanceof Integer)
+            nodeType = NodeTypes.INT_CONSTANT_NODE;
+        else if (value instanceof Long)
+            nodeType = NodeTypes.LONGINT_CONSTANT_NODE;
+        else if (value instanceof Short)
+            nodeType = NodeTypes.SMALLINT_CONSTANT_NODE;
+        else if (value instanceof Byte)
+            nodeType = NodeTypes.TINYINT_CONSTANT_NODE;
+        else if (value instanceof Double)
+            nodeType = NodeTypes.DOUBLE_CONSTANT_NODE;
+        else if (value instanceof Float)
+            nodeType = NodeTypes.FLOAT_CONSTANT_NODE;
+        else if (value instanceof BigDecimal) {
+            nodeType = NodeTypes.DECIMAL_CONSTANT_NODE;
+            arg = ((BigDecimal)value).toPlainString();
+        }
+        else if (value instanceof Boolean)
+            nodeType = NodeTypes.BOOLEAN_CONSTANT_NODE;
+        else
+            throw new StandardException("Unsupported parameter value: " + 
+                                        value.getClass().getName());
+        return (ValueNode)nodeFactory.getNode(nodeType, arg, parserContext);
+    }
+
+    /** Find the nodes with a parameter somewhere beneath them. */
+    protected boolean findSpine(QueryTreeNode node, Set<ParameterNode> found)
+            throws StandardException {
+        if (node instanceof ParameterNode) {
+            if (!parameterPositions.containsKey(node))
+                return false;
+            found.add((ParameterNode)node);
+            return true;
+        }
+        if (spine.contains(node))
+            return true;
+        boolean onSpine = false;
+        for (QueryTreeNode child : new Children(node).get()) {
+            if (findSpine(child, found))
+                onSpine = true;
+        }
+        if (onSpine)
+            spine.add(node);
+        return onSpine;
+    }
+
+    /** The immediate children of a node. */
+    static class Children implements Visitor {
+        private QueryTreeNode parent;
+        private List<QueryTreeNode> children = new ArrayList<QueryTreeNode>();
+
+        public Children(QueryTreeNode parent) {
+            this.parent = parent;
+        }
+
+        public List<QueryTreeNode> get() throws StandardException {
+            parent.accept(this);
+            return children;
+        }
+
+        public Visitable visit(Visitable node) {
+            if (node != parent)
+                children.add((QueryTreeNode)node);
+            return node;
+        }
+
+        public boolean visitChildrenFirst(Visitable node) {
+            return false;
+        }
+        public boolean stopTraversal() {
+            return false;
+        }
+        public boolean skipChildren(Visitable node) {
+            return (node != parent);
+        }
+    }
+
+    /** Copy the spine, replacing the children of each copy that are
+     * themselves on the spine or parameters.
+     */
+    class Instantiator implements Visitor {
+        private List<? extends ValueNode> values;
+        private Map<QueryTreeNode,QueryTreeNode> copies = 
+            new IdentityHashMap<QueryTreeNode,QueryTreeNode>();
+        private QueryTreeNode copying;
+
+        public Instantiator(List<? extends ValueNode> values) {
+            this.values = values;
+        }
+
+        public QueryTreeNode instantiate(QueryTreeNode node) throws StandardException {
+            if (node instanceof ParameterNode) {
+                Integer position = parameterPositions.get(node);
+                if (position == null)
+                    return node;
+                return values.get(position);
+            }
+            if (!spine.contains(node))
+                return node;
+            QueryTreeNode copy = copies.get(node);
+            if (copy == null) {
+                copy = node.shallowCopy();
+                copies.put(node, copy);
+                QueryTreeNode outer = copying;
+                copying = copy;
+                copy.accept(this);
+                copying = outer;
+            }
+            return copy;
+        }
+
+        public Visitable visit(Visitable node) throws StandardException {
+            if (node == copying)
+                return node;
+            return instantiate((QueryTreeNode)node);
+        }
+
+        public boolean visitChildrenFirst(Visitable node) {
+            return false;
+        }
+        public boolean stopTraversal() {
+            return false;
+        }
+        public boolean skipChildren(Visitable node) {
+            return (node != copying);
+        }
+    }
+
+}
@@ -0,0 +1,809 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/** Turn <code>IN</code> / <code>= ANY</code>, <code>EXISTS</code> and
+ * <code>NOT EXISTS</code> subqueries in a <code>WHERE</code> clause into
+ * joins with a derived table, so that they are no longer run once per
+ * outer row.
+ *
+ * The subquery's correlated equalities become the join keys. Its other
+ * conditions stay in the derived table, which selects the distinct
+ * inner keys:
+ * <pre>
+ * WHERE EXISTS (SELECT 1 FROM s WHERE s.k = t.k AND s.v > 0)
+ * FROM ..., (SELECT DISTINCT s.k AS key1 FROM s WHERE s.v > 0) AS subquery1
+ * WHERE t.k = subquery1.key1
+ * </pre>
+ * <code>NOT EXISTS</code> becomes a <code>LEFT OUTER JOIN</code> of the
+ * outer table it is correlated with, followed by <code>key1 IS NULL</code>.
+ *
+ * <code>NOT IN</code> / <code>&lt;&gt; ALL</code> becomes the same anti-join,
+ * provided the subquery is not correlated. Because <code>NOT IN</code> is
+ * never true once a <code>NULL</code> is involved, unless the subquery is
+ * empty, that needs explicit conditions for any side that might be
+ * <code>NULL</code>:
+ * <pre>
+ * WHERE t.x NOT IN (SELECT s.y FROM s)
+ * FROM t LEFT OUTER JOIN (SELECT s.y AS key1 FROM s) AS subquery1 ON t.x = subquery1.key1
+ * WHERE subquery1.key1 IS NULL
+ *   AND (t.x IS NOT NULL OR NOT EXISTS (SELECT s.y FROM s))
+ *   AND NOT EXISTS (SELECT s.y FROM s WHERE s.y IS NULL)
+ * </pre>
+ * A <code>NOT IN</code> list of more than {@link #getNotInListThreshold}
+ * constants, which {@link BooleanNormalizer} leaves as it is, is joined
+ * the same way with a <code>VALUES</code> derived table.
+ *
+ * Only subqueries that are <code>WHERE</code> conjuncts are rewritten.
+ * Each eligible subquery that is left alone is recorded, with the reason,
+ * in {@link #getFailures}.
+ */
+public class SubqueryUnnester implements Visitor
+{
+    /** A subquery that could not be unnested. */
+    public static class Failure {
+        private SubqueryNode subquery;
+        private String reason;
+
+        public Failure(SubqueryNode subquery, String reason) {
+            this.subquery = subquery;
+            this.reason = reason;
+        }
+
+        public SubqueryNode getSubquery() {
+            return subquery;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public String toString() {
+            return reason;
+        }
+    }
+
+    SQLParserContext parserContext;
+    NodeFactory nodeFactory;
+    List<Failure> failures = new ArrayList<Failure>();
+    Set<SubqueryNode> generated =
+        Collections.newSetFromMap(new IdentityHashMap<SubqueryNode,Boolean>());
+    int derivedTableCounter;
+    int notInListThreshold = BooleanNormalizer.NOT_IN_AND_LIMIT;
+    public SubqueryUnnester(SQLParserContext parserContext) {
+        this.parserContext = parserContext;
+        this.nodeFactory = parserContext.getNodeFactory();
+    }
+
+    /** Get the number of values above which a <code>NOT IN</code> list
+     * is turned into a join.
+     */
+    public int getNotInListThreshold() {
+        return notInListThreshold;
+    }
+
+    public void setNotInListThreshold(int notInListThreshold) {
+        this.notInListThreshold = notInListThreshold;
+    }
+
+    /** Unnest subqueries anywhere in this statement. */
+    public StatementNode unnest(StatementNode stmt) throws StandardException {
+        failures.clear();
+        try {
+            return (StatementNode)stmt.accept(this);
+        }
+        finally {
+            generated.clear();
+        }
+    }
+
+    /** Get the subqueries left nested by the last {@link #unnest}. */
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    /** Is this the kind of subquery that can be turned into a join? */
+    protected static boolean isUnnestable(SubqueryNode.SubqueryType subqueryType) {
+        switch (subqueryType) {
+        case IN:
+        case EQ_ANY:
+        case EXISTS:
+        case NOT_EXISTS:
+        case NOT_IN:
+        case NE_ALL:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /** Unnest subqueries in this SELECT's WHERE clause. Nested SELECTs have
+     * already been done.
+     */
+    public void selectNode(SelectNode node) throws StandardException {
+        final Set<SubqueryNode> attempted =
+            Collections.newSetFromMap(new IdentityHashMap<SubqueryNode,Boolean>());
+        ValueNode whereClause = node.getWhereClause();
+        if (whereClause != null) {
+            boolean cnf = PredicatePushdown.isConjunctiveNormalForm(whereClause);
+            List<ValueNode> conjuncts = new ArrayList<ValueNode>();
+            PredicatePushdown.addConjuncts(whereClause, conjuncts);
+            List<ValueNode> result = new ArrayList<ValueNode>();
+            boolean changed = false;
+            for (ValueNode conjunct : conjuncts) {
+                SubqueryNode subquery = null;
+                SubqueryNode.SubqueryType subqueryType = null;
+                InListOperatorNode notInList = null;
+                if (conjunct instanceof SubqueryNode) {
+                    subquery = (SubqueryNode)conjunct;
+                    subqueryType = subquery.getSubqueryType();
+                }
+                else if (conjunct instanceof InListOperatorNode) {
+                    if (((InListOperatorNode)conjunct).isNegated())
+                        notInList = (InListOperatorNode)conjunct;
+                }
+                else if (conjunct instanceof NotNode) {
+                    ValueNode operand = ((NotNode)conjunct).getOperand();
+                    if (operand instanceof SubqueryNode) {
+                        subquery = (SubqueryNode)operand;
+                        switch (subquery.getSubqueryType()) {
+                        case EXISTS:
+                            subqueryType = SubqueryNode.SubqueryType.NOT_EXISTS;
+                            break;
+                        case IN:
+                        case EQ_ANY:
+                            subqueryType = SubqueryNode.SubqueryType.NOT_IN;
+                            break;
+                        }
+                    }
+                    else if ((operand instanceof InListOperatorNode) &&
+                             !((InListOperatorNode)operand).isNegated())
+                        notInList = (InListOperatorNode)operand;
+                }
+                if ((notInList != null) &&
+                    antiJoinInList(node, notInList, result, cnf)) {
+                    changed = true;
+                    continue;
+                }
+                if ((subqueryType != null) && isUnnestable(subqueryType)) {
+                    attempted.add(subquery);
+                    String reason = unnestSubquery(node, subquery, subqueryType,
+                                                   result, cnf);
+                    if (reason == null) {
+                        changed = true;
+                        continue;
+                    }
+                    failures.add(new Failure(subquery, reason));
+                }
+                result.add(conjunct);
+            }
+            if (changed)
+                node.setWhereClause(PredicatePushdown.combineConjuncts(result, cnf,
+                                                                       parserContext));
+        }
+        // Report the rest of the eligible subqueries in this query block.
+        node.accept(new Visitor() {
+                public Visitable visit(Visitable node) {
+                    if (node instanceof SubqueryNode) {
+                        SubqueryNode subquery = (SubqueryNode)node;
+                        if (isUnnestable(subquery.getSubqueryType()) &&
+                            !attempted.contains(subquery) &&
+                            !generated.contains(subquery))
+                            failures.add(new Failure(subquery,
+                                                     "not a conjunct of WHERE"));
+                    }
+                    return node;
+                }
+                public boolean visitChildrenFirst(Visitable node) {
+                    return false;
+                }
+                public boolean stopTraversal() {
+                    return false;
+                }
+                public boolean skipChildren(Visitable node) {
+                    return ((node instanceof SubqueryNode) ||
+                            (node instanceof FromSubquery));
+                }
+            });
+    }
+
+    /** Which query block a condition refers to. */
+    static enum Side { NONE, INNER, OUTER, BOTH }
+
+    /** Try to replace the given subquery with a join.
+     * @param result the outer WHERE conjuncts, to which any that replace
+     * the subquery are added.
+     * @param cnf whether those conjuncts are in conjunctive normal form.
+     * @return null if successful or the reason it was not possible.
+     */
+    protected String unnestSubquery(SelectNode outer, SubqueryNode subquery,
+                                    SubqueryNode.SubqueryType subqueryType,
+                                    List<ValueNode> result, boolean cnf)
+            throws StandardException {
+        if (hasUnqualifiedAll(outer.getResultColumns()))
+            return "outer select list has *";
+        if ((subquery.getOffset() != null) || (subquery.getFetchFirst() != null))
+            return "subquery has OFFSET or FETCH FIRST";
+        if (!(subquery.getResultSet() instanceof SelectNode))
+            return "subquery is not a simple SELECT";
+        SelectNode inner = (SelectNode)subquery.getResultSet();
+        ResultColumnList resultColumns = inner.getResultColumns();
+        if ((inner.getGroupByList() != null) || (inner.getHavingClause() != null) ||
+            inner.hasWindows() ||
+            ViewMerger.hasNode(resultColumns, AggregateNode.class) ||
+            ViewMerger.hasNode(resultColumns, WindowFunctionNode.class))
+            return "subquery is grouped";
+        if (ViewMerger.hasNode(inner, SubqueryNode.class))
+            return "subquery has nested subqueries";
+        if (!unqualifiedAreInner(inner))
+            return "subquery has an unqualified column";
+
+        Set<String> innerNames = new HashSet<String>();
+        for (FromTable fromTable : inner.getFromList()) {
+            ViewMerger.exposedNames(fromTable, innerNames);
+        }
+        FromList outerFromList = outer.getFromList();
+        Set<String> outerNames = new HashSet<String>();
+        for (FromTable fromTable : outerFromList) {
+            ViewMerger.exposedNames(fromTable, outerNames);
+        }
+
+        boolean notIn = ((subqueryType == SubqueryNode.SubqueryType.NOT_IN) ||
+                         (subqueryType == SubqueryNode.SubqueryType.NE_ALL));
+        boolean antiJoin = (notIn ||
+                            (subqueryType == SubqueryNode.SubqueryType.NOT_EXISTS));
+        List<ValueNode> outerKeys = new ArrayList<ValueNode>();
+        List<ValueNode> innerKeys = new ArrayList<ValueNode>();
+        if ((subqueryType == SubqueryNode.SubqueryType.IN) ||
+            (subqueryType == SubqueryNode.SubqueryType.EQ_ANY) ||
+            notIn) {
+            ValueNode leftOperand = subquery.getLeftOperand();
+            if ((leftOperand instanceof RowConstructorNode) ||
+                (resultColumns.size() != 1) ||
+                (resultColumns.get(0) instanceof AllResultColumn))
+                return "subquery compares more than one column";
+            ValueNode expression = resultColumns.get(0).getExpression();
+            Side side = side(expression, innerNames, outerNames);
+            if (side == null)
+                return "subquery refers to an enclosing query";
+            if ((side == Side.OUTER) || (side == Side.BOTH))
+                return "subquery select list is correlated";
+            outerKeys.add(leftOperand);
+            innerKeys.add(expression);
+        }
+        Side fromSide = side(inner.getFromList(), innerNames, outerNames);
+        if (fromSide == null)
+            return "subquery refers to an enclosing query";
+        if ((fromSide == Side.OUTER) || (fromSide == Side.BOTH))
+            return "subquery FROM list is correlated";
+
+        List<ValueNode> innerConditions = new ArrayList<ValueNode>();
+        List<ValueNode> outerConditions = new ArrayList<ValueNode>();
+        ValueNode innerWhere = inner.getWhereClause();
+        boolean innerCnf = false;
+        if (innerWhere != null) {
+            innerCnf = PredicatePushdown.isConjunctiveNormalForm(innerWhere);
+            List<ValueNode> conjuncts = new ArrayList<ValueNode>();
+            PredicatePushdown.addConjuncts(innerWhere, conjuncts);
+            for (ValueNode conjunct : conjuncts) {
+                if (innerCnf && PredicatePushdown.isBooleanTrue(conjunct))
+                    continue;   // Put back at the end.
+                Side side = side(conjunct, innerNames, outerNames);
+                if (side == null)
+                    return "subquery refers to an enclosing query";
+                switch (side) {
+                case NONE:
+                case INNER:
+                    innerConditions.add(conjunct);
+                    break;
+                case OUTER:
+                    outerConditions.add(conjunct);
+                    break;
+                case BOTH:
+                    if (conjunct.getNodeType() != NodeTypes.BINARY_EQUALS_OPERATOR_NODE)
+                        return "correlated condition is not an equality";
+                    BinaryComparisonOperatorNode equals = (BinaryComparisonOperatorNode)conjunct;
+                    ValueNode left = equals.getLeftOperand();
+                    ValueNode right = equals.getRightOperand();
+                    Side leftSide = side(left, innerNames, outerNames);
+                    Side rightSide = side(right, innerNames, outerNames);
+                    if ((leftSide == Side.INNER) && (rightSide == Side.OUTER)) {
+                        innerKeys.add(left);
+                        outerKeys.add(right);
+                    }
+                    else if ((leftSide == Side.OUTER) && (rightSide == Side.INNER)) {
+                        outerKeys.add(left);
+                        innerKeys.add(right);
+                    }
+                    else
+                        return "correlated condition is not an equality";
+                    break;
+                }
+            }
+        }
+        if (innerKeys.isEmpty())
+            return "subquery is not correlated by an equality";
+        if (notIn && ((innerKeys.size() > 1) || !outerConditions.isEmpty()))
+            return "NOT IN subquery is correlated";
+
+        int joinIndex = -1;
+        if (antiJoin) {
+            // The outer join has to be with the one table the subquery refers to.
+            Set<String> referenced = new HashSet<String>();
+            for (ValueNode outerKey : outerKeys) {
+                addTableNames(outerKey, referenced);
+            }
+            for (ValueNode outerCondition : outerConditions) {
+                addTableNames(outerCondition, referenced);
+            }
+            if (notIn) {
+                String reason = checkNotInOperand(outerKeys.get(0), outerFromList,
+                                                  outerNames);
+                if (reason != null)
+                    return reason;
+            }
+            joinIndex = joinIndex(outerFromList, referenced);
+            if (joinIndex < 0)
+                return "subquery is correlated with more than one outer table";
+        }
+
+        // NOT IN needs to know about NULLs while the subquery is still intact.
+        List<ValueNode> nullConditions = new ArrayList<ValueNode>();
+        if (notIn) {
+            ValueNode outerKey = outerKeys.get(0);
+            ValueNode innerKey = innerKeys.get(0);
+            if (isNullable(outerKey)) {
+                // NULL NOT IN an empty subquery is still true.
+                nullConditions.add(orCondition(isNotNull(outerKey),
+                                               notExists(inner, null, innerCnf),
+                                               cnf));
+            }
+            if (isNullable(innerKey)) {
+                ValueNode isNull = (ValueNode)
+                    nodeFactory.getNode(NodeTypes.IS_NULL_NODE,
+                                        nodeFactory.copyNode(innerKey, parserContext),
+                                        parserContext);
+                nullConditions.add(notExists(inner, isNull, innerCnf));
+            }
+        }
+
+        // Turn the subquery into a derived table of its distinct keys.
+        String name;
+        do {
+            name = "subquery" + (++derivedTableCounter);
+        } while (outerNames.contains(name) || innerNames.contains(name));
+        ResultColumnList keyColumns = (ResultColumnList)
+            nodeFactory.getNode(NodeTypes.RESULT_COLUMN_LIST, parserContext);
+        for (int i = 0; i < innerKeys.size(); i++) {
+            keyColumns.add((ResultColumn)
+                           nodeFactory.getNode(NodeTypes.RESULT_COLUMN,
+                                               "key" + (i + 1), innerKeys.get(i),
+                                               parserContext));
+        }
+        inner.setResultColumns(keyColumns);
+        if (innerCnf)
+            innerConditions.add((ValueNode)
+                                nodeFactory.getNode(NodeTypes.BOOLEAN_CONSTANT_NODE,
+                                                    Boolean.TRUE,
+                                                    parserContext));
+        inner.setWhereClause(PredicatePushdown.combineConjuncts(innerConditions, innerCnf,
+                                                                parserContext));
+        FromSubquery derivedTable = (FromSubquery)
+            nodeFactory.getNode(NodeTypes.FROM_SUBQUERY,
+                                inner, null, null, null, name, null, null,
+                                parserContext);
+
+        List<ValueNode> joinConditions = new ArrayList<ValueNode>();
+        for (int i = 0; i < outerKeys.size(); i++) {
+            joinConditions.add((ValueNode)
+                               nodeFactory.getNode(NodeTypes.BINARY_EQUALS_OPERATOR_NODE,
+                                                   outerKeys.get(i),
+                                                   keyColumn(name, i),
+                                                   parserContext));
+        }
+        joinConditions.addAll(outerConditions);
+        if (antiJoin) {
+            addAntiJoin(outerFromList, joinIndex, derivedTable, joinConditions,
+                        name, result);
+            result.addAll(nullConditions);
+        }
+        else {
+            inner.makeDistinct();
+            outerFromList.addFromTable(derivedTable);
+            result.addAll(joinConditions);
+        }
+        return null;
+    }
+
+    /** Does this select list have a <code>*</code> that would pick up
+     * the columns of any table added to the <code>FROM</code> list?
+     */
+    protected static boolean hasUnqualifiedAll(ResultColumnList resultColumns) {
+        for (ResultColumn resultColumn : resultColumns) {
+            if ((resultColumn instanceof AllResultColumn) &&
+                (resultColumn.getTableNameObject() == null))
+                return true;
+        }
+        return false;
+    }
+
+    /** Try to replace a <code>NOT IN</code> list of constants with an
+     * outer join to a <code>VALUES</code> derived table.
+     * @return true if successful.
+     */
+    protected boolean antiJoinInList(SelectNode outer, InListOperatorNode inList,
+                                     List<ValueNode> result, boolean cnf)
+            throws StandardException {
+        RowConstructorNode leftOperand = inList.getLeftOperand();
+        ValueNodeList values = inList.getRightOperandList().getNodeList();
+        if ((leftOperand.getDepth() > 0) || (values.size() <= notInListThreshold))
+            return false;
+        ValueNode operand = leftOperand.getNodeList().get(0);
+        boolean anyNull = false;
+        for (ValueNode value : values) {
+            if (!(value instanceof ConstantNode))
+                return false;
+            if (((ConstantNode)value).getValue() == null)
+                anyNull = true;
+        }
+        if (anyNull) {
+            // Never true, since it is not known whether the operand equals NULL.
+            result.add((ValueNode)nodeFactory.getNode(NodeTypes.BOOLEAN_CONSTANT_NODE,
+                                                      Boolean.FALSE,
+                                                      parserContext));
+            return true;
+        }
+        if (hasUnqualifiedAll(outer.getResultColumns()))
+            return false;
+
+        FromList outerFromList = outer.getFromList();
+        Set<String> outerNames = new HashSet<String>();
+        for (FromTable fromTable : outerFromList) {
+            ViewMerger.exposedNames(fromTable, outerNames);
+        }
+        if (checkNotInOperand(operand, outerFromList, outerNames) != null)
+            return false;
+        Set<String> referenced = new HashSet<String>();
+        addTableNames(operand, referenced);
+        int joinIndex = joinIndex(outerFromList, referenced);
+        if (joinIndex < 0)
+            return false;
+
+        String name;
+        do {
+            name = "values" + (++derivedTableCounter);
+        } while (outerNames.contains(name));
+        ResultSetNode rows = null;
+        for (ValueNode value : values) {
+            ResultColumnList rowColumns = (ResultColumnList)
+                nodeFactory.getNode(NodeTypes.RESULT_COLUMN_LIST, parserContext);
+            rowColumns.add((ResultColumn)
+                           nodeFactory.getNode(NodeTypes.RESULT_COLUMN,
+                                               null, value,
+                                               parserContext));
+            RowResultSetNode row = (RowResultSetNode)
+                nodeFactory.getNode(NodeTypes.ROW_RESULT_SET_NODE,
+                                    rowColumns, null,
+                                    parserContext);
+            if (rows == null)
+                rows = row;
+            else {
+                if (!(rows instanceof RowsResultSetNode))
+                    rows = (ResultSetNode)
+                        nodeFactory.getNode(NodeTypes.ROWS_RESULT_SET_NODE,
+                                            rows,
+                                            parserContext);
+                ((RowsResultSetNode)rows).addRow(row);
+            }
+        }
+        ResultColumnList derivedColumns = (ResultColumnList)
+            nodeFactory.getNode(NodeTypes.RESULT_COLUMN_LIST, parserContext);
+        derivedColumns.add((ResultColumn)
+                           nodeFactory.getNode(NodeTypes.RESULT_COLUMN,
+                                               "key1", null,
+                                               parserContext));
+        FromSubquery derivedTable = (FromSubquery)
+            nodeFactory.getNode(NodeTypes.FROM_SUBQUERY,
+                                rows, null, null, null, name, derivedColumns, null,
+                                parserContext);
+
+        List<ValueNode> joinConditions = new ArrayList<ValueNode>();
+        joinConditions.add((ValueNode)
+                           nodeFactory.getNode(NodeTypes.BINARY_EQUALS_OPERATOR_NODE,
+                                               operand, keyColumn(name, 0),
+                                               parserContext));
+        addAntiJoin(outerFromList, joinIndex, derivedTable, joinConditions,
+                    name, result);
+        if (isNullable(operand))
+            result.add(isNotNull(operand));
+        return true;
+    }
+
+    /** Make sure that the left operand of <code>NOT IN</code> can be
+     * evaluated in the outer join.
+     * @return null if it can or the reason it cannot.
+     */
+    protected static String checkNotInOperand(ValueNode operand, FromList outerFromList,
+                                              Set<String> outerNames)
+            throws StandardException {
+        Side side = side(operand, Collections.<String>emptySet(), outerNames);
+        if (side == null)
+            return "NOT IN operand refers to an enclosing query";
+        if (((side == Side.INNER) || (side == Side.BOTH)) &&
+            (outerFromList.size() > 1))
+            return "NOT IN operand has an unqualified column";
+        return null;
+    }
+
+    /** Find the FROM list entry that exposes all the given table names.
+     * @return the index of the first one that does or -1.
+     */
+    protected static int joinIndex(FromList fromList, Set<String> referenced) {
+        for (int i = 0; i < fromList.size(); i++) {
+            Set<String> names = new HashSet<String>();
+            ViewMerger.exposedNames(fromList.get(i), names);
+            if (names.containsAll(referenced))
+                return i;
+        }
+        return -1;
+    }
+
+    /** Replace the given FROM list entry with a <code>LEFT OUTER
+     * JOIN</code> to the derived table and add the condition that no
+     * row of it matched.
+     */
+    protected void addAntiJoin(FromList fromList, int joinIndex,
+                               FromSubquery derivedTable,
+                               List<ValueNode> joinConditions,
+                               String name, List<ValueNode> result)
+            throws StandardException {
+        FromTable joined = fromList.get(joinIndex);
+        ValueNode joinClause = PredicatePushdown.combineConjuncts(joinConditions, false,
+                                                                  parserContext);
+        JoinNode join = (JoinNode)
+            nodeFactory.getNode(NodeTypes.HALF_OUTER_JOIN_NODE,
+                                joined, derivedTable, joinClause, null,
+                                Boolean.FALSE, null,
+                                parserContext);
+        fromList.set(joinIndex, join);
+        result.add((ValueNode)nodeFactory.getNode(NodeTypes.IS_NULL_NODE,
+                                                  keyColumn(name, 0),
+                                                  parserContext));
+    }
+
+    /** Might this expression be <code>NULL</code>? Before binding, there
+     * is no way to tell.
+     */
+    protected static boolean isNullable(ValueNode node) {
+        return ((node.getType() == null) || node.getType().isNullable());
+    }
+
+    protected ValueNode isNotNull(ValueNode node) throws StandardException {
+        return (ValueNode)
+            nodeFactory.getNode(NodeTypes.IS_NOT_NULL_NODE,
+                                nodeFactory.copyNode(node, parserContext),
+                                parserContext);
+    }
+
+    /** Make a <code>NOT EXISTS</code> of a copy of the given SELECT, with
+     * an optional extra condition.
+     */
+    protected ValueNode notExists(SelectNode select, ValueNode condition, boolean cnf)
+            throws StandardException {
+        SelectNode copy = (SelectNode)nodeFactory.copyNode(select, parserContext);
+        if (condition != null) {
+            ValueNode whereClause = copy.getWhereClause();
+            if (whereClause == null)
+                whereClause = condition;
+            else if (cnf)
+                whereClause = (ValueNode)
+                    nodeFactory.getNode(NodeTypes.AND_NODE,
+                                        condition, whereClause,
+                                        parserContext);
+            else
+                whereClause = (ValueNode)
+                    nodeFactory.getNode(NodeTypes.AND_NODE,
+                                        whereClause, condition,
+                                        parserContext);
+            copy.setWhereClause(whereClause);
+        }
+        SubqueryNode subquery = (SubqueryNode)
+            nodeFactory.getNode(NodeTypes.SUBQUERY_NODE,
+                                copy, SubqueryNode.SubqueryType.NOT_EXISTS,
+                                null, null, null, null,
+                                parserContext);
+        generated.add(subquery);
+        return subquery;
+    }
+
+    /** Make an <code>OR</code>, ending in <code>FALSE</code> if it is to
+     * be a conjunct in conjunctive normal form.
+     */
+    protected ValueNode orCondition(ValueNode left, ValueNode right, boolean cnf)
+            throws StandardException {
+        if (cnf)
+            right = (ValueNode)
+                nodeFactory.getNode(NodeTypes.OR_NODE,
+                                    right,
+                                    nodeFactory.getNode(NodeTypes.BOOLEAN_CONSTANT_NODE,
+                                                        Boolean.FALSE,
+                                                        parserContext),
+                                    parserContext);
+        return (ValueNode)nodeFactory.getNode(NodeTypes.OR_NODE,
+                                              left, right,
+                                              parserContext);
+    }
+
+    protected ColumnReference keyColumn(String tableName, int index)
+            throws StandardException {
+        return (ColumnReference)
+            nodeFactory.getNode(NodeTypes.COLUMN_REFERENCE,
+                                "key" + (index + 1),
+                                nodeFactory.getNode(NodeTypes.TABLE_NAME,
+                                                    null, tableName,
+                                                    parserContext),
+                                parserContext);
+    }
+
+    /** Whether each unqualified column reference in the subquery is
+     * bound to one of its own tables. An unbound one might really be
+     * to an outer table with a column of that name, which the rewrite
+     * would then take out of scope.
+     */
+    protected static boolean unqualifiedAreInner(SelectNode inner)
+            throws StandardException {
+        final Set<FromTable> innerTables = 
+            Collections.newSetFromMap(new IdentityHashMap<FromTable,Boolean>());
+        for (FromTable fromTable : inner.getFromList()) {
+            addFromTables(fromTable, innerTables);
+        }
+        final boolean[] result = { true };
+        inner.accept(new Visitor() {
+                public Visitable visit(Visitable node) {
+                    if ((node instanceof ColumnReference) &&
+                        (((ColumnReference)node).getTableNameNode() == null)) {
+                        Object binding = ((ColumnReference)node).getUserData();
+                        if (!(binding instanceof ColumnBinding) ||
+                            !innerTables.contains(((ColumnBinding)binding).getFromTable()))
+                            result[0] = false;
+                    }
+                    return node;
+                }
+                public boolean visitChildrenFirst(Visitable node) {
+                    return false;
+                }
+                public boolean stopTraversal() {
+                    return !result[0];
+                }
+                public boolean skipChildren(Visitable node) {
+                    return (node instanceof FromSubquery);
+                }
+            });
+        return result[0];
+    }
+
+    protected static void addFromTables(ResultSetNode table, Set<FromTable> tables) {
+        if (table instanceof JoinNode) {
+            addFromTables(((JoinNode)table).getLeftResultSet(), tables);
+            addFromTables(((JoinNode)table).getRightResultSet(), tables);
+        }
+        else if (table instanceof FromTable)
+            tables.add((FromTable)table);
+    }
+
+    /** Which query block does this node refer to? Unqualified names are
+     * taken to be in the subquery, where they are resolved first.
+     * @return null if it refers to some other query.
+     */
+    protected static Side side(QueryTreeNode node, final Set<String> innerNames,
+                               final Set<String> outerNames)
+            throws StandardException {
+        final Side[] result = { Side.NONE };
+        final boolean[] enclosing = { false };
+        node.accept(new Visitor() {
+                public Visitable visit(Visitable node) {
+                    if (node instanceof ColumnReference) {
+                        TableName tableName = ((ColumnReference)node).getTableNameNode();
+                        Side side;
+                        if ((tableName == null) ||
+                            innerNames.contains(tableName.getTableName()))
+                            side = Side.INNER;
+                        else if (outerNames.contains(tableName.getTableName()))
+                            side = Side.OUTER;
+                        else {
+                            enclosing[0] = true;
+                            return node;
+                        }
+                        if (result[0] == Side.NONE)
+                            result[0] = side;
+                        else if (result[0] != side)
+                            result[0] = Side.BOTH;
+                    }
+                    return node;
+                }
+                public boolean visitChildrenFirst(Visitable node) {
+                    return false;
+                }
+                public boolean stopTraversal() {
+                    return enclosing[0];
+                }
+                public boolean skipChildren(Visitable node) {
+                    return (node instanceof FromSubquery);
+                }
+            });
+        if (enclosing[0])
+            return null;
+        return result[0];
+    }
+
+    protected static void addTableNames(QueryTreeNode node, final Set<String> names)
+            throws StandardException {
+        node.accept(new Visitor() {
+                public Visitable visit(Visitable node) {
+                    if (node instanceof ColumnReference) {
+                        TableName tableName = ((ColumnReference)node).getTableNameNode();
+                        if (tableName != null)
+                            names.add(tableName.getTableName());
+                    }
+                    return node;
+                }
+                public boolean visitChildrenFirst(Visitable node) {
+                    return false;
+                }
+                public boolean stopTraversal() {
+                    return false;
+                }
+                public boolean skipChildren(Visitable node) {
+                    return false;
+                }
+            });
+    }
+
+    /* Visitor interface */
+
+    public Visitable visit(Visitable node) throws StandardException {
+        switch (((QueryTreeNode)node).getNodeType()) {
+        case NodeTypes.SELECT_NODE:
+            selectNode((SelectNode)node);
+            break;
+        }
+        return node;
+    }
+
+    public boolean visitChildrenFirst(Visitable node) {
+        return true;
+    }
+    public boolean stopTraversal() {
+        return false;
+    }
+    public boolean skipChildren(Visitable node) throws StandardException {
+        return false;
+    }
+
+}
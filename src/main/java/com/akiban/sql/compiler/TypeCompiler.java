@@ -226,164 +226,65 @@ public abstract class TypeCompiler
     }
 
     // These are all the TypeCompilers that are stateless, so we can
-    // use a single instance of each. Initialize all to null, and fault
-    // them in.
-    private static TypeCompiler bitTypeCompiler;
-    private static TypeCompiler booleanTypeCompiler;
-    private static TypeCompiler charTypeCompiler;
-    private static TypeCompiler decimalTypeCompiler;
-    private static TypeCompiler doubleTypeCompiler;
-    private static TypeCompiler intTypeCompiler;
-    private static TypeCompiler longintTypeCompiler;
-    private static TypeCompiler longvarbitTypeCompiler;
-    private static TypeCompiler longvarcharTypeCompiler;
-    private static TypeCompiler realTypeCompiler;
-    private static TypeCompiler smallintTypeCompiler;
-    private static TypeCompiler tinyintTypeCompiler;
-    private static TypeCompiler dateTypeCompiler;
-    private static TypeCompiler timeTypeCompiler;
-    private static TypeCompiler timestampTypeCompiler;
-    private static TypeCompiler varbitTypeCompiler;
-    private static TypeCompiler varcharTypeCompiler;
-    private static TypeCompiler refTypeCompiler;
-    private static TypeCompiler blobTypeCompiler;
-    private static TypeCompiler clobTypeCompiler;
-    private static TypeCompiler xmlTypeCompiler;
-    private static TypeCompiler intervalMonthTypeCompiler, intervalSecondTypeCompiler;
+    // use a single instance of each. They are all created together,
+    // indexed by format id, the first time any is needed and never
+    // changed afterwards, so any number of threads can share them. The
+    // holder class keeps TypeCompiler itself from depending on the
+    // initialization of its subclasses.
+    static class BuiltinTypeCompilers {
+        static final TypeCompiler[] BY_FORMAT_ID = 
+            new TypeCompiler[TypeId.FormatIds.INTERVAL_DAY_SECOND_ID + 1];
+
+        static {
+            register(new BitTypeCompiler(TypeId.BIT_ID));
+            register(new BooleanTypeCompiler(TypeId.BOOLEAN_ID));
+            register(new CharTypeCompiler(TypeId.CHAR_ID));
+            register(new DateTypeCompiler(TypeId.DATE_ID));
+            TypeCompiler decimalTypeCompiler = new NumericTypeCompiler(TypeId.DECIMAL_ID);
+            register(decimalTypeCompiler);
+            BY_FORMAT_ID[TypeId.FormatIds.NUMERIC_TYPE_ID] = decimalTypeCompiler;
+            register(new NumericTypeCompiler(TypeId.DOUBLE_ID));
+            register(new NumericTypeCompiler(TypeId.INTEGER_ID));
+            register(new NumericTypeCompiler(TypeId.BIGINT_ID));
+            register(new BitTypeCompiler(TypeId.LONGVARBIT_ID));
+            register(new CharTypeCompiler(TypeId.LONGVARCHAR_ID));
+            register(new NumericTypeCompiler(TypeId.REAL_ID));
+            register(new RefTypeCompiler(TypeId.REF_ID));
+            register(new NumericTypeCompiler(TypeId.SMALLINT_ID));
+            register(new TimeTypeCompiler(TypeId.TIME_ID));
+            register(new TimestampTypeCompiler(TypeId.TIMESTAMP_ID));
+            register(new NumericTypeCompiler(TypeId.TINYINT_ID));
+            register(new BitTypeCompiler(TypeId.VARBIT_ID));
+            register(new LOBTypeCompiler(TypeId.BLOB_ID));
+            register(new CharTypeCompiler(TypeId.VARCHAR_ID));
+            register(new CLOBTypeCompiler(TypeId.CLOB_ID));
+            register(new XMLTypeCompiler(TypeId.XML_ID));
+            register(new IntervalTypeCompiler(TypeId.INTERVAL_YEAR_MONTH_ID));
+            register(new IntervalTypeCompiler(TypeId.INTERVAL_DAY_SECOND_ID));
+        }
+
+        private static void register(TypeCompiler typeCompiler) {
+            BY_FORMAT_ID[typeCompiler.getStoredFormatIdFromTypeId()] = typeCompiler;
+        }
+    }
 
     /**
      * Get the TypeCompiler that corresponds to the given TypeId.
      */
     public static TypeCompiler getTypeCompiler(TypeId typeId) {
-        switch (typeId.getJDBCTypeId()) {
-        case Types.BINARY:
-            if (bitTypeCompiler == null)
-                bitTypeCompiler = new BitTypeCompiler(typeId);
-            return bitTypeCompiler;
-
-        case Types.BIT:
-        case Types.BOOLEAN:
-            if (booleanTypeCompiler == null)
-                booleanTypeCompiler = new BooleanTypeCompiler(typeId);
-            return booleanTypeCompiler;
-
-        case Types.CHAR:
-            if (charTypeCompiler == null)
-                charTypeCompiler = new CharTypeCompiler(typeId);
-            return charTypeCompiler;
-
-        case Types.NUMERIC:
-        case Types.DECIMAL:
-            if (decimalTypeCompiler == null)
-                decimalTypeCompiler = new NumericTypeCompiler(typeId);
-            return decimalTypeCompiler;
-
-        case Types.DOUBLE:
-            if (doubleTypeCompiler == null)
-                doubleTypeCompiler = new NumericTypeCompiler(typeId);
-            return doubleTypeCompiler;
-
-        case Types.INTEGER:
-            if (intTypeCompiler == null)
-                intTypeCompiler = new NumericTypeCompiler(typeId);
-            return intTypeCompiler;
-
-        case Types.BIGINT:
-            if (longintTypeCompiler == null)
-                longintTypeCompiler = new NumericTypeCompiler(typeId);
-            return longintTypeCompiler;
-
-        case Types.BLOB:
-            if (blobTypeCompiler == null)
-                blobTypeCompiler = new LOBTypeCompiler(typeId);
-            return blobTypeCompiler;
-
-        case Types.LONGVARBINARY:
-            if (longvarbitTypeCompiler == null)
-                longvarbitTypeCompiler = new BitTypeCompiler(typeId);
-            return longvarbitTypeCompiler;
-
-        case Types.CLOB:
-            if (clobTypeCompiler == null)
-                clobTypeCompiler = new CLOBTypeCompiler(typeId);
-            return clobTypeCompiler;
-
-        case Types.LONGVARCHAR:
-            if (longvarcharTypeCompiler == null)
-                longvarcharTypeCompiler = new CharTypeCompiler(typeId);
-            return longvarcharTypeCompiler;
-
-        case Types.REAL:
-            if (realTypeCompiler == null)
-                realTypeCompiler = new NumericTypeCompiler(typeId);
-            return realTypeCompiler;
-
-        case Types.SMALLINT:
-            if (smallintTypeCompiler == null)
-                smallintTypeCompiler = new NumericTypeCompiler(typeId);
-            return smallintTypeCompiler;
-
-        case Types.TINYINT:
-            if (tinyintTypeCompiler == null)
-                tinyintTypeCompiler = new NumericTypeCompiler(typeId);
-            return tinyintTypeCompiler;
-
-        case Types.DATE:
-            if (dateTypeCompiler == null)
-                dateTypeCompiler = new DateTypeCompiler(typeId);
-            return dateTypeCompiler;
-
-        case Types.TIME:
-            if (timeTypeCompiler == null)
-                timeTypeCompiler = new TimeTypeCompiler(typeId);
-            return timeTypeCompiler;
-
-        case Types.TIMESTAMP:
-            if (timestampTypeCompiler == null)
-                timestampTypeCompiler = new TimestampTypeCompiler(typeId);
-            return timestampTypeCompiler;
-
-        case Types.VARBINARY:
-            if (varbitTypeCompiler == null)
-                varbitTypeCompiler = new BitTypeCompiler(typeId);
-            return varbitTypeCompiler;
-
-        case Types.VARCHAR:
-            if (varcharTypeCompiler == null)
-                varcharTypeCompiler = new CharTypeCompiler(typeId);
-            return varcharTypeCompiler;
+        int formatId = typeId.getTypeFormatId();
+        if ((formatId >= 0) && (formatId < BuiltinTypeCompilers.BY_FORMAT_ID.length)) {
+            TypeCompiler typeCompiler = BuiltinTypeCompilers.BY_FORMAT_ID[formatId];
+            if (typeCompiler != null)
+                return typeCompiler;
+        }
 
+        switch (typeId.getJDBCTypeId()) {
         case Types.JAVA_OBJECT:
         case Types.OTHER:
-            if (typeId.isRefTypeId()) {
-                if (refTypeCompiler == null)
-                    refTypeCompiler = new RefTypeCompiler(typeId);
-                return refTypeCompiler;
-            }
-            else if (typeId.isIntervalTypeId()) {
-                switch (typeId.getTypeFormatId()) {
-                case TypeId.FormatIds.INTERVAL_YEAR_MONTH_ID:
-                    if (intervalMonthTypeCompiler == null)
-                        intervalMonthTypeCompiler = new IntervalTypeCompiler(typeId);
-                    return intervalMonthTypeCompiler;
-                case TypeId.FormatIds.INTERVAL_DAY_SECOND_ID:                        
-                    if (intervalSecondTypeCompiler == null)
-                        intervalSecondTypeCompiler = new IntervalTypeCompiler(typeId);
-                    return intervalSecondTypeCompiler;
-                default:
-                    return null;
-                }
-            }
-            else {
-                // Cannot re-use instances of user-defined type compilers,
-                // because they contain the class name
-                return new UserDefinedTypeCompiler(typeId);
-            }
-
-        case Types.SQLXML:
-            if (xmlTypeCompiler == null)
-                xmlTypeCompiler = new XMLTypeCompiler(typeId);
-            return xmlTypeCompiler;
+            // Cannot re-use instances of user-defined type compilers,
+            // because they contain the class name
+            return new UserDefinedTypeCompiler(typeId);
 
         default:
             assert false : "Unexpected JDBC type id " + typeId.getJDBCTypeId();
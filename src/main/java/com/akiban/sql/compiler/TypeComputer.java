@@ -46,10 +46,13 @@ public class TypeComputer implements Visitor
         }
     }
 
-    /** Probably need to subclass and handle <code>NodeTypes.COLUMN_REFERENCE</code>
+    /** Column references get their types from a {@link Binder}; without
+     * one, subclass and handle <code>NodeTypes.COLUMN_REFERENCE</code>
      * to get type propagation started. */
     protected DataTypeDescriptor computeType(ValueNode node) throws StandardException {
         switch (node.getNodeType()) {
+        case NodeTypes.COLUMN_REFERENCE:
+            return columnReference((ColumnReference)node);
         case NodeTypes.RESULT_COLUMN:
             return resultColumn((ResultColumn)node);
         case NodeTypes.AND_NODE:
@@ -123,6 +126,14 @@ public class TypeComputer implements Visitor
         return expr.getType();
     }
 
+    protected DataTypeDescriptor columnReference(ColumnReference node)
+            throws StandardException {
+        Object binding = node.getUserData();
+        if (binding instanceof ColumnBinding)
+            return ((ColumnBinding)binding).getType();
+        return null;
+    }
+
     protected DataTypeDescriptor unaryLogicalOperatorNode(UnaryLogicalOperatorNode node) 
             throws StandardException {
         ValueNode operand = node.getOperand();
@@ -0,0 +1,463 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Merge simple derived tables, such as expanded views, into the
+ * <code>SELECT</code> whose <code>FROM</code> list contains them.
+ *
+ * A subquery is simple if it is a single <code>SELECT</code> without
+ * <code>DISTINCT</code>, <code>GROUP BY</code>, <code>HAVING</code>,
+ * aggregates, window functions, <code>ORDER BY</code>,
+ * <code>OFFSET</code> or <code>FETCH FIRST</code>. Its tables take
+ * its place in the outer <code>FROM</code> list. Its <code>WHERE</code>
+ * clause is <code>AND</code>ed onto the outer one, and references to
+ * its columns are replaced by copies of the corresponding select
+ * expressions.
+ *
+ * This runs before binding, so columns are only known by name. A
+ * subquery is therefore left alone whenever some reference could
+ * resolve differently after merging. For example, when the outer
+ * query has several tables, all its column references must be
+ * qualified. It is also left alone when a referenced column's
+ * expression calls a function, which might not give the same value
+ * each time, or when an outer <code>ORDER BY</code> or <code>GROUP
+ * BY</code> key would become a constant.
+ */
+public class ViewMerger implements Visitor
+{
+    SQLParserContext parserContext;
+    NodeFactory nodeFactory;
+    Map<SelectNode,OrderByList> orderings;
+    public ViewMerger(SQLParserContext parserContext) {
+        this.parserContext = parserContext;
+        this.nodeFactory = parserContext.getNodeFactory();
+    }
+
+    /** Merge simple subqueries anywhere in this statement. */
+    public StatementNode merge(StatementNode stmt) throws StandardException {
+        orderings = new IdentityHashMap<SelectNode,OrderByList>();
+        stmt.accept(new OrderingFinder(orderings));
+        try {
+            return (StatementNode)stmt.accept(this);
+        }
+        finally {
+            orderings = null;
+        }
+    }
+
+    /** Merge any simple subqueries in this SELECT's FROM list. Nested
+     * SELECTs have already been done, so what a merge adds has no
+     * more to do.
+     */
+    public void selectNode(SelectNode node) throws StandardException {
+        FromList fromList = node.getFromList();
+        int index = 0;
+        while (index < fromList.size()) {
+            FromTable fromTable = fromList.get(index);
+            int merged = -1;
+            if (fromTable instanceof FromSubquery)
+                merged = mergeFromSubquery(node, index, (FromSubquery)fromTable);
+            if (merged < 0)
+                index++;
+            else
+                index += merged;
+        }
+    }
+
+    /** Merge the subquery at the given position into <code>outer</code>.
+     * @return the number of tables that took its place, or -1 if it
+     * could not be merged.
+     */
+    protected int mergeFromSubquery(SelectNode outer, int index,
+                                    FromSubquery fromSubquery)
+            throws StandardException {
+        String name = fromSubquery.getCorrelationName();
+        if ((name == null) ||
+            !(fromSubquery.getSubquery() instanceof SelectNode) ||
+            (fromSubquery.getOrderByList() != null) ||
+            (fromSubquery.getOffset() != null) ||
+            (fromSubquery.getFetchFirst() != null))
+            return -1;
+        SelectNode inner = (SelectNode)fromSubquery.getSubquery();
+        if (inner.isDistinct() || inner.isStraightJoin() ||
+            (inner.getGroupByList() != null) ||
+            (inner.getHavingClause() != null) ||
+            inner.hasWindows() ||
+            hasNode(inner.getResultColumns(), AggregateNode.class) ||
+            hasNode(inner.getResultColumns(), WindowFunctionNode.class) ||
+            hasNode(inner.getResultColumns(), SubqueryNode.class))
+            return -1;
+        Map<String,ResultColumn> columns = subqueryColumns(fromSubquery, inner);
+        if (columns == null)
+            return -1;
+
+        FromList outerFromList = outer.getFromList();
+        boolean alone = (outerFromList.size() == 1);
+        Set<String> innerNames = new HashSet<String>();
+        for (FromTable fromTable : inner.getFromList()) {
+            exposedNames(fromTable, innerNames);
+        }
+        Set<String> otherNames = new HashSet<String>();
+        for (int i = 0; i < outerFromList.size(); i++) {
+            if (i != index)
+                exposedNames(outerFromList.get(i), otherNames);
+        }
+        if (!Collections.disjoint(innerNames, otherNames))
+            return -1;
+
+        for (ResultColumn resultColumn : outer.getResultColumns()) {
+            if (resultColumn instanceof AllResultColumn) {
+                TableName tableName = resultColumn.getTableNameObject();
+                if ((tableName == null) || name.equals(tableName.getTableName()))
+                    return -1;
+            }
+        }
+
+        // Work out what every outer reference to the subquery becomes.
+        ReferenceFinder outerReferences = new ReferenceFinder();
+        outer.accept(outerReferences);
+        OrderByList ordering = orderings.get(outer);
+        ReferenceFinder orderingReferences = new ReferenceFinder();
+        if (ordering != null)
+            ordering.accept(orderingReferences);
+        if (outerReferences.hasSubquery || orderingReferences.hasSubquery)
+            return -1;
+        Map<ColumnReference,ResultColumn> replacements =
+            new IdentityHashMap<ColumnReference,ResultColumn>();
+        for (ColumnReference reference : outerReferences.references) {
+            if (!mapReference(reference, name, columns, alone, innerNames,
+                              replacements))
+                return -1;
+        }
+        for (ColumnReference reference : orderingReferences.references) {
+            if ((reference.getTableNameNode() == null) &&
+                (outer.getResultColumns().getResultColumn(reference.getColumnName()) != null))
+                continue;       // An alias from the select list.
+            if (!mapReference(reference, name, columns, alone, innerNames,
+                              replacements))
+                return -1;
+        }
+        // An expression whose value can change must not be copied,
+        // and a sort or grouping key must not become a constant, which
+        // would read as a column position.
+        for (ResultColumn column : replacements.values()) {
+            if (isVolatile(column.getExpression()))
+                return -1;
+        }
+        if (ordering != null) {
+            for (OrderByColumn orderByColumn : ordering) {
+                if (becomesConstant(orderByColumn.getExpression(), replacements))
+                    return -1;
+            }
+        }
+        if (outer.getGroupByList() != null) {
+            for (GroupByColumn groupByColumn : outer.getGroupByList()) {
+                if (becomesConstant(groupByColumn.getColumnExpression(), replacements))
+                    return -1;
+            }
+        }
+
+        // With other tables alongside, the subquery's own unqualified
+        // references need to be qualified with its only table.
+        TableName qualifier = null;
+        List<ColumnReference> unqualified = new ArrayList<ColumnReference>();
+        if (!alone) {
+            ReferenceFinder innerReferences = new ReferenceFinder();
+            inner.accept(innerReferences);
+            if (innerReferences.hasSubquery)
+                return -1;
+            for (ColumnReference reference : innerReferences.references) {
+                if (reference.getTableNameNode() == null)
+                    unqualified.add(reference);
+            }
+            if (!unqualified.isEmpty()) {
+                if ((inner.getFromList().size() != 1) ||
+                    (inner.getFromList().get(0) instanceof JoinNode))
+                    return -1;
+                qualifier = exposedTableName(inner.getFromList().get(0));
+                if (qualifier == null)
+                    return -1;
+            }
+        }
+
+        for (ColumnReference reference : unqualified) {
+            reference.setTableNameNode((TableName)
+                                       nodeFactory.copyNode(qualifier, parserContext));
+        }
+        ColumnReplacer replacer = new ColumnReplacer(replacements);
+        outer.accept(replacer);
+        if (ordering != null)
+            ordering.accept(replacer);
+
+        ValueNode innerWhere = inner.getWhereClause();
+        ValueNode outerWhere = outer.getWhereClause();
+        if (innerWhere != null) {
+            if (outerWhere == null)
+                outer.setWhereClause(innerWhere);
+            else
+                outer.setWhereClause((ValueNode)
+                                     nodeFactory.getNode(NodeTypes.AND_NODE,
+                                                         innerWhere, outerWhere,
+                                                         parserContext));
+        }
+
+        outerFromList.remove(index);
+        FromList innerFromList = inner.getFromList();
+        for (int i = 0; i < innerFromList.size(); i++) {
+            outerFromList.add(index + i, innerFromList.get(i));
+        }
+        return innerFromList.size();
+    }
+
+    /** Record what <code>reference</code> becomes if it refers to the
+     * subquery called <code>name</code>.
+     * @return false if it is not safe to merge the subquery because of
+     * this reference.
+     */
+    protected boolean mapReference(ColumnReference reference, String name,
+                                   Map<String,ResultColumn> columns, boolean alone,
+                                   Set<String> innerNames,
+                                   Map<ColumnReference,ResultColumn> replacements) {
+        TableName tableName = reference.getTableNameNode();
+        if (tableName != null) {
+            if (!name.equals(tableName.getTableName()))
+                // Must not be captured by a table that is merged in.
+                return !innerNames.contains(tableName.getTableName());
+            if (tableName.hasSchema())
+                return false;
+        }
+        else if (!alone)
+            return false;
+        ResultColumn column = columns.get(reference.getColumnName());
+        if (column == null)
+            return false;
+        replacements.put(reference, column);
+        return true;
+    }
+
+    /** Get the subquery's columns by the names the outer query uses.
+     * A name that is ambiguous maps to <code>null</code>.
+     * @return null if the columns cannot be determined.
+     */
+    protected static Map<String,ResultColumn> subqueryColumns(FromSubquery fromSubquery,
+                                                              SelectNode inner) {
+        ResultColumnList resultColumns = inner.getResultColumns();
+        ResultColumnList derivedColumns = fromSubquery.getResultColumns();
+        if ((derivedColumns != null) &&
+            (derivedColumns.size() != resultColumns.size()))
+            return null;
+        Map<String,ResultColumn> columns = new HashMap<String,ResultColumn>();
+        for (int i = 0; i < resultColumns.size(); i++) {
+            ResultColumn resultColumn = resultColumns.get(i);
+            if (resultColumn instanceof AllResultColumn)
+                return null;
+            String name;
+            if (derivedColumns != null)
+                name = derivedColumns.get(i).getName();
+            else
+                name = resultColumn.getName();
+            if (name == null)
+                continue;
+            if (columns.containsKey(name))
+                columns.put(name, null);
+            else
+                columns.put(name, resultColumn);
+        }
+        return columns;
+    }
+
+    /** Add the names by which the columns of this table can be qualified. */
+    protected static void exposedNames(ResultSetNode table, Set<String> names) {
+        if (table instanceof JoinNode) {
+            exposedNames(((JoinNode)table).getLeftResultSet(), names);
+            exposedNames(((JoinNode)table).getRightResultSet(), names);
+        }
+        else if (table instanceof FromTable) {
+            FromTable fromTable = (FromTable)table;
+            if (fromTable.getCorrelationName() != null)
+                names.add(fromTable.getCorrelationName());
+            else if (fromTable.getOrigTableName() != null)
+                names.add(fromTable.getOrigTableName().getTableName());
+        }
+    }
+
+    protected TableName exposedTableName(FromTable fromTable)
+            throws StandardException {
+        if (fromTable.getCorrelationName() != null)
+            return (TableName)nodeFactory.getNode(NodeTypes.TABLE_NAME,
+                                                  null,
+                                                  fromTable.getCorrelationName(),
+                                                  parserContext);
+        else
+            return fromTable.getOrigTableName();
+    }
+
+    /** Whether the expression can have a different value each time it
+     * is evaluated, or calls a function that might. */
+    protected static boolean isVolatile(ValueNode expression) 
+            throws StandardException {
+        return (hasNode(expression, JavaToSQLValueNode.class) ||
+                hasNode(expression, NextSequenceNode.class));
+    }
+
+    protected static boolean becomesConstant(ValueNode key,
+                                             Map<ColumnReference,ResultColumn> replacements) {
+        ResultColumn column = replacements.get(key);
+        return ((column != null) && (column.getExpression() instanceof ConstantNode));
+    }
+
+    protected static boolean hasNode(QueryTreeNode node, 
+                                     Class<? extends QueryTreeNode> nodeClass)
+            throws StandardException {
+        HasNodeVisitor visitor = new HasNodeVisitor(nodeClass);
+        node.accept(visitor);
+        return visitor.hasNode();
+    }
+
+    /** Find the ORDER BY that applies to each SELECT, which can refer to
+     * the SELECT's tables.
+     */
+    static class OrderingFinder implements Visitor {
+        Map<SelectNode,OrderByList> orderings;
+
+        public OrderingFinder(Map<SelectNode,OrderByList> orderings) {
+            this.orderings = orderings;
+        }
+
+        public Visitable visit(Visitable node) throws StandardException {
+            ResultSetNode resultSet = null;
+            OrderByList orderByList = null;
+            if (node instanceof CursorNode) {
+                resultSet = ((CursorNode)node).getResultSetNode();
+                orderByList = ((CursorNode)node).getOrderByList();
+            }
+            else if (node instanceof InsertNode) {
+                resultSet = ((InsertNode)node).getResultSetNode();
+                orderByList = ((InsertNode)node).getOrderByList();
+            }
+            else if (node instanceof FromSubquery) {
+                resultSet = ((FromSubquery)node).getSubquery();
+                orderByList = ((FromSubquery)node).getOrderByList();
+            }
+            else if (node instanceof SubqueryNode) {
+                resultSet = ((SubqueryNode)node).getResultSet();
+                orderByList = ((SubqueryNode)node).getOrderByList();
+            }
+            if ((resultSet instanceof SelectNode) && (orderByList != null))
+                orderings.put((SelectNode)resultSet, orderByList);
+            return node;
+        }
+
+        public boolean visitChildrenFirst(Visitable node) {
+            return false;
+        }
+        public boolean stopTraversal() {
+            return false;
+        }
+        public boolean skipChildren(Visitable node) throws StandardException {
+            return false;
+        }
+    }
+
+    /** Find the column references of a single query block, apart from
+     * those in its FROM list.
+     */
+    static class ReferenceFinder implements Visitor {
+        List<ColumnReference> references = new ArrayList<ColumnReference>();
+        boolean hasSubquery;
+
+        public Visitable visit(Visitable node) throws StandardException {
+            if (node instanceof ColumnReference)
+                references.add((ColumnReference)node);
+            else if (node instanceof SubqueryNode)
+                hasSubquery = true;
+            return node;
+        }
+
+        public boolean visitChildrenFirst(Visitable node) {
+            return false;
+        }
+        public boolean stopTraversal() {
+            return false;
+        }
+        public boolean skipChildren(Visitable node) throws StandardException {
+            return ((node instanceof FromList) || (node instanceof SubqueryNode));
+        }
+    }
+
+    /** Replace references to the subquery's columns with its expressions. */
+    class ColumnReplacer implements Visitor {
+        Map<ColumnReference,ResultColumn> replacements;
+
+        public ColumnReplacer(Map<ColumnReference,ResultColumn> replacements) {
+            this.replacements = replacements;
+        }
+
+        public Visitable visit(Visitable node) throws StandardException {
+            ResultColumn column = replacements.get(node);
+            if (column != null)
+                return nodeFactory.copyNode(column.getExpression(), parserContext);
+            return node;
+        }
+
+        public boolean visitChildrenFirst(Visitable node) {
+            return false;
+        }
+        public boolean stopTraversal() {
+            return false;
+        }
+        public boolean skipChildren(Visitable node) throws StandardException {
+            return (node instanceof FromList);
+        }
+    }
+
+    /* Visitor interface */
+
+    public Visitable visit(Visitable node) throws StandardException {
+        switch (((QueryTreeNode)node).getNodeType()) {
+        case NodeTypes.SELECT_NODE:
+            selectNode((SelectNode)node);
+            break;
+        }
+        return node;
+    }
+
+    public boolean visitChildrenFirst(Visitable node) {
+        return true;
+    }
+    public boolean stopTraversal() {
+        return false;
+    }
+    public boolean skipChildren(Visitable node) throws StandardException {
+        return false;
+    }
+
+}
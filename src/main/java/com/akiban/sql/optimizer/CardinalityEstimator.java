@@ -0,0 +1,574 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import com.akiban.sql.parser.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Estimate the selectivity of conditions and the number of rows
+ * produced by result sets using {@link Statistics}.
+ *
+ * Comparisons of a column with a constant use the column's histogram,
+ * if it has one, and otherwise its number of distinct values. A join on
+ * columns with statistics is assumed to match the column with fewer
+ * distinct values to that with more. Anything else gets the same fixed
+ * estimates as {@link SimpleCostModel}.
+ *
+ * Estimates are kept for each result set node, so this should be
+ * {@link #clear}ed if the statement is changed.
+ */
+public class CardinalityEstimator implements CostModel
+{
+    private Statistics statistics;
+    private SimpleCostModel defaults = new SimpleCostModel();
+    private Map<ResultSetNode,Double> rowCounts = 
+        new IdentityHashMap<ResultSetNode,Double>();
+    private Map<SelectNode,Map<String,FromBaseTable>> scopes =
+        new IdentityHashMap<SelectNode,Map<String,FromBaseTable>>();
+
+    public CardinalityEstimator(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /** Forget all estimates made so far. */
+    public void clear() {
+        rowCounts.clear();
+        scopes.clear();
+    }
+
+    /** Get the estimates made so far for each result set. */
+    public Map<ResultSetNode,Double> getRowCounts() {
+        return Collections.unmodifiableMap(rowCounts);
+    }
+
+    /** Estimate the number of rows a statement returns or affects. */
+    public double getRowCount(DMLStatementNode stmt) {
+        double rowCount = getRowCount(stmt.getResultSetNode());
+        if (stmt instanceof CursorNode) {
+            CursorNode cursor = (CursorNode)stmt;
+            rowCount = limit(rowCount, cursor.getOffsetClause(), 
+                             cursor.getFetchFirstClause());
+        }
+        return rowCount;
+    }
+
+    /** Estimate the number of rows a result set produces. */
+    public double getRowCount(ResultSetNode node) {
+        return getRowCount(node, Collections.<String,FromBaseTable>emptyMap());
+    }
+
+    /** Estimate the fraction of the rows of a SELECT's FROM list that
+     * satisfy a condition.
+     */
+    public double getSelectivity(SelectNode select, ValueNode condition) {
+        return getSelectivity(condition, getScope(select));
+    }
+
+    /* CostModel interface */
+
+    public double getRowCount(JoinGraph graph, JoinGraph.Table table,
+                              List<JoinGraph.Predicate> conditions) {
+        Map<String,FromBaseTable> scope = getScope(graph.getSelect());
+        return getRowCount(table.getFromTable(), scope) * 
+            getSelectivity(conditions, scope);
+    }
+
+    public double getSelectivity(JoinGraph graph,
+                                 List<JoinGraph.Predicate> conditions) {
+        return getSelectivity(conditions, getScope(graph.getSelect()));
+    }
+
+    public double getJoinCost(double leftRows, double rightRows,
+                              double resultRows, boolean outer) {
+        return defaults.getJoinCost(leftRows, rightRows, resultRows, outer);
+    }
+
+    /* Row counts */
+
+    protected double getRowCount(ResultSetNode node, Map<String,FromBaseTable> scope) {
+        Double rowCount = rowCounts.get(node);
+        if (rowCount == null) {
+            rowCount = computeRowCount(node, scope);
+            rowCounts.put(node, rowCount);
+        }
+        return rowCount;
+    }
+
+    protected double computeRowCount(ResultSetNode node, Map<String,FromBaseTable> scope) {
+        if (node instanceof FromBaseTable) {
+            TableName tableName = ((FromBaseTable)node).getOrigTableName();
+            long rowCount = statistics.getRowCount(tableName.getSchemaName(),
+                                                   tableName.getTableName());
+            if (rowCount < 0)
+                return SimpleCostModel.DEFAULT_ROW_COUNT;
+            return rowCount;
+        }
+        else if (node instanceof FromSubquery) {
+            FromSubquery fromSubquery = (FromSubquery)node;
+            return limit(getRowCount(fromSubquery.getSubquery()),
+                         fromSubquery.getOffset(), fromSubquery.getFetchFirst());
+        }
+        else if (node instanceof JoinNode) {
+            JoinNode join = (JoinNode)node;
+            double left = getRowCount(join.getLeftResultSet(), scope);
+            double right = getRowCount(join.getRightResultSet(), scope);
+            double selectivity = 1.0;
+            if (join.getJoinClause() != null)
+                selectivity = getSelectivity(join.getJoinClause(), scope);
+            if (join.getUsingClause() != null)
+                selectivity *= Math.pow(SimpleCostModel.EQUALS_SELECTIVITY,
+                                        join.getUsingClause().size());
+            double rowCount = left * right * selectivity;
+            if (join instanceof HalfOuterJoinNode)
+                rowCount = Math.max(rowCount,
+                                    ((HalfOuterJoinNode)join).isRightOuterJoin() ? 
+                                    right : left);
+            return rowCount;
+        }
+        else if (node instanceof SelectNode)
+            return getSelectRowCount((SelectNode)node);
+        else if (node instanceof UnionNode) {
+            UnionNode union = (UnionNode)node;
+            return (getRowCount(union.getLeftResultSet()) + 
+                    getRowCount(union.getRightResultSet()));
+        }
+        else if (node instanceof IntersectOrExceptNode) {
+            IntersectOrExceptNode setOp = (IntersectOrExceptNode)node;
+            double left = getRowCount(setOp.getLeftResultSet());
+            if (setOp.getOpType() == IntersectOrExceptNode.OpType.EXCEPT)
+                return left;
+            return Math.min(left, getRowCount(setOp.getRightResultSet()));
+        }
+        else if (node instanceof RowsResultSetNode)
+            return ((RowsResultSetNode)node).getRows().size();
+        else if (node instanceof RowResultSetNode)
+            return 1;
+        else
+            return SimpleCostModel.DEFAULT_ROW_COUNT;
+    }
+
+    protected double getSelectRowCount(SelectNode select) {
+        Map<String,FromBaseTable> scope = getScope(select);
+        double rowCount = 1.0;
+        for (FromTable fromTable : select.getFromList()) {
+            rowCount *= getRowCount(fromTable, scope);
+        }
+        if (select.getWhereClause() != null)
+            rowCount *= getSelectivity(select.getWhereClause(), scope);
+        if (select.getGroupByList() != null) {
+            double groups = 1.0;
+            for (GroupByColumn groupByColumn : select.getGroupByList()) {
+                groups *= getDistinctCount(groupByColumn.getColumnExpression(), 
+                                           scope, rowCount);
+            }
+            rowCount = Math.min(rowCount, groups);
+        }
+        else {
+            for (ResultColumn resultColumn : select.getResultColumns()) {
+                if (resultColumn.getExpression() instanceof AggregateNode) {
+                    rowCount = 1;   // Aggregate of the whole table.
+                    break;
+                }
+            }
+        }
+        if (select.getHavingClause() != null)
+            rowCount *= getSelectivity(select.getHavingClause(), scope);
+        if (select.isDistinct()) {
+            double groups = 1.0;
+            for (ResultColumn resultColumn : select.getResultColumns()) {
+                if (resultColumn instanceof AllResultColumn) {
+                    groups = rowCount;
+                    break;
+                }
+                groups *= getDistinctCount(resultColumn.getExpression(), 
+                                           scope, rowCount);
+            }
+            rowCount = Math.min(rowCount, groups);
+        }
+        return rowCount;
+    }
+
+    /** Estimate the number of distinct values of an expression, which is
+     * at most the number of rows.
+     */
+    protected double getDistinctCount(ValueNode expression, 
+                                      Map<String,FromBaseTable> scope,
+                                      double rowCount) {
+        if (expression instanceof ColumnReference) {
+            ColumnStatistics column = getColumnStatistics((ColumnReference)expression,
+                                                          scope);
+            if (column != null)
+                return Math.min(rowCount, column.getDistinctCount());
+        }
+        else if (expression instanceof ConstantNode)
+            return 1;
+        return rowCount;
+    }
+
+    protected static double limit(double rowCount, ValueNode offset, ValueNode fetchFirst) {
+        Object value = constantValue(offset);
+        if (value instanceof Number)
+            rowCount = Math.max(0, rowCount - ((Number)value).doubleValue());
+        value = constantValue(fetchFirst);
+        if (value instanceof Number)
+            rowCount = Math.min(rowCount, ((Number)value).doubleValue());
+        return rowCount;
+    }
+
+    /* Selectivity */
+
+    protected double getSelectivity(List<JoinGraph.Predicate> conditions,
+                                    Map<String,FromBaseTable> scope) {
+        double selectivity = 1.0;
+        for (JoinGraph.Predicate condition : conditions) {
+            selectivity *= getSelectivity(condition.getCondition(), scope);
+        }
+        return selectivity;
+    }
+
+    protected double getSelectivity(ValueNode condition, Map<String,FromBaseTable> scope) {
+        switch (condition.getNodeType()) {
+        case NodeTypes.AND_NODE:
+            {
+                AndNode andNode = (AndNode)condition;
+                return (getSelectivity(andNode.getLeftOperand(), scope) *
+                        getSelectivity(andNode.getRightOperand(), scope));
+            }
+        case NodeTypes.OR_NODE:
+            {
+                OrNode orNode = (OrNode)condition;
+                double left = getSelectivity(orNode.getLeftOperand(), scope);
+                double right = getSelectivity(orNode.getRightOperand(), scope);
+                return left + right - left * right;
+            }
+        case NodeTypes.NOT_NODE:
+            return 1 - getSelectivity(((NotNode)condition).getOperand(), scope);
+        case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+            return getComparisonSelectivity((BinaryComparisonOperatorNode)condition,
+                                            scope);
+        case NodeTypes.IN_LIST_OPERATOR_NODE:
+            return getInListSelectivity((InListOperatorNode)condition, scope);
+        case NodeTypes.BETWEEN_OPERATOR_NODE:
+            {
+                BetweenOperatorNode between = (BetweenOperatorNode)condition;
+                ValueNodeList bounds = between.getRightOperandList();
+                double selectivity = getRangeSelectivity(between.getLeftOperand(),
+                                                         bounds.get(0), true,
+                                                         bounds.get(1), true,
+                                                         scope);
+                if (selectivity >= 0)
+                    return selectivity;
+            }
+            break;
+        case NodeTypes.LIKE_OPERATOR_NODE:
+            {
+                double selectivity = getLikeSelectivity((LikeEscapeOperatorNode)condition,
+                                                        scope);
+                if (selectivity >= 0)
+                    return selectivity;
+            }
+            break;
+        case NodeTypes.IS_NULL_NODE:
+        case NodeTypes.IS_NOT_NULL_NODE:
+            {
+                ValueNode operand = ((IsNullNode)condition).getOperand();
+                if (operand instanceof ColumnReference) {
+                    ColumnStatistics column = 
+                        getColumnStatistics((ColumnReference)operand, scope);
+                    if (column != null) {
+                        if (condition.getNodeType() == NodeTypes.IS_NULL_NODE)
+                            return column.getNullFraction();
+                        else
+                            return 1 - column.getNullFraction();
+                    }
+                }
+            }
+            break;
+        }
+        return defaults.getSelectivity(condition);
+    }
+
+    protected double getComparisonSelectivity(BinaryComparisonOperatorNode comparison,
+                                              Map<String,FromBaseTable> scope) {
+        int nodeType = comparison.getNodeType();
+        ValueNode left = comparison.getLeftOperand();
+        ValueNode right = comparison.getRightOperand();
+        ColumnStatistics leftColumn = null, rightColumn = null;
+        if (left instanceof ColumnReference)
+            leftColumn = getColumnStatistics((ColumnReference)left, scope);
+        if (right instanceof ColumnReference)
+            rightColumn = getColumnStatistics((ColumnReference)right, scope);
+        if ((leftColumn != null) && (rightColumn != null)) {
+            if (nodeType != NodeTypes.BINARY_EQUALS_OPERATOR_NODE)
+                return defaults.getSelectivity(comparison);
+            // Join: every value on the side with fewer matches one on the other.
+            return ((1 - leftColumn.getNullFraction()) *
+                    (1 - rightColumn.getNullFraction()) /
+                    Math.max(1, Math.max(leftColumn.getDistinctCount(),
+                                         rightColumn.getDistinctCount())));
+        }
+        if (leftColumn == null) {
+            if (rightColumn == null)
+                return defaults.getSelectivity(comparison);
+            // Put the column on the left.
+            ValueNode temp = left;
+            left = right;
+            right = temp;
+            leftColumn = rightColumn;
+            switch (nodeType) {
+            case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+                nodeType = NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE;
+                break;
+            case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+                nodeType = NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE;
+                break;
+            case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+                nodeType = NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE;
+                break;
+            case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+                nodeType = NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE;
+                break;
+            }
+        }
+        double selectivity;
+        switch (nodeType) {
+        case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+            return getEqualsSelectivity(leftColumn, right);
+        case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+            if (isNullConstant(right))
+                return 0;
+            return (1 - leftColumn.getNullFraction() -
+                    getEqualsSelectivity(leftColumn, right));
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+            selectivity = getRangeSelectivity(leftColumn, null, false, right, false);
+            break;
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+            selectivity = getRangeSelectivity(leftColumn, null, false, right, true);
+            break;
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+            selectivity = getRangeSelectivity(leftColumn, right, false, null, false);
+            break;
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+            selectivity = getRangeSelectivity(leftColumn, right, true, null, false);
+            break;
+        default:
+            selectivity = -1;
+        }
+        if (selectivity < 0)
+            return defaults.getSelectivity(comparison);
+        return selectivity;
+    }
+
+    /** The fraction of rows where the column equals the value. */
+    protected double getEqualsSelectivity(ColumnStatistics column, ValueNode value) {
+        if (isNullConstant(value))
+            return 0;
+        double nonNull = 1 - column.getNullFraction();
+        Object constant = constantValue(value);
+        if ((constant != null) && (column.getHistogram() != null)) {
+            double selectivity = column.getHistogram().getEqualsSelectivity(constant);
+            if (selectivity >= 0)
+                return nonNull * selectivity;
+        }
+        return nonNull / Math.max(1, column.getDistinctCount());
+    }
+
+    /** The fraction of rows where the column is between the values,
+     * either of which can be null for no bound.
+     * @return a negative number if not known.
+     */
+    protected double getRangeSelectivity(ColumnStatistics column,
+                                         ValueNode low, boolean lowInclusive,
+                                         ValueNode high, boolean highInclusive) {
+        Histogram histogram = column.getHistogram();
+        if (histogram == null)
+            return -1;
+        if (isNullConstant(low) || isNullConstant(high))
+            return 0;
+        Object lowValue = null, highValue = null;
+        if (low != null) {
+            lowValue = constantValue(low);
+            if (lowValue == null)
+                return -1;
+        }
+        if (high != null) {
+            highValue = constantValue(high);
+            if (highValue == null)
+                return -1;
+        }
+        double selectivity = histogram.getRangeSelectivity(lowValue, lowInclusive,
+                                                           highValue, highInclusive);
+        if (selectivity < 0)
+            return -1;
+        return (1 - column.getNullFraction()) * selectivity;
+    }
+
+    protected double getRangeSelectivity(ValueNode operand,
+                                         ValueNode low, boolean lowInclusive,
+                                         ValueNode high, boolean highInclusive,
+                                         Map<String,FromBaseTable> scope) {
+        if (!(operand instanceof ColumnReference))
+            return -1;
+        ColumnStatistics column = getColumnStatistics((ColumnReference)operand, scope);
+        if (column == null)
+            return -1;
+        return getRangeSelectivity(column, low, lowInclusive, high, highInclusive);
+    }
+
+    protected double getInListSelectivity(InListOperatorNode inList,
+                                          Map<String,FromBaseTable> scope) {
+        RowConstructorNode leftOperand = inList.getLeftOperand();
+        ColumnStatistics column = null;
+        if ((leftOperand.getDepth() == 0) &&
+            (leftOperand.getNodeList().get(0) instanceof ColumnReference))
+            column = getColumnStatistics((ColumnReference)leftOperand.getNodeList().get(0),
+                                         scope);
+        if (column == null)
+            return defaults.getSelectivity(inList);
+        double selectivity = 0;
+        for (ValueNode value : inList.getRightOperandList().getNodeList()) {
+            selectivity += getEqualsSelectivity(column, value);
+        }
+        double nonNull = 1 - column.getNullFraction();
+        selectivity = Math.min(selectivity, nonNull);
+        if (inList.isNegated())
+            selectivity = nonNull - selectivity;
+        return selectivity;
+    }
+
+    /** Treat a pattern with a constant prefix as a range.
+     * @return a negative number if not known.
+     */
+    protected double getLikeSelectivity(LikeEscapeOperatorNode like,
+                                        Map<String,FromBaseTable> scope) {
+        if (!(like.getReceiver() instanceof ColumnReference) ||
+            (like.getRightOperand() != null))
+            return -1;
+        Object pattern = constantValue(like.getLeftOperand());
+        if (!(pattern instanceof String))
+            return -1;
+        ColumnStatistics column = getColumnStatistics((ColumnReference)like.getReceiver(),
+                                                      scope);
+        if (column == null)
+            return -1;
+        String str = (String)pattern;
+        int wildcard = str.length();
+        for (int i = 0; i < str.length(); i++) {
+            char ch = str.charAt(i);
+            if ((ch == '%') || (ch == '_')) {
+                wildcard = i;
+                break;
+            }
+        }
+        if (wildcard == str.length())
+            return getEqualsSelectivity(column, like.getLeftOperand());
+        if ((wildcard == 0) || (column.getHistogram() == null))
+            return -1;
+        String prefix = str.substring(0, wildcard);
+        double selectivity = column.getHistogram()
+            .getRangeSelectivity(prefix, true, prefix + Character.MAX_VALUE, true);
+        if (selectivity < 0)
+            return -1;
+        return (1 - column.getNullFraction()) * selectivity;
+    }
+
+    /* Names */
+
+    /** Get statistics for a column of one of the base tables in scope.
+     * An unqualified column is looked for in all of them.
+     */
+    protected ColumnStatistics getColumnStatistics(ColumnReference column,
+                                                   Map<String,FromBaseTable> scope) {
+        if (column.getTableName() != null) {
+            FromBaseTable table = scope.get(column.getTableName());
+            if (table == null)
+                return null;
+            return getColumnStatistics(table, column.getColumnName());
+        }
+        ColumnStatistics result = null;
+        for (FromBaseTable table : scope.values()) {
+            ColumnStatistics statistics = getColumnStatistics(table, column.getColumnName());
+            if (statistics != null) {
+                if (result != null)
+                    return null; // Ambiguous.
+                result = statistics;
+            }
+        }
+        return result;
+    }
+
+    protected ColumnStatistics getColumnStatistics(FromBaseTable table, String columnName) {
+        TableName tableName = table.getOrigTableName();
+        return statistics.getColumnStatistics(tableName.getSchemaName(), 
+                                              tableName.getTableName(),
+                                              columnName);
+    }
+
+    /** Get the base tables in a SELECT's FROM list by exposed name. */
+    protected Map<String,FromBaseTable> getScope(SelectNode select) {
+        Map<String,FromBaseTable> scope = scopes.get(select);
+        if (scope == null) {
+            scope = new HashMap<String,FromBaseTable>();
+            for (FromTable fromTable : select.getFromList()) {
+                addScope(fromTable, scope);
+            }
+            scopes.put(select, scope);
+        }
+        return scope;
+    }
+
+    protected static void addScope(ResultSetNode node, Map<String,FromBaseTable> scope) {
+        if (node instanceof JoinNode) {
+            addScope(((JoinNode)node).getLeftResultSet(), scope);
+            addScope(((JoinNode)node).getRightResultSet(), scope);
+        }
+        else if (node instanceof FromBaseTable) {
+            FromBaseTable table = (FromBaseTable)node;
+            if (table.getCorrelationName() != null)
+                scope.put(table.getCorrelationName(), table);
+            else
+                scope.put(table.getOrigTableName().getTableName(), table);
+        }
+    }
+
+    protected static Object constantValue(ValueNode node) {
+        if (node instanceof ConstantNode)
+            return ((ConstantNode)node).getValue();
+        return null;
+    }
+
+    protected static boolean isNullConstant(ValueNode node) {
+        return ((node instanceof ConstantNode) && 
+                (((ConstantNode)node).getValue() == null));
+    }
+
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+/** Statistics about the values of one column. */
+public class ColumnStatistics
+{
+    private long distinctCount;
+    private double nullFraction;
+    private Histogram histogram;
+
+    /**
+     * @param distinctCount The number of distinct non-null values.
+     * @param nullFraction The fraction of rows where the column is null.
+     * @param histogram The distribution of non-null values, or null.
+     */
+    public ColumnStatistics(long distinctCount, double nullFraction,
+                            Histogram histogram) {
+        this.distinctCount = distinctCount;
+        this.nullFraction = nullFraction;
+        this.histogram = histogram;
+    }
+
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    public double getNullFraction() {
+        return nullFraction;
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    public String toString() {
+        return "distinct: " + distinctCount + ", null: " + nullFraction +
+            ((histogram != null) ? (", histogram: " + histogram) : "");
+    }
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import java.util.List;
+
+/** Estimates used to choose a join order. */
+public interface CostModel
+{
+    /** Estimate the number of rows of a table that satisfy the given
+     * conditions, which refer to it alone.
+     */
+    public double getRowCount(JoinGraph graph, JoinGraph.Table table,
+                              List<JoinGraph.Predicate> conditions);
+
+    /** Estimate the fraction of rows that satisfy all the given
+     * conditions.
+     */
+    public double getSelectivity(JoinGraph graph,
+                                 List<JoinGraph.Predicate> conditions);
+
+    /** Estimate the cost of a join of inputs of the given sizes, not
+     * counting that of producing them.
+     */
+    public double getJoinCost(double leftRows, double rightRows,
+                              double resultRows, boolean outer);
+}
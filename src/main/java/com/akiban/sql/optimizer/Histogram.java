@@ -0,0 +1,195 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** The distribution of the non-null values of a column, as buckets of
+ * adjacent values in ascending order.
+ *
+ * Values are those of constants in a statement: numbers or strings.
+ * Within a bucket, numbers are assumed to be evenly spread and each
+ * distinct value to have the same number of rows.
+ */
+public class Histogram
+{
+    /** The values from <code>lowerBound</code> to <code>upperBound</code>,
+     * both inclusive.
+     */
+    public static class Bucket {
+        private Object lowerBound, upperBound;
+        private long rowCount, distinctCount;
+
+        public Bucket(Object lowerBound, Object upperBound,
+                      long rowCount, long distinctCount) {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.rowCount = rowCount;
+            this.distinctCount = distinctCount;
+        }
+
+        public Object getLowerBound() {
+            return lowerBound;
+        }
+
+        public Object getUpperBound() {
+            return upperBound;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public long getDistinctCount() {
+            return distinctCount;
+        }
+
+        public String toString() {
+            return "[" + lowerBound + ", " + upperBound + "]: " + 
+                rowCount + "/" + distinctCount;
+        }
+    }
+
+    private List<Bucket> buckets;
+    private long rowCount;
+
+    public Histogram(List<Bucket> buckets) {
+        this.buckets = new ArrayList<Bucket>(buckets);
+        for (Bucket bucket : buckets) {
+            rowCount += bucket.getRowCount();
+        }
+    }
+
+    public List<Bucket> getBuckets() {
+        return Collections.unmodifiableList(buckets);
+    }
+
+    /** The number of non-null rows. */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /** Get the fraction of non-null rows equal to the given value.
+     * @return a negative number if the value is not comparable.
+     */
+    public double getEqualsSelectivity(Object value) {
+        if (rowCount == 0)
+            return 0;
+        for (Bucket bucket : buckets) {
+            Integer lower = compare(value, bucket.getLowerBound());
+            Integer upper = compare(value, bucket.getUpperBound());
+            if ((lower == null) || (upper == null))
+                return -1;
+            if ((lower >= 0) && (upper <= 0))
+                return ((double)bucket.getRowCount() /
+                        Math.max(bucket.getDistinctCount(), 1) /
+                        rowCount);
+        }
+        return 0;
+    }
+
+    /** Get the fraction of non-null rows between the given values.
+     * @param low The lower bound, or null for none.
+     * @param high The upper bound, or null for none.
+     * @return a negative number if the values are not comparable.
+     */
+    public double getRangeSelectivity(Object low, boolean lowInclusive,
+                                      Object high, boolean highInclusive) {
+        if (rowCount == 0)
+            return 0;
+        if ((low != null) && (high != null)) {
+            Integer cmp = compare(low, high);
+            if (cmp == null)
+                return -1;
+            if ((cmp > 0) || ((cmp == 0) && !(lowInclusive && highInclusive)))
+                return 0;
+        }
+        double rows = 0;
+        for (Bucket bucket : buckets) {
+            double fraction = 1.0;
+            boolean lowWithin = false, highWithin = false;
+            if (low != null) {
+                Integer cmp = compare(low, bucket.getUpperBound());
+                if (cmp == null)
+                    return -1;
+                if ((cmp > 0) || ((cmp == 0) && !lowInclusive))
+                    continue;
+                cmp = compare(low, bucket.getLowerBound());
+                if ((cmp != null) && (cmp > 0)) {
+                    fraction -= position(bucket, low);
+                    lowWithin = true;
+                }
+            }
+            if (high != null) {
+                Integer cmp = compare(high, bucket.getLowerBound());
+                if (cmp == null)
+                    return -1;
+                if ((cmp < 0) || ((cmp == 0) && !highInclusive))
+                    continue;
+                cmp = compare(high, bucket.getUpperBound());
+                if ((cmp != null) && (cmp < 0)) {
+                    fraction -= 1.0 - position(bucket, high);
+                    highWithin = true;
+                }
+            }
+            if (lowWithin && highWithin)
+                // Both ends inside one bucket, where position may not
+                // tell them apart: allow for one of its distinct values.
+                fraction = Math.max(fraction, 
+                                    1.0 / Math.max(bucket.getDistinctCount(), 1));
+            if (fraction > 0)
+                rows += bucket.getRowCount() * fraction;
+        }
+        return rows / rowCount;
+    }
+
+    /** How far through the bucket the value comes, from 0 to 1. */
+    protected static double position(Bucket bucket, Object value) {
+        Object lower = bucket.getLowerBound();
+        Object upper = bucket.getUpperBound();
+        if ((value instanceof Number) && 
+            (lower instanceof Number) && (upper instanceof Number)) {
+            double lo = ((Number)lower).doubleValue();
+            double hi = ((Number)upper).doubleValue();
+            if (hi <= lo)
+                return 0.5;
+            double pos = (((Number)value).doubleValue() - lo) / (hi - lo);
+            return Math.max(0.0, Math.min(1.0, pos));
+        }
+        return 0.5;
+    }
+
+    /** Compare two values.
+     * @return null if they are not comparable.
+     */
+    protected static Integer compare(Object v1, Object v2) {
+        if ((v1 instanceof Number) && (v2 instanceof Number))
+            return Double.compare(((Number)v1).doubleValue(), 
+                                  ((Number)v2).doubleValue());
+        if ((v1 instanceof String) && (v2 instanceof String))
+            return ((String)v1).compareTo((String)v2);
+        return null;
+    }
+
+    public String toString() {
+        return buckets.toString();
+    }
+
+}
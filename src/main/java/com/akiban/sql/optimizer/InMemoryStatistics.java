@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Statistics that are given to it directly.
+ *
+ * Those given without a schema name are used for a table of that name
+ * in any schema that has none of its own.
+ */
+public class InMemoryStatistics implements Statistics
+{
+    private Map<String,Long> rowCounts = new HashMap<String,Long>();
+    private Map<String,ColumnStatistics> columns = new HashMap<String,ColumnStatistics>();
+
+    public void setRowCount(String schemaName, String tableName, long rowCount) {
+        rowCounts.put(tableKey(schemaName, tableName), rowCount);
+    }
+
+    public void setColumnStatistics(String schemaName, String tableName,
+                                    String columnName, ColumnStatistics statistics) {
+        columns.put(columnKey(tableKey(schemaName, tableName), columnName), statistics);
+    }
+
+    public long getRowCount(String schemaName, String tableName) {
+        Long rowCount = rowCounts.get(tableKey(schemaName, tableName));
+        if ((rowCount == null) && (schemaName != null))
+            rowCount = rowCounts.get(tableKey(null, tableName));
+        if (rowCount == null)
+            return -1;
+        return rowCount;
+    }
+
+    public ColumnStatistics getColumnStatistics(String schemaName, String tableName,
+                                                String columnName) {
+        ColumnStatistics statistics = 
+            columns.get(columnKey(tableKey(schemaName, tableName), columnName));
+        if ((statistics == null) && (schemaName != null))
+            statistics = columns.get(columnKey(tableKey(null, tableName), columnName));
+        return statistics;
+    }
+
+    protected static String tableKey(String schemaName, String tableName) {
+        if (schemaName == null)
+            return tableName;
+        return schemaName + "." + tableName;
+    }
+
+    protected static String columnKey(String tableKey, String columnName) {
+        return tableKey + "." + columnName;
+    }
+
+}
@@ -0,0 +1,352 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** The tables of a SELECT and the conditions that join them.
+ *
+ * Inner joins, whether written with commas or with <code>JOIN</code>,
+ * are flattened, and their <code>ON</code> clauses are treated like
+ * <code>WHERE</code> conjuncts. The inner side of an outer join is kept
+ * as a single unit, which can only be joined once the tables its
+ * <code>ON</code> clause refers to have been.
+ *
+ * Tables are identified by their position, so that a set of them is a
+ * bit mask.
+ */
+public class JoinGraph
+{
+    /** The most tables a join graph can have. */
+    public static final int MAX_TABLES = 64;
+
+    /** A table, or the inner side of an outer join. */
+    public static class Table {
+        private int index;
+        private FromTable fromTable;
+        private String name;
+        private ValueNode outerJoinCondition;
+        private List<Predicate> outerJoinPredicates;
+        private long required;
+
+        public Table(int index, FromTable fromTable, String name) {
+            this.index = index;
+            this.fromTable = fromTable;
+            this.name = name;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public FromTable getFromTable() {
+            return fromTable;
+        }
+
+        /** The exposed name, or null for the inner side of an outer join
+         * that is itself a join.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public boolean isOuterJoined() {
+            return (outerJoinCondition != null);
+        }
+
+        /** The <code>ON</code> clause of the outer join. */
+        public ValueNode getOuterJoinCondition() {
+            return outerJoinCondition;
+        }
+
+        /** The conjuncts of the <code>ON</code> clause of the outer join. */
+        public List<Predicate> getOuterJoinPredicates() {
+            return outerJoinPredicates;
+        }
+
+        /** The tables that must be on the other side of the outer join. */
+        public long getRequired() {
+            return required;
+        }
+
+        public String toString() {
+            return (name != null) ? name : ("#" + index);
+        }
+    }
+
+    /** A condition from <code>WHERE</code> or an inner join. */
+    public static class Predicate {
+        private ValueNode condition;
+        private long tables;
+        private boolean placeable;
+
+        public Predicate(ValueNode condition, long tables, boolean placeable) {
+            this.condition = condition;
+            this.tables = tables;
+            this.placeable = placeable;
+        }
+
+        public ValueNode getCondition() {
+            return condition;
+        }
+
+        /** The tables this condition refers to. */
+        public long getTables() {
+            return tables;
+        }
+
+        /** Whether the tables this condition refers to are known, so that
+         * it can be moved to the join where they first all appear.
+         * Otherwise it depends on all of them.
+         */
+        public boolean isPlaceable() {
+            return placeable;
+        }
+    }
+
+    private SelectNode select;
+    private List<Table> tables = new ArrayList<Table>();
+    private List<Predicate> predicates = new ArrayList<Predicate>();
+    private Map<String,Table> names = new HashMap<String,Table>();
+    private boolean conjunctiveNormalForm;
+
+    protected JoinGraph(SelectNode select) {
+        this.select = select;
+    }
+
+    /** Extract the join graph of a SELECT.
+     * @return null if its FROM list cannot be taken apart.
+     */
+    public static JoinGraph extract(SelectNode select) throws StandardException {
+        JoinGraph graph = new JoinGraph(select);
+        List<ValueNode> conditions = new ArrayList<ValueNode>();
+        if (select.getWhereClause() != null)
+            graph.conjunctiveNormalForm = addConjuncts(select.getWhereClause(),
+                                                       conditions);
+        List<Table> outerJoined = new ArrayList<Table>();
+        List<Long> preserved = new ArrayList<Long>();
+        for (FromTable fromTable : select.getFromList()) {
+            if (!graph.addTables(fromTable, conditions, outerJoined, preserved))
+                return null;
+        }
+        for (int i = 0; i < outerJoined.size(); i++) {
+            Table table = outerJoined.get(i);
+            List<ValueNode> conjuncts = new ArrayList<ValueNode>();
+            addConjuncts(table.outerJoinCondition, conjuncts);
+            table.outerJoinPredicates = new ArrayList<Predicate>(conjuncts.size());
+            long required = 0;
+            boolean placeable = true;
+            for (ValueNode conjunct : conjuncts) {
+                Predicate predicate = graph.predicate(conjunct);
+                table.outerJoinPredicates.add(predicate);
+                if (predicate.isPlaceable())
+                    required |= predicate.getTables();
+                else
+                    placeable = false;
+            }
+            required &= ~(1L << table.index);
+            if (!placeable || (required == 0))
+                required = preserved.get(i);
+            table.required = required;
+        }
+        for (ValueNode condition : conditions) {
+            graph.predicates.add(graph.predicate(condition));
+        }
+        return graph;
+    }
+
+    public SelectNode getSelect() {
+        return select;
+    }
+
+    public List<Table> getTables() {
+        return tables;
+    }
+
+    public List<Predicate> getPredicates() {
+        return predicates;
+    }
+
+    /** Get the table with this exposed name, or the outer joined unit
+     * that contains it.
+     */
+    public Table getTable(String name) {
+        return names.get(name);
+    }
+
+    /** Whether the <code>WHERE</code> clause was an <code>AND</code>
+     * chain ending in <code>TRUE</code>, as left by normalization.
+     */
+    public boolean isConjunctiveNormalForm() {
+        return conjunctiveNormalForm;
+    }
+
+    /** The bit mask of all the tables. */
+    public long getAllTables() {
+        if (tables.size() == MAX_TABLES)
+            return -1L;
+        return (1L << tables.size()) - 1;
+    }
+
+    protected boolean addTables(ResultSetNode node, List<ValueNode> conditions,
+                                List<Table> outerJoined, List<Long> preserved)
+            throws StandardException {
+        if (node instanceof JoinNode) {
+            JoinNode join = (JoinNode)node;
+            if (join.isNaturalJoin() || (join.getUsingClause() != null))
+                return false;
+            if (join instanceof HalfOuterJoinNode) {
+                ResultSetNode preservedSide, innerSide;
+                if (((HalfOuterJoinNode)join).isRightOuterJoin()) {
+                    preservedSide = join.getRightResultSet();
+                    innerSide = join.getLeftResultSet();
+                }
+                else {
+                    preservedSide = join.getLeftResultSet();
+                    innerSide = join.getRightResultSet();
+                }
+                if (join.getJoinClause() == null)
+                    return false;
+                int start = tables.size();
+                if (!addTables(preservedSide, conditions, outerJoined, preserved))
+                    return false;
+                long mask = 0;
+                for (int i = start; i < tables.size(); i++) {
+                    mask |= (1L << i);
+                }
+                Table table = addTable(innerSide);
+                if (table == null)
+                    return false;
+                table.outerJoinCondition = join.getJoinClause();
+                outerJoined.add(table);
+                preserved.add(mask);
+                return true;
+            }
+            if (join.getNodeType() != NodeTypes.JOIN_NODE)
+                return false;
+            if (!addTables(join.getLeftResultSet(), conditions, outerJoined, preserved) ||
+                !addTables(join.getRightResultSet(), conditions, outerJoined, preserved))
+                return false;
+            if (join.getJoinClause() != null)
+                addConjuncts(join.getJoinClause(), conditions);
+            return true;
+        }
+        else
+            return (addTable(node) != null);
+    }
+
+    protected Table addTable(ResultSetNode node) throws StandardException {
+        if ((tables.size() >= MAX_TABLES) || !(node instanceof FromTable))
+            return null;
+        String name = null;
+        if (!(node instanceof JoinNode))
+            name = exposedName((FromTable)node);
+        Table table = new Table(tables.size(), (FromTable)node, name);
+        if (!addNames(node, table))
+            return null;
+        tables.add(table);
+        return table;
+    }
+
+    protected boolean addNames(ResultSetNode node, Table table) throws StandardException {
+        if (node instanceof JoinNode) {
+            return (addNames(((JoinNode)node).getLeftResultSet(), table) &&
+                    addNames(((JoinNode)node).getRightResultSet(), table));
+        }
+        String name = exposedName((FromTable)node);
+        if ((name == null) || names.containsKey(name))
+            return false;
+        names.put(name, table);
+        return true;
+    }
+
+    protected static String exposedName(FromTable fromTable) {
+        if (fromTable.getCorrelationName() != null)
+            return fromTable.getCorrelationName();
+        else if (fromTable.getOrigTableName() != null)
+            return fromTable.getOrigTableName().getTableName();
+        else
+            return null;
+    }
+
+    /** Make a predicate for this condition, finding the tables it
+     * refers to. References to other tables are from an enclosing query
+     * and so are constant here.
+     */
+    protected Predicate predicate(ValueNode condition) throws StandardException {
+        final long[] mask = { 0 };
+        final boolean[] placeable = { true };
+        condition.accept(new Visitor() {
+                public Visitable visit(Visitable node) {
+                    if (node instanceof ColumnReference) {
+                        String tableName = ((ColumnReference)node).getTableName();
+                        if (tableName == null)
+                            placeable[0] = false;
+                        else {
+                            Table table = names.get(tableName);
+                            if (table != null)
+                                mask[0] |= (1L << table.index);
+                        }
+                    }
+                    else if (node instanceof SubqueryNode)
+                        placeable[0] = false;
+                    return node;
+                }
+                public boolean visitChildrenFirst(Visitable node) {
+                    return false;
+                }
+                public boolean stopTraversal() {
+                    return !placeable[0];
+                }
+                public boolean skipChildren(Visitable node) {
+                    return false;
+                }
+            });
+        if (!placeable[0])
+            return new Predicate(condition, getAllTables(), false);
+        return new Predicate(condition, mask[0], true);
+    }
+
+    /** Add the conjuncts of a condition, except for the <code>TRUE</code>
+     * that ends a normalized one.
+     * @return whether it was normalized.
+     */
+    protected static boolean addConjuncts(ValueNode condition, List<ValueNode> conjuncts) {
+        if (condition instanceof AndNode) {
+            AndNode andNode = (AndNode)condition;
+            addConjuncts(andNode.getLeftOperand(), conjuncts);
+            return addConjuncts(andNode.getRightOperand(), conjuncts);
+        }
+        if (condition.isBooleanTrue())
+            return true;
+        conjuncts.add(condition);
+        return false;
+    }
+
+    public String toString() {
+        return tables.toString();
+    }
+
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Find the cheapest join order for a {@link JoinGraph}.
+ *
+ * Up to {@link #getDynamicProgrammingLimit} tables, every subset of the
+ * tables is given its best plan, built from the best plans of two
+ * subsets that partition it. Beyond that, the pair of plans that is
+ * cheapest to join is joined, until there is only one left.
+ *
+ * The inner side of an outer join only ever appears as the right side
+ * of a join whose left side has all the tables it requires.
+ */
+public class JoinOrderEnumerator
+{
+    public static final int DEFAULT_DYNAMIC_PROGRAMMING_LIMIT = 12;
+    /** The memory needed grows as two to this power. */
+    public static final int MAX_DYNAMIC_PROGRAMMING_LIMIT = 20;
+
+    private CostModel costModel;
+    private int dynamicProgrammingLimit = DEFAULT_DYNAMIC_PROGRAMMING_LIMIT;
+
+    public JoinOrderEnumerator(CostModel costModel) {
+        this.costModel = costModel;
+    }
+
+    public CostModel getCostModel() {
+        return costModel;
+    }
+
+    /** Get the largest number of tables for which all orders are
+     * considered.
+     */
+    public int getDynamicProgrammingLimit() {
+        return dynamicProgrammingLimit;
+    }
+
+    public void setDynamicProgrammingLimit(int dynamicProgrammingLimit) {
+        if (dynamicProgrammingLimit > MAX_DYNAMIC_PROGRAMMING_LIMIT)
+            throw new IllegalArgumentException("Dynamic programming limit too large: " +
+                                               dynamicProgrammingLimit);
+        this.dynamicProgrammingLimit = dynamicProgrammingLimit;
+    }
+
+    /** Find the cheapest plan joining all the tables.
+     * @return null if the constraints on outer joins cannot be met.
+     */
+    public JoinPlan enumerate(JoinGraph graph) {
+        List<JoinGraph.Table> tables = graph.getTables();
+        JoinPlan[] plans = new JoinPlan[tables.size()];
+        for (int i = 0; i < plans.length; i++) {
+            plans[i] = tablePlan(graph, tables.get(i));
+        }
+        if (plans.length <= dynamicProgrammingLimit)
+            return dynamicProgramming(graph, plans);
+        else
+            return greedy(graph, plans);
+    }
+
+    protected JoinPlan tablePlan(JoinGraph graph, JoinGraph.Table table) {
+        long mask = 1L << table.getIndex();
+        List<JoinGraph.Predicate> conditions = new ArrayList<JoinGraph.Predicate>();
+        for (JoinGraph.Predicate predicate : graph.getPredicates()) {
+            if (predicate.getTables() == mask)
+                conditions.add(predicate);
+        }
+        return new JoinPlan(table, conditions,
+                            costModel.getRowCount(graph, table, conditions));
+    }
+
+    protected JoinPlan dynamicProgramming(JoinGraph graph, JoinPlan[] tablePlans) {
+        int ntables = tablePlans.length;
+        int all = (1 << ntables) - 1;
+        JoinPlan[] best = new JoinPlan[all + 1];
+        for (int i = 0; i < ntables; i++) {
+            best[1 << i] = tablePlans[i];
+        }
+        for (int set = 1; set <= all; set++) {
+            if ((set & (set - 1)) == 0)
+                continue;       // A single table.
+            JoinPlan bestPlan = null;
+            for (int left = (set - 1) & set; left > 0; left = (left - 1) & set) {
+                JoinPlan leftPlan = best[left];
+                JoinPlan rightPlan = best[set ^ left];
+                if ((leftPlan == null) || (rightPlan == null))
+                    continue;
+                JoinPlan plan = join(graph, leftPlan, rightPlan);
+                if ((plan != null) &&
+                    ((bestPlan == null) || (plan.getCost() < bestPlan.getCost())))
+                    bestPlan = plan;
+            }
+            best[set] = bestPlan;
+        }
+        return best[all];
+    }
+
+    protected JoinPlan greedy(JoinGraph graph, JoinPlan[] tablePlans) {
+        List<JoinPlan> plans = new ArrayList<JoinPlan>(tablePlans.length);
+        for (JoinPlan plan : tablePlans) {
+            plans.add(plan);
+        }
+        while (plans.size() > 1) {
+            JoinPlan bestPlan = null;
+            int bestLeft = -1, bestRight = -1;
+            for (int i = 0; i < plans.size(); i++) {
+                for (int j = 0; j < plans.size(); j++) {
+                    if (i == j)
+                        continue;
+                    JoinPlan plan = join(graph, plans.get(i), plans.get(j));
+                    if ((plan != null) &&
+                        ((bestPlan == null) || (plan.getCost() < bestPlan.getCost()))) {
+                        bestPlan = plan;
+                        bestLeft = i;
+                        bestRight = j;
+                    }
+                }
+            }
+            if (bestPlan == null)
+                return null;
+            plans.remove(Math.max(bestLeft, bestRight));
+            plans.remove(Math.min(bestLeft, bestRight));
+            plans.add(bestPlan);
+        }
+        return plans.get(0);
+    }
+
+    /** Join two plans, if allowed.
+     * @return null if not.
+     */
+    protected JoinPlan join(JoinGraph graph, JoinPlan left, JoinPlan right) {
+        if (left.isTable() && left.getTable().isOuterJoined())
+            return null;
+        boolean outer = (right.isTable() && right.getTable().isOuterJoined());
+        if (outer && ((right.getTable().getRequired() & ~left.getTables()) != 0))
+            return null;
+        long leftTables = left.getTables();
+        long rightTables = right.getTables();
+        long tables = leftTables | rightTables;
+        List<JoinGraph.Predicate> conditions = new ArrayList<JoinGraph.Predicate>();
+        for (JoinGraph.Predicate predicate : graph.getPredicates()) {
+            long mask = predicate.getTables();
+            if (((mask & ~tables) == 0) &&
+                ((mask & ~leftTables) != 0) &&
+                ((mask & ~rightTables) != 0))
+                conditions.add(predicate);
+        }
+        double leftRows = left.getRowCount();
+        double rightRows = right.getRowCount();
+        double rowCount;
+        if (outer) {
+            double matched = leftRows * rightRows *
+                costModel.getSelectivity(graph, right.getTable().getOuterJoinPredicates());
+            // Every row on the left appears at least once.
+            rowCount = Math.max(leftRows, matched);
+        }
+        else
+            rowCount = leftRows * rightRows;
+        rowCount *= costModel.getSelectivity(graph, conditions);
+        double cost = left.getCost() + right.getCost() +
+            costModel.getJoinCost(leftRows, rightRows, rowCount, outer);
+        return new JoinPlan(left, right, outer, conditions, rowCount, cost);
+    }
+
+}
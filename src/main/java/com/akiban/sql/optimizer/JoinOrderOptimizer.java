@@ -0,0 +1,195 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/** Reorder the joins in each SELECT whose FROM list allows it.
+ *
+ * The FROM list is replaced by a single tree of joins in the order
+ * chosen by a {@link JoinOrderEnumerator} and then marked as having a
+ * fixed join order. Each condition that joins tables is moved from
+ * <code>WHERE</code> to the <code>ON</code> clause of the inner join
+ * where all its tables first come together. Conditions on a single
+ * table stay in <code>WHERE</code>.
+ *
+ * A FROM list that is already fixed, or has the <code>joinOrder=FIXED</code>
+ * property, is left alone, as is one whose columns a <code>SELECT *</code>
+ * would return in order.
+ */
+public class JoinOrderOptimizer implements Visitor
+{
+    public static final String JOIN_ORDER_PROPERTY = "joinOrder";
+
+    SQLParserContext parserContext;
+    NodeFactory nodeFactory;
+    JoinOrderEnumerator enumerator;
+    public JoinOrderOptimizer(SQLParserContext parserContext, CostModel costModel) {
+        this.parserContext = parserContext;
+        this.nodeFactory = parserContext.getNodeFactory();
+        this.enumerator = new JoinOrderEnumerator(costModel);
+    }
+
+    public JoinOrderEnumerator getEnumerator() {
+        return enumerator;
+    }
+
+    /** Reorder joins anywhere in this statement. */
+    public StatementNode optimize(StatementNode stmt) throws StandardException {
+        return (StatementNode)stmt.accept(this);
+    }
+
+    /** Reorder the joins in this SELECT's FROM list. */
+    public void selectNode(SelectNode node) throws StandardException {
+        if (isFixedJoinOrder(node.getFromList()))
+            return;
+        for (ResultColumn resultColumn : node.getResultColumns()) {
+            if ((resultColumn instanceof AllResultColumn) &&
+                (resultColumn.getTableNameObject() == null))
+                return;
+        }
+        JoinGraph graph = JoinGraph.extract(node);
+        if ((graph == null) || (graph.getTables().size() < 2))
+            return;
+        JoinPlan plan = enumerator.enumerate(graph);
+        if (plan == null)
+            return;
+        rewrite(graph, plan);
+    }
+
+    protected static boolean isFixedJoinOrder(FromList fromList) {
+        if (fromList.isFixedJoinOrder())
+            return true;
+        Properties properties = fromList.getProperties();
+        return ((properties != null) &&
+                "FIXED".equalsIgnoreCase(properties.getProperty(JOIN_ORDER_PROPERTY)));
+    }
+
+    /** Replace the graph's SELECT's FROM list with the plan's joins. */
+    protected void rewrite(JoinGraph graph, JoinPlan plan) throws StandardException {
+        Set<JoinGraph.Predicate> placed =
+            Collections.newSetFromMap(new IdentityHashMap<JoinGraph.Predicate,Boolean>());
+        FromTable joins = joinTree(plan, placed, graph.isConjunctiveNormalForm());
+        List<ValueNode> conditions = new ArrayList<ValueNode>();
+        for (JoinGraph.Predicate predicate : graph.getPredicates()) {
+            if (!placed.contains(predicate))
+                conditions.add(predicate.getCondition());
+        }
+        SelectNode select = graph.getSelect();
+        select.setWhereClause(combineConditions(conditions,
+                                                graph.isConjunctiveNormalForm()));
+        FromList fromList = select.getFromList();
+        fromList.clear();
+        fromList.add(joins);
+        fromList.setFixedJoinOrder(true);
+    }
+
+    protected FromTable joinTree(JoinPlan plan, Set<JoinGraph.Predicate> placed,
+                                 boolean cnf)
+            throws StandardException {
+        if (plan.isTable())
+            return plan.getTable().getFromTable();
+        FromTable left = joinTree(plan.getLeft(), placed, cnf);
+        FromTable right = joinTree(plan.getRight(), placed, cnf);
+        if (plan.isOuter())
+            return (FromTable)nodeFactory.getNode(NodeTypes.HALF_OUTER_JOIN_NODE,
+                                                  left, right,
+                                                  plan.getRight().getTable().getOuterJoinCondition(),
+                                                  null, Boolean.FALSE, null,
+                                                  parserContext);
+        List<ValueNode> conditions = new ArrayList<ValueNode>();
+        for (JoinGraph.Predicate predicate : plan.getConditions()) {
+            if (predicate.isPlaceable()) {
+                conditions.add(predicate.getCondition());
+                placed.add(predicate);
+            }
+        }
+        ValueNode joinClause = combineConditions(conditions, cnf);
+        if (joinClause == null)
+            joinClause = (ValueNode)nodeFactory.getNode(NodeTypes.BOOLEAN_CONSTANT_NODE,
+                                                        Boolean.TRUE,
+                                                        parserContext);
+        return (FromTable)nodeFactory.getNode(NodeTypes.JOIN_NODE,
+                                              left, right, joinClause,
+                                              null, null, null, null,
+                                              parserContext);
+    }
+
+    /** Make an <code>AND</code> of the given conditions, ending in
+     * <code>TRUE</code> if in conjunctive normal form.
+     * @return null if there are none.
+     */
+    protected ValueNode combineConditions(List<ValueNode> conditions, boolean cnf)
+            throws StandardException {
+        if (conditions.isEmpty())
+            return null;
+        ValueNode result = null;
+        if (cnf) {
+            result = (ValueNode)nodeFactory.getNode(NodeTypes.BOOLEAN_CONSTANT_NODE,
+                                                    Boolean.TRUE,
+                                                    parserContext);
+            for (int i = conditions.size() - 1; i >= 0; i--) {
+                result = (ValueNode)nodeFactory.getNode(NodeTypes.AND_NODE,
+                                                        conditions.get(i), result,
+                                                        parserContext);
+            }
+        }
+        else {
+            for (ValueNode condition : conditions) {
+                if (result == null)
+                    result = condition;
+                else
+                    result = (ValueNode)nodeFactory.getNode(NodeTypes.AND_NODE,
+                                                            result, condition,
+                                                            parserContext);
+            }
+        }
+        return result;
+    }
+
+    /* Visitor interface */
+
+    public Visitable visit(Visitable node) throws StandardException {
+        switch (((QueryTreeNode)node).getNodeType()) {
+        case NodeTypes.SELECT_NODE:
+            selectNode((SelectNode)node);
+            break;
+        }
+        return node;
+    }
+
+    public boolean visitChildrenFirst(Visitable node) {
+        return false;
+    }
+    public boolean stopTraversal() {
+        return false;
+    }
+    public boolean skipChildren(Visitable node) throws StandardException {
+        return false;
+    }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import java.util.List;
+
+/** A join tree over some of the tables of a {@link JoinGraph}, with its
+ * estimated size and cost.
+ */
+public class JoinPlan
+{
+    private long tables;
+    private JoinGraph.Table table;
+    private JoinPlan left, right;
+    private boolean outer;
+    private List<JoinGraph.Predicate> conditions;
+    private double rowCount, cost;
+
+    /** A single table, filtered by the given conditions. */
+    public JoinPlan(JoinGraph.Table table, List<JoinGraph.Predicate> conditions,
+                    double rowCount) {
+        this.tables = 1L << table.getIndex();
+        this.table = table;
+        this.conditions = conditions;
+        this.rowCount = rowCount;
+    }
+
+    /** A join, where the given conditions first become applicable. */
+    public JoinPlan(JoinPlan left, JoinPlan right, boolean outer,
+                    List<JoinGraph.Predicate> conditions,
+                    double rowCount, double cost) {
+        this.tables = left.tables | right.tables;
+        this.left = left;
+        this.right = right;
+        this.outer = outer;
+        this.conditions = conditions;
+        this.rowCount = rowCount;
+        this.cost = cost;
+    }
+
+    /** The tables joined by this plan. */
+    public long getTables() {
+        return tables;
+    }
+
+    public boolean isTable() {
+        return (table != null);
+    }
+
+    public JoinGraph.Table getTable() {
+        return table;
+    }
+
+    public JoinPlan getLeft() {
+        return left;
+    }
+
+    public JoinPlan getRight() {
+        return right;
+    }
+
+    /** Whether this is a left outer join, with its <code>ON</code> clause
+     * coming from the right table.
+     */
+    public boolean isOuter() {
+        return outer;
+    }
+
+    /** The conditions first applicable here, which are not part of an
+     * outer join's <code>ON</code> clause.
+     */
+    public List<JoinGraph.Predicate> getConditions() {
+        return conditions;
+    }
+
+    public double getRowCount() {
+        return rowCount;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public String toString() {
+        if (table != null)
+            return table.toString();
+        return "(" + left + (outer ? " LEFT " : " JOIN ") + right + ")";
+    }
+
+}
@@ -0,0 +1,479 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Find the values of each table's shard key needed by a statement, so
+ * that it need only be sent to the shards holding them.
+ *
+ * Each SELECT (including those made for <code>UPDATE</code> and
+ * <code>DELETE</code>) is looked at separately. Conjuncts of
+ * <code>WHERE</code> restrict all the tables in its FROM list; those
+ * of a join's <code>ON</code> clause restrict only the tables on the
+ * side(s) that are not preserved. Equalities, <code>IN</code>,
+ * <code>BETWEEN</code> and other comparisons with constants or
+ * parameters restrict a column's values, with <code>AND</code>
+ * intersecting them and <code>OR</code> combining them. Equalities
+ * between columns make their values the same; in an outer join's
+ * <code>ON</code> clause, values only pass from the preserved side.
+ *
+ * This works equally well before or after boolean normalization.
+ * A table not in the map from table name to shard key column is not
+ * included in the result. A column only refers to a table if it is
+ * qualified by its exposed name or it is the only table.
+ */
+public class ShardKeyAnalyzer implements Visitor
+{
+    /** A column of a particular table in a FROM list. */
+    static class Column {
+        private FromBaseTable table;
+        private String name;
+
+        public Column(FromBaseTable table, String name) {
+            this.table = table;
+            this.name = name;
+        }
+
+        public boolean equals(Object other) {
+            if (!(other instanceof Column)) 
+                return false;
+            Column otherColumn = (Column)other;
+            return ((table == otherColumn.table) && name.equals(otherColumn.name));
+        }
+
+        public int hashCode() {
+            return System.identityHashCode(table) * 31 + name.hashCode();
+        }
+    }
+
+    private Map<String,String> shardKeys;
+    private Map<FromBaseTable,ShardKeyValues> results;
+
+    /** @param shardKeys the shard key column of each table, by table
+     * name, optionally qualified by schema.
+     */
+    public ShardKeyAnalyzer(Map<String,String> shardKeys) {
+        this.shardKeys = shardKeys;
+    }
+
+    /** Get the shard key values needed from each sharded table in the
+     * statement.
+     */
+    public Map<FromBaseTable,ShardKeyValues> analyze(StatementNode stmt) 
+            throws StandardException {
+        results = new IdentityHashMap<FromBaseTable,ShardKeyValues>();
+        stmt.accept(this);
+        return results;
+    }
+
+    /** Get the shard key column of the given table, or null if it is not sharded. */
+    public String getShardKey(FromBaseTable table) {
+        TableName tableName = table.getOrigTableName();
+        String shardKey = null;
+        if (tableName.getSchemaName() != null)
+            shardKey = shardKeys.get(tableName.getFullTableName());
+        if (shardKey == null)
+            shardKey = shardKeys.get(tableName.getTableName());
+        return shardKey;
+    }
+
+    /** Find the shard keys for the tables in this SELECT's FROM list. */
+    public void selectNode(SelectNode node) throws StandardException {
+        Map<String,FromBaseTable> scope = new HashMap<String,FromBaseTable>();
+        Map<FromBaseTable,Boolean> all = new IdentityHashMap<FromBaseTable,Boolean>();
+        for (FromTable fromTable : node.getFromList()) {
+            addTables(fromTable, scope, all);
+        }
+        Map<Column,ShardKeyValues> columns = new HashMap<Column,ShardKeyValues>();
+        Map<Column,Column> classes = new HashMap<Column,Column>();
+        List<Column[]> directed = new ArrayList<Column[]>();
+        if (node.getWhereClause() != null)
+            addConjuncts(node.getWhereClause(), all.keySet(), scope, 
+                         columns, classes, directed);
+        for (FromTable fromTable : node.getFromList()) {
+            addJoinConditions(fromTable, scope, columns, classes, directed);
+        }
+        // All the columns in a class of equal columns have the values
+        // common to all of them.
+        Map<Column,ShardKeyValues> classValues = new HashMap<Column,ShardKeyValues>();
+        for (Map.Entry<Column,ShardKeyValues> entry : columns.entrySet()) {
+            Column root = find(classes, entry.getKey());
+            ShardKeyValues values = classValues.get(root);
+            if (values == null)
+                values = entry.getValue();
+            else
+                values = values.intersect(entry.getValue());
+            classValues.put(root, values);
+        }
+        // Then pass values out of preserved sides of outer joins, as
+        // many times as it might take to get through them all.
+        for (int i = 0; i < directed.size(); i++) {
+            for (Column[] edge : directed) {
+                ShardKeyValues from = classValues.get(find(classes, edge[0]));
+                if (from == null)
+                    continue;
+                Column to = find(classes, edge[1]);
+                ShardKeyValues values = classValues.get(to);
+                if (values == null)
+                    values = from;
+                else
+                    values = values.intersect(from);
+                classValues.put(to, values);
+            }
+        }
+        for (FromBaseTable table : all.keySet()) {
+            String shardKey = getShardKey(table);
+            if (shardKey == null)
+                continue;
+            ShardKeyValues values = classValues.get(find(classes, 
+                                                         new Column(table, shardKey)));
+            if (values == null)
+                values = ShardKeyValues.all();
+            results.put(table, values);
+        }
+    }
+
+    protected static void addTables(ResultSetNode node, 
+                                    Map<String,FromBaseTable> scope,
+                                    Map<FromBaseTable,Boolean> tables) {
+        if (node instanceof JoinNode) {
+            addTables(((JoinNode)node).getLeftResultSet(), scope, tables);
+            addTables(((JoinNode)node).getRightResultSet(), scope, tables);
+        }
+        else if (node instanceof FromBaseTable) {
+            FromBaseTable table = (FromBaseTable)node;
+            if (table.getCorrelationName() != null)
+                scope.put(table.getCorrelationName(), table);
+            else
+                scope.put(table.getOrigTableName().getTableName(), table);
+            tables.put(table, Boolean.TRUE);
+        }
+    }
+
+    protected void addJoinConditions(ResultSetNode node, 
+                                     Map<String,FromBaseTable> scope,
+                                     Map<Column,ShardKeyValues> columns,
+                                     Map<Column,Column> classes,
+                                     List<Column[]> directed) {
+        if (!(node instanceof JoinNode))
+            return;
+        JoinNode join = (JoinNode)node;
+        addJoinConditions(join.getLeftResultSet(), scope, columns, classes, directed);
+        addJoinConditions(join.getRightResultSet(), scope, columns, classes, directed);
+        if (join.getJoinClause() == null)
+            return;
+        Map<FromBaseTable,Boolean> restricted = new IdentityHashMap<FromBaseTable,Boolean>();
+        Map<String,FromBaseTable> ignored = new HashMap<String,FromBaseTable>();
+        if (join instanceof HalfOuterJoinNode) {
+            if (((HalfOuterJoinNode)join).isRightOuterJoin())
+                addTables(join.getLeftResultSet(), ignored, restricted);
+            else
+                addTables(join.getRightResultSet(), ignored, restricted);
+        }
+        else
+            addTables(join, ignored, restricted);
+        addConjuncts(join.getJoinClause(), restricted.keySet(), scope, 
+                     columns, classes, directed);
+    }
+
+    /** Add the restrictions from each conjunct of the given condition
+     * on columns of the given tables.
+     */
+    protected void addConjuncts(ValueNode condition, Set<FromBaseTable> restricted,
+                                Map<String,FromBaseTable> scope,
+                                Map<Column,ShardKeyValues> columns,
+                                Map<Column,Column> classes,
+                                List<Column[]> directed) {
+        if (condition instanceof AndNode) {
+            AndNode andNode = (AndNode)condition;
+            addConjuncts(andNode.getLeftOperand(), restricted, scope, 
+                         columns, classes, directed);
+            addConjuncts(andNode.getRightOperand(), restricted, scope, 
+                         columns, classes, directed);
+            return;
+        }
+        if (condition.getNodeType() == NodeTypes.BINARY_EQUALS_OPERATOR_NODE) {
+            BinaryComparisonOperatorNode equals = (BinaryComparisonOperatorNode)condition;
+            Column left = getColumn(equals.getLeftOperand(), scope);
+            Column right = getColumn(equals.getRightOperand(), scope);
+            if ((left != null) && (right != null)) {
+                boolean leftRestricted = restricted.contains(left.table);
+                boolean rightRestricted = restricted.contains(right.table);
+                if (leftRestricted && rightRestricted)
+                    union(classes, left, right);
+                else if (leftRestricted)
+                    directed.add(new Column[] { right, left });
+                else if (rightRestricted)
+                    directed.add(new Column[] { left, right });
+                return;
+            }
+        }
+        if (condition.isBooleanFalse()) {
+            for (FromBaseTable table : restricted) {
+                String shardKey = getShardKey(table);
+                if (shardKey != null)
+                    columns.put(new Column(table, shardKey), ShardKeyValues.none());
+            }
+            return;
+        }
+        Map<Column,ShardKeyValues> conjunct = getValues(condition, scope);
+        if (conjunct == null)
+            return;
+        for (Map.Entry<Column,ShardKeyValues> entry : conjunct.entrySet()) {
+            Column column = entry.getKey();
+            if (!restricted.contains(column.table))
+                continue;
+            ShardKeyValues values = columns.get(column);
+            if (values == null)
+                values = entry.getValue();
+            else
+                values = values.intersect(entry.getValue());
+            columns.put(column, values);
+        }
+    }
+
+    /** Get the values of columns for which the condition is true.
+     * @return null if it does not restrict any.
+     */
+    protected Map<Column,ShardKeyValues> getValues(ValueNode condition,
+                                                   Map<String,FromBaseTable> scope) {
+        switch (condition.getNodeType()) {
+        case NodeTypes.AND_NODE:
+            {
+                AndNode andNode = (AndNode)condition;
+                Map<Column,ShardKeyValues> left = getValues(andNode.getLeftOperand(), scope);
+                Map<Column,ShardKeyValues> right = getValues(andNode.getRightOperand(), scope);
+                if (left == null)
+                    return right;
+                if (right == null)
+                    return left;
+                for (Map.Entry<Column,ShardKeyValues> entry : right.entrySet()) {
+                    ShardKeyValues values = left.get(entry.getKey());
+                    if (values == null)
+                        values = entry.getValue();
+                    else
+                        values = values.intersect(entry.getValue());
+                    left.put(entry.getKey(), values);
+                }
+                return left;
+            }
+        case NodeTypes.OR_NODE:
+            {
+                OrNode orNode = (OrNode)condition;
+                // FALSE ends a normalized chain and adds nothing.
+                if (orNode.getRightOperand().isBooleanFalse())
+                    return getValues(orNode.getLeftOperand(), scope);
+                if (orNode.getLeftOperand().isBooleanFalse())
+                    return getValues(orNode.getRightOperand(), scope);
+                Map<Column,ShardKeyValues> left = getValues(orNode.getLeftOperand(), scope);
+                Map<Column,ShardKeyValues> right = getValues(orNode.getRightOperand(), scope);
+                if ((left == null) || (right == null))
+                    return null;
+                Map<Column,ShardKeyValues> result = new HashMap<Column,ShardKeyValues>();
+                for (Map.Entry<Column,ShardKeyValues> entry : left.entrySet()) {
+                    ShardKeyValues values = right.get(entry.getKey());
+                    if (values != null)
+                        result.put(entry.getKey(), entry.getValue().union(values));
+                }
+                if (result.isEmpty())
+                    return null;
+                return result;
+            }
+        case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+            return getComparisonValues((BinaryComparisonOperatorNode)condition, scope);
+        case NodeTypes.IN_LIST_OPERATOR_NODE:
+            {
+                InListOperatorNode inList = (InListOperatorNode)condition;
+                if (inList.isNegated() || (inList.getLeftOperand().getDepth() > 0))
+                    return null;
+                Column column = getColumn(inList.getLeftOperand().getNodeList().get(0), 
+                                          scope);
+                if (column == null)
+                    return null;
+                List<ValueNode> values = new ArrayList<ValueNode>();
+                for (ValueNode value : inList.getRightOperandList().getNodeList()) {
+                    if (!isValue(value))
+                        return null;
+                    if (!isNullConstant(value))
+                        values.add(value);
+                }
+                return singleton(column, ShardKeyValues.values(values));
+            }
+        case NodeTypes.BETWEEN_OPERATOR_NODE:
+            {
+                BetweenOperatorNode between = (BetweenOperatorNode)condition;
+                Column column = getColumn(between.getLeftOperand(), scope);
+                if (column == null)
+                    return null;
+                ValueNode low = between.getRightOperandList().get(0);
+                ValueNode high = between.getRightOperandList().get(1);
+                if (isNullConstant(low) || isNullConstant(high))
+                    return singleton(column, ShardKeyValues.none());
+                if (!(low instanceof ConstantNode) || !(high instanceof ConstantNode))
+                    return null;
+                return singleton(column,
+                                 ShardKeyValues.range(((ConstantNode)low).getValue(), true,
+                                                      ((ConstantNode)high).getValue(), true));
+            }
+        default:
+            return null;
+        }
+    }
+
+    protected Map<Column,ShardKeyValues> getComparisonValues(BinaryComparisonOperatorNode comparison,
+                                                             Map<String,FromBaseTable> scope) {
+        int nodeType = comparison.getNodeType();
+        ValueNode value = comparison.getRightOperand();
+        Column column = getColumn(comparison.getLeftOperand(), scope);
+        if (column == null) {
+            // Put the column on the left.
+            value = comparison.getLeftOperand();
+            column = getColumn(comparison.getRightOperand(), scope);
+            if (column == null)
+                return null;
+            switch (nodeType) {
+            case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+                nodeType = NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE;
+                break;
+            case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+                nodeType = NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE;
+                break;
+            case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+                nodeType = NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE;
+                break;
+            case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+                nodeType = NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE;
+                break;
+            }
+        }
+        if (!isValue(value))
+            return null;
+        if (isNullConstant(value))
+            return singleton(column, ShardKeyValues.none());
+        if (nodeType == NodeTypes.BINARY_EQUALS_OPERATOR_NODE)
+            return singleton(column, ShardKeyValues.values(Collections.singletonList(value)));
+        if (!(value instanceof ConstantNode))
+            return null;
+        Object constant = ((ConstantNode)value).getValue();
+        ShardKeyValues values;
+        switch (nodeType) {
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+            values = ShardKeyValues.range(null, false, constant, false);
+            break;
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+            values = ShardKeyValues.range(null, false, constant, true);
+            break;
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+            values = ShardKeyValues.range(constant, false, null, false);
+            break;
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+            values = ShardKeyValues.range(constant, true, null, false);
+            break;
+        default:
+            return null;
+        }
+        return singleton(column, values);
+    }
+
+    /** Get the column of one of the tables in scope that this refers to, if any. */
+    protected static Column getColumn(ValueNode node, Map<String,FromBaseTable> scope) {
+        if (!(node instanceof ColumnReference))
+            return null;
+        ColumnReference columnReference = (ColumnReference)node;
+        FromBaseTable table;
+        if (columnReference.getTableName() != null)
+            table = scope.get(columnReference.getTableName());
+        else if (scope.size() == 1)
+            table = scope.values().iterator().next();
+        else
+            table = null;
+        if (table == null)
+            return null;
+        return new Column(table, columnReference.getColumnName());
+    }
+
+    protected static boolean isValue(ValueNode node) {
+        return ((node instanceof ConstantNode) || (node instanceof ParameterNode));
+    }
+
+    protected static boolean isNullConstant(ValueNode node) {
+        return ((node instanceof ConstantNode) && 
+                (((ConstantNode)node).getValue() == null));
+    }
+
+    protected static Map<Column,ShardKeyValues> singleton(Column column, 
+                                                         ShardKeyValues values) {
+        Map<Column,ShardKeyValues> result = new HashMap<Column,ShardKeyValues>();
+        result.put(column, values);
+        return result;
+    }
+
+    protected static Column find(Map<Column,Column> classes, Column column) {
+        Column parent = classes.get(column);
+        if (parent == null)
+            return column;
+        Column root = find(classes, parent);
+        if (root != parent)
+            classes.put(column, root);
+        return root;
+    }
+
+    protected static void union(Map<Column,Column> classes, Column c1, Column c2) {
+        Column r1 = find(classes, c1);
+        Column r2 = find(classes, c2);
+        if (!r1.equals(r2))
+            classes.put(r1, r2);
+    }
+
+    /* Visitor interface */
+
+    public Visitable visit(Visitable node) throws StandardException {
+        switch (((QueryTreeNode)node).getNodeType()) {
+        case NodeTypes.SELECT_NODE:
+            selectNode((SelectNode)node);
+            break;
+        }
+        return node;
+    }
+
+    public boolean visitChildrenFirst(Visitable node) {
+        return false;
+    }
+    public boolean stopTraversal() {
+        return false;
+    }
+    public boolean skipChildren(Visitable node) throws StandardException {
+        return false;
+    }
+
+}
@@ -0,0 +1,383 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import com.akiban.sql.parser.ConstantNode;
+import com.akiban.sql.parser.ParameterNode;
+import com.akiban.sql.parser.ValueNode;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** The values a shard key can take in the rows a statement needs: any
+ * of a list of values, which are constants or parameters, or any value
+ * in one of a list of ranges.
+ *
+ * These are always a superset of the values actually needed: when two
+ * values cannot be compared, both are kept. Numbers are compared
+ * exactly. Strings are only known to be equal when they are the same,
+ * since the column's collation (case, trailing spaces) is not known.
+ */
+public class ShardKeyValues
+{
+    /** A range of constant values. A null bound is unbounded. */
+    public static class Range {
+        private Object low, high;
+        private boolean lowInclusive, highInclusive;
+
+        public Range(Object low, boolean lowInclusive,
+                     Object high, boolean highInclusive) {
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+        }
+
+        public Object getLow() {
+            return low;
+        }
+        public boolean isLowInclusive() {
+            return lowInclusive;
+        }
+        public Object getHigh() {
+            return high;
+        }
+        public boolean isHighInclusive() {
+            return highInclusive;
+        }
+
+        public boolean isUnbounded() {
+            return ((low == null) && (high == null));
+        }
+
+        /** Whether the range has no values, so far as can be told. */
+        public boolean isEmpty() {
+            if ((low == null) || (high == null))
+                return false;
+            Integer cmp = compare(low, high);
+            if (cmp == null)
+                return false;
+            return ((cmp > 0) || ((cmp == 0) && !(lowInclusive && highInclusive)));
+        }
+
+        /** Whether the range contains the given value.
+         * @return null if not known.
+         */
+        public Boolean contains(Object value) {
+            if (low != null) {
+                Integer cmp = compare(value, low);
+                if (cmp == null)
+                    return null;
+                if ((cmp < 0) || ((cmp == 0) && !lowInclusive))
+                    return Boolean.FALSE;
+            }
+            if (high != null) {
+                Integer cmp = compare(value, high);
+                if (cmp == null)
+                    return null;
+                if ((cmp > 0) || ((cmp == 0) && !highInclusive))
+                    return Boolean.FALSE;
+            }
+            return Boolean.TRUE;
+        }
+
+        /** The values in both ranges, or this range if the bounds cannot
+         * be compared.
+         */
+        public Range intersect(Range other) {
+            Object newLow = low, newHigh = high;
+            boolean newLowInclusive = lowInclusive, newHighInclusive = highInclusive;
+            if (other.low != null) {
+                if (low == null) {
+                    newLow = other.low;
+                    newLowInclusive = other.lowInclusive;
+                }
+                else {
+                    Integer cmp = compare(low, other.low);
+                    if (cmp == null)
+                        return this;
+                    if (cmp < 0) {
+                        newLow = other.low;
+                        newLowInclusive = other.lowInclusive;
+                    }
+                    else if (cmp == 0)
+                        newLowInclusive = lowInclusive && other.lowInclusive;
+                }
+            }
+            if (other.high != null) {
+                if (high == null) {
+                    newHigh = other.high;
+                    newHighInclusive = other.highInclusive;
+                }
+                else {
+                    Integer cmp = compare(high, other.high);
+                    if (cmp == null)
+                        return this;
+                    if (cmp > 0) {
+                        newHigh = other.high;
+                        newHighInclusive = other.highInclusive;
+                    }
+                    else if (cmp == 0)
+                        newHighInclusive = highInclusive && other.highInclusive;
+                }
+            }
+            return new Range(newLow, newLowInclusive, newHigh, newHighInclusive);
+        }
+
+        public String toString() {
+            StringBuilder str = new StringBuilder();
+            if (low == null)
+                str.append("(*");
+            else
+                str.append(lowInclusive ? "[" : "(").append(valueString(low));
+            str.append(", ");
+            if (high == null)
+                str.append("*)");
+            else
+                str.append(valueString(high)).append(highInclusive ? "]" : ")");
+            return str.toString();
+        }
+    }
+
+    private List<ValueNode> values;
+    private List<Range> ranges;
+
+    protected ShardKeyValues(List<ValueNode> values, List<Range> ranges) {
+        this.values = values;
+        this.ranges = ranges;
+    }
+
+    /** Any value at all. */
+    public static ShardKeyValues all() {
+        return new ShardKeyValues(Collections.<ValueNode>emptyList(),
+                                  Collections.singletonList(new Range(null, false,
+                                                                      null, false)));
+    }
+
+    /** No value: the statement needs no rows. */
+    public static ShardKeyValues none() {
+        return new ShardKeyValues(Collections.<ValueNode>emptyList(),
+                                  Collections.<Range>emptyList());
+    }
+
+    /** Any of the given constants or parameters. */
+    public static ShardKeyValues values(List<ValueNode> values) {
+        List<ValueNode> distinct = new ArrayList<ValueNode>(values.size());
+        for (ValueNode value : values) {
+            addValue(distinct, value);
+        }
+        return new ShardKeyValues(distinct, Collections.<Range>emptyList());
+    }
+
+    /** Any value in the given range. */
+    public static ShardKeyValues range(Object low, boolean lowInclusive,
+                                       Object high, boolean highInclusive) {
+        Range range = new Range(low, lowInclusive, high, highInclusive);
+        if (range.isEmpty())
+            return none();
+        return new ShardKeyValues(Collections.<ValueNode>emptyList(),
+                                  Collections.singletonList(range));
+    }
+
+    public List<ValueNode> getValues() {
+        return values;
+    }
+
+    public List<Range> getRanges() {
+        return ranges;
+    }
+
+    /** Whether the key is not restricted at all. */
+    public boolean isAll() {
+        for (Range range : ranges) {
+            if (range.isUnbounded())
+                return true;
+        }
+        return false;
+    }
+
+    /** Whether no value of the key is needed. */
+    public boolean isNone() {
+        return values.isEmpty() && ranges.isEmpty();
+    }
+
+    /** The values in both. */
+    public ShardKeyValues intersect(ShardKeyValues other) {
+        if (isAll())
+            return other;
+        if (other.isAll())
+            return this;
+        List<ValueNode> newValues = new ArrayList<ValueNode>();
+        for (ValueNode value : values) {
+            if (other.contains(value) != Boolean.FALSE)
+                addValue(newValues, value);
+        }
+        for (ValueNode value : other.values) {
+            if (contains(value) != Boolean.FALSE)
+                addValue(newValues, value);
+        }
+        List<Range> newRanges = new ArrayList<Range>();
+        for (Range range : ranges) {
+            for (Range otherRange : other.ranges) {
+                Range newRange = range.intersect(otherRange);
+                if (!newRange.isEmpty())
+                    newRanges.add(newRange);
+            }
+        }
+        return new ShardKeyValues(newValues, newRanges);
+    }
+
+    /** The values in either. */
+    public ShardKeyValues union(ShardKeyValues other) {
+        if (isAll() || other.isNone())
+            return this;
+        if (other.isAll() || isNone())
+            return other;
+        List<ValueNode> newValues = new ArrayList<ValueNode>(values);
+        for (ValueNode value : other.values) {
+            addValue(newValues, value);
+        }
+        List<Range> newRanges = new ArrayList<Range>(ranges);
+        newRanges.addAll(other.ranges);
+        return new ShardKeyValues(newValues, newRanges);
+    }
+
+    /** Whether the given value is one of these.
+     * @return null if not known.
+     */
+    public Boolean contains(ValueNode value) {
+        Boolean result = containsInRanges(value);
+        if (result == Boolean.TRUE)
+            return result;
+        for (ValueNode other : values) {
+            Boolean equal = equal(value, other);
+            if (equal == Boolean.TRUE)
+                return equal;
+            if (equal == null)
+                result = null;
+        }
+        return result;
+    }
+
+    protected Boolean containsInRanges(ValueNode value) {
+        Boolean result = Boolean.FALSE;
+        for (Range range : ranges) {
+            Boolean contains = null;
+            if (value instanceof ConstantNode)
+                contains = range.contains(((ConstantNode)value).getValue());
+            if (contains == Boolean.TRUE)
+                return contains;
+            if (contains == null)
+                result = null;
+        }
+        return result;
+    }
+
+    /** Whether two values are equal.
+     * @return null if not known.
+     */
+    protected static Boolean equal(ValueNode v1, ValueNode v2) {
+        if ((v1 instanceof ConstantNode) && (v2 instanceof ConstantNode)) {
+            Integer cmp = compare(((ConstantNode)v1).getValue(),
+                                            ((ConstantNode)v2).getValue());
+            if (cmp == null)
+                return null;
+            return (cmp == 0);
+        }
+        if ((v1 instanceof ParameterNode) && (v2 instanceof ParameterNode) &&
+            (((ParameterNode)v1).getParameterNumber() ==
+             ((ParameterNode)v2).getParameterNumber()))
+            return Boolean.TRUE;
+        return null;
+    }
+
+    /** Compare two constant values exactly.
+     * @return null if they are not comparable.
+     */
+    protected static Integer compare(Object v1, Object v2) {
+        if ((v1 instanceof Number) && (v2 instanceof Number)) {
+            BigDecimal d1 = exactValue((Number)v1);
+            BigDecimal d2 = exactValue((Number)v2);
+            if ((d1 == null) || (d2 == null))
+                return null;
+            return d1.compareTo(d2);
+        }
+        if ((v1 instanceof String) && (v2 instanceof String)) {
+            if (v1.equals(v2))
+                return 0;
+            return null;
+        }
+        return null;
+    }
+
+    /** The exact value of a number, or null for an infinite or NaN. */
+    protected static BigDecimal exactValue(Number number) {
+        if (number instanceof BigDecimal)
+            return (BigDecimal)number;
+        if (number instanceof BigInteger)
+            return new BigDecimal((BigInteger)number);
+        if ((number instanceof Double) || (number instanceof Float)) {
+            double d = number.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d))
+                return null;
+            return new BigDecimal(d);
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    protected static void addValue(List<ValueNode> values, ValueNode value) {
+        for (ValueNode other : values) {
+            if (equal(value, other) == Boolean.TRUE)
+                return;
+        }
+        values.add(value);
+    }
+
+    protected static String valueString(Object value) {
+        if (value instanceof String)
+            return "'" + value + "'";
+        return String.valueOf(value);
+    }
+
+    public String toString() {
+        if (isAll())
+            return "*";
+        StringBuilder str = new StringBuilder("{");
+        for (ValueNode value : values) {
+            if (str.length() > 1)
+                str.append(", ");
+            if (value instanceof ConstantNode)
+                str.append(valueString(((ConstantNode)value).getValue()));
+            else if (value instanceof ParameterNode)
+                str.append("$").append(((ParameterNode)value).getParameterNumber() + 1);
+            else
+                str.append(value);
+        }
+        for (Range range : ranges) {
+            if (str.length() > 1)
+                str.append(", ");
+            str.append(range);
+        }
+        str.append("}");
+        return str.toString();
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import com.akiban.sql.parser.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A cost model that knows only table sizes, if it is told them, and
+ * otherwise uses fixed selectivities for each kind of condition. Joins
+ * are costed as hash joins.
+ */
+public class SimpleCostModel implements CostModel
+{
+    public static final double DEFAULT_ROW_COUNT = 1000;
+    public static final double EQUALS_SELECTIVITY = 0.1;
+    public static final double RANGE_SELECTIVITY = 1.0 / 3;
+    public static final double BETWEEN_SELECTIVITY = 0.25;
+    public static final double DEFAULT_SELECTIVITY = 0.5;
+
+    private Map<String,Double> rowCounts = new HashMap<String,Double>();
+
+    /** Set the number of rows in the named table. */
+    public void setRowCount(String tableName, double rowCount) {
+        rowCounts.put(tableName, rowCount);
+    }
+
+    public double getRowCount(JoinGraph graph, JoinGraph.Table table,
+                              List<JoinGraph.Predicate> conditions) {
+        return getTableRowCount(table) * getSelectivity(graph, conditions);
+    }
+
+    /** Get the number of rows in a table, looked up by its name, or by
+     * its exposed name if it is not a base table.
+     */
+    protected double getTableRowCount(JoinGraph.Table table) {
+        Double rowCount = null;
+        FromTable fromTable = table.getFromTable();
+        if (fromTable instanceof FromBaseTable)
+            rowCount = rowCounts.get(fromTable.getOrigTableName().getTableName());
+        else if (table.getName() != null)
+            rowCount = rowCounts.get(table.getName());
+        if (rowCount == null)
+            return DEFAULT_ROW_COUNT;
+        return rowCount;
+    }
+
+    public double getSelectivity(JoinGraph graph,
+                                 List<JoinGraph.Predicate> conditions) {
+        double selectivity = 1.0;
+        for (JoinGraph.Predicate condition : conditions) {
+            selectivity *= getSelectivity(condition.getCondition());
+        }
+        return selectivity;
+    }
+
+    protected double getSelectivity(ValueNode condition) {
+        switch (condition.getNodeType()) {
+        case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+        case NodeTypes.IS_NULL_NODE:
+            return EQUALS_SELECTIVITY;
+        case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+        case NodeTypes.IS_NOT_NULL_NODE:
+            return 1 - EQUALS_SELECTIVITY;
+        case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+        case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+            return RANGE_SELECTIVITY;
+        case NodeTypes.BETWEEN_OPERATOR_NODE:
+            return BETWEEN_SELECTIVITY;
+        case NodeTypes.IN_LIST_OPERATOR_NODE:
+            {
+                InListOperatorNode inList = (InListOperatorNode)condition;
+                double selectivity = Math.min(DEFAULT_SELECTIVITY,
+                                              EQUALS_SELECTIVITY *
+                                              inList.getRightOperandList().getNodeList().size());
+                if (inList.isNegated())
+                    selectivity = 1 - selectivity;
+                return selectivity;
+            }
+        case NodeTypes.AND_NODE:
+            {
+                AndNode andNode = (AndNode)condition;
+                return (getSelectivity(andNode.getLeftOperand()) *
+                        getSelectivity(andNode.getRightOperand()));
+            }
+        case NodeTypes.OR_NODE:
+            {
+                OrNode orNode = (OrNode)condition;
+                double left = getSelectivity(orNode.getLeftOperand());
+                double right = getSelectivity(orNode.getRightOperand());
+                return left + right - left * right;
+            }
+        case NodeTypes.NOT_NODE:
+            return 1 - getSelectivity(((NotNode)condition).getOperand());
+        case NodeTypes.BOOLEAN_CONSTANT_NODE:
+            return (condition.isBooleanTrue()) ? 1.0 : 0.0;
+        default:
+            return DEFAULT_SELECTIVITY;
+        }
+    }
+
+    public double getJoinCost(double leftRows, double rightRows,
+                              double resultRows, boolean outer) {
+        // Build a hash table on one side and probe it with the other.
+        return leftRows + rightRows + resultRows;
+    }
+
+}
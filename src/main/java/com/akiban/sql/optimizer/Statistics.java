@@ -0,0 +1,37 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+/** A source of statistics about the data in tables.
+ *
+ * Table and column names are as they appear in the statement. The
+ * schema name is null if the statement did not give one.
+ */
+public interface Statistics
+{
+    /** Get the number of rows in a table.
+     * @return a negative number if it is not known.
+     */
+    public long getRowCount(String schemaName, String tableName);
+
+    /** Get statistics about the values of a column.
+     * @return null if not known.
+     */
+    public ColumnStatistics getColumnStatistics(String schemaName, String tableName,
+                                                String columnName);
+}
@@ -275,10 +275,10 @@ public class CreateTableNode extends DDLStatementNode
         super.acceptChildren(v);
 
         if (tableElementList != null) {
-            tableElementList.accept(v);
+            tableElementList = (TableElementList)tableElementList.accept(v);
         }
         if (queryExpression != null) {
-            queryExpression.accept(v);
+            queryExpression = (ResultSetNode)queryExpression.accept(v);
         }
     }
         
@@ -158,10 +158,10 @@ public abstract class DMLModStatementNode extends DMLStatementNode
         super.acceptChildren(v);
 
         if (targetTableName != null) {
-            targetTableName.accept(v);
+            targetTableName = (TableName)targetTableName.accept(v);
         }
         if (returningColumnList != null) {
-            returningColumnList.accept(v);
+            returningColumnList = (ResultColumnList)returningColumnList.accept(v);
         }
     }
 }
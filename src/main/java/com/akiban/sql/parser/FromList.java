@@ -42,6 +42,8 @@ package com.akiban.sql.parser;
 
 import com.akiban.sql.StandardException;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -65,6 +67,11 @@ public class FromList extends QueryTreeNodeList<FromTable>
      */
     private boolean isTransparent;
 
+    /* The tables in this list, including those within joins, by exposed
+     * name, built when first needed and dropped when the list changes.
+     */
+    private Map<String,FromTable> exposedNameIndex;
+
     /** Initializer for a FromList */
 
     public void init(Object optimizeJoinOrder) {
@@ -137,6 +144,68 @@ public class FromList extends QueryTreeNodeList<FromTable>
         add(fromTable);
     }
 
+    /**
+     * Get the table in this list with the given exposed name, looking
+     * inside joins.
+     *
+     * @param exposedName The correlation name or, failing that, the
+     *                    table name, qualified by schema if it was.
+     *
+     * @return the first such table, or null if there is none.
+     *
+     * @exception StandardException Thrown on error
+     */
+    public FromTable getFromTable(String exposedName) throws StandardException {
+        if (exposedNameIndex == null) {
+            Map<String,FromTable> index = new HashMap<String,FromTable>();
+            for (int i = size() - 1; i >= 0; i--) {
+                // Going backwards leaves the first of any duplicates.
+                indexFromTable(get(i), index);
+            }
+            exposedNameIndex = index;
+        }
+        FromTable fromTable = exposedNameIndex.get(exposedName);
+        if ((fromTable != null) && !exposedName.equals(fromTable.getExposedName())) {
+            // Renamed since the index was built.
+            invalidateNameIndex();
+            return getFromTable(exposedName);
+        }
+        return fromTable;
+    }
+
+    private void indexFromTable(ResultSetNode node, Map<String,FromTable> index)
+            throws StandardException {
+        if (node instanceof TableOperatorNode) {
+            TableOperatorNode operator = (TableOperatorNode)node;
+            indexFromTable(operator.getRightResultSet(), index);
+            indexFromTable(operator.getLeftResultSet(), index);
+        }
+        else if (node instanceof FromTable) {
+            FromTable fromTable = (FromTable)node;
+            FromList previous = fromTable.setNameIndexOwner(this);
+            if ((previous != null) && (previous != this))
+                // Only one index at a time can hear of a rename.
+                previous.invalidateNameIndex();
+            String exposedName = fromTable.getExposedName();
+            if (exposedName != null)
+                index.put(exposedName, fromTable);
+        }
+    }
+
+    /**
+     * Drop the index of tables by exposed name, as must be done after
+     * changing a join in the list. Renaming a table in it or changing
+     * the list itself does this automatically.
+     */
+    public void invalidateNameIndex() {
+        exposedNameIndex = null;
+    }
+
+    protected void listChanged() {
+        super.listChanged();
+        invalidateNameIndex();
+    }
+
     /**
      * Set the Properties list for this FromList.
      *
@@ -146,4 +215,22 @@ public class FromList extends QueryTreeNodeList<FromTable>
         properties = props;
     }
 
+    /**
+     * Get the Properties list for this FromList.
+     */
+    public Properties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Whether the tables in this FromList must be joined in the order given.
+     */
+    public boolean isFixedJoinOrder() {
+        return fixedJoinOrder;
+    }
+
+    public void setFixedJoinOrder(boolean fixedJoinOrder) {
+        this.fixedJoinOrder = fixedJoinOrder;
+    }
+
 }
@@ -63,6 +63,10 @@ public abstract class FromTable extends ResultSetNode
     // TODO: Still need these two separate names?
     protected TableName origTableName;
 
+    // The list whose name index last included this table, to be told
+    // when its name changes.
+    private FromList nameIndexOwner;
+
     /**
      * Initializer for a table in a FROM list.
      *
@@ -101,6 +105,22 @@ public abstract class FromTable extends ResultSetNode
      */
     public void setCorrelationName(String correlationName) { 
         this.correlationName = correlationName; 
+        nameChanged();
+    }
+
+    /**
+     * Note that this table's name is in the given list's name index.
+     * @return the list whose index it was in before.
+     */
+    FromList setNameIndexOwner(FromList owner) {
+        FromList previous = nameIndexOwner;
+        nameIndexOwner = owner;
+        return previous;
+    }
+
+    protected void nameChanged() {
+        if (nameIndexOwner != null)
+            nameIndexOwner.invalidateNameIndex();
     }
 
     /**
@@ -146,6 +166,7 @@ public abstract class FromTable extends ResultSetNode
      */
     public void setOrigTableName(TableName tableName) {
         this.origTableName = tableName;
+        nameChanged();
     }
 
     /**
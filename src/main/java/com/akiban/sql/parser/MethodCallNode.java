@@ -95,6 +95,16 @@ public abstract class MethodCallNode extends JavaValueNode
         }
     }
 
+    /**
+     * Make a copy of this node with its own array of parameters.
+     */
+    public QueryTreeNode shallowCopy() {
+        MethodCallNode copy = (MethodCallNode)super.shallowCopy();
+        if (methodParms != null)
+            copy.methodParms = methodParms.clone();
+        return copy;
+    }
+
     public String getMethodName() {
         return methodName;
     }
@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.parser;
+
+/**
+ * The statement parsed by {@link SQLParser#tryParseStatement}, or the
+ * syntax error that stopped it.
+ */
+public class ParseResult extends ValidationResult
+{
+    private StatementNode statement;
+
+    public ParseResult(StatementNode statement) {
+        super(VALID);
+        this.statement = statement;
+    }
+
+    public ParseResult(ValidationResult error) {
+        super(error);
+    }
+
+    /** The statement, or <code>null</code> if it was not valid. */
+    public StatementNode getStatement() {
+        return statement;
+    }
+
+}
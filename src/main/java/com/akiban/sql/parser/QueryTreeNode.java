@@ -55,7 +55,7 @@ import java.io.Writer;
  *
  */
 
-public abstract class QueryTreeNode implements Visitable
+public abstract class QueryTreeNode implements Visitable, Cloneable
 {
     public static final int AUTOINCREMENT_START_INDEX = 0;
     public static final int AUTOINCREMENT_INC_INDEX     = 1;
@@ -121,6 +121,21 @@ public abstract class QueryTreeNode implements Visitable
         this.userData = getNodeFactory().copyUserData(this, other.userData);
     }
 
+    /**
+     * Make a copy of this node that shares its children, and its user
+     * data, with this one.
+     * Replacing a child of the copy leaves this node alone, but
+     * changing a shared child changes both.
+     */
+    public QueryTreeNode shallowCopy() {
+        try {
+            return (QueryTreeNode)clone();
+        }
+        catch (CloneNotSupportedException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
     /**
      * Gets the beginning offset of the SQL substring which this
      * query node represents.
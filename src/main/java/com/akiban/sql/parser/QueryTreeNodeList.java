@@ -77,14 +77,18 @@ public abstract class QueryTreeNodeList<N extends QueryTreeNode>
 
     public void add(N n) {
         list.add(n);
+        listChanged();
     }
 
     public final N remove(int index) {
-        return list.remove(index);
+        N n = list.remove(index);
+        listChanged();
+        return n;
     }
 
     public final void remove(N n) {
-        list.remove(n);
+        if (list.remove(n))
+            listChanged();
     }
 
     public final int indexOf(N n) {
@@ -92,19 +96,23 @@ public abstract class QueryTreeNodeList<N extends QueryTreeNode>
     }
 
     public final void set(int index, N n) {
-        list.set(index, n);
+        if (list.set(index, n) != n)
+            listChanged();
     }
 
     public final void add(int index, N n) {
         list.add(index, n);
+        listChanged();
     }
 
     public final void addAll(QueryTreeNodeList<N> other) {
         list.addAll(other.list);
+        listChanged();
     }
 
     public final void clear() {
         list.clear();
+        listChanged();
     }
 
     public final Iterator<N> iterator() {
@@ -125,6 +133,26 @@ public abstract class QueryTreeNodeList<N extends QueryTreeNode>
         QueryTreeNodeList<N> other = (QueryTreeNodeList<N>)node;
         for (N n : other.list)
             list.add((N)getNodeFactory().copyNode(n, getParserContext()));
+        listChanged();
+    }
+
+    /**
+     * Make a copy of this list that has the same members, which can
+     * then be changed without changing this list.
+     */
+    @SuppressWarnings("unchecked")
+    public QueryTreeNode shallowCopy() {
+        QueryTreeNodeList<N> copy = (QueryTreeNodeList<N>)super.shallowCopy();
+        copy.list = new ArrayList<N>(list);
+        copy.listChanged();
+        return copy;
+    }
+
+    /**
+     * Called whenever the members of the list change, so that subclasses
+     * can drop anything they have worked out from them.
+     */
+    protected void listChanged() {
     }
 
     /**
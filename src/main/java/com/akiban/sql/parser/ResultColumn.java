@@ -87,6 +87,10 @@ public class ResultColumn extends ValueNode
 
     private boolean isNameGenerated;
 
+    // The list whose name index last included this column, to be told
+    // when its name changes.
+    private ResultColumnList nameIndexOwner;
+
     /**
      * Different types of initializer parameters indicate different
      * types of initialization. Parameters may be:
@@ -210,6 +214,14 @@ public class ResultColumn extends ValueNode
             columnName.equals(name) ||
             columnName.equals(getSourceColumnName());
     }
+
+    /**
+     * Returns the name of this column before any alias was given to it.
+     */
+    String getUnderlyingName() {
+        return name;
+    }
+
     /**
      * Returns the underlying source column name, if this ResultColumn
      * is a simple direct reference to a table column, or NULL otherwise.
@@ -261,6 +273,8 @@ public class ResultColumn extends ValueNode
 
     public void setExpression(ValueNode expression) {
         this.expression = expression;
+        // The source column name may have changed.
+        nameChanged();
     }
 
     /**
@@ -303,6 +317,22 @@ public class ResultColumn extends ValueNode
         }
 
         this.exposedName = name;
+        nameChanged();
+    }
+
+    /**
+     * Note that this column's name is in the given list's name index.
+     * @return the list whose index it was in before.
+     */
+    ResultColumnList setNameIndexOwner(ResultColumnList owner) {
+        ResultColumnList previous = nameIndexOwner;
+        nameIndexOwner = owner;
+        return previous;
+    }
+
+    private void nameChanged() {
+        if (nameIndexOwner != null)
+            nameIndexOwner.invalidateNameIndex();
     }
 
     /**
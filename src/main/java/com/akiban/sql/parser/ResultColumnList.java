@@ -41,6 +41,9 @@ package com.akiban.sql.parser;
 
 import com.akiban.sql.StandardException;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * A ResultColumnList is the target list of a SELECT, INSERT, or UPDATE.
  *
@@ -81,6 +84,19 @@ public class ResultColumnList extends QueryTreeNodeList<ResultColumn>
     // ones were added internally.
     private int initialListSize = 0;
 
+    /*
+    ** Lists at least this long are searched by name using hash
+    ** indexes, built when first needed and dropped when the list
+    ** changes.
+    */
+    static final int NAME_INDEX_THRESHOLD = 16;
+
+    // Position of the first column by case-folded exposed name.
+    private Map<String,Integer> foldedNameIndex;
+    // Position of the first column matching by exposed name, name or
+    // source column name.
+    private Map<String,Integer> exposedNameIndex, nameIndex, sourceNameIndex;
+
     public ResultColumnList() {
     }
 
@@ -194,6 +210,17 @@ public class ResultColumnList extends QueryTreeNodeList<ResultColumn>
 
     public ResultColumn getResultColumn(String columnName) {
         int size = size();
+        if (size >= NAME_INDEX_THRESHOLD) {
+            if (foldedNameIndex == null)
+                buildNameIndex();
+            Integer index = foldedNameIndex.get(foldCase(columnName));
+            if (index == null)
+                return null;
+            ResultColumn resultColumn = get(index);
+            if (columnName.equalsIgnoreCase(resultColumn.getName()))
+                return resultColumn;
+            // Renamed since the index was built.
+        }
         for (int index = 0; index < size; index++) {
             ResultColumn resultColumn = get(index);
 
@@ -204,6 +231,108 @@ public class ResultColumnList extends QueryTreeNodeList<ResultColumn>
         return null;
     }
 
+    /**
+     * Get the first ResultColumn that matches the specified columnName
+     * in the way that ORDER BY does: by its exposed name, its
+     * underlying name or the name of the column it directly refers to.
+     *
+     * @param columnName The name to look for
+     *
+     * @return the column that matches that name, or null if none does.
+     */
+    public ResultColumn findResultColumn(String columnName) {
+        int size = size();
+        if (size >= NAME_INDEX_THRESHOLD) {
+            if (foldedNameIndex == null)
+                buildNameIndex();
+            int first = size;
+            first = firstIndex(exposedNameIndex, columnName, first);
+            first = firstIndex(nameIndex, columnName, first);
+            first = firstIndex(sourceNameIndex, columnName, first);
+            if (first < size) {
+                ResultColumn resultColumn = get(first);
+                if (resultColumn.columnNameMatches(columnName))
+                    return resultColumn;
+            }
+            else
+                return null;
+            // Renamed since the index was built.
+        }
+        for (int index = 0; index < size; index++) {
+            ResultColumn resultColumn = get(index);
+            if (resultColumn.columnNameMatches(columnName))
+                return resultColumn;
+        }
+        return null;
+    }
+
+    /**
+     * Drop the name indexes. Renaming a column in the list or changing
+     * the list itself does this automatically.
+     */
+    public void invalidateNameIndex() {
+        foldedNameIndex = null;
+        exposedNameIndex = nameIndex = sourceNameIndex = null;
+    }
+
+    protected void listChanged() {
+        super.listChanged();
+        invalidateNameIndex();
+    }
+
+    private void buildNameIndex() {
+        int size = size();
+        foldedNameIndex = new HashMap<String,Integer>(size * 2);
+        exposedNameIndex = new HashMap<String,Integer>(size * 2);
+        nameIndex = new HashMap<String,Integer>(size * 2);
+        sourceNameIndex = new HashMap<String,Integer>();
+        for (int index = size - 1; index >= 0; index--) {
+            // Going backwards leaves the first of any duplicates.
+            ResultColumn resultColumn = get(index);
+            ResultColumnList previous = resultColumn.setNameIndexOwner(this);
+            if ((previous != null) && (previous != this))
+                // Only one index at a time can hear of a rename.
+                previous.invalidateNameIndex();
+            Integer position = index;
+            String exposedName = resultColumn.getName();
+            if (exposedName != null) {
+                foldedNameIndex.put(foldCase(exposedName), position);
+                exposedNameIndex.put(exposedName, position);
+            }
+            if (resultColumn.getUnderlyingName() != null)
+                nameIndex.put(resultColumn.getUnderlyingName(), position);
+            if (resultColumn.getSourceColumnName() != null)
+                sourceNameIndex.put(resultColumn.getSourceColumnName(), position);
+        }
+    }
+
+    private static int firstIndex(Map<String,Integer> index, String name, int first) {
+        Integer position = index.get(name);
+        if ((position != null) && (position < first))
+            return position;
+        return first;
+    }
+
+    /**
+     * Fold case the same way that {@link String#equalsIgnoreCase} compares.
+     */
+    static String foldCase(String name) {
+        int length = name.length();
+        char[] chars = null;
+        for (int i = 0; i < length; i++) {
+            char ch = name.charAt(i);
+            char folded = Character.toLowerCase(Character.toUpperCase(ch));
+            if (folded != ch) {
+                if (chars == null)
+                    chars = name.toCharArray();
+                chars[i] = folded;
+            }
+        }
+        if (chars == null)
+            return name;
+        return new String(chars);
+    }
+
     /**
      * Get an array of strings for all the columns
      * in this RCL.
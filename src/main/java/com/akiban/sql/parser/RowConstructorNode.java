@@ -68,7 +68,7 @@ public class RowConstructorNode extends ValueNode
         super.acceptChildren(v);
 
         if (list != null)
-            list.accept(v);
+            list = (ValueNodeList)list.accept(v);
     }
     
     @Override
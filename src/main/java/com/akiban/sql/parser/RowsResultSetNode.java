@@ -69,6 +69,15 @@ public class RowsResultSetNode extends FromTable
             rows.add((RowResultSetNode)getNodeFactory().copyNode(row, getParserContext()));
     }
 
+    /**
+     * Make a copy of this node with its own list of rows.
+     */
+    public QueryTreeNode shallowCopy() {
+        RowsResultSetNode copy = (RowsResultSetNode)super.shallowCopy();
+        copy.rows = new ArrayList<RowResultSetNode>(rows);
+        return copy;
+    }
+
     /**
      * Prints the sub-nodes of this object.  See QueryTreeNode.java for
      * how tree printing is supposed to work.
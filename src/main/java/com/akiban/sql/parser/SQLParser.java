@@ -100,8 +100,8 @@ public class SQLParser implements SQLParserContext {
 
     /** Normal external parser entry. */
     public StatementNode parseStatement(String sqlText) throws StandardException {
-        reinit(sqlText);
         try {
+            reinit(sqlText);
             return parser.parseStatement(sqlText, parameterList);
         }
         catch (ParseException ex) {
@@ -110,8 +110,6 @@ public class SQLParser implements SQLParserContext {
                                          tokenErrorPosition(ex.currentToken, sqlText));
         }
         catch (TokenMgrError ex) {
-            // Throw away the cached parser.
-            parser = null;
             if (ex.errorCode == TokenMgrError.LEXICAL_ERROR)
                 throw new SQLParserException(ex.getMessage(),
                                              ex,
@@ -125,8 +123,8 @@ public class SQLParser implements SQLParserContext {
 
     /** Parse multiple statements delimited by semicolons. */
     public List<StatementNode> parseStatements(String sqlText) throws StandardException {
-        reinit(sqlText);
         try {
+            reinit(sqlText);
             return parser.parseStatements(sqlText);
         }
         catch (ParseException ex) {
@@ -135,8 +133,6 @@ public class SQLParser implements SQLParserContext {
                                          tokenErrorPosition(ex.currentToken, sqlText));
         }
         catch (TokenMgrError ex) {
-            // Throw away the cached parser.
-            parser = null;
             if (ex.errorCode == TokenMgrError.LEXICAL_ERROR)
                 throw new SQLParserException(ex.getMessage(),
                                              ex,
@@ -148,6 +144,87 @@ public class SQLParser implements SQLParserContext {
         }
     }
 
+    /** Parse a statement, returning rather than throwing any syntax error.
+     * Suitable when many statements are expected to be invalid.
+     */
+    public ParseResult tryParseStatement(String sqlText) throws StandardException {
+        try {
+            reinit(sqlText);
+            return new ParseResult(parser.parseStatement(sqlText, parameterList));
+        }
+        catch (ParseException ex) {
+            return new ParseResult(syntaxError(ex, sqlText));
+        }
+        catch (TokenMgrError ex) {
+            if (ex.errorCode == TokenMgrError.LEXICAL_ERROR)
+                return new ParseResult(lexicalError(ex, sqlText));
+            else
+                throw new StandardException(ex);
+        }
+        catch (StandardException ex) {
+            return new ParseResult(actionError(ex));
+        }
+    }
+
+    /** Check whether the given text is a single valid statement,
+     * without keeping what is parsed or throwing for a syntax error.
+     */
+    public ValidationResult validate(String sqlText) throws StandardException {
+        try {
+            reinit(sqlText);
+            parser.parseStatement(sqlText, parameterList);
+            return ValidationResult.VALID;
+        }
+        catch (ParseException ex) {
+            return syntaxError(ex, sqlText);
+        }
+        catch (TokenMgrError ex) {
+            if (ex.errorCode == TokenMgrError.LEXICAL_ERROR)
+                return lexicalError(ex, sqlText);
+            else
+                throw new StandardException(ex);
+        }
+        catch (StandardException ex) {
+            return actionError(ex);
+        }
+    }
+
+    private static ValidationResult syntaxError(ParseException ex, String sqlText) {
+        Token token = ex.currentToken;
+        if ((token == null) || (token.next == null))
+            return new ValidationResult(standardizeEol(ex.getMessage()), 0, 0, 0);
+        List<String> expected = new ArrayList<String>();
+        if (ex.expectedTokenSequences != null) {
+            StringBuilder str = new StringBuilder();
+            for (int[] sequence : ex.expectedTokenSequences) {
+                str.setLength(0);
+                for (int kind : sequence) {
+                    if (str.length() > 0)
+                        str.append(' ');
+                    str.append(ex.tokenImage[kind]);
+                }
+                expected.add(str.toString());
+            }
+        }
+        return new ValidationResult(standardizeEol(ex.getMessage()),
+                                    tokenErrorPosition(token, sqlText),
+                                    token.next.beginLine, token.next.beginColumn,
+                                    expected);
+    }
+
+    private static ValidationResult lexicalError(TokenMgrError ex, String sqlText) {
+        return new ValidationResult(ex.getMessage(),
+                                    lineColumnErrorPosition(ex.errorLine,
+                                                            ex.errorColumn,
+                                                            sqlText),
+                                    ex.errorLine, ex.errorColumn);
+    }
+
+    /** Rejected by the grammar's actions, which do not say where. */
+    private static ValidationResult actionError(StandardException ex) {
+        return new ValidationResult(ex.getMessage(), 0, 0, 0);
+    }
+
     /** Undo ParseException.initialise()'s eol handling. 
      * Want something platform independent.
      */
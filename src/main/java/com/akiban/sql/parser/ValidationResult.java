@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.parser;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Whether some SQL text was a valid statement, as found by {@link
+ * SQLParser#validate} or {@link SQLParser#tryParseStatement}, and if
+ * not, where and why.
+ */
+public class ValidationResult
+{
+    public static final ValidationResult VALID = new ValidationResult(null, -1, 0, 0);
+
+    private String message;
+    private int errorPosition, errorLine, errorColumn;
+    private List<String> expectedTokens;
+
+    public ValidationResult(String message, 
+                            int errorPosition, int errorLine, int errorColumn) {
+        this(message, errorPosition, errorLine, errorColumn, 
+             Collections.<String>emptyList());
+    }
+
+    public ValidationResult(String message, 
+                            int errorPosition, int errorLine, int errorColumn,
+                            List<String> expectedTokens) {
+        this.message = message;
+        this.errorPosition = errorPosition;
+        this.errorLine = errorLine;
+        this.errorColumn = errorColumn;
+        this.expectedTokens = expectedTokens;
+    }
+
+    protected ValidationResult(ValidationResult other) {
+        this(other.message, other.errorPosition, other.errorLine, other.errorColumn,
+             other.expectedTokens);
+    }
+
+    public boolean isValid() {
+        return (message == null);
+    }
+
+    /** The message for the error. */
+    public String getMessage() {
+        return message;
+    }
+
+    /** The position of the error, counting from one, as in {@link
+     * SQLParserException#getErrorPosition}, or zero if not known.
+     */
+    public int getErrorPosition() {
+        return errorPosition;
+    }
+
+    /** The line of the error, counting from one, or zero if not known. */
+    public int getErrorLine() {
+        return errorLine;
+    }
+
+    /** The column of the error, counting from one, or zero if not known. */
+    public int getErrorColumn() {
+        return errorColumn;
+    }
+
+    /** The tokens, or sequences of tokens separated by spaces, any of
+     * which could have come at the error, written as in the message.
+     * Empty if not known.
+     */
+    public List<String> getExpectedTokens() {
+        return expectedTokens;
+    }
+
+    public String toString() {
+        if (isValid())
+            return "VALID";
+        return message + " [" + errorLine + ":" + errorColumn + "]";
+    }
+
+}
@@ -106,6 +106,16 @@ public final class CharacterTypeAttributes
                  collation.equals(other.collation)));
     }
 
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        if (characterSet != null)
+            hash = characterSet.hashCode();
+        if (collation != null)
+            hash = hash * 31 + collation.hashCode();
+        return hash;
+    }
+
     @Override
     public String toString() {
         if ((characterSet == null) && (collation == null)) return "none";
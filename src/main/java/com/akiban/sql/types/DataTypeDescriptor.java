@@ -43,6 +43,8 @@ package com.akiban.sql.types;
 import com.akiban.sql.StandardException;
 
 import java.sql.Types;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /** 
  * DataTypeDescriptor describes a runtime SQL type.
@@ -89,6 +91,122 @@ public final class DataTypeDescriptor
     public static final DataTypeDescriptor SMALLINT_NOT_NULL =
         SMALLINT.getNullabilityType(false);
          
+    /*
+ *** Interning and memoization
+    */
+
+    /**
+     * Limit on the number of entries in each of the shared tables, so
+     * that a stream of unusual lengths / precisions cannot grow them
+     * without bound. Past this, results are still correct, just not
+     * shared.
+     */
+    public static final int MAXIMUM_INTERNED = 4096;
+
+    private static final ConcurrentMap<DataTypeDescriptor,DataTypeDescriptor> interned =
+        new ConcurrentHashMap<DataTypeDescriptor,DataTypeDescriptor>();
+
+    /** Key for the dominant type memo: an ordered pair of descriptors. */
+    static final class TypePair {
+        private final DataTypeDescriptor left, right;
+        private final int hashCode;
+
+        TypePair(DataTypeDescriptor left, DataTypeDescriptor right) {
+            this.left = left;
+            this.right = right;
+            this.hashCode = left.hashCode() * 31 + right.hashCode();
+        }
+
+        public boolean equals(Object other) {
+            if (!(other instanceof TypePair))
+                return false;
+            TypePair otherPair = (TypePair)other;
+            return ((hashCode == otherPair.hashCode) &&
+                    left.equals(otherPair.left) &&
+                    right.equals(otherPair.right) &&
+                    sameCollationDerivation(left, otherPair.left) &&
+                    sameCollationDerivation(right, otherPair.right));
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final ConcurrentMap<TypePair,DataTypeDescriptor> dominantTypes =
+        new ConcurrentHashMap<TypePair,DataTypeDescriptor>();
+
+    /**
+     * Comparability of built-in types, indexed by type format id.
+     * 0 means not known this way (user-defined, interval or row types,
+     * where the same format id covers types that compare differently),
+     * 1 incomparable and 2 comparable.
+     */
+    private static final byte[][] builtinComparable;
+
+    static {
+        intern(INTEGER);
+        intern(INTEGER_NOT_NULL);
+        intern(SMALLINT);
+        intern(SMALLINT_NOT_NULL);
+        TypeId[] typeIds = TypeId.getAllBuiltinTypeIds();
+        for (TypeId typeId : typeIds) {
+            intern(new DataTypeDescriptor(typeId, true));
+            intern(new DataTypeDescriptor(typeId, false));
+        }
+        int nformats = TypeId.FormatIds.INTERVAL_DAY_SECOND_ID + 1;
+        builtinComparable = new byte[nformats][nformats];
+        for (TypeId typeId : typeIds) {
+            if (!isComparableCached(typeId)) continue;
+            DataTypeDescriptor type = new DataTypeDescriptor(typeId, true);
+            for (TypeId otherTypeId : typeIds) {
+                if (!isComparableCached(otherTypeId)) continue;
+                DataTypeDescriptor otherType = new DataTypeDescriptor(otherTypeId, true);
+                builtinComparable[typeId.getTypeFormatId()][otherTypeId.getTypeFormatId()] =
+                    (byte)(type.computeComparable(otherType, false) ? 2 : 1);
+            }
+        }
+    }
+
+    private static boolean isComparableCached(TypeId typeId) {
+        return (!typeId.userType() && 
+                !typeId.isIntervalTypeId() && 
+                !typeId.isRowMultiSet() &&
+                (typeId.getTypeFormatId() >= 0) &&
+                (typeId.getTypeFormatId() <= TypeId.FormatIds.INTERVAL_DAY_SECOND_ID));
+    }
+
+    /**
+     * Get the canonical instance equal to the given descriptor, so that
+     * equal descriptors can be shared rather than repeatedly allocated.
+     *
+     * @param type The descriptor to intern.
+     *
+     * @return The shared instance, or <code>type</code> itself if it is
+     * the first of its value or the pool is full.
+     */
+    public static DataTypeDescriptor intern(DataTypeDescriptor type) {
+        DataTypeDescriptor shared = interned.get(type);
+        if (shared != null)
+            return sameCollationDerivation(shared, type) ? shared : type;
+        if (interned.size() >= MAXIMUM_INTERNED)
+            return type;
+        shared = interned.putIfAbsent(type, type);
+        return (shared != null) ? shared : type;
+    }
+
+    /**
+     * Equal descriptors can still differ in how their collation was
+     * derived, which matters when merging collations, so shared
+     * entries must match on that too.
+     */
+    static boolean sameCollationDerivation(DataTypeDescriptor t1, DataTypeDescriptor t2) {
+        CharacterTypeAttributes a1 = t1.characterAttributes;
+        CharacterTypeAttributes a2 = t2.characterAttributes;
+        return (((a1 == null) ? null : a1.getCollationDerivation()) ==
+                ((a2 == null) ? null : a2.getCollationDerivation()));
+    }
+
     /*
  *** Static creators
     */
@@ -164,7 +282,7 @@ public final class DataTypeDescriptor
             return null;
         }
 
-        return new DataTypeDescriptor(typeId, isNullable);
+        return intern(new DataTypeDescriptor(typeId, isNullable));
     }
 
     /**
@@ -203,7 +321,7 @@ public final class DataTypeDescriptor
      *               A null return value means there is no corresponding SQL type (only for 'char')
      */
     public static DataTypeDescriptor getBuiltInDataTypeDescriptor(String sqlTypeName) {
-        return new DataTypeDescriptor(TypeId.getBuiltInTypeId(sqlTypeName), true);
+        return intern(new DataTypeDescriptor(TypeId.getBuiltInTypeId(sqlTypeName), true));
     }
 
     /**
@@ -408,6 +526,20 @@ public final class DataTypeDescriptor
      */
     public DataTypeDescriptor getDominantType(DataTypeDescriptor otherDTS)
             throws StandardException {
+        if (typeId.userType() || otherDTS.typeId.userType())
+            return computeDominantType(otherDTS);
+        TypePair key = new TypePair(this, otherDTS);
+        DataTypeDescriptor result = dominantTypes.get(key);
+        if (result == null) {
+            result = intern(computeDominantType(otherDTS));
+            if (dominantTypes.size() < MAXIMUM_INTERNED)
+                dominantTypes.putIfAbsent(key, result);
+        }
+        return result;
+    }
+
+    private DataTypeDescriptor computeDominantType(DataTypeDescriptor otherDTS)
+            throws StandardException {
         boolean nullable;
         TypeId thisType;
         TypeId otherType;
@@ -700,6 +832,17 @@ public final class DataTypeDescriptor
             return true;
     }
 
+    public int hashCode() {
+        int hash = typeId.hashCode();
+        hash = hash * 31 + precision;
+        hash = hash * 31 + scale;
+        hash = hash * 31 + maximumWidth;
+        hash = hash * 2 + (isNullable ? 1 : 0);
+        if (characterAttributes != null)
+            hash = hash * 31 + characterAttributes.hashCode();
+        return hash;
+    }
+
     /**
      * Check if this type is comparable with the passed type.
      * 
@@ -709,6 +852,21 @@ public final class DataTypeDescriptor
      * @return true if compareWithDTD is comparable to this type, else false.
      */
     public boolean comparable(DataTypeDescriptor compareWithDTD, boolean forEquals) {
+        int formatId = typeId.getTypeFormatId();
+        int compareWithFormatId = compareWithDTD.typeId.getTypeFormatId();
+        if ((formatId >= 0) && (formatId < builtinComparable.length) &&
+            (compareWithFormatId >= 0) && (compareWithFormatId < builtinComparable.length)) {
+            switch (builtinComparable[formatId][compareWithFormatId]) {
+            case 1:
+                return false;
+            case 2:
+                return true;
+            }
+        }
+        return computeComparable(compareWithDTD, forEquals);
+    }
+
+    private boolean computeComparable(DataTypeDescriptor compareWithDTD, boolean forEquals) {
         TypeId compareWithTypeID = compareWithDTD.getTypeId();
         int compareWithJDBCTypeId = compareWithTypeID.getJDBCTypeId();
 
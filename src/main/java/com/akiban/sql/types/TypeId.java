@@ -43,6 +43,9 @@ package com.akiban.sql.types;
 import com.akiban.sql.StandardException;
 
 import java.sql.Types;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * TypeId describes the static information about a SQL type
@@ -387,6 +390,125 @@ public class TypeId
         YEAR_ID,
     };
 
+    /*
+    ** Lookup indexes over the builtin type ids, built once when the
+    ** class is loaded and never modified afterwards, so they can be
+    ** read from any thread without synchronization.
+    */
+
+    private static final Map<String,TypeId> BUILTIN_BY_NAME;
+    private static final Map<String,TypeId> BUILTIN_BY_JAVA_TYPE;
+    private static final int JDBC_TYPE_BASE = Types.BIT;
+    private static final TypeId[] BUILTIN_BY_JDBC_TYPE;
+
+    static {
+        Map<String,TypeId> byName = new HashMap<String,TypeId>();
+        byName.put(BOOLEAN_NAME, BOOLEAN_ID);
+        byName.put(CHAR_NAME, CHAR_ID);
+        byName.put(DATE_NAME, DATE_ID);
+        byName.put(DOUBLE_NAME, DOUBLE_ID);
+        byName.put(FLOAT_NAME, REAL_ID);
+        byName.put(INTEGER_NAME, INTEGER_ID);
+        byName.put(INT_NAME, INTEGER_ID);
+        byName.put(LONGINT_NAME, BIGINT_ID);
+        byName.put(REAL_NAME, REAL_ID);
+        byName.put(SMALLINT_NAME, SMALLINT_ID);
+        byName.put(TIME_NAME, TIME_ID);
+        byName.put(TIMESTAMP_NAME, TIMESTAMP_ID);
+        byName.put(VARCHAR_NAME, VARCHAR_ID);
+        byName.put(BIT_NAME, BIT_ID);
+        byName.put(VARBIT_NAME, VARBIT_ID);
+        byName.put(TINYINT_NAME, TINYINT_ID);
+        byName.put(DECIMAL_NAME, DECIMAL_ID);
+        byName.put(NUMERIC_NAME, NUMERIC_ID);
+        byName.put(LONGVARCHAR_NAME, LONGVARCHAR_ID);
+        byName.put(LONGVARBIT_NAME, LONGVARBIT_ID);
+        byName.put(BLOB_NAME, BLOB_ID);
+        byName.put(CLOB_NAME, CLOB_ID);
+        byName.put(XML_NAME, XML_ID);
+        byName.put(INTERVAL_YEAR_NAME, INTERVAL_YEAR_ID);
+        byName.put(INTERVAL_MONTH_NAME, INTERVAL_MONTH_ID);
+        byName.put(INTERVAL_YEAR_MONTH_NAME, INTERVAL_YEAR_MONTH_ID);
+        byName.put(INTERVAL_DAY_NAME, INTERVAL_DAY_ID);
+        byName.put(INTERVAL_HOUR_NAME, INTERVAL_HOUR_ID);
+        byName.put(INTERVAL_MINUTE_NAME, INTERVAL_MINUTE_ID);
+        byName.put(INTERVAL_SECOND_NAME, INTERVAL_SECOND_ID);
+        byName.put(INTERVAL_DAY_HOUR_NAME, INTERVAL_DAY_HOUR_ID);
+        byName.put(INTERVAL_DAY_MINUTE_NAME, INTERVAL_DAY_MINUTE_ID);
+        byName.put(INTERVAL_DAY_SECOND_NAME, INTERVAL_DAY_SECOND_ID);
+        byName.put(INTERVAL_HOUR_MINUTE_NAME, INTERVAL_HOUR_MINUTE_ID);
+        byName.put(INTERVAL_HOUR_SECOND_NAME, INTERVAL_HOUR_SECOND_ID);
+        byName.put(INTERVAL_MINUTE_SECOND_NAME, INTERVAL_MINUTE_SECOND_ID);
+        byName.put(TINYINT_UNSIGNED_NAME, TINYINT_UNSIGNED_ID);
+        byName.put(SMALLINT_UNSIGNED_NAME, SMALLINT_UNSIGNED_ID);
+        byName.put(INTEGER_UNSIGNED_NAME, INTEGER_UNSIGNED_ID);
+        byName.put(INT_UNSIGNED_NAME, INTEGER_UNSIGNED_ID);
+        byName.put(LONGINT_UNSIGNED_NAME, BIGINT_UNSIGNED_ID);
+        byName.put(FLOAT_UNSIGNED_NAME, REAL_UNSIGNED_ID);
+        byName.put(REAL_UNSIGNED_NAME, REAL_UNSIGNED_ID);
+        byName.put(DOUBLE_UNSIGNED_NAME, DOUBLE_UNSIGNED_ID);
+        byName.put(NUMERIC_UNSIGNED_NAME, NUMERIC_UNSIGNED_ID);
+        byName.put(DECIMAL_UNSIGNED_NAME, DECIMAL_UNSIGNED_ID);
+        byName.put(DATETIME_NAME, DATETIME_ID);
+        byName.put(YEAR_NAME, YEAR_ID);
+        // Types defined below here are SQL types and non-JDBC types that are
+        // supported by Derby
+        byName.put(REF_NAME, REF_ID);
+        BUILTIN_BY_NAME = Collections.unmodifiableMap(byName);
+
+        Map<String,TypeId> byJavaType = new HashMap<String,TypeId>();
+        byJavaType.put("java.lang.Boolean", BOOLEAN_ID);
+        byJavaType.put("boolean", BOOLEAN_ID);
+        byJavaType.put("byte[]", VARBIT_ID);
+        byJavaType.put("java.lang.String", VARCHAR_ID);
+        byJavaType.put("java.lang.Integer", INTEGER_ID);
+        byJavaType.put("int", INTEGER_ID);
+        byJavaType.put("byte", TINYINT_ID);
+        byJavaType.put("short", SMALLINT_ID);
+        byJavaType.put("java.lang.Long", BIGINT_ID);
+        byJavaType.put("long", BIGINT_ID);
+        byJavaType.put("java.lang.Float", REAL_ID);
+        byJavaType.put("float", REAL_ID);
+        byJavaType.put("java.lang.Double", DOUBLE_ID);
+        byJavaType.put("double", DOUBLE_ID);
+        byJavaType.put("java.math.BigDecimal", DECIMAL_ID);
+        byJavaType.put("java.sql.Date", DATE_ID);
+        byJavaType.put("java.sql.Time", TIME_ID);
+        byJavaType.put("java.sql.Timestamp", TIMESTAMP_ID);
+        byJavaType.put("java.sql.Blob", BLOB_ID);
+        byJavaType.put("java.sql.Clob", CLOB_ID);
+        byJavaType.put("com.akiban.sql.types.XML", XML_ID);
+        BUILTIN_BY_JAVA_TYPE = Collections.unmodifiableMap(byJavaType);
+
+        // Types.BIT (-7) is the smallest and Types.SQLXML (2009) the
+        // largest JDBC type id that maps to a builtin type.
+        TypeId[] byJDBCType = new TypeId[Types.SQLXML - JDBC_TYPE_BASE + 1];
+        byJDBCType[Types.TINYINT - JDBC_TYPE_BASE] = TINYINT_ID;
+        byJDBCType[Types.SMALLINT - JDBC_TYPE_BASE] = SMALLINT_ID;
+        byJDBCType[Types.INTEGER - JDBC_TYPE_BASE] = INTEGER_ID;
+        byJDBCType[Types.BIGINT - JDBC_TYPE_BASE] = BIGINT_ID;
+        byJDBCType[Types.FLOAT - JDBC_TYPE_BASE] = REAL_ID;
+        byJDBCType[Types.REAL - JDBC_TYPE_BASE] = REAL_ID;
+        byJDBCType[Types.DOUBLE - JDBC_TYPE_BASE] = DOUBLE_ID;
+        byJDBCType[Types.DECIMAL - JDBC_TYPE_BASE] = DECIMAL_ID;
+        byJDBCType[Types.NUMERIC - JDBC_TYPE_BASE] = NUMERIC_ID;
+        byJDBCType[Types.CHAR - JDBC_TYPE_BASE] = CHAR_ID;
+        byJDBCType[Types.VARCHAR - JDBC_TYPE_BASE] = VARCHAR_ID;
+        byJDBCType[Types.DATE - JDBC_TYPE_BASE] = DATE_ID;
+        byJDBCType[Types.TIME - JDBC_TYPE_BASE] = TIME_ID;
+        byJDBCType[Types.TIMESTAMP - JDBC_TYPE_BASE] = TIMESTAMP_ID;
+        byJDBCType[Types.BIT - JDBC_TYPE_BASE] = BOOLEAN_ID;
+        byJDBCType[Types.BOOLEAN - JDBC_TYPE_BASE] = BOOLEAN_ID;
+        byJDBCType[Types.BINARY - JDBC_TYPE_BASE] = BIT_ID;
+        byJDBCType[Types.VARBINARY - JDBC_TYPE_BASE] = VARBIT_ID;
+        byJDBCType[Types.LONGVARBINARY - JDBC_TYPE_BASE] = LONGVARBIT_ID;
+        byJDBCType[Types.LONGVARCHAR - JDBC_TYPE_BASE] = LONGVARCHAR_ID;
+        byJDBCType[Types.BLOB - JDBC_TYPE_BASE] = BLOB_ID;
+        byJDBCType[Types.CLOB - JDBC_TYPE_BASE] = CLOB_ID;
+        byJDBCType[Types.SQLXML - JDBC_TYPE_BASE] = XML_ID;
+        BUILTIN_BY_JDBC_TYPE = byJDBCType;
+    }
+
     /*
     ** Static methods to obtain TypeIds
     */
@@ -419,76 +541,10 @@ public class TypeId
      */
 
     public static TypeId getBuiltInTypeId(int JDBCTypeId) {
-
-        switch (JDBCTypeId) {
-        case Types.TINYINT:
-            return TINYINT_ID;
-
-        case Types.SMALLINT:
-            return SMALLINT_ID;
-
-        case Types.INTEGER:
-            return INTEGER_ID;
-
-        case Types.BIGINT:
-            return BIGINT_ID;
-
-        case Types.FLOAT:
-        case Types.REAL:
-            return REAL_ID;
-
-        case Types.DOUBLE:
-            return DOUBLE_ID;
-
-        case Types.DECIMAL:
-            return DECIMAL_ID;
-
-        case Types.NUMERIC:
-            return NUMERIC_ID;
-
-        case Types.CHAR:
-            return CHAR_ID;
-
-        case Types.VARCHAR:
-            return VARCHAR_ID;
-
-        case Types.DATE:
-            return DATE_ID;
-
-        case Types.TIME:
-            return TIME_ID;
-
-        case Types.TIMESTAMP:
-            return TIMESTAMP_ID;
-
-        case Types.BIT:
-        case Types.BOOLEAN:
-            return BOOLEAN_ID;
-
-        case Types.BINARY:
-            return BIT_ID;
-
-        case Types.VARBINARY:
-            return VARBIT_ID;
-
-        case Types.LONGVARBINARY:
-            return LONGVARBIT_ID;
-
-        case Types.LONGVARCHAR:
-            return LONGVARCHAR_ID;
-
-        case Types.BLOB:
-            return BLOB_ID;
-
-        case Types.CLOB:
-            return CLOB_ID;
-
-        case Types.SQLXML: // 2009
-            return XML_ID;
-                        
-        default:
+        int index = JDBCTypeId - JDBC_TYPE_BASE;
+        if ((index < 0) || (index >= BUILTIN_BY_JDBC_TYPE.length))
             return null;
-        }
+        return BUILTIN_BY_JDBC_TYPE[index];
     }
 
     public static TypeId getUserDefinedTypeId(String className, 
@@ -529,77 +585,26 @@ public class TypeId
      */
     public static TypeId getSQLTypeForJavaType(String javaTypeName)
             throws StandardException {
-        if (javaTypeName.equals("java.lang.Boolean") ||
-            javaTypeName.equals("boolean")) {
-            return BOOLEAN_ID;
-        }
-        else if (javaTypeName.equals("byte[]")) {
-            return VARBIT_ID;
-        }
-        else if (javaTypeName.equals("java.lang.String")) {
-            return VARCHAR_ID;
-        }
-        else if (javaTypeName.equals("java.lang.Integer") ||
-                 javaTypeName.equals("int")) {
-            return INTEGER_ID;
-        }
-        else if (javaTypeName.equals("byte")) {
-            return TINYINT_ID;
-        }
-        else if (javaTypeName.equals("short")) {
-            return SMALLINT_ID;
-        }
-        else if (javaTypeName.equals("java.lang.Long") ||
-                 javaTypeName.equals("long")) {
-            return BIGINT_ID;
-        }
-        else if (javaTypeName.equals("java.lang.Float") ||
-                 javaTypeName.equals("float")) {
-            return REAL_ID;
-        }
-        else if (javaTypeName.equals("java.lang.Double") ||
-                 javaTypeName.equals("double")) {
-            return DOUBLE_ID;
-        }
-        else if (javaTypeName.equals("java.math.BigDecimal")) {
-            return DECIMAL_ID;
-        }
-        else if (javaTypeName.equals("java.sql.Date")) {
-            return DATE_ID;
-        }
-        else if (javaTypeName.equals("java.sql.Time")) {
-            return TIME_ID;
-        }
-        else if (javaTypeName.equals("java.sql.Timestamp")) {
-            return TIMESTAMP_ID;
-        }
-        else if (javaTypeName.equals("java.sql.Blob")) {
-            return BLOB_ID;
-        }
-        else if (javaTypeName.equals("java.sql.Clob")) {
-            return CLOB_ID;
-        }
-        else if (javaTypeName.equals("com.akiban.sql.types.XML")) {
-            return XML_ID;
-        }
-        else {
-            /*
-            ** If it's a Java primitive type, return null to indicate that
-            ** there is no corresponding SQL type (all the Java primitive
-            ** types that have corresponding SQL types are handled above).
-            **
-            ** There is only one primitive type not mentioned above, char.
-            */
-            if (javaTypeName.equals("char")) {
-                return null;
-            }
+        TypeId typeId = BUILTIN_BY_JAVA_TYPE.get(javaTypeName);
+        if (typeId != null)
+            return typeId;
 
-            /*
-            ** It's a non-primitive type (a class) that does not correspond
-            ** to a SQL built-in type, so treat it as a user-defined type.
-            */
-            return TypeId.getUserDefinedTypeId(javaTypeName, false);
+        /*
+        ** If it's a Java primitive type, return null to indicate that
+        ** there is no corresponding SQL type (all the Java primitive
+        ** types that have corresponding SQL types are handled above).
+        **
+        ** There is only one primitive type not mentioned above, char.
+        */
+        if (javaTypeName.equals("char")) {
+            return null;
         }
+
+        /*
+        ** It's a non-primitive type (a class) that does not correspond
+        ** to a SQL built-in type, so treat it as a user-defined type.
+        */
+        return TypeId.getUserDefinedTypeId(javaTypeName, false);
     }
 
     /**
@@ -608,154 +613,7 @@ public class TypeId
      * @return TypeId or null if there is no corresponding SQL type.
      */
     public static TypeId getBuiltInTypeId(String SQLTypeName) {
-
-        if (SQLTypeName.equals(BOOLEAN_NAME)) {
-            return BOOLEAN_ID;
-        }
-        if (SQLTypeName.equals(CHAR_NAME)) {
-            return CHAR_ID;
-        }
-        if (SQLTypeName.equals(DATE_NAME)) {
-            return DATE_ID;
-        }
-        if (SQLTypeName.equals(DOUBLE_NAME)) {
-            return DOUBLE_ID;
-        }
-        if (SQLTypeName.equals(FLOAT_NAME)) {
-            return REAL_ID;
-        }
-        if (SQLTypeName.equals(INTEGER_NAME) ||
-            SQLTypeName.equals(INT_NAME)) {
-            return INTEGER_ID;
-        }
-        if (SQLTypeName.equals(LONGINT_NAME)) {
-            return BIGINT_ID;
-        }
-        if (SQLTypeName.equals(REAL_NAME)) {
-            return REAL_ID;
-        }
-        if (SQLTypeName.equals(SMALLINT_NAME)) {
-            return SMALLINT_ID;
-        }
-        if (SQLTypeName.equals(TIME_NAME)) {
-            return TIME_ID;
-        }
-        if (SQLTypeName.equals(TIMESTAMP_NAME)) {
-            return TIMESTAMP_ID;
-        }
-        if (SQLTypeName.equals(VARCHAR_NAME)) {
-            return VARCHAR_ID;
-        }
-        if (SQLTypeName.equals(BIT_NAME)) {
-            return BIT_ID;
-        }
-        if (SQLTypeName.equals(VARBIT_NAME)) {
-            return VARBIT_ID;
-        }
-        if (SQLTypeName.equals(TINYINT_NAME)) {
-            return TINYINT_ID;
-        }
-        if (SQLTypeName.equals(DECIMAL_NAME)) {
-            return DECIMAL_ID;
-        }
-        if (SQLTypeName.equals(NUMERIC_NAME)) {
-            return NUMERIC_ID;
-        }
-        if (SQLTypeName.equals(LONGVARCHAR_NAME)) {
-            return LONGVARCHAR_ID;
-        }
-        if (SQLTypeName.equals(LONGVARBIT_NAME)) {
-            return LONGVARBIT_ID;
-        }
-        if (SQLTypeName.equals(BLOB_NAME)) {
-            return BLOB_ID;
-        }
-        if (SQLTypeName.equals(CLOB_NAME)) {
-            return CLOB_ID;
-        }
-        if (SQLTypeName.equals(XML_NAME)) {
-            return XML_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_YEAR_NAME)) {
-            return INTERVAL_YEAR_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_MONTH_NAME)) {
-            return INTERVAL_MONTH_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_YEAR_MONTH_NAME)) {
-            return INTERVAL_YEAR_MONTH_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_DAY_NAME)) {
-            return INTERVAL_DAY_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_HOUR_NAME)) {
-            return INTERVAL_HOUR_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_MINUTE_NAME)) {
-            return INTERVAL_MINUTE_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_SECOND_NAME)) {
-            return INTERVAL_SECOND_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_DAY_HOUR_NAME)) {
-            return INTERVAL_DAY_HOUR_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_DAY_MINUTE_NAME)) {
-            return INTERVAL_DAY_MINUTE_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_DAY_SECOND_NAME)) {
-            return INTERVAL_DAY_SECOND_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_HOUR_MINUTE_NAME)) {
-            return INTERVAL_HOUR_MINUTE_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_HOUR_SECOND_NAME)) {
-            return INTERVAL_HOUR_SECOND_ID;
-        }
-        if (SQLTypeName.equals(INTERVAL_MINUTE_SECOND_NAME)) {
-            return INTERVAL_MINUTE_SECOND_ID;
-        }
-        if (SQLTypeName.equals(TINYINT_UNSIGNED_NAME)) {
-            return TINYINT_UNSIGNED_ID;
-        }
-        if (SQLTypeName.equals(SMALLINT_UNSIGNED_NAME)) {
-            return SMALLINT_UNSIGNED_ID;
-        }
-        if (SQLTypeName.equals(INTEGER_UNSIGNED_NAME) ||
-            SQLTypeName.equals(INT_UNSIGNED_NAME)) {
-            return INTEGER_UNSIGNED_ID;
-        }
-        if (SQLTypeName.equals(LONGINT_UNSIGNED_NAME)) {
-            return BIGINT_UNSIGNED_ID;
-        }
-        if (SQLTypeName.equals(FLOAT_UNSIGNED_NAME)) {
-            return REAL_UNSIGNED_ID;
-        }
-        if (SQLTypeName.equals(REAL_UNSIGNED_NAME)) {
-            return REAL_UNSIGNED_ID;
-        }
-        if (SQLTypeName.equals(DOUBLE_UNSIGNED_NAME)) {
-            return DOUBLE_UNSIGNED_ID;
-        }
-        if (SQLTypeName.equals(NUMERIC_UNSIGNED_NAME)) {
-            return NUMERIC_UNSIGNED_ID;
-        }
-        if (SQLTypeName.equals(DECIMAL_UNSIGNED_NAME)) {
-            return DECIMAL_UNSIGNED_ID;
-        }
-        if (SQLTypeName.equals(DATETIME_NAME)) {
-            return DATETIME_ID;
-        }
-        if (SQLTypeName.equals(YEAR_NAME)) {
-            return YEAR_ID;
-        }
-
-        // Types defined below here are SQL types and non-JDBC types that are
-        // supported by Derby
-        if (SQLTypeName.equals(REF_NAME)) {
-            return REF_ID;
-        }
-        return null;
+        return BUILTIN_BY_NAME.get(SQLTypeName);
     }
 
     /*
@@ -21,6 +21,10 @@ import com.akiban.sql.parser.*;
 
 import com.akiban.sql.StandardException;
 
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+
 public class NodeToString
 {
     public NodeToString() {
@@ -853,6 +857,12 @@ public class NodeToString
             return String.format("%e", value);
         else if (value instanceof Boolean)
             return value.toString().toUpperCase();
+        else if (value instanceof Date)
+            return "DATE '" + value + "'";
+        else if (value instanceof Time)
+            return "TIME '" + value + "'";
+        else if (value instanceof Timestamp)
+            return "TIMESTAMP '" + value + "'";
         else
             return value.toString();
     }
@@ -0,0 +1,334 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.views;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of view definitions, with each view's body expanded once and
+ * cached.
+ *
+ * When a view refers to other views, the cached body has those
+ * references replaced by the referenced views' own expanded bodies, so
+ * expanding a view takes a single deep copy however deeply its views
+ * are nested. The registry records which views refer to each table name.
+ * Creating or dropping a view therefore discards only the cached bodies
+ * that depend on it.
+ *
+ * The definitions and the cached bodies are shared and must not be
+ * modified. Callers that only read a body can use {@link
+ * #getExpandedSubquery}. Callers that will bind or rewrite it should
+ * take their own copy with {@link #copyExpandedSubquery}.
+ */
+public class ViewRegistry
+{
+    static class Entry {
+        final String key;
+        final ViewDefinition view;
+        final Set<String> references;
+        FromSubquery expanded;
+
+        Entry(String key, ViewDefinition view, Set<String> references) {
+            this.key = key;
+            this.view = view;
+            this.references = references;
+        }
+    }
+
+    private final String defaultSchemaName;
+    private final Map<String,Entry> views = new HashMap<String,Entry>();
+    // Referenced table name -> names of views whose definitions refer to it.
+    private final Map<String,Set<String>> dependents = new HashMap<String,Set<String>>();
+
+    /**
+     * Make a registry in which unqualified names belong to the given
+     * schema. The schema name may be <code>null</code>.
+     */
+    public ViewRegistry(String defaultSchemaName) {
+        this.defaultSchemaName = defaultSchemaName;
+    }
+
+    public String getDefaultSchemaName() {
+        return defaultSchemaName;
+    }
+
+    /**
+     * Add a view (CREATE VIEW).
+     * @throws StandardException if a view of that name already exists or
+     * the new view would refer to itself, directly or indirectly.
+     */
+    public synchronized void addView(ViewDefinition view) throws StandardException {
+        TableName name = view.getName();
+        String key = tableKey(name, defaultSchemaName);
+        if (views.containsKey(key))
+            throw new StandardException("View " + name.getFullTableName() +
+                                        " already exists");
+        Set<String> references = references(view, key);
+        if (references.contains(key))
+            throw new StandardException("View " + name.getFullTableName() +
+                                        " refers to itself");
+        for (String dependent : dependentKeys(key)) {
+            if (references.contains(dependent))
+                throw new StandardException("View " + name.getFullTableName() +
+                                            " refers to itself through " +
+                                            views.get(dependent).view.getName().getFullTableName());
+        }
+        views.put(key, new Entry(key, view, references));
+        for (String reference : references) {
+            Set<String> users = dependents.get(reference);
+            if (users == null) {
+                users = new HashSet<String>();
+                dependents.put(reference, users);
+            }
+            users.add(key);
+        }
+        // Views that referred to this name as a table now have to expand it.
+        invalidateDependents(key);
+    }
+
+    /**
+     * Remove a view (DROP VIEW).
+     * @return the removed definition or <code>null</code> if there was none.
+     */
+    public synchronized ViewDefinition dropView(TableName name) {
+        String key = tableKey(name, defaultSchemaName);
+        Entry entry = views.remove(key);
+        if (entry == null)
+            return null;
+        for (String reference : entry.references) {
+            Set<String> users = dependents.get(reference);
+            if (users != null) {
+                users.remove(key);
+                if (users.isEmpty())
+                    dependents.remove(reference);
+            }
+        }
+        invalidateDependents(key);
+        return entry.view;
+    }
+
+    /**
+     * Get the definition of the named view, or <code>null</code> if it is
+     * not a view.
+     */
+    public synchronized ViewDefinition getView(TableName name) {
+        Entry entry = views.get(tableKey(name, defaultSchemaName));
+        if (entry == null)
+            return null;
+        return entry.view;
+    }
+
+    /**
+     * Get the names of all views.
+     */
+    public synchronized List<TableName> getViewNames() {
+        List<TableName> result = new ArrayList<TableName>(views.size());
+        for (Entry entry : views.values()) {
+            result.add(entry.view.getName());
+        }
+        return result;
+    }
+
+    /**
+     * Get the names of the views that depend on the named table or view,
+     * directly or through other views.
+     */
+    public synchronized List<TableName> getDependentViews(TableName name) {
+        Set<String> keys = dependentKeys(tableKey(name, defaultSchemaName));
+        List<TableName> result = new ArrayList<TableName>(keys.size());
+        for (String key : keys) {
+            result.add(views.get(key).view.getName());
+        }
+        return result;
+    }
+
+    /**
+     * Get the shared body of the named view with any views it refers to
+     * already expanded, or <code>null</code> if it is not a view.
+     * The result must not be modified.
+     */
+    public synchronized FromSubquery getExpandedSubquery(TableName name)
+            throws StandardException {
+        Entry entry = views.get(tableKey(name, defaultSchemaName));
+        if (entry == null)
+            return null;
+        return expand(entry);
+    }
+
+    /**
+     * Get the expanded body of the named view as a subquery belonging to
+     * the given context, or <code>null</code> if it is not a view.
+     */
+    public FromSubquery copyExpandedSubquery(TableName name,
+                                             SQLParserContext parserContext)
+            throws StandardException {
+        FromSubquery expanded = getExpandedSubquery(name);
+        if (expanded == null)
+            return null;
+        // The cached body is never modified once built, so the copy can
+        // be made outside the lock.
+        return (FromSubquery)
+            parserContext.getNodeFactory().copyNode(expanded, parserContext);
+    }
+
+    /** Make the key for a table name, qualifying it if necessary. */
+    protected static String tableKey(TableName name, String schemaName) {
+        if (name.hasSchema())
+            schemaName = name.getSchemaName();
+        if (schemaName == null)
+            return name.getTableName();
+        return schemaName + "." + name.getTableName();
+    }
+
+    /** Names in a view body default to the view's own schema. */
+    protected String bodySchemaName(ViewDefinition view) {
+        TableName name = view.getName();
+        if (name.hasSchema())
+            return name.getSchemaName();
+        return defaultSchemaName;
+    }
+
+    /** Get the keys of all the tables referred to by the view's body. */
+    protected Set<String> references(ViewDefinition view, String key)
+            throws StandardException {
+        final String schemaName = bodySchemaName(view);
+        final Set<String> references = new HashSet<String>();
+        view.getSubquery().accept(new Visitor() {
+                public Visitable visit(Visitable node) {
+                    if (node instanceof FromBaseTable) {
+                        TableName name = ((FromBaseTable)node).getOrigTableName();
+                        references.add(tableKey(name, schemaName));
+                    }
+                    return node;
+                }
+                public boolean visitChildrenFirst(Visitable node) {
+                    return false;
+                }
+                public boolean stopTraversal() {
+                    return false;
+                }
+                public boolean skipChildren(Visitable node) {
+                    return (node instanceof FromBaseTable);
+                }
+            });
+        return references;
+    }
+
+    /** Get the keys of all views that depend on the given key. */
+    protected Set<String> dependentKeys(String key) {
+        Set<String> result = new LinkedHashSet<String>();
+        Deque<String> pending = new ArrayDeque<String>();
+        pending.add(key);
+        while (!pending.isEmpty()) {
+            Set<String> users = dependents.get(pending.remove());
+            if (users == null) continue;
+            for (String user : users) {
+                if (result.add(user))
+                    pending.add(user);
+            }
+        }
+        return result;
+    }
+
+    protected void invalidateDependents(String key) {
+        for (String dependent : dependentKeys(key)) {
+            views.get(dependent).expanded = null;
+        }
+    }
+
+    /** Get the cached expansion of a view, building it if necessary. */
+    protected FromSubquery expand(Entry entry) throws StandardException {
+        if (entry.expanded == null) {
+            FromSubquery subquery = entry.view.getSubquery();
+            if (refersToViews(entry.references)) {
+                SQLParserContext parserContext = subquery.getParserContext();
+                subquery = (FromSubquery)
+                    parserContext.getNodeFactory().copyNode(subquery, parserContext);
+                subquery = (FromSubquery)
+                    subquery.accept(new ViewExpander(bodySchemaName(entry.view),
+                                                     parserContext));
+            }
+            entry.expanded = subquery;
+        }
+        return entry.expanded;
+    }
+
+    protected boolean refersToViews(Collection<String> references) {
+        for (String reference : references) {
+            if (views.containsKey(reference))
+                return true;
+        }
+        return false;
+    }
+
+    /** Replace references to views with copies of their expanded bodies. */
+    class ViewExpander implements Visitor {
+        private final String schemaName;
+        private final SQLParserContext parserContext;
+
+        public ViewExpander(String schemaName, SQLParserContext parserContext) {
+            this.schemaName = schemaName;
+            this.parserContext = parserContext;
+        }
+
+        public Visitable visit(Visitable node) throws StandardException {
+            if (node instanceof FromBaseTable) {
+                FromBaseTable table = (FromBaseTable)node;
+                TableName name = table.getOrigTableName();
+                Entry entry = views.get(tableKey(name, schemaName));
+                if (entry != null) {
+                    NodeFactory nodeFactory = parserContext.getNodeFactory();
+                    FromSubquery subquery = (FromSubquery)
+                        nodeFactory.copyNode(expand(entry), parserContext);
+                    if (table.getCorrelationName() != null)
+                        subquery.setCorrelationName(table.getCorrelationName());
+                    else
+                        subquery.setCorrelationName(name.getTableName());
+                    subquery.setOrigTableName((TableName)
+                                              nodeFactory.copyNode(name, parserContext));
+                    return subquery;
+                }
+            }
+            return node;
+        }
+
+        public boolean visitChildrenFirst(Visitable node) {
+            return false;
+        }
+        public boolean stopTraversal() {
+            return false;
+        }
+        public boolean skipChildren(Visitable node) {
+            return (node instanceof FromBaseTable);
+        }
+    }
+
+}
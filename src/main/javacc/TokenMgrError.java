@@ -129,6 +129,16 @@ class TokenMgrError extends Error
   public TokenMgrError(String message, int reason) {
     super(message);
     errorCode = reason;
+    if (reason != LEXICAL_ERROR)
+      super.fillInStackTrace();
+  }
+
+  /**
+   * Lexical errors are reported with their position in the SQL text,
+   * so only record where others, which are bugs, were found.
+   */
+  public synchronized Throwable fillInStackTrace() {
+    return this;
   }
 
   /** Full Constructor. */
@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.compiler.PredicateCompilerTest.ArrayRow;
+import com.akiban.sql.parser.CursorNode;
+import com.akiban.sql.parser.SQLParser;
+import com.akiban.sql.parser.SelectNode;
+import com.akiban.sql.parser.StatementNode;
+import com.akiban.sql.parser.ValueNode;
+
+import java.util.Random;
+
+/**
+ * Time a batch predicate against evaluating the same condition a row
+ * at a time over the same column batch.
+ *
+ * Not a unit test; run with
+ * <code>java -cp target/classes:target/test-classes com.akiban.sql.compiler.BatchPredicateBenchmark [batches]</code>.
+ */
+public class BatchPredicateBenchmark
+{
+    public static void main(String[] args) throws Exception {
+        int nbatches = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        SQLParser parser = new SQLParser();
+        BooleanNormalizer normalizer = new BooleanNormalizer(parser);
+        normalizer.setCollapseComparisons(true);
+        StatementNode stmt = parser.parseStatement("SELECT * FROM t WHERE " + 
+                                                   BatchPredicateTest.COMBINED_CONDITION);
+        stmt = normalizer.normalize(stmt);
+        new PredicateCompilerTest.SchemaTypeComputer().compute(stmt);
+        ValueNode tree = ((SelectNode)((CursorNode)stmt).getResultSetNode()).getWhereClause();
+        BatchPredicate batchPredicate = 
+            new BatchPredicateCompiler(PredicateCompilerTest.COLUMNS).compile(tree);
+        CompiledPredicate rowPredicate = 
+            new PredicateCompiler(PredicateCompilerTest.COLUMNS).compile(tree);
+        ArrayRow[] rows = PredicateCompilerTest.randomRows(new Random(5), 
+                                                           ColumnBatch.DEFAULT_CAPACITY);
+        ColumnBatch batch = BatchPredicateTest.columnBatch(rows);
+        int[] selection = new int[rows.length];
+        int nrows = nbatches * rows.length;
+        for (int pass = 0; pass < 3; pass++) {
+            int batchCount = 0, rowCount = 0;
+            long start = System.nanoTime();
+            for (int j = 0; j < nbatches; j++) {
+                for (int i = 0; i < rows.length; i++) {
+                    batch.setPosition(i);
+                    if (rowPredicate.matches(batch))
+                        rowCount++;
+                }
+            }
+            long rowwise = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int j = 0; j < nbatches; j++) {
+                batchCount += batchPredicate.select(batch, selection);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%d rows (%d / %d selected): row at a time %.1f ns/row, batch %.1f ns/row",
+                                             nrows, rowCount, batchCount,
+                                             (double)rowwise / nrows, 
+                                             (double)elapsed / nrows));
+        }
+    }
+
+}
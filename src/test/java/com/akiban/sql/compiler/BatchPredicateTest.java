@@ -0,0 +1,238 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.compiler.PredicateCompilerTest.ArrayRow;
+import com.akiban.sql.compiler.PredicateCompilerTest.SchemaTypeComputer;
+import static com.akiban.sql.compiler.PredicateCompilerTest.*;
+
+import com.akiban.sql.parser.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import static junit.framework.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+public class BatchPredicateTest
+{
+    static final String[] BATCH_CONDITIONS = {
+        "a > 10 AND b <= 5",
+        "a = 3 OR a = 5 OR a = 7",
+        "d >= 1.5 AND d <= 7.25 AND s IS NOT NULL",
+        "s IN ('abc', 'bcd', 'x') AND c = 'ab'",
+        "s BETWEEN 'a' AND 'b' AND n > 2.5",
+        "f AND NOT (b IS NULL)",
+        "NOT f AND a + b < 10",
+        "a IN (1, 3, 5, b) AND s LIKE 'a%'",
+        "(a > 1 OR b < 3) AND (d > 2 OR s = 'ab')",
+        "a IS NULL AND d IN (0.25, 2, 3.5)",
+        "n BETWEEN 0.25 AND 10.5 AND n - 0.1 > 2.2",
+        "n IN (0.3, 1.25, 2) OR n * 3 = 0.9",
+        "a > 1 AND 1 = 0",
+        "TRUE",
+    };
+
+    protected SQLParser parser;
+    protected BooleanNormalizer normalizer;
+    protected BatchPredicateCompiler batchCompiler;
+    protected PredicateCompiler rowCompiler;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+        normalizer = new BooleanNormalizer(parser);
+        normalizer.setCollapseComparisons(true);
+        batchCompiler = new BatchPredicateCompiler(COLUMNS);
+        rowCompiler = new PredicateCompiler(COLUMNS);
+    }
+
+    protected ValueNode normalizedWhereClause(String condition) throws Exception {
+        StatementNode stmt = parser.parseStatement("SELECT * FROM t WHERE " + 
+                                                   condition);
+        stmt = normalizer.normalize(stmt);
+        new SchemaTypeComputer().compute(stmt);
+        return ((SelectNode)((CursorNode)stmt).getResultSetNode()).getWhereClause();
+    }
+
+    /** Store rows by column, in the representation for each type. */
+    static ColumnBatch columnBatch(ArrayRow[] rows) {
+        int nrows = rows.length;
+        ColumnBatch batch = new ColumnBatch(COLUMNS.size());
+        batch.setRowCount(nrows);
+        for (int j = 0; j < COLUMNS.size(); j++) {
+            long[] nullBits = ColumnBatch.newNullBits(nrows);
+            for (int i = 0; i < nrows; i++) {
+                if (rows[i].values[j] == null)
+                    ColumnBatch.setNull(nullBits, i);
+            }
+            switch (PredicateCompiler.typeKind(TYPES.get(COLUMNS.get(j)))) {
+            case LONG:
+                {
+                    long[] values = new long[nrows];
+                    for (int i = 0; i < nrows; i++)
+                        if (!rows[i].isNull(j))
+                            values[i] = rows[i].getLong(j);
+                    batch.setLongColumn(j, values, nullBits);
+                }
+                break;
+            case DECIMAL:
+                {
+                    BigDecimal[] values = new BigDecimal[nrows];
+                    for (int i = 0; i < nrows; i++)
+                        values[i] = (BigDecimal)rows[i].values[j];
+                    batch.setDecimalColumn(j, values, nullBits);
+                }
+                break;
+            case DOUBLE:
+                {
+                    double[] values = new double[nrows];
+                    for (int i = 0; i < nrows; i++)
+                        if (!rows[i].isNull(j))
+                            values[i] = rows[i].getDouble(j);
+                    batch.setDoubleColumn(j, values, nullBits);
+                }
+                break;
+            case STRING:
+                {
+                    String[] values = new String[nrows];
+                    for (int i = 0; i < nrows; i++)
+                        values[i] = rows[i].getString(j);
+                    batch.setStringColumn(j, values, nullBits);
+                }
+                break;
+            case BOOLEAN:
+                {
+                    boolean[] values = new boolean[nrows];
+                    for (int i = 0; i < nrows; i++)
+                        if (!rows[i].isNull(j))
+                            values[i] = rows[i].getBoolean(j);
+                    batch.setBooleanColumn(j, values, nullBits);
+                }
+                break;
+            }
+        }
+        return batch;
+    }
+
+    /** The rows selected by evaluating one at a time. */
+    static int[] selectRows(CompiledPredicate predicate, ArrayRow[] rows) 
+            throws Exception {
+        int[] selection = new int[rows.length];
+        int n = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (predicate.matches(rows[i]))
+                selection[n++] = i;
+        }
+        return Arrays.copyOf(selection, n);
+    }
+
+    @Test
+    public void sameAsRowwise() throws Exception {
+        ArrayRow[] rows = randomRows(new Random(3), ColumnBatch.DEFAULT_CAPACITY);
+        ColumnBatch batch = columnBatch(rows);
+        int[] selection = new int[rows.length];
+        for (String condition : BATCH_CONDITIONS) {
+            ValueNode tree = normalizedWhereClause(condition);
+            BatchPredicate batchPredicate = batchCompiler.compile(tree);
+            int n = batchPredicate.select(batch, selection);
+            int[] expected = selectRows(rowCompiler.compile(tree), rows);
+            assertEquals(condition, 
+                         Arrays.toString(expected), 
+                         Arrays.toString(Arrays.copyOf(selection, n)));
+        }
+    }
+
+    @Test
+    public void vectorizedConjuncts() throws Exception {
+        BatchPredicate batchPredicate = 
+            batchCompiler.compile(normalizedWhereClause("a > 10 AND a + b < 20 AND s IN ('x', 'y') AND d BETWEEN 1 AND 2.5 AND TRUE"));
+        assertEquals(4, batchPredicate.getConjunctCount());
+        assertEquals(3, batchPredicate.getVectorizedConjunctCount());
+    }
+
+    @Test
+    public void narrowSelection() throws Exception {
+        ArrayRow[] rows = randomRows(new Random(4), 100);
+        ColumnBatch batch = columnBatch(rows);
+        BatchPredicate batchPredicate = 
+            batchCompiler.compile(normalizedWhereClause("b >= 0"));
+        int[] selection = { 3, 10, 42, 99 };
+        int n = batchPredicate.select(batch, selection, selection.length);
+        int expected = 0;
+        for (int row : new int[] { 3, 10, 42, 99 }) {
+            if (!rows[row].isNull(1))
+                assertEquals(row, selection[expected++]);
+        }
+        assertEquals(expected, n);
+    }
+
+    @Test
+    public void decimalColumns() throws Exception {
+        String[] values = { "0.30", "0.10", "0.20", null, "1.25", "-0.30" };
+        ArrayRow[] rows = new ArrayRow[values.length];
+        for (int i = 0; i < values.length; i++) {
+            rows[i] = new ArrayRow(i, (long)i, 0.0,
+                                   (values[i] == null) ? null : new BigDecimal(values[i]),
+                                   "x", "ab   ", Boolean.TRUE);
+        }
+        ColumnBatch batch = columnBatch(rows);
+        String[][] cases = {
+            { "n * 3 = 0.9", "[0]" },
+            { "n - 0.1 = 0.2", "[0]" },
+            { "n + 0.2 IN (0.3, 0.5)", "[0, 1]" },
+            { "n = 0.3 AND n + n = 0.6", "[0]" },
+            { "n IN (0.1, 0.2, 1.250)", "[1, 2, 4]" },
+            { "n BETWEEN 0.1 AND 0.3", "[0, 1, 2]" },
+            { "n >= 0.2", "[0, 2, 4]" },
+        };
+        int[] selection = new int[rows.length];
+        for (String[] entry : cases) {
+            ValueNode tree = normalizedWhereClause(entry[0]);
+            int n = batchCompiler.compile(tree).select(batch, selection);
+            assertEquals(entry[0], entry[1], Arrays.toString(Arrays.copyOf(selection, n)));
+            assertEquals(entry[0], entry[1], 
+                         Arrays.toString(selectRows(rowCompiler.compile(tree), rows)));
+        }
+        BatchPredicate batchPredicate = 
+            batchCompiler.compile(normalizedWhereClause("n BETWEEN 0.1 AND 0.3 AND n IN (0.3, 1) AND n > 0 AND n * 3 = 0.9"));
+        assertEquals(3, batchPredicate.getVectorizedConjunctCount());
+    }
+
+    static final String COMBINED_CONDITION = 
+        "a > 0 AND d < 7.5 AND b <> 3 AND s IN ('abc', 'x', 'ab') AND a - b < 10";
+
+    @Test
+    public void compareWithRowwise() throws Exception {
+        ArrayRow[] rows = randomRows(new Random(5), ColumnBatch.DEFAULT_CAPACITY);
+        ColumnBatch batch = columnBatch(rows);
+        ValueNode tree = normalizedWhereClause(COMBINED_CONDITION);
+        BatchPredicate batchPredicate = batchCompiler.compile(tree);
+        CompiledPredicate rowPredicate = rowCompiler.compile(tree);
+        int[] selection = new int[rows.length];
+        int rowCount = 0;
+        for (int i = 0; i < rows.length; i++) {
+            batch.setPosition(i);
+            if (rowPredicate.matches(batch))
+                rowCount++;
+        }
+        assertEquals(rowCount, batchPredicate.select(batch, selection));
+    }
+}
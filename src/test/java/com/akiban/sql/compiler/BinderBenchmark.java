@@ -0,0 +1,75 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.SQLParser;
+import com.akiban.sql.parser.StatementNode;
+
+import com.akiban.sql.types.DataTypeDescriptor;
+import com.akiban.sql.types.TypeId;
+
+import java.util.Random;
+
+/**
+ * Time binding statements against catalogs of different sizes, which
+ * should take about the same time per statement however many tables
+ * there are.
+ *
+ * Not a unit test; run with
+ * <code>java -cp target/classes:target/test-classes com.akiban.sql.compiler.BinderBenchmark [statements]</code>.
+ */
+public class BinderBenchmark
+{
+    public static final int COLUMNS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int nstmts = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        for (int ntables : new int[] { 100, 5000, 50000 }) {
+            InMemoryCatalog catalog = new InMemoryCatalog();
+            for (int i = 0; i < ntables; i++) {
+                InMemoryCatalog.InMemoryTable table = catalog.addTable("test", "t" + i);
+                for (int j = 0; j < COLUMNS; j++) {
+                    table.addColumn("c" + j, new DataTypeDescriptor(TypeId.INTEGER_ID, true));
+                }
+            }
+            SQLParser parser = new SQLParser();
+            Random random = new Random(ntables);
+            StatementNode[] stmts = new StatementNode[nstmts];
+            for (int i = 0; i < nstmts; i++) {
+                int t1 = random.nextInt(ntables), t2 = random.nextInt(ntables);
+                int c1 = random.nextInt(COLUMNS), c2 = random.nextInt(COLUMNS);
+                stmts[i] = parser.parseStatement("SELECT x.c" + c1 + ", y.c" + c2 +
+                                                 " FROM t" + t1 + " x INNER JOIN t" + t2 + 
+                                                 " y ON x.c0 = y.c1 WHERE x.c" + c2 + 
+                                                 " > 10 AND y.c" + c1 + " IS NOT NULL");
+            }
+            Binder binder = new Binder(parser, catalog, "test");
+            for (int pass = 0; pass < 3; pass++) {
+                long start = System.nanoTime();
+                for (StatementNode stmt : stmts) {
+                    binder.bind(stmt);
+                }
+                long elapsed = System.nanoTime() - start;
+                System.out.println(String.format("%d tables: %d statements in %.2f ms, %.0f per second",
+                                                 ntables, nstmts, elapsed / 1.0e6,
+                                                 nstmts * 1.0e9 / elapsed));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+import com.akiban.sql.unparser.NodeToString;
+
+import com.akiban.sql.StandardException;
+import com.akiban.sql.types.DataTypeDescriptor;
+import com.akiban.sql.types.TypeId;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinderTest
+{
+    protected SQLParser parser;
+    protected InMemoryCatalog catalog;
+    protected Binder binder;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+        catalog = new InMemoryCatalog();
+        InMemoryCatalog.InMemoryTable t = catalog.addTable("test", "t");
+        t.addColumn("a", new DataTypeDescriptor(TypeId.INTEGER_ID, false));
+        t.addColumn("b", new DataTypeDescriptor(TypeId.VARCHAR_ID, true, 10));
+        t.addColumn("k", new DataTypeDescriptor(TypeId.INTEGER_ID, true));
+        InMemoryCatalog.InMemoryTable u = catalog.addTable("test", "u");
+        u.addColumn("k", new DataTypeDescriptor(TypeId.INTEGER_ID, false));
+        u.addColumn("c", new DataTypeDescriptor(TypeId.DOUBLE_ID, false));
+        InMemoryCatalog.InMemoryTable v = catalog.addTable("s", "v");
+        v.addColumn("x", new DataTypeDescriptor(TypeId.INTEGER_ID, true));
+        binder = new Binder(parser, catalog, "test");
+    }
+
+    protected StatementNode bind(String sql) throws Exception {
+        return binder.bind(parser.parseStatement(sql));
+    }
+
+    /** The statement after binding, followed by each column and what it is bound to. */
+    protected String bindings(String sql) throws Exception {
+        StatementNode stmt = bind(sql);
+        final List<String> bindings = new ArrayList<String>();
+        stmt.accept(new Visitor() {
+                public Visitable visit(Visitable node) {
+                    if (node instanceof ColumnReference) {
+                        ColumnReference column = (ColumnReference)node;
+                        bindings.add(column.getSQLColumnName() + "=" + column.getUserData());
+                    }
+                    return node;
+                }
+                public boolean visitChildrenFirst(Visitable node) {
+                    return false;
+                }
+                public boolean stopTraversal() {
+                    return false;
+                }
+                public boolean skipChildren(Visitable node) {
+                    return false;
+                }
+            });
+        return new NodeToString().toString(stmt) + " " + bindings;
+    }
+
+    protected String bindError(String sql) throws Exception {
+        try {
+            bind(sql);
+            return null;
+        }
+        catch (StandardException ex) {
+            return ex.getMessage();
+        }
+    }
+
+    @Test
+    public void columns() throws Exception {
+        assertEquals("SELECT a, t.b AS b FROM t WHERE k = 1 [a=test.t.a, t.b=test.t.b, k=test.t.k]",
+                     bindings("SELECT a, t.b FROM t WHERE k = 1"));
+        assertEquals("SELECT x.a AS a, v.x AS x FROM t AS x, s.v WHERE v.x = x.k [x.a=test.t.a, v.x=s.v.x, v.x=s.v.x, x.k=test.t.k]",
+                     bindings("SELECT x.a, v.x FROM t x, s.v WHERE v.x = x.k"));
+        assertEquals("SELECT a FROM t WHERE EXISTS (SELECT c FROM u WHERE (u.k = t.k) AND (a > 0)) [a=test.t.a, c=test.u.c, u.k=test.u.k, t.k=test.t.k, a=test.t.a]",
+                     bindings("SELECT a FROM t WHERE EXISTS (SELECT c FROM u WHERE u.k = t.k AND a > 0)"));
+        assertEquals("SELECT d.y AS y FROM (SELECT a AS y FROM t) AS d WHERE y > 1 [d.y=d.y, a=test.t.a, y=d.y]",
+                     bindings("SELECT d.y FROM (SELECT a AS y FROM t) d WHERE y > 1"));
+        assertEquals("SELECT a AS z FROM t ORDER BY z, b [a=test.t.a, z=test.t.a, b=test.t.b]",
+                     bindings("SELECT a AS z FROM t ORDER BY z, b"));
+        assertEquals("SELECT (a + 1) AS y FROM t ORDER BY y [a=test.t.a, y=y]",
+                     bindings("SELECT a + 1 AS y FROM t ORDER BY y"));
+    }
+
+    @Test
+    public void star() throws Exception {
+        assertEquals("SELECT t.a AS a, t.b AS b, t.k AS k FROM t [t.a=test.t.a, t.b=test.t.b, t.k=test.t.k]",
+                     bindings("SELECT * FROM t"));
+        assertEquals("SELECT u.k AS k, u.c AS c, a FROM t, u [u.k=test.u.k, u.c=test.u.c, a=test.t.a]",
+                     bindings("SELECT u.*, a FROM t, u"));
+        assertEquals("SELECT t.a AS a, t.b AS b, t.k AS k, u.c AS c FROM t INNER JOIN u USING (k) [t.a=test.t.a, t.b=test.t.b, t.k=test.t.k, u.c=test.u.c]",
+                     bindings("SELECT * FROM t INNER JOIN u USING (k)"));
+        assertEquals("SELECT t.a AS a, t.b AS b, t.k AS k, u.c AS c FROM t NATURAL INNER JOIN u [t.a=test.t.a, t.b=test.t.b, t.k=test.t.k, u.c=test.u.c]",
+                     bindings("SELECT * FROM t NATURAL JOIN u"));
+        assertEquals("SELECT t.a AS a, t.b AS b, u.k AS k, u.c AS c FROM t RIGHT OUTER JOIN u USING (k) [t.a=test.t.a, t.b=test.t.b, u.k=test.u.k, u.c=test.u.c]",
+                     bindings("SELECT * FROM t RIGHT JOIN u USING (k)"));
+        assertEquals("SELECT k FROM t NATURAL RIGHT OUTER JOIN u [k=test.u.k]",
+                     bindings("SELECT k FROM t NATURAL RIGHT JOIN u"));
+    }
+
+    @Test
+    public void modify() throws Exception {
+        assertEquals("UPDATE t SET b = 'x' WHERE a = 1 [b=test.t.b, a=test.t.a]",
+                     bindings("UPDATE t SET b = 'x' WHERE a = 1"));
+        assertEquals("INSERT INTO t(a, b) SELECT k, c FROM u [k=test.u.k, c=test.u.c, a=test.t.a, b=test.t.b]",
+                     bindings("INSERT INTO t(a, b) SELECT k, c FROM u"));
+        assertEquals("DELETE FROM t WHERE k IN (SELECT k FROM u) [k=test.u.k, k=test.t.k]",
+                     bindings("DELETE FROM t WHERE k IN (SELECT k FROM u)"));
+    }
+
+    @Test
+    public void errors() throws Exception {
+        assertEquals("Table not found: test.w",
+                     bindError("SELECT a FROM w"));
+        assertEquals("Column not found: z",
+                     bindError("SELECT z FROM t"));
+        assertEquals("Ambiguous column name: k",
+                     bindError("SELECT k FROM t, u"));
+        assertEquals("Column not found: t.c",
+                     bindError("SELECT t.c FROM t, u"));
+        assertEquals("Table not found: w",
+                     bindError("SELECT w.a FROM t"));
+        assertEquals("Column not found: z",
+                     bindError("INSERT INTO t(z) VALUES(1)"));
+    }
+
+    @Test
+    public void types() throws Exception {
+        StatementNode stmt = bind("SELECT a + 1, c, b FROM t LEFT OUTER JOIN u ON t.k = u.k WHERE b = 'x'");
+        new TypeComputer().compute(stmt);
+        ResultColumnList resultColumns = ((CursorNode)stmt).getResultSetNode().getResultColumns();
+        assertEquals("INTEGER NOT NULL,DOUBLE,VARCHAR(10)", resultColumns.get(0).getType() + "," +
+                     resultColumns.get(1).getType() + "," + 
+                     resultColumns.get(2).getType());
+    }
+
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import org.junit.Test;
+import static junit.framework.Assert.*;
+
+public class BooleanNormalizerInListTest
+{
+    protected InListOperatorNode inList(ValueNode node) {
+        while (!(node instanceof InListOperatorNode))
+            node = ((BinaryLogicalOperatorNode)node).getLeftOperand();
+        return (InListOperatorNode)node;
+    }
+
+    protected ValueNode whereClause(StatementNode stmt) {
+        return ((SelectNode)((CursorNode)stmt).getResultSetNode()).getWhereClause();
+    }
+
+    @Test
+    public void sameShapeAsParsed() throws Exception {
+        SQLParser parser = new SQLParser();
+        BooleanNormalizer normalizer = new BooleanNormalizer(parser);
+        normalizer.setCollapseComparisons(true);
+        InListOperatorNode parsed = 
+            inList(whereClause(parser.parseStatement("SELECT * FROM t WHERE x IN (1, 2)")));
+        InListOperatorNode collapsed = 
+            inList(whereClause(normalizer.normalize(parser.parseStatement("SELECT * FROM t WHERE x = 1 OR 2 = x"))));
+        assertEquals(parsed.getLeftOperand().getDepth(), 
+                     collapsed.getLeftOperand().getDepth());
+        assertEquals(parsed.getRightOperandList().getDepth(), 
+                     collapsed.getRightOperandList().getDepth());
+        assertEquals(2, collapsed.getRightOperandList().getNodeList().size());
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.compiler.PredicateCompilerTest.ArrayRow;
+import com.akiban.sql.compiler.PredicateCompilerTest.Interpreter;
+import com.akiban.sql.parser.CursorNode;
+import com.akiban.sql.parser.SQLParser;
+import com.akiban.sql.parser.SelectNode;
+import com.akiban.sql.parser.StatementNode;
+import com.akiban.sql.parser.ValueNode;
+
+import java.util.Random;
+
+/**
+ * Time a compiled predicate against walking its tree for each row.
+ *
+ * Not a unit test; run with
+ * <code>java -cp target/classes:target/test-classes com.akiban.sql.compiler.PredicateCompilerBenchmark [passes]</code>.
+ */
+public class PredicateCompilerBenchmark
+{
+    public static void main(String[] args) throws Exception {
+        int npasses = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        SQLParser parser = new SQLParser();
+        StatementNode stmt = parser.parseStatement("SELECT * FROM t WHERE " + 
+                                                   PredicateCompilerTest.COMBINED_CONDITION);
+        new PredicateCompilerTest.SchemaTypeComputer().compute(stmt);
+        ValueNode tree = ((SelectNode)((CursorNode)stmt).getResultSetNode()).getWhereClause();
+        CompiledPredicate compiled = 
+            new PredicateCompiler(PredicateCompilerTest.COLUMNS).compile(tree);
+        ArrayRow[] rows = PredicateCompilerTest.randomRows(new Random(2), 
+                                                           PredicateCompilerTest.NROWS);
+        int nrows = npasses * rows.length;
+        for (int pass = 0; pass < 3; pass++) {
+            int interpretedCount = 0, compiledCount = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < npasses; i++) {
+                for (ArrayRow row : rows) {
+                    if (Interpreter.evaluate(tree, row) == Boolean.TRUE)
+                        interpretedCount++;
+                }
+            }
+            long interpreted = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < npasses; i++) {
+                for (ArrayRow row : rows) {
+                    if (compiled.matches(row))
+                        compiledCount++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%d rows (%d / %d matched): interpreted %.1f ns/row, compiled %.1f ns/row",
+                                             nrows, interpretedCount, compiledCount,
+                                             (double)interpreted / nrows, 
+                                             (double)elapsed / nrows));
+        }
+    }
+
+}
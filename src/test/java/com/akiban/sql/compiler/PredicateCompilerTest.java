@@ -0,0 +1,518 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+import com.akiban.sql.types.DataTypeDescriptor;
+import com.akiban.sql.types.TypeId;
+
+import org.junit.Before;
+import org.junit.Test;
+import static junit.framework.Assert.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class PredicateCompilerTest
+{
+    public static final int NROWS = 2000;
+
+    static final List<String> COLUMNS = Arrays.asList("a", "b", "d", "n", "s", "c", "f");
+    static final Map<String,DataTypeDescriptor> TYPES = new HashMap<String,DataTypeDescriptor>();
+    static {
+        TYPES.put("a", new DataTypeDescriptor(TypeId.INTEGER_ID, true));
+        TYPES.put("b", new DataTypeDescriptor(TypeId.BIGINT_ID, true));
+        TYPES.put("d", new DataTypeDescriptor(TypeId.DOUBLE_ID, true));
+        TYPES.put("n", new DataTypeDescriptor(TypeId.DECIMAL_ID, 10, 2, true, 12));
+        TYPES.put("s", new DataTypeDescriptor(TypeId.VARCHAR_ID, true, 20));
+        TYPES.put("c", new DataTypeDescriptor(TypeId.CHAR_ID, true, 5));
+        TYPES.put("f", new DataTypeDescriptor(TypeId.BOOLEAN_ID, true));
+        // Known to the schema but not in the row.
+        TYPES.put("x", new DataTypeDescriptor(TypeId.INTEGER_ID, true));
+        TYPES.put("e", new DataTypeDescriptor(TypeId.DECIMAL_ID, 10, 0, true, 11));
+    }
+
+    static final String[] CONDITIONS = {
+        "a > 10",
+        "10 > a",
+        "a + b * 2 <= 50",
+        "-a < b",
+        "a DIV 3 = b MOD 4",
+        "d BETWEEN 1.5 AND 7.25",
+        "a BETWEEN b AND 20",
+        "a BETWEEN NULL AND 5",
+        "n > 2.50 AND n < 20",
+        "n * 2 >= d",
+        "n - 0.1 IN (0.2, 1.15, 2)",
+        "n * 3 = n + n + n",
+        "n / 3 > 1.5",
+        "s LIKE 'a%c_'",
+        "s NOT LIKE '%b%'",
+        "s LIKE 'a!%%' ESCAPE '!'",
+        "s IN ('abc', 'bcd', 'x')",
+        "c = 'ab'",
+        "c IN ('ab', 'xy   ')",
+        "a IN (1, 3, 5, b)",
+        "a IN (1, 2, NULL)",
+        "d IN (0.25, 2, 3.5)",
+        "NOT (a = 3 OR b IS NULL)",
+        "a IS NOT NULL AND d * 2 > a",
+        "f OR a < 0",
+        "NOT f AND s IS NULL",
+        "(a > 1 OR b < 3) AND (d > 2 OR s = 'ab') AND TRUE",
+        "a = NULL OR b = 1",
+    };
+
+    /** Type column references from the table above. */
+    static class SchemaTypeComputer extends TypeComputer {
+        @Override
+        protected DataTypeDescriptor computeType(ValueNode node) 
+                throws StandardException {
+            switch (node.getNodeType()) {
+            case NodeTypes.COLUMN_REFERENCE:
+                return TYPES.get(((ColumnReference)node).getColumnName());
+            case NodeTypes.LIKE_OPERATOR_NODE:
+                return new DataTypeDescriptor(TypeId.BOOLEAN_ID, true);
+            case NodeTypes.MOD_OPERATOR_NODE:
+                return binaryArithmeticOperatorNode((BinaryArithmeticOperatorNode)node);
+            case NodeTypes.UNARY_MINUS_OPERATOR_NODE:
+                return ((UnaryOperatorNode)node).getOperand().getType();
+            default:
+                return super.computeType(node);
+            }
+        }
+    }
+
+    /** A row held as an array of objects. */
+    static class ArrayRow implements RowAccessor {
+        final Object[] values;
+
+        ArrayRow(Object... values) {
+            this.values = values;
+        }
+
+        public boolean isNull(int column) {
+            return (values[column] == null);
+        }
+
+        public long getLong(int column) {
+            return ((Number)values[column]).longValue();
+        }
+
+        public BigDecimal getDecimal(int column) {
+            return (BigDecimal)values[column];
+        }
+
+        public double getDouble(int column) {
+            return ((Number)values[column]).doubleValue();
+        }
+
+        public String getString(int column) {
+            return (String)values[column];
+        }
+
+        public boolean getBoolean(int column) {
+            return (Boolean)values[column];
+        }
+    }
+
+    protected SQLParser parser;
+    protected PredicateCompiler compiler;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+        compiler = new PredicateCompiler(COLUMNS);
+    }
+
+    protected ValueNode whereClause(String condition) throws Exception {
+        StatementNode stmt = parser.parseStatement("SELECT * FROM t WHERE " + 
+                                                   condition);
+        new SchemaTypeComputer().compute(stmt);
+        return ((SelectNode)((CursorNode)stmt).getResultSetNode()).getWhereClause();
+    }
+
+    protected CompiledPredicate compile(String condition) throws Exception {
+        return compiler.compile(whereClause(condition));
+    }
+
+    @Test
+    public void threeValuedLogic() throws Exception {
+        ArrayRow row = new ArrayRow(1, null, 2.0, null, "abc", "ab   ", Boolean.TRUE);
+        assertEquals(Boolean.TRUE, compile("a = 1").evaluate(row));
+        assertEquals(null, compile("b = 1").evaluate(row));
+        assertEquals(Boolean.FALSE, compile("b = 1 AND a = 2").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("b = 1 OR a = 1").evaluate(row));
+        assertEquals(null, compile("NOT (b = 1)").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("b IS NULL").evaluate(row));
+        assertEquals(Boolean.FALSE, compile("a + b IS NOT NULL").evaluate(row));
+        assertEquals(null, compile("a IN (2, NULL)").evaluate(row));
+        assertEquals(Boolean.FALSE, compile("a NOT IN (1, NULL)").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("c = 'ab'").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("s LIKE '_b%'").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("f").evaluate(row));
+        assertFalse(compile("b = 1").matches(row));
+    }
+
+    @Test
+    public void runtimeErrors() throws Exception {
+        ArrayRow row = new ArrayRow(1, 0L, 0.0, null, "abc", null, null);
+        try {
+            compile("a / b = 1").evaluate(row);
+            fail("division by zero not detected");
+        }
+        catch (StandardException ex) {
+        }
+        try {
+            compile("a + 9223372036854775807 > 0").evaluate(row);
+            fail("overflow not detected");
+        }
+        catch (StandardException ex) {
+        }
+    }
+
+    @Test
+    public void decimalArithmetic() throws Exception {
+        PredicateCompiler withDecimal = new PredicateCompiler(Arrays.asList("a", "e"));
+        ArrayRow row = new ArrayRow(5, new BigDecimal(5));
+        assertEquals(Boolean.TRUE, withDecimal.compile(whereClause("e / 2 = 2.5")).evaluate(row));
+        assertEquals(Boolean.TRUE, withDecimal.compile(whereClause("e / 2 > 2")).evaluate(row));
+        assertEquals(Boolean.TRUE, withDecimal.compile(whereClause("5.0 / 2 > 2")).evaluate(row));
+        assertEquals(Boolean.TRUE, withDecimal.compile(whereClause("a / 2 = 2")).evaluate(row));
+    }
+
+    @Test
+    public void exactDecimals() throws Exception {
+        ArrayRow row = new ArrayRow(1, 2L, 0.9, new BigDecimal("0.30"), "abc", null, null);
+        assertEquals(Boolean.TRUE, compile("n * 3 = 0.9").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("n - 0.1 = 0.2").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("n + 0.6 IN (0.5, 0.9)").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("n = 0.3").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("n / 3 = 0.1").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("n DIV 0.07 = 4").evaluate(row));
+        assertEquals(Boolean.TRUE, compile("CAST(n * 3 AS INT) = 0").evaluate(row));
+    }
+
+    @Test
+    public void integerOverflow() throws Exception {
+        ArrayRow row = new ArrayRow(2, 2L, 0.0, null, "abc", null, null);
+        try {
+            compile("a * 2147483647 > 0").evaluate(row);
+            fail("INTEGER overflow not detected");
+        }
+        catch (StandardException ex) {
+        }
+        assertEquals(Boolean.TRUE, compile("b * 2147483647 > 0").evaluate(row));
+    }
+
+    @Test
+    public void unsupported() throws Exception {
+        try {
+            compile("s = 1");
+            fail("string / number comparison compiled");
+        }
+        catch (StandardException ex) {
+        }
+        try {
+            compile("x = 1");
+            fail("unknown column compiled");
+        }
+        catch (StandardException ex) {
+        }
+        try {
+            compile("a IN (SELECT a FROM t)");
+            fail("subquery compiled");
+        }
+        catch (StandardException ex) {
+        }
+    }
+
+    @Test
+    public void sameAsInterpreter() throws Exception {
+        ArrayRow[] rows = randomRows(new Random(1), NROWS);
+        for (String condition : CONDITIONS) {
+            ValueNode tree = whereClause(condition);
+            CompiledPredicate compiled = compiler.compile(tree);
+            for (ArrayRow row : rows) {
+                assertEquals(condition + " on " + Arrays.toString(row.values),
+                             Interpreter.evaluate(tree, row), 
+                             compiled.evaluate(row));
+            }
+        }
+    }
+
+    static final String COMBINED_CONDITION = 
+        "a + b * 2 <= 50 AND (s LIKE 'a%' OR d BETWEEN 1.5 AND 7.25) AND c IN ('ab', 'xy')";
+
+    @Test
+    public void compareWithInterpreter() throws Exception {
+        ArrayRow[] rows = randomRows(new Random(2), NROWS);
+        ValueNode tree = whereClause(COMBINED_CONDITION);
+        CompiledPredicate compiled = compiler.compile(tree);
+        int interpretedCount = 0, compiledCount = 0;
+        for (ArrayRow row : rows) {
+            if (Interpreter.evaluate(tree, row) == Boolean.TRUE)
+                interpretedCount++;
+            if (compiled.matches(row))
+                compiledCount++;
+        }
+        assertEquals(interpretedCount, compiledCount);
+    }
+
+    static ArrayRow[] randomRows(Random random, int nrows) {
+        String[] strings = { "abc", "abcd", "a%c", "bcd", "x", "", "ab", "acbx", "b" };
+        String[] chars = { "ab   ", "xy   ", "ab c " };
+        ArrayRow[] rows = new ArrayRow[nrows];
+        for (int i = 0; i < nrows; i++) {
+            rows[i] = new ArrayRow(maybeNull(random, random.nextInt(26) - 5),
+                                   maybeNull(random, (long)random.nextInt(11)),
+                                   maybeNull(random, random.nextInt(40) / 4.0),
+                                   maybeNull(random, BigDecimal.valueOf(random.nextInt(3000), 2)),
+                                   maybeNull(random, strings[random.nextInt(strings.length)]),
+                                   maybeNull(random, chars[random.nextInt(chars.length)]),
+                                   maybeNull(random, random.nextBoolean()));
+        }
+        return rows;
+    }
+
+    static Object maybeNull(Random random, Object value) {
+        return (random.nextInt(10) == 0) ? null : value;
+    }
+
+    /** Straightforward evaluation by walking the tree for each row. */
+    static class Interpreter {
+        static Object evaluate(ValueNode node, ArrayRow row) throws StandardException {
+            switch (node.getNodeType()) {
+            case NodeTypes.COLUMN_REFERENCE:
+                return row.values[COLUMNS.indexOf(((ColumnReference)node).getColumnName())];
+            case NodeTypes.AND_NODE:
+            case NodeTypes.OR_NODE:
+                {
+                    BinaryLogicalOperatorNode logical = (BinaryLogicalOperatorNode)node;
+                    boolean and = (node.getNodeType() == NodeTypes.AND_NODE);
+                    Object left = evaluate(logical.getLeftOperand(), row);
+                    if ((left != null) && ((Boolean)left != and))
+                        return left;
+                    Object right = evaluate(logical.getRightOperand(), row);
+                    if ((right != null) && ((Boolean)right != and))
+                        return right;
+                    return ((left == null) || (right == null)) ? null : and;
+                }
+            case NodeTypes.NOT_NODE:
+                {
+                    Object value = evaluate(((NotNode)node).getOperand(), row);
+                    return (value == null) ? null : !(Boolean)value;
+                }
+            case NodeTypes.IS_NULL_NODE:
+                return (evaluate(((IsNullNode)node).getOperand(), row) == null);
+            case NodeTypes.IS_NOT_NULL_NODE:
+                return (evaluate(((IsNullNode)node).getOperand(), row) != null);
+            case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+            case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+            case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+            case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+            case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+            case NodeTypes.BINARY_LESS_EQUALS_OPERATOR_NODE:
+                {
+                    BinaryOperatorNode binary = (BinaryOperatorNode)node;
+                    Integer comparison = compare(evaluate(binary.getLeftOperand(), row),
+                                                 evaluate(binary.getRightOperand(), row));
+                    if (comparison == null)
+                        return null;
+                    switch (node.getNodeType()) {
+                    case NodeTypes.BINARY_EQUALS_OPERATOR_NODE:
+                        return (comparison == 0);
+                    case NodeTypes.BINARY_NOT_EQUALS_OPERATOR_NODE:
+                        return (comparison != 0);
+                    case NodeTypes.BINARY_GREATER_THAN_OPERATOR_NODE:
+                        return (comparison > 0);
+                    case NodeTypes.BINARY_GREATER_EQUALS_OPERATOR_NODE:
+                        return (comparison >= 0);
+                    case NodeTypes.BINARY_LESS_THAN_OPERATOR_NODE:
+                        return (comparison < 0);
+                    default:
+                        return (comparison <= 0);
+                    }
+                }
+            case NodeTypes.BETWEEN_OPERATOR_NODE:
+                {
+                    BetweenOperatorNode between = (BetweenOperatorNode)node;
+                    Object value = evaluate(between.getLeftOperand(), row);
+                    Integer low = compare(value, evaluate(between.getRightOperandList().get(0), row));
+                    Integer high = compare(value, evaluate(between.getRightOperandList().get(1), row));
+                    if (((low != null) && (low < 0)) || ((high != null) && (high > 0)))
+                        return false;
+                    return ((low == null) || (high == null)) ? null : Boolean.TRUE;
+                }
+            case NodeTypes.IN_LIST_OPERATOR_NODE:
+                {
+                    InListOperatorNode in = (InListOperatorNode)node;
+                    Object value = evaluate(in.getLeftOperand().getNodeList().get(0), row);
+                    Boolean result = Boolean.FALSE;
+                    for (ValueNode item : in.getRightOperandList().getNodeList()) {
+                        Integer comparison = compare(value, evaluate(item, row));
+                        if (comparison == null)
+                            result = null;
+                        else if (comparison == 0) {
+                            result = Boolean.TRUE;
+                            break;
+                        }
+                    }
+                    if (in.isNegated() && (result != null))
+                        result = !result;
+                    return result;
+                }
+            case NodeTypes.LIKE_OPERATOR_NODE:
+                {
+                    LikeEscapeOperatorNode like = (LikeEscapeOperatorNode)node;
+                    String value = (String)evaluate(like.getReceiver(), row);
+                    if (value == null)
+                        return null;
+                    String pattern = (String)evaluate(like.getLeftOperand(), row);
+                    String escape = (like.getRightOperand() == null) ? null :
+                        (String)evaluate(like.getRightOperand(), row);
+                    StringBuilder regex = new StringBuilder();
+                    for (int i = 0; i < pattern.length(); i++) {
+                        char ch = pattern.charAt(i);
+                        if ((escape != null) && (ch == escape.charAt(0)))
+                            regex.append(Pattern.quote(pattern.substring(++i, i + 1)));
+                        else if (ch == '%')
+                            regex.append(".*");
+                        else if (ch == '_')
+                            regex.append(".");
+                        else
+                            regex.append(Pattern.quote(String.valueOf(ch)));
+                    }
+                    return Pattern.compile(regex.toString(), Pattern.DOTALL)
+                        .matcher(value).matches();
+                }
+            case NodeTypes.BINARY_PLUS_OPERATOR_NODE:
+            case NodeTypes.BINARY_MINUS_OPERATOR_NODE:
+            case NodeTypes.BINARY_TIMES_OPERATOR_NODE:
+            case NodeTypes.BINARY_DIVIDE_OPERATOR_NODE:
+            case NodeTypes.BINARY_DIV_OPERATOR_NODE:
+            case NodeTypes.MOD_OPERATOR_NODE:
+                {
+                    BinaryOperatorNode binary = (BinaryOperatorNode)node;
+                    Object left = evaluate(binary.getLeftOperand(), row);
+                    Object right = evaluate(binary.getRightOperand(), row);
+                    if ((left == null) || (right == null))
+                        return null;
+                    if (isExact(left) && isExact(right)) {
+                        long x = ((Number)left).longValue(), y = ((Number)right).longValue();
+                        switch (node.getNodeType()) {
+                        case NodeTypes.BINARY_PLUS_OPERATOR_NODE:
+                            return x + y;
+                        case NodeTypes.BINARY_MINUS_OPERATOR_NODE:
+                            return x - y;
+                        case NodeTypes.BINARY_TIMES_OPERATOR_NODE:
+                            return x * y;
+                        case NodeTypes.MOD_OPERATOR_NODE:
+                            return x % y;
+                        default:
+                            return x / y;
+                        }
+                    }
+                    if (!isApproximate(left) && !isApproximate(right)) {
+                        BigDecimal x = toDecimal(left), y = toDecimal(right);
+                        switch (node.getNodeType()) {
+                        case NodeTypes.BINARY_PLUS_OPERATOR_NODE:
+                            return x.add(y);
+                        case NodeTypes.BINARY_MINUS_OPERATOR_NODE:
+                            return x.subtract(y);
+                        case NodeTypes.BINARY_TIMES_OPERATOR_NODE:
+                            return x.multiply(y);
+                        case NodeTypes.MOD_OPERATOR_NODE:
+                            return x.remainder(y);
+                        case NodeTypes.BINARY_DIV_OPERATOR_NODE:
+                            return x.divideToIntegralValue(y).longValue();
+                        default:
+                            return x.divide(y, node.getType().getScale(), RoundingMode.DOWN);
+                        }
+                    }
+                    double x = ((Number)left).doubleValue(), y = ((Number)right).doubleValue();
+                    switch (node.getNodeType()) {
+                    case NodeTypes.BINARY_PLUS_OPERATOR_NODE:
+                        return x + y;
+                    case NodeTypes.BINARY_MINUS_OPERATOR_NODE:
+                        return x - y;
+                    case NodeTypes.BINARY_TIMES_OPERATOR_NODE:
+                        return x * y;
+                    case NodeTypes.MOD_OPERATOR_NODE:
+                        return x % y;
+                    case NodeTypes.BINARY_DIV_OPERATOR_NODE:
+                        return (long)(x / y);
+                    default:
+                        return x / y;
+                    }
+                }
+            case NodeTypes.UNARY_MINUS_OPERATOR_NODE:
+                {
+                    Object value = evaluate(((UnaryOperatorNode)node).getOperand(), row);
+                    if (value == null)
+                        return null;
+                    if (isExact(value))
+                        return -((Number)value).longValue();
+                    if (value instanceof BigDecimal)
+                        return ((BigDecimal)value).negate();
+                    return -((Number)value).doubleValue();
+                }
+            default:
+                return ((ConstantNode)node).getValue();
+            }
+        }
+
+        static boolean isExact(Object value) {
+            return ((value instanceof Long) || (value instanceof Integer));
+        }
+
+        static boolean isApproximate(Object value) {
+            return ((value instanceof Double) || (value instanceof Float));
+        }
+
+        static BigDecimal toDecimal(Object value) {
+            if (value instanceof BigDecimal)
+                return (BigDecimal)value;
+            return BigDecimal.valueOf(((Number)value).longValue());
+        }
+
+        static Integer compare(Object left, Object right) {
+            if ((left == null) || (right == null))
+                return null;
+            if (isExact(left) && isExact(right))
+                return Long.valueOf(((Number)left).longValue())
+                    .compareTo(((Number)right).longValue());
+            if ((left instanceof Number) && 
+                !isApproximate(left) && !isApproximate(right))
+                return toDecimal(left).compareTo(toDecimal(right));
+            if (left instanceof Number)
+                return Double.valueOf(((Number)left).doubleValue())
+                    .compareTo(((Number)right).doubleValue());
+            return ConstantFolder.trimTrailing((String)left)
+                .compareTo(ConstantFolder.trimTrailing((String)right));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+
+import com.akiban.sql.StandardException;
+import com.akiban.sql.types.CharacterTypeAttributes;
+import com.akiban.sql.types.DataTypeDescriptor;
+import com.akiban.sql.types.TypeId;
+import com.akiban.sql.unparser.NodeToString;
+
+import org.junit.Test;
+import static junit.framework.Assert.*;
+
+public class PredicateRangeMergerCollationTest
+{
+    /** Give every column the given type, as binding against a schema would. */
+    static void typeColumns(StatementNode stmt, final DataTypeDescriptor type)
+            throws StandardException {
+        stmt.accept(new Visitor() {
+                public Visitable visit(Visitable node) throws StandardException {
+                    if (node instanceof ColumnReference)
+                        ((ColumnReference)node).setType(type);
+                    return node;
+                }
+                public boolean visitChildrenFirst(Visitable node) {
+                    return false;
+                }
+                public boolean stopTraversal() {
+                    return false;
+                }
+                public boolean skipChildren(Visitable node) {
+                    return false;
+                }
+            });
+    }
+
+    protected String merge(String sql, String collation) throws Exception {
+        SQLParser parser = new SQLParser();
+        StatementNode stmt = parser.parseStatement(sql);
+        CharacterTypeAttributes attrs = null;
+        if (collation != null)
+            attrs = new CharacterTypeAttributes(null, collation,
+                                                CharacterTypeAttributes.CollationDerivation.IMPLICIT);
+        typeColumns(stmt, new DataTypeDescriptor(TypeId.VARCHAR_ID, true, 10, attrs));
+        stmt = new PredicateRangeMerger(parser).merge(stmt);
+        return new NodeToString().toString(stmt);
+    }
+
+    @Test
+    public void collatedColumn() throws Exception {
+        String sql = "SELECT * FROM t WHERE x > 'a' AND x < 'B'";
+        assertEquals("SELECT * FROM t WHERE FALSE", merge(sql, null));
+        assertEquals("SELECT * FROM t WHERE (x > 'a') AND (x < 'B')", merge(sql, "en_ci"));
+    }
+}
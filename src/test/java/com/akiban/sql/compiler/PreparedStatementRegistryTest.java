@@ -0,0 +1,152 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.compiler.PreparedStatementRegistry.SharedStatement;
+
+import com.akiban.sql.parser.*;
+import com.akiban.sql.unparser.NodeToString;
+
+import com.akiban.sql.StandardException;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PreparedStatementRegistryTest
+{
+    protected PreparedStatementRegistry registry;
+    protected SQLParser parser1, parser2;
+    protected PreparedStatementSession session1, session2;
+    protected int prepared;
+
+    @Before
+    public void before() throws Exception {
+        registry = new PreparedStatementRegistry(new PreparedStatementRegistry.StatementPreparer() {
+                public StatementNode prepare(StatementNode statement,
+                                             SQLParserContext parserContext) {
+                    prepared++;
+                    return statement;
+                }
+            });
+        parser1 = new SQLParser();
+        parser2 = new SQLParser();
+        session1 = new PreparedStatementSession(registry, parser1);
+        session2 = new PreparedStatementSession(registry, parser2);
+    }
+
+    @Test
+    public void shared() throws Exception {
+        SharedStatement s1 = session1.prepare("s", "SELECT a FROM t WHERE b = ?");
+        SharedStatement s2 = session2.prepare("q", "SELECT a FROM t WHERE b = ?");
+        assertSame(s1, s2);
+        assertEquals(1, prepared);
+        assertEquals(2, s1.getReferenceCount());
+        assertEquals(1, registry.getStatementCount());
+        assertTrue(registry.getMemoryUsage() > 0);
+        assertEquals(registry.getMemoryUsage(), session1.getMemoryUsage());
+        session1.prepare("u", "SELECT a FROM t WHERE b = 1");
+        assertEquals(2, registry.getStatementCount());
+        assertEquals(2, prepared);
+    }
+
+    @Test
+    public void statements() throws Exception {
+        NodeToString unparser = new NodeToString();
+        session1.prepare((PrepareStatementNode)
+                         parser1.parseStatement("PREPARE s AS UPDATE t SET a = ? WHERE b = ?"));
+        SharedStatement s2 = session2.prepare("s", "UPDATE t SET a = ? WHERE b = ?");
+        assertEquals(2, s2.getReferenceCount());
+        StatementNode stmt = session1.execute((ExecuteStatementNode)
+                                              parser1.parseStatement("EXECUTE s(1, 'x')"));
+        assertEquals("UPDATE t SET a = 1 WHERE b = 'x'", unparser.toString(stmt));
+        assertEquals("UPDATE t SET a = 2 WHERE b = 3", 
+                     unparser.toString(session2.execute("s", 2, 3)));
+        session1.deallocate((DeallocateStatementNode)
+                            parser1.parseStatement("DEALLOCATE s"));
+        assertEquals(1, s2.getReferenceCount());
+        assertTrue(session1.getNames().isEmpty());
+    }
+
+    @Test
+    public void samePrinted() throws Exception {
+        String[][] pairs = {
+            { "SELECT a FROM t UNION ALL SELECT b FROM u", "SELECT a FROM t UNION SELECT b FROM u" },
+            { "SELECT a FROM t ORDER BY a FETCH FIRST 5 ROWS ONLY", "SELECT a FROM t ORDER BY a" },
+            { "SELECT a, COUNT(*) FROM t GROUP BY ROLLUP(a)", "SELECT a, COUNT(*) FROM t GROUP BY a" },
+        };
+        for (String[] pair : pairs) {
+            SharedStatement s1 = session1.prepare((PrepareStatementNode)
+                                                  parser1.parseStatement("PREPARE p1 AS " + pair[0]));
+            SharedStatement s2 = session2.prepare((PrepareStatementNode)
+                                                  parser2.parseStatement("PREPARE p2 AS " + pair[1]));
+            assertNotSame(pair[1], s1, s2);
+            SharedStatement s3 = session2.prepare((PrepareStatementNode)
+                                                  parser2.parseStatement("PREPARE p3 AS " + pair[0]));
+            assertSame(pair[0], s1, s3);
+            session1.close();
+            session2.close();
+        }
+    }
+
+    @Test
+    public void unknownText() throws Exception {
+        PrepareStatementNode node = (PrepareStatementNode)
+            parser1.parseStatement("PREPARE s AS SELECT 1");
+        SharedStatement s1 = session1.prepare(node, null);
+        SharedStatement s2 = session2.prepare("s", "SELECT 1");
+        assertNotSame(s1, s2);
+        assertNull(s1.getSQL());
+        assertEquals(2, registry.getStatementCount());
+        session1.close();
+        assertEquals(1, registry.getStatementCount());
+    }
+
+    @Test
+    public void idle() throws Exception {
+        registry.setEvictionPolicy(new PreparedStatementRegistry.Limits(1, Long.MAX_VALUE));
+        SharedStatement s1 = session1.prepare("s1", "SELECT 1");
+        session1.prepare("s2", "SELECT 2");
+        session2.prepare("s3", "SELECT 3");
+        session1.close();
+        assertEquals(0, s1.getReferenceCount());
+        assertEquals(2, registry.getStatementCount());
+        assertEquals(1, registry.getIdleCount());
+        session2.prepare("s2", "SELECT 2");
+        assertEquals(3, prepared);
+        session2.prepare("s1", "SELECT 1");
+        assertEquals(4, prepared);
+        registry.setEvictionPolicy(new PreparedStatementRegistry.Limits(0, 0));
+        session2.close();
+        assertEquals(0, registry.getStatementCount());
+        assertEquals(0, registry.getMemoryUsage());
+    }
+
+    @Test(expected=StandardException.class)
+    public void alreadyPrepared() throws Exception {
+        session1.prepare("s", "SELECT 1");
+        session1.prepare("s", "SELECT 2");
+    }
+
+    @Test(expected=StandardException.class)
+    public void notPrepared() throws Exception {
+        session1.prepare("s", "SELECT 1");
+        session1.deallocate("s");
+        session1.execute("s");
+    }
+
+}
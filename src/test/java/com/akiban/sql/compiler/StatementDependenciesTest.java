@@ -0,0 +1,77 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.SQLParser;
+import com.akiban.sql.parser.StatementNode;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StatementDependenciesTest
+{
+    protected SQLParser parser;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+    }
+
+    protected String dependencies(String sql) throws Exception {
+        return StatementDependencies.get(parser.parseStatement(sql)).toString();
+    }
+
+    @Test
+    public void select() throws Exception {
+        assertEquals("read [t] {t=[x, k]}, write [] {}, unresolved []",
+                     dependencies("SELECT x FROM t WHERE k = 1 ORDER BY x"));
+        assertEquals("read [t, u] {t=[k, x], u=[k, *]}, write [] {}, unresolved [y]",
+                     dependencies("SELECT a.x, b.*, y FROM t a INNER JOIN u b ON a.k = b.k"));
+        assertEquals("read [t, s.u] {t=[x, k], s.u=[k]}, write [] {}, unresolved []",
+                     dependencies("SELECT x FROM t WHERE EXISTS (SELECT 1 FROM s.u WHERE u.k = t.k)"));
+        assertEquals("read [t, u] {t=[k, x], u=[k]}, write [] {}, unresolved []",
+                     dependencies("SELECT d.x FROM (SELECT k, x FROM t) d, u WHERE d.k = u.k"));
+        assertEquals("read [t, u] {t=[x], u=[y]}, write [] {}, unresolved []",
+                     dependencies("SELECT x FROM t UNION SELECT y FROM u"));
+        assertEquals("read [t, u] {t=[*, a, b, c], u=[b, c]}, write [] {}, unresolved []",
+                     dependencies("SELECT * FROM t WHERE t.a IN (SELECT b FROM u WHERE c = 1)"));
+        assertEquals("read [t, v, u] {t=[*, c], v=[*, c], u=[k, c]}, write [] {}, unresolved []",
+                     dependencies("SELECT * FROM t, v WHERE EXISTS (SELECT 1 FROM u WHERE u.k = c)"));
+    }
+
+    @Test
+    public void modify() throws Exception {
+        assertEquals("read [u] {u=[a, b]}, write [t] {t=[x, y]}, unresolved []",
+                     dependencies("INSERT INTO t(x, y) SELECT a, b FROM u"));
+        assertEquals("read [] {t=[y, k]}, write [t] {t=[x]}, unresolved []",
+                     dependencies("UPDATE t SET x = y + 1 WHERE k = 2"));
+        assertEquals("read [u] {t=[k], u=[k]}, write [t] {t=[*]}, unresolved []",
+                     dependencies("DELETE FROM t WHERE k IN (SELECT k FROM u)"));
+    }
+
+    @Test
+    public void memoized() throws Exception {
+        StatementNode stmt = parser.parseStatement("SELECT x FROM t");
+        StatementDependencies dependencies = StatementDependencies.get(stmt);
+        assertSame(dependencies, StatementDependencies.get(stmt));
+        StatementDependencies.forget(stmt);
+        assertNotSame(dependencies, StatementDependencies.get(stmt));
+    }
+
+}
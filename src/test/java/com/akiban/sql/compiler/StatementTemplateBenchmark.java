@@ -0,0 +1,71 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.SQLParser;
+import com.akiban.sql.parser.StatementNode;
+
+/**
+ * Time making bound instances of a statement from a template against
+ * deep copying it and parsing it again.
+ *
+ * Not a unit test; run with
+ * <code>java -cp target/classes:target/test-classes com.akiban.sql.compiler.StatementTemplateBenchmark [instances]</code>.
+ */
+public class StatementTemplateBenchmark
+{
+    public static final String SQL = 
+        "SELECT o.id, o.placed, c.name, c.email, SUM(i.price * i.quantity) AS total " +
+        "FROM orders o INNER JOIN customers c ON o.cid = c.id " +
+        "INNER JOIN items i ON i.oid = o.id " +
+        "WHERE o.status IN ('OPEN', 'HELD', 'SHIPPED') AND c.region = ? " +
+        "AND o.placed BETWEEN '2012-01-01' AND '2012-12-31' AND i.quantity > ? " +
+        "GROUP BY o.id, o.placed, c.name, c.email HAVING SUM(i.price) > 100 " +
+        "ORDER BY total DESC";
+
+    public static void main(String[] args) throws Exception {
+        int n = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        SQLParser parser = new SQLParser();
+        StatementNode stmt = parser.parseStatement(SQL);
+        StatementTemplate template = new StatementTemplate(parser, stmt, 
+                                                           parser.getParameterList());
+        for (int pass = 0; pass < 3; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                template.instantiate("EAST", i);
+            }
+            report("template", n, start);
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                parser.getNodeFactory().copyNode(stmt, parser);
+            }
+            report("copyNode", n, start);
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                parser.parseStatement(SQL);
+            }
+            report("parse", n, start);
+        }
+    }
+
+    static void report(String what, int n, long start) {
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%s: %d instances in %.2f ms, %.0f per second",
+                                         what, n, elapsed / 1.0e6, n * 1.0e9 / elapsed));
+    }
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+import com.akiban.sql.unparser.NodeToString;
+
+import com.akiban.sql.StandardException;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+public class StatementTemplateTest
+{
+    protected SQLParser parser;
+    protected NodeToString unparser;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+        unparser = new NodeToString();
+    }
+
+    protected StatementTemplate template(String sql) throws Exception {
+        StatementNode stmt = parser.parseStatement(sql);
+        return new StatementTemplate(parser, stmt, parser.getParameterList());
+    }
+
+    @Test
+    public void select() throws Exception {
+        StatementTemplate template = template("SELECT a, b FROM t WHERE a = ? AND b > ?");
+        StatementNode stmt1 = template.instantiate(1, "x");
+        StatementNode stmt2 = template.instantiate(new BigDecimal("2.50"), null);
+        assertEquals("SELECT a, b FROM t WHERE (a = 1) AND (b > 'x')",
+                     unparser.toString(stmt1));
+        assertEquals("SELECT a, b FROM t WHERE (a = 2.50) AND (b > NULL)",
+                     unparser.toString(stmt2));
+        assertEquals("SELECT a, b FROM t WHERE (a = $1) AND (b > $2)",
+                     unparser.toString(template.getStatement()));
+        SelectNode select = (SelectNode)((CursorNode)template.getStatement()).getResultSetNode();
+        SelectNode select1 = (SelectNode)((CursorNode)stmt1).getResultSetNode();
+        SelectNode select2 = (SelectNode)((CursorNode)stmt2).getResultSetNode();
+        assertNotSame(select, select1);
+        assertNotSame(select1, select2);
+        assertSame(select.getFromList(), select1.getFromList());
+        assertSame(select.getResultColumns(), select2.getResultColumns());
+    }
+
+    @Test
+    public void lists() throws Exception {
+        StatementTemplate template = template("INSERT INTO t VALUES(?, 1), (2, ?)");
+        assertEquals("INSERT INTO t VALUES(10, 1), (2, TRUE)", 
+                     unparser.toString(template.instantiate(10L, Boolean.TRUE)));
+        template = template("SELECT * FROM t WHERE a IN (?, 2, ?) ORDER BY b FETCH FIRST ? ROWS ONLY");
+        CursorNode stmt = (CursorNode)template.instantiate(1, 3, 10);
+        assertEquals("SELECT * FROM t WHERE a IN (1, 2, 3) ORDER BY b", 
+                     unparser.toString(stmt));
+        assertEquals(10, ((NumericConstantNode)stmt.getFetchFirstClause()).getValue());
+        assertTrue(((CursorNode)template.getStatement()).getFetchFirstClause() instanceof ParameterNode);
+    }
+
+    @Test
+    public void functionCall() throws Exception {
+        StatementTemplate template = template("SELECT * FROM t WHERE x = f(?, 1)");
+        StatementNode stmt1 = template.instantiate(10);
+        StatementNode stmt2 = template.instantiate(20);
+        assertEquals("SELECT * FROM t WHERE x = (f(10, 1))", unparser.toString(stmt1));
+        assertEquals("SELECT * FROM t WHERE x = (f(20, 1))", unparser.toString(stmt2));
+        assertEquals("SELECT * FROM t WHERE x = (f($1, 1))", 
+                     unparser.toString(template.getStatement()));
+    }
+
+    @Test
+    public void multipleRows() throws Exception {
+        StatementTemplate template = template("INSERT INTO t VALUES(?, 1), (2, ?)");
+        unparser.toString(template.instantiate(10, 11));
+        assertEquals("INSERT INTO t VALUES(20, 1), (2, 21)", 
+                     unparser.toString(template.instantiate(20, 21)));
+        assertEquals("INSERT INTO t VALUES($1, 1), (2, $2)", 
+                     unparser.toString(template.getStatement()));
+    }
+
+    @Test
+    public void expressions() throws Exception {
+        StatementTemplate template = template("UPDATE t SET a = ? WHERE b = ?");
+        ExecuteStatementNode execute = (ExecuteStatementNode)
+            parser.parseStatement("EXECUTE s(x + 1, CURRENT_DATE)");
+        assertEquals("UPDATE t SET a = (x + 1) WHERE b = CURRENT_DATE", 
+                     unparser.toString(template.instantiate(execute.getParameterList())));
+    }
+
+    @Test
+    public void noParameters() throws Exception {
+        StatementTemplate template = template("SELECT a FROM t WHERE b = 1");
+        assertSame(template.getStatement(), template.instantiate());
+        assertEquals(0, template.getCopiedNodeCount());
+    }
+
+    @Test(expected=StandardException.class)
+    public void wrongCount() throws Exception {
+        template("SELECT a FROM t WHERE b = ?").instantiate(1, 2);
+    }
+
+}
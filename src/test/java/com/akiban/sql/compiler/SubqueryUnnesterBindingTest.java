@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.*;
+import com.akiban.sql.unparser.NodeToString;
+
+import com.akiban.sql.types.DataTypeDescriptor;
+import com.akiban.sql.types.TypeId;
+
+import org.junit.Before;
+import org.junit.Test;
+import static junit.framework.Assert.*;
+
+public class SubqueryUnnesterBindingTest
+{
+    protected SQLParser parser;
+    protected InMemoryCatalog catalog;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+        catalog = new InMemoryCatalog();
+        InMemoryCatalog.InMemoryTable t = catalog.addTable("test", "t");
+        t.addColumn("a", new DataTypeDescriptor(TypeId.INTEGER_ID, false));
+        t.addColumn("c", new DataTypeDescriptor(TypeId.INTEGER_ID, false));
+        InMemoryCatalog.InMemoryTable s = catalog.addTable("test", "s");
+        s.addColumn("b", new DataTypeDescriptor(TypeId.INTEGER_ID, false));
+        s.addColumn("v", new DataTypeDescriptor(TypeId.INTEGER_ID, false));
+    }
+
+    /** The bound and unnested statement, followed by any failures. */
+    protected String unnest(String sql) throws Exception {
+        StatementNode stmt = parser.parseStatement(sql);
+        stmt = new Binder(parser, catalog, "test").bind(stmt);
+        SubqueryUnnester unnester = new SubqueryUnnester(parser);
+        stmt = unnester.unnest(stmt);
+        StringBuilder str = new StringBuilder(new NodeToString().toString(stmt));
+        for (SubqueryUnnester.Failure failure : unnester.getFailures()) {
+            str.append(" -- ").append(failure.getReason());
+        }
+        return str.toString();
+    }
+
+    @Test
+    public void unqualifiedInner() throws Exception {
+        assertEquals("SELECT t.a AS a FROM t, (SELECT DISTINCT s.b AS key1 FROM s WHERE v = 1) AS subquery1 WHERE t.a = subquery1.key1",
+                     unnest("SELECT t.a FROM t WHERE t.a IN (SELECT s.b FROM s WHERE v = 1)"));
+    }
+
+    @Test
+    public void unqualifiedOuter() throws Exception {
+        assertEquals("SELECT t.a AS a FROM t WHERE t.a IN (SELECT s.b AS b FROM s WHERE c = 1) -- subquery has an unqualified column",
+                     unnest("SELECT t.a FROM t WHERE t.a IN (SELECT s.b FROM s WHERE c = 1)"));
+    }
+}
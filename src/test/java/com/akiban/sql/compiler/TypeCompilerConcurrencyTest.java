@@ -0,0 +1,134 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.parser.SQLParser;
+import com.akiban.sql.parser.StatementNode;
+
+import com.akiban.sql.StandardException;
+import com.akiban.sql.types.TypeId;
+
+import org.junit.Test;
+import static junit.framework.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+public class TypeCompilerConcurrencyTest
+{
+    public static final int NTHREADS = 8;
+    public static final int NITERATIONS = 200;
+
+    static final String[] STATEMENTS = {
+        "SELECT 1 + 2, 3 * 4 - 5",
+        "SELECT 1.5 * 2, 10.25 / 3, 1.0 + 2.00",
+        "SELECT 1e0 + 2, 2.5e1 * 3",
+        "SELECT CAST(1 AS SMALLINT) + 1, CAST(2 AS BIGINT) * 3",
+        "SELECT CAST(1 AS TINYINT) - 1, CAST(1 AS REAL) + 2",
+        "SELECT CAST(1 AS NUMERIC(5,2)) + 1.5",
+    };
+
+    // Every TypeCompiler instance seen for each format id, by identity.
+    static final ConcurrentMap<Integer,Set<TypeCompiler>> seen = 
+        new ConcurrentHashMap<Integer,Set<TypeCompiler>>();
+
+    static class RecordingTypeComputer extends TypeComputer {
+        @Override
+        protected TypeCompiler getTypeCompiler(TypeId typeId) {
+            TypeCompiler typeCompiler = super.getTypeCompiler(typeId);
+            Integer formatId = typeId.getTypeFormatId();
+            Set<TypeCompiler> instances = seen.get(formatId);
+            if (instances == null) {
+                instances = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<TypeCompiler,Boolean>()));
+                Set<TypeCompiler> existing = seen.putIfAbsent(formatId, instances);
+                if (existing != null)
+                    instances = existing;
+            }
+            instances.add(typeCompiler);
+            return typeCompiler;
+        }
+    }
+
+    @Test
+    public void concurrentTyping() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> failures = 
+            Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread[] threads = new Thread[NTHREADS];
+        for (int i = 0; i < NTHREADS; i++) {
+            threads[i] = new Thread() {
+                    public void run() {
+                        try {
+                            start.await();
+                            SQLParser parser = new SQLParser();
+                            TypeComputer typeComputer = new RecordingTypeComputer();
+                            for (int j = 0; j < NITERATIONS; j++) {
+                                for (String sql : STATEMENTS) {
+                                    StatementNode stmt = parser.parseStatement(sql);
+                                    typeComputer.compute(stmt);
+                                }
+                            }
+                        }
+                        catch (Throwable ex) {
+                            failures.add(ex);
+                        }
+                    }
+                };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals("failures: " + failures, 0, failures.size());
+        assertFalse(seen.isEmpty());
+        for (Map.Entry<Integer,Set<TypeCompiler>> entry : seen.entrySet()) {
+            assertEquals("instances for format " + entry.getKey(),
+                         1, entry.getValue().size());
+        }
+    }
+
+    @Test
+    public void builtinInstances() {
+        for (TypeId typeId : TypeId.getAllBuiltinTypeIds()) {
+            TypeCompiler typeCompiler = TypeCompiler.getTypeCompiler(typeId);
+            assertNotNull(typeId.getSQLTypeName(), typeCompiler);
+            assertSame(typeId.getSQLTypeName(), 
+                       typeCompiler, TypeCompiler.getTypeCompiler(typeId));
+        }
+        assertSame(TypeCompiler.getTypeCompiler(TypeId.DECIMAL_ID),
+                   TypeCompiler.getTypeCompiler(TypeId.NUMERIC_ID));
+        assertSame(TypeCompiler.getTypeCompiler(TypeId.INTERVAL_YEAR_ID),
+                   TypeCompiler.getTypeCompiler(TypeId.INTERVAL_YEAR_MONTH_ID));
+    }
+
+    @Test
+    public void userDefinedInstances() throws StandardException {
+        TypeId udt = TypeId.getUserDefinedTypeId("com.example.Money", false);
+        TypeCompiler typeCompiler = TypeCompiler.getTypeCompiler(udt);
+        assertTrue(typeCompiler instanceof UserDefinedTypeCompiler);
+        assertNotSame(typeCompiler, TypeCompiler.getTypeCompiler(udt));
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.compiler;
+
+import com.akiban.sql.types.TypeId;
+
+/**
+ * Time steady-state type compiler lookups for built-in types.
+ *
+ * Not a unit test; run with
+ * <code>java -cp target/classes:target/test-classes com.akiban.sql.compiler.TypeCompilerLookupBenchmark [lookups]</code>.
+ */
+public class TypeCompilerLookupBenchmark
+{
+    public static void main(String[] args) throws Exception {
+        int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        TypeId[] typeIds = TypeId.getAllBuiltinTypeIds();
+        for (int pass = 0; pass < 3; pass++) {
+            int found = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                if (TypeCompiler.getTypeCompiler(typeIds[i % typeIds.length]) != null)
+                    found++;
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%d of %d type compiler lookups in %.3f ms",
+                                             found, n, elapsed / 1.0e6));
+        }
+    }
+
+}
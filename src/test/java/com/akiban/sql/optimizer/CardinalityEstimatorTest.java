@@ -0,0 +1,91 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import com.akiban.sql.parser.CursorNode;
+import com.akiban.sql.parser.SQLParser;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+public class CardinalityEstimatorTest
+{
+    protected SQLParser parser;
+    protected InMemoryStatistics statistics;
+    protected CardinalityEstimator estimator;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+        statistics = new InMemoryStatistics();
+        statistics.setRowCount(null, "t", 1000);
+        Histogram histogram = new Histogram(Arrays.asList(new Histogram.Bucket(0, 49, 500, 50),
+                                                          new Histogram.Bucket(50, 99, 500, 50)));
+        statistics.setColumnStatistics(null, "t", "x", 
+                                       new ColumnStatistics(100, 0.0, histogram));
+        statistics.setColumnStatistics(null, "t", "k", 
+                                       new ColumnStatistics(1000, 0.0, null));
+        statistics.setRowCount(null, "u", 100);
+        statistics.setColumnStatistics(null, "u", "k", 
+                                       new ColumnStatistics(100, 0.0, null));
+        estimator = new CardinalityEstimator(statistics);
+    }
+
+    protected double estimate(String sql) throws Exception {
+        return estimator.getRowCount((CursorNode)parser.parseStatement(sql));
+    }
+
+    @Test
+    public void comparisons() throws Exception {
+        assertEquals(10.0, estimate("SELECT * FROM t WHERE x = 10"), 0.01);
+        assertEquals(10.0, estimate("SELECT * FROM t WHERE 10 = t.x"), 0.01);
+        assertEquals(255.0, estimate("SELECT * FROM t WHERE x < 25"), 10.0);
+        assertEquals(30.0, estimate("SELECT * FROM t WHERE x IN (1,2,3)"), 0.01);
+        assertEquals(500.0, estimate("SELECT * FROM t WHERE x BETWEEN 50 AND 99"), 0.01);
+        assertEquals(0.0, estimate("SELECT * FROM t WHERE x = 200"), 0.01);
+        assertEquals(1.0, estimate("SELECT * FROM t WHERE k = 10"), 0.01);
+    }
+
+    @Test
+    public void stringRanges() throws Exception {
+        Histogram histogram = new Histogram(Arrays.asList(new Histogram.Bucket("a", "z", 1000, 500)));
+        assertEquals(0.002, histogram.getRangeSelectivity("abc", true, "abc\uffff", true), 1.0e-6);
+        assertEquals(0.002, histogram.getRangeSelectivity("b", true, "c", false), 1.0e-6);
+        assertEquals(0.5, histogram.getRangeSelectivity("m", true, null, false), 1.0e-6);
+        assertEquals(0.0, histogram.getRangeSelectivity("c", true, "b", true), 1.0e-6);
+    }
+
+    @Test
+    public void joins() throws Exception {
+        assertEquals(100.0, estimate("SELECT * FROM t, u WHERE t.k = u.k"), 0.01);
+        assertEquals(100.0, estimate("SELECT * FROM t INNER JOIN u ON t.k = u.k"), 0.01);
+        assertTrue(estimate("SELECT * FROM t LEFT OUTER JOIN u ON t.k = u.k") >= 1000.0);
+    }
+
+    @Test
+    public void grouping() throws Exception {
+        assertEquals(100.0, estimate("SELECT x, COUNT(*) FROM t GROUP BY t.x"), 0.01);
+        assertEquals(100.0, estimate("SELECT DISTINCT x FROM t"), 0.01);
+        assertEquals(1.0, estimate("SELECT COUNT(*) FROM t"), 0.01);
+        assertEquals(5.0, estimate("SELECT * FROM t FETCH FIRST 5 ROWS ONLY"), 0.01);
+    }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import com.akiban.sql.parser.CursorNode;
+import com.akiban.sql.parser.SQLParser;
+import com.akiban.sql.parser.SelectNode;
+import com.akiban.sql.parser.StatementNode;
+import com.akiban.sql.unparser.NodeToString;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class JoinOrderOptimizerTest
+{
+    protected SQLParser parser;
+    protected SimpleCostModel costModel;
+    protected JoinOrderOptimizer optimizer;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+        costModel = new SimpleCostModel();
+        costModel.setRowCount("a", 10);
+        costModel.setRowCount("b", 1000);
+        costModel.setRowCount("c", 100000);
+        costModel.setRowCount("d", 100);
+        optimizer = new JoinOrderOptimizer(parser, costModel);
+    }
+
+    protected String optimize(String sql) throws Exception {
+        StatementNode stmt = parser.parseStatement(sql);
+        stmt = optimizer.optimize(stmt);
+        return new NodeToString().toString(stmt);
+    }
+
+    protected JoinPlan plan(String sql) throws Exception {
+        CursorNode stmt = (CursorNode)parser.parseStatement(sql);
+        JoinGraph graph = JoinGraph.extract((SelectNode)stmt.getResultSetNode());
+        return optimizer.getEnumerator().enumerate(graph);
+    }
+
+    @Test
+    public void smallTablesFirst() throws Exception {
+        assertEquals("SELECT a.x AS x FROM a INNER JOIN b ON (a.k = b.k) INNER JOIN c ON (b.j = c.j) WHERE c.z > 0",
+                     optimize("SELECT a.x FROM c, b, a WHERE a.k = b.k AND b.j = c.j AND c.z > 0"));
+        assertEquals("((a JOIN b) JOIN c)",
+                     plan("SELECT a.x FROM c, b, a WHERE a.k = b.k AND b.j = c.j").toString());
+    }
+
+    @Test
+    public void outerJoinKeepsItsSide() throws Exception {
+        assertEquals("((a JOIN d) LEFT c)",
+                     plan("SELECT a.x FROM d LEFT OUTER JOIN c ON d.k = c.k INNER JOIN a ON a.j = d.j").toString());
+        assertEquals("SELECT a.x AS x FROM a INNER JOIN d ON (a.j = d.j) LEFT OUTER JOIN c ON (d.k = c.k)",
+                     optimize("SELECT a.x FROM d LEFT OUTER JOIN c ON d.k = c.k INNER JOIN a ON a.j = d.j"));
+    }
+
+    @Test
+    public void greedyBeyondLimit() throws Exception {
+        String sql = "SELECT a.x FROM c, b, d, a WHERE a.k = b.k AND b.j = c.j AND c.i = d.i";
+        JoinPlan exhaustive = plan(sql);
+        optimizer.getEnumerator().setDynamicProgrammingLimit(2);
+        JoinPlan greedy = plan(sql);
+        assertEquals(15, greedy.getTables());
+        assertTrue(greedy.getCost() >= exhaustive.getCost());
+    }
+
+    @Test
+    public void leftAlone() throws Exception {
+        assertEquals("SELECT * FROM c, a WHERE a.k = c.k",
+                     optimize("SELECT * FROM c, a WHERE a.k = c.k"));
+        assertEquals("SELECT a.x AS x FROM c INNER JOIN a USING (k)",
+                     optimize("SELECT a.x FROM c INNER JOIN a USING (k)"));
+    }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.optimizer;
+
+import com.akiban.sql.compiler.BooleanNormalizer;
+import com.akiban.sql.parser.FromBaseTable;
+import com.akiban.sql.parser.SQLParser;
+import com.akiban.sql.parser.StatementNode;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ShardKeyAnalyzerTest
+{
+    protected SQLParser parser;
+    protected ShardKeyAnalyzer analyzer;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+        Map<String,String> shardKeys = new HashMap<String,String>();
+        shardKeys.put("t", "k");
+        shardKeys.put("u", "k");
+        shardKeys.put("s.v", "j");
+        analyzer = new ShardKeyAnalyzer(shardKeys);
+    }
+
+    protected String analyze(String sql) throws Exception {
+        return analyze(parser.parseStatement(sql));
+    }
+
+    protected String analyze(StatementNode stmt) throws Exception {
+        Map<String,ShardKeyValues> byName = new TreeMap<String,ShardKeyValues>();
+        for (Map.Entry<FromBaseTable,ShardKeyValues> entry : analyzer.analyze(stmt).entrySet()) {
+            FromBaseTable table = entry.getKey();
+            String name = table.getCorrelationName();
+            if (name == null)
+                name = table.getOrigTableName().getTableName();
+            byName.put(name, entry.getValue());
+        }
+        return byName.toString();
+    }
+
+    @Test
+    public void singleTable() throws Exception {
+        assertEquals("{t={5}}", analyze("SELECT * FROM t WHERE k = 5"));
+        assertEquals("{t={1, 2, 3}}", analyze("SELECT * FROM t WHERE k IN (1,2,3) AND x > 0"));
+        assertEquals("{t={[10, 20]}}", analyze("SELECT * FROM t WHERE k BETWEEN 10 AND 20"));
+        assertEquals("{t={15}}", analyze("SELECT * FROM t WHERE k BETWEEN 10 AND 20 AND k IN (5, 15)"));
+        assertEquals("{t={1, 2}}", analyze("SELECT * FROM t WHERE k = 1 OR t.k = 2"));
+        assertEquals("{t=*}", analyze("SELECT * FROM t WHERE k = 1 OR x = 2"));
+        assertEquals("{t={}}", analyze("SELECT * FROM t WHERE k = 1 AND k = 2"));
+        assertEquals("{t={$1}}", analyze("DELETE FROM t WHERE k = ?"));
+        assertEquals("{v={'a'}}", analyze("SELECT * FROM s.v WHERE v.j = 'a'"));
+    }
+
+    @Test
+    public void exactComparisons() throws Exception {
+        assertEquals("{t={9007199254740993}}",
+                     analyze("SELECT * FROM t WHERE k > 9007199254740992 AND k IN (9007199254740993)"));
+        assertEquals("{t={1.5}}",
+                     analyze("SELECT * FROM t WHERE k = 1.5 AND k = 1.50"));
+        assertEquals("{v={'a', 'a '}}",
+                     analyze("SELECT * FROM s.v WHERE j = 'a' AND j = 'a '"));
+        assertEquals("{v={'a'}}",
+                     analyze("SELECT * FROM s.v WHERE j = 'a' OR j = 'a'"));
+        assertEquals("{v={('b', 'a')}}",
+                     analyze("SELECT * FROM s.v WHERE j > 'b' AND j < 'a'"));
+    }
+
+    @Test
+    public void joins() throws Exception {
+        assertEquals("{t={7}, u={7}}",
+                     analyze("SELECT * FROM t, u WHERE t.k = u.k AND u.k = 7"));
+        assertEquals("{t={(*, 3)}, u=*, x={(*, 3)}}",
+                     analyze("SELECT * FROM t, u, t x WHERE t.k = x.k AND x.k < 3 AND u.j = t.k"));
+        assertEquals("{t={1, 5}, u={1}}",
+                     analyze("SELECT * FROM t LEFT OUTER JOIN u ON t.k = u.k AND u.k < 3 WHERE t.k IN (1, 5)"));
+        assertEquals("{t={1}, u={1}}",
+                     analyze("SELECT * FROM t INNER JOIN u ON t.k = u.k WHERE t.k = 1"));
+    }
+
+    @Test
+    public void subqueries() throws Exception {
+        assertEquals("{t=*, u={4}}",
+                     analyze("SELECT * FROM t WHERE k IN (SELECT k FROM u WHERE u.k = 4)"));
+    }
+
+    @Test
+    public void normalized() throws Exception {
+        StatementNode stmt = parser.parseStatement("SELECT * FROM t WHERE NOT (k NOT IN (1, 2)) AND k BETWEEN 2 AND 4");
+        stmt = new BooleanNormalizer(parser).normalize(stmt);
+        assertEquals("{t={2}}", analyze(stmt));
+    }
+
+}
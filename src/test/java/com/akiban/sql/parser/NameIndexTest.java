@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.parser;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class NameIndexTest
+{
+    protected SQLParser parser;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+    }
+
+    protected SelectNode select(int ncols) throws Exception {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < ncols; i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("c").append(i).append(" AS a").append(i);
+        }
+        sql.append(" FROM t, s.u, v x INNER JOIN w ON x.k = w.k");
+        return (SelectNode)((CursorNode)parser.parseStatement(sql.toString())).getResultSetNode();
+    }
+
+    @Test
+    public void resultColumns() throws Exception {
+        for (int ncols : new int[] { 4, 100 }) {
+            ResultColumnList rcl = select(ncols).getResultColumns();
+            assertSame(rcl.get(ncols - 1), rcl.getResultColumn("a" + (ncols - 1)));
+            assertSame(rcl.get(2), rcl.getResultColumn("A2"));
+            assertNull(rcl.getResultColumn("c2"));
+            assertSame(rcl.get(3), rcl.findResultColumn("a3"));
+            assertSame(rcl.get(3), rcl.findResultColumn("c3"));
+            assertNull(rcl.findResultColumn("C3"));
+            rcl.remove(1);
+            assertSame(rcl.get(1), rcl.getResultColumn("a2"));
+            assertNull(rcl.getResultColumn("a1"));
+            rcl.get(0).setName("b0");
+            assertSame(rcl.get(0), rcl.getResultColumn("b0"));
+            assertSame(rcl.get(0), rcl.findResultColumn("b0"));
+            assertNull(rcl.getResultColumn("a0"));
+        }
+    }
+
+    @Test
+    public void renameBeforeLookup() throws Exception {
+        ResultColumnList rcl = select(100).getResultColumns();
+        assertSame(rcl.get(5), rcl.getResultColumn("a5"));
+        rcl.get(7).setName("b7");
+        assertSame(rcl.get(7), rcl.getResultColumn("b7"));
+        assertSame(rcl.get(7), rcl.findResultColumn("b7"));
+        // Indexed by a second list, then renamed.
+        ResultColumnList other = (ResultColumnList)rcl.shallowCopy();
+        assertSame(rcl.get(9), other.getResultColumn("a9"));
+        rcl.get(9).setName("b9");
+        assertSame(rcl.get(9), rcl.findResultColumn("b9"));
+        assertSame(rcl.get(9), other.findResultColumn("b9"));
+        FromList fromList = select(1).getFromList();
+        assertSame(fromList.get(0), fromList.getFromTable("t"));
+        fromList.get(0).setCorrelationName("z");
+        assertSame(fromList.get(0), fromList.getFromTable("z"));
+    }
+
+    @Test
+    public void fromList() throws Exception {
+        FromList fromList = select(1).getFromList();
+        assertSame(fromList.get(0), fromList.getFromTable("t"));
+        assertSame(fromList.get(1), fromList.getFromTable("s.u"));
+        assertNull(fromList.getFromTable("v"));
+        FromTable w = fromList.getFromTable("w");
+        assertNotNull(w);
+        assertEquals("x", fromList.getFromTable("x").getExposedName());
+        fromList.remove(0);
+        assertNull(fromList.getFromTable("t"));
+        w.setCorrelationName("y");
+        assertNull(fromList.getFromTable("w"));
+        assertSame(w, fromList.getFromTable("y"));
+    }
+
+}
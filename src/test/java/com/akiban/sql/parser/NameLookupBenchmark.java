@@ -0,0 +1,82 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.parser;
+
+/**
+ * Time looking up every column of a wide select list by name, through
+ * the name index and by scanning the list as was done before.
+ *
+ * Not a unit test; run with
+ * <code>java -cp target/classes:target/test-classes com.akiban.sql.parser.NameLookupBenchmark [columns [repeats]]</code>.
+ */
+public class NameLookupBenchmark
+{
+    public static void main(String[] args) throws Exception {
+        int ncols = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        int repeats = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < ncols; i++) {
+            if (i > 0) sql.append(", ");
+            sql.append("c").append(i).append(" AS a").append(i);
+        }
+        sql.append(" FROM t");
+        SQLParser parser = new SQLParser();
+        CursorNode cursor = (CursorNode)parser.parseStatement(sql.toString());
+        ResultColumnList rcl = cursor.getResultSetNode().getResultColumns();
+        String[] names = new String[ncols];
+        for (int i = 0; i < ncols; i++) {
+            names[i] = "A" + i;
+        }
+
+        for (int pass = 0; pass < 3; pass++) {
+            long start = System.nanoTime();
+            int found = 0;
+            for (int r = 0; r < repeats; r++) {
+                rcl.invalidateNameIndex(); // Include building it each time.
+                for (String name : names) {
+                    if (rcl.getResultColumn(name) != null)
+                        found++;
+                }
+            }
+            long indexed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < repeats; r++) {
+                for (String name : names) {
+                    if (scan(rcl, name) != null)
+                        found++;
+                }
+            }
+            long scanned = System.nanoTime() - start;
+
+            System.out.println(String.format("%d columns x %d: indexed %.2f ms, scanned %.2f ms (%d found)",
+                                             ncols, repeats, 
+                                             indexed / 1.0e6, scanned / 1.0e6, found));
+        }
+    }
+
+    static ResultColumn scan(ResultColumnList rcl, String columnName) {
+        for (ResultColumn resultColumn : rcl) {
+            if (columnName.equalsIgnoreCase(resultColumn.getName()))
+                return resultColumn;
+        }
+        return null;
+    }
+
+}
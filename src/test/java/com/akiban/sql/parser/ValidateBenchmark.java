@@ -0,0 +1,81 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.parser;
+
+import com.akiban.sql.StandardException;
+
+/**
+ * Time validating a mix of good and bad statements against parsing
+ * them, with and without exceptions.
+ *
+ * Not a unit test; run with
+ * <code>java -cp target/classes:target/test-classes com.akiban.sql.parser.ValidateBenchmark [statements]</code>.
+ */
+public class ValidateBenchmark
+{
+    public static final String[] STATEMENTS = {
+        "SELECT a, b FROM t WHERE c = 1",
+        "SELECT o.id, c.name, SUM(i.price * i.quantity) AS total FROM orders o INNER JOIN customers c ON o.cid = c.id INNER JOIN items i ON i.oid = o.id WHERE o.status IN ('OPEN', 'HELD') GROUP BY o.id, c.name ORDER BY total DESC",
+        "INSERT INTO t(a, b, c) VALUES(1, 'two', 3.0)",
+        "UPDATE t SET a = a + 1 WHERE b LIKE 'x%'",
+        "DELETE FROM t WHERE a IN (SELECT x FROM u WHERE y > 10)",
+        "SELECT a, b FROM t WHERE WHERE c = 1",
+        "SELECT o.id, c.name FROM orders o INNER JOIN customers c ON o.cid = c.id GROUP BY BY o.id",
+        "SELECT # FROM t",
+        "INSERT INTO t VALUES(1, 2",
+        "UPDATE t SET = 1",
+    };
+
+    public static void main(String[] args) throws Exception {
+        int n = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        SQLParser parser = new SQLParser();
+        for (int pass = 0; pass < 3; pass++) {
+            int errors = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                if (!parser.validate(STATEMENTS[i % STATEMENTS.length]).isValid())
+                    errors++;
+            }
+            report("validate", n, errors, start);
+            errors = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                if (!parser.tryParseStatement(STATEMENTS[i % STATEMENTS.length]).isValid())
+                    errors++;
+            }
+            report("tryParseStatement", n, errors, start);
+            errors = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                try {
+                    parser.parseStatement(STATEMENTS[i % STATEMENTS.length]);
+                }
+                catch (StandardException ex) {
+                    errors++;
+                }
+            }
+            report("parseStatement", n, errors, start);
+        }
+    }
+
+    static void report(String what, int n, int errors, long start) {
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%s: %d statements (%d errors) in %.2f ms, %.0f per second",
+                                         what, n, errors, elapsed / 1.0e6, n * 1.0e9 / elapsed));
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+package com.akiban.sql.parser;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ValidateTest
+{
+    protected SQLParser parser;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+    }
+
+    /** The result of validating, checked against what parsing throws. */
+    protected ValidationResult validate(String sql) throws Exception {
+        ValidationResult result = parser.validate(sql);
+        try {
+            parser.parseStatement(sql);
+            assertTrue(result.isValid());
+        }
+        catch (SQLParserException ex) {
+            assertFalse(result.isValid());
+            assertEquals(ex.getMessage(), result.getMessage());
+            assertEquals(ex.getErrorPosition(), result.getErrorPosition());
+        }
+        return result;
+    }
+
+    @Test
+    public void valid() throws Exception {
+        assertSame(ValidationResult.VALID, validate("SELECT a, b FROM t WHERE c = ?"));
+    }
+
+    @Test
+    public void syntaxError() throws Exception {
+        ValidationResult result = validate("SELECT a\nFROM t WHERE WHERE c = 1");
+        assertEquals(2, result.getErrorLine());
+        assertEquals(14, result.getErrorColumn());
+        assertEquals(23, result.getErrorPosition());
+        assertTrue(result.getMessage(), 
+                   result.getMessage().startsWith("Encountered \" \"where\" \"WHERE \"\" at line 2, column 14."));
+        assertTrue(validate("SELECT a, b FROM t").isValid());
+    }
+
+    @Test
+    public void lexicalError() throws Exception {
+        ValidationResult result = validate("SELECT # FROM t");
+        assertFalse(result.isValid());
+        assertEquals(1, result.getErrorLine());
+        assertEquals(8, result.getErrorColumn());
+        assertTrue(validate("SELECT a FROM t").isValid());
+    }
+
+    @Test
+    public void lexicalErrorFirst() throws Exception {
+        ValidationResult result = validate("# FROM t");
+        assertEquals(1, result.getErrorPosition());
+        assertTrue(validate("SELECT a FROM t").isValid());
+    }
+
+    @Test
+    public void tryParse() throws Exception {
+        ParseResult result = parser.tryParseStatement("SELECT a FROM t WHERE");
+        assertFalse(result.isValid());
+        assertNull(result.getStatement());
+        assertEquals(22, result.getErrorPosition());
+        assertFalse(result.getExpectedTokens().isEmpty());
+        for (String expected : result.getExpectedTokens()) {
+            assertTrue(expected, result.getMessage().contains(expected));
+        }
+        result = parser.tryParseStatement("SELECT a FROM t");
+        assertTrue(result.isValid());
+        assertTrue(result.getStatement() instanceof CursorNode);
+    }
+
+    @Test
+    public void noStackTraces() throws Exception {
+        try {
+            parser.parseStatement("SELECT FROM FROM t");
+            fail();
+        }
+        catch (SQLParserException ex) {
+            assertTrue(ex.getCause() instanceof ParseException);
+            assertEquals(0, ex.getCause().getStackTrace().length);
+        }
+        try {
+            parser.parseStatement("SELECT # FROM t");
+            fail();
+        }
+        catch (SQLParserException ex) {
+            assertTrue(ex.getCause() instanceof TokenMgrError);
+            assertEquals(0, ex.getCause().getStackTrace().length);
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.types;
+
+import com.akiban.sql.StandardException;
+import com.akiban.sql.types.CharacterTypeAttributes.CollationDerivation;
+
+import org.junit.Test;
+import static junit.framework.Assert.*;
+
+public class DataTypeDescriptorTest
+{
+    static DataTypeDescriptor varchar(String collation, CollationDerivation derivation) {
+        return new DataTypeDescriptor(TypeId.VARCHAR_ID, true, 10,
+                                      new CharacterTypeAttributes(null, collation, 
+                                                                  derivation));
+    }
+
+    @Test
+    public void dominantCollationDerivation() throws Exception {
+        DataTypeDescriptor implicitCs = varchar("en_cs", CollationDerivation.IMPLICIT);
+        DataTypeDescriptor implicitCi = varchar("en_ci", CollationDerivation.IMPLICIT);
+        DataTypeDescriptor explicitCs = varchar("en_cs", CollationDerivation.EXPLICIT);
+        DataTypeDescriptor explicitCi = varchar("en_ci", CollationDerivation.EXPLICIT);
+
+        DataTypeDescriptor none = implicitCi.getDominantType(implicitCs);
+        assertEquals(CollationDerivation.NONE,
+                     none.getCharacterAttributes().getCollationDerivation());
+
+        DataTypeDescriptor explicit = explicitCi.getDominantType(implicitCs);
+        assertEquals(CollationDerivation.EXPLICIT,
+                     explicit.getCharacterAttributes().getCollationDerivation());
+        assertEquals("en_ci", explicit.getCharacterAttributes().getCollation());
+
+        try {
+            explicitCi.getDominantType(explicitCs);
+            fail("Conflicting explicit collations merged");
+        }
+        catch (StandardException ex) {
+        }
+    }
+
+    @Test
+    public void internShared() throws Exception {
+        assertSame(DataTypeDescriptor.INTEGER,
+                   DataTypeDescriptor.intern(new DataTypeDescriptor(TypeId.INTEGER_ID, true)));
+        DataTypeDescriptor varchar = varchar("en_ci", CollationDerivation.IMPLICIT);
+        assertSame(DataTypeDescriptor.intern(varchar),
+                   DataTypeDescriptor.intern(varchar("en_ci", CollationDerivation.IMPLICIT)));
+        assertNotSame(DataTypeDescriptor.intern(varchar),
+                      DataTypeDescriptor.intern(varchar.getNullabilityType(false)));
+        assertNotSame(DataTypeDescriptor.intern(varchar),
+                      DataTypeDescriptor.intern(varchar("en_ci", CollationDerivation.EXPLICIT)));
+    }
+
+    @Test
+    public void dominantTypeShared() throws Exception {
+        DataTypeDescriptor integer = new DataTypeDescriptor(TypeId.INTEGER_ID, true);
+        DataTypeDescriptor bigint = new DataTypeDescriptor(TypeId.BIGINT_ID, true);
+        DataTypeDescriptor dominant = integer.getDominantType(bigint);
+        assertSame(dominant,
+                   new DataTypeDescriptor(TypeId.INTEGER_ID, true)
+                   .getDominantType(new DataTypeDescriptor(TypeId.BIGINT_ID, true)));
+        DataTypeDescriptor notNull = integer.getNullabilityType(false)
+            .getDominantType(bigint.getNullabilityType(false));
+        assertNotSame(dominant, notNull);
+        assertFalse(notNull.isNullable());
+
+        DataTypeDescriptor implicit = varchar("en_ci", CollationDerivation.IMPLICIT);
+        DataTypeDescriptor explicit = varchar("en_ci", CollationDerivation.EXPLICIT);
+        DataTypeDescriptor implicitDominant = implicit.getDominantType(implicit);
+        assertSame(implicitDominant,
+                   varchar("en_ci", CollationDerivation.IMPLICIT)
+                   .getDominantType(varchar("en_ci", CollationDerivation.IMPLICIT)));
+        DataTypeDescriptor explicitDominant = explicit.getDominantType(explicit);
+        assertNotSame(implicitDominant, explicitDominant);
+        assertEquals(CollationDerivation.EXPLICIT,
+                     explicitDominant.getCharacterAttributes().getCollationDerivation());
+    }
+
+    @Test
+    public void internCollationDerivation() throws Exception {
+        DataTypeDescriptor implicit = varchar("en_ci", CollationDerivation.IMPLICIT);
+        DataTypeDescriptor explicit = varchar("en_ci", CollationDerivation.EXPLICIT);
+        assertEquals(CollationDerivation.IMPLICIT,
+                     DataTypeDescriptor.intern(implicit)
+                     .getCharacterAttributes().getCollationDerivation());
+        assertEquals(CollationDerivation.EXPLICIT,
+                     DataTypeDescriptor.intern(explicit)
+                     .getCharacterAttributes().getCollationDerivation());
+        assertEquals(CollationDerivation.IMPLICIT,
+                     DataTypeDescriptor.intern(implicit)
+                     .getCharacterAttributes().getCollationDerivation());
+    }
+}
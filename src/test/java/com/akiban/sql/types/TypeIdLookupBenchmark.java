@@ -0,0 +1,39 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.types;
+
+/**
+ * Time resolving a large schema's worth of column types by name.
+ *
+ * Not a unit test; run with
+ * <code>java -cp target/classes:target/test-classes com.akiban.sql.types.TypeIdLookupBenchmark [columns]</code>.
+ */
+public class TypeIdLookupBenchmark
+{
+    public static void main(String[] args) throws Exception {
+        int n = (args.length > 0) ? Integer.parseInt(args[0]) : TypeIdLookupTest.SCHEMA_COLUMNS;
+        for (int pass = 0; pass < 3; pass++) {
+            long start = System.nanoTime();
+            int found = TypeIdLookupTest.loadSchema(n);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%d of %d column types resolved in %.3f ms",
+                                             found, n, elapsed / 1.0e6));
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.types;
+
+import com.akiban.sql.StandardException;
+
+import org.junit.Test;
+import static junit.framework.Assert.*;
+
+import java.sql.Types;
+
+public class TypeIdLookupTest
+{
+    // Roughly a large schema load: this many columns, each resolved by name.
+    public static final int SCHEMA_COLUMNS = 50000;
+
+    static final String[] COLUMN_TYPE_NAMES = {
+        TypeId.INTEGER_NAME, TypeId.VARCHAR_NAME, TypeId.LONGINT_NAME,
+        TypeId.DECIMAL_NAME, TypeId.TIMESTAMP_NAME, TypeId.DOUBLE_NAME,
+        TypeId.DATE_NAME, TypeId.CHAR_NAME, TypeId.BLOB_NAME,
+        TypeId.INT_UNSIGNED_NAME, TypeId.DATETIME_NAME, TypeId.YEAR_NAME,
+        TypeId.REF_NAME,
+    };
+
+    @Test
+    public void builtinNames() {
+        for (TypeId typeId : TypeId.getAllBuiltinTypeIds()) {
+            assertSame(typeId.getSQLTypeName(), 
+                       typeId, TypeId.getBuiltInTypeId(typeId.getSQLTypeName()));
+        }
+        assertSame(TypeId.INTEGER_ID, TypeId.getBuiltInTypeId(TypeId.INT_NAME));
+        assertSame(TypeId.REAL_ID, TypeId.getBuiltInTypeId(TypeId.FLOAT_NAME));
+        assertSame(TypeId.INTEGER_UNSIGNED_ID, 
+                   TypeId.getBuiltInTypeId(TypeId.INT_UNSIGNED_NAME));
+        assertSame(TypeId.REAL_UNSIGNED_ID, 
+                   TypeId.getBuiltInTypeId(TypeId.FLOAT_UNSIGNED_NAME));
+        assertNull(TypeId.getBuiltInTypeId("integer"));
+        assertNull(TypeId.getBuiltInTypeId("NO SUCH TYPE"));
+    }
+
+    @Test
+    public void javaTypes() throws StandardException {
+        assertSame(TypeId.BOOLEAN_ID, TypeId.getSQLTypeForJavaType("boolean"));
+        assertSame(TypeId.VARBIT_ID, TypeId.getSQLTypeForJavaType("byte[]"));
+        assertSame(TypeId.INTEGER_ID, TypeId.getSQLTypeForJavaType("java.lang.Integer"));
+        assertSame(TypeId.DECIMAL_ID, TypeId.getSQLTypeForJavaType("java.math.BigDecimal"));
+        assertSame(TypeId.XML_ID, TypeId.getSQLTypeForJavaType("com.akiban.sql.types.XML"));
+        assertNull(TypeId.getSQLTypeForJavaType("char"));
+        TypeId udt = TypeId.getSQLTypeForJavaType("com.example.Money");
+        assertNotNull(udt);
+        assertTrue(udt.userType());
+    }
+
+    @Test
+    public void jdbcTypes() {
+        assertSame(TypeId.BOOLEAN_ID, TypeId.getBuiltInTypeId(Types.BIT));
+        assertSame(TypeId.BOOLEAN_ID, TypeId.getBuiltInTypeId(Types.BOOLEAN));
+        assertSame(TypeId.REAL_ID, TypeId.getBuiltInTypeId(Types.FLOAT));
+        assertSame(TypeId.VARCHAR_ID, TypeId.getBuiltInTypeId(Types.VARCHAR));
+        assertSame(TypeId.LONGVARCHAR_ID, TypeId.getBuiltInTypeId(Types.LONGVARCHAR));
+        assertSame(TypeId.XML_ID, TypeId.getBuiltInTypeId(Types.SQLXML));
+        assertNull(TypeId.getBuiltInTypeId(Types.NULL));
+        assertNull(TypeId.getBuiltInTypeId(Types.OTHER));
+        assertNull(TypeId.getBuiltInTypeId(Types.ARRAY));
+        assertNull(TypeId.getBuiltInTypeId(Integer.MIN_VALUE));
+        assertNull(TypeId.getBuiltInTypeId(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void schemaLoad() {
+        assertEquals(SCHEMA_COLUMNS, loadSchema(SCHEMA_COLUMNS));
+    }
+
+    protected static int loadSchema(int ncolumns) {
+        int found = 0;
+        for (int i = 0; i < ncolumns; i++) {
+            String typeName = COLUMN_TYPE_NAMES[i % COLUMN_TYPE_NAMES.length];
+            if ((TypeId.getBuiltInTypeId(typeName) != null) &&
+                (DataTypeDescriptor.getBuiltInDataTypeDescriptor(typeName) != null))
+                found++;
+        }
+        return found;
+    }
+}
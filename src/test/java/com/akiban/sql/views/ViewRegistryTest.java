@@ -0,0 +1,122 @@
+/**
+ * Copyright © 2012 Akiban Technologies, Inc.  All rights
+ * reserved.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * This program may also be available under different license terms.
+ * For more information, see www.akiban.com or contact
+ * licensing@akiban.com.
+ *
+ * Contributors:
+ * Akiban Technologies, Inc.
+ */
+
+package com.akiban.sql.views;
+
+import com.akiban.sql.StandardException;
+import com.akiban.sql.parser.FromSubquery;
+import com.akiban.sql.parser.NodeTypes;
+import com.akiban.sql.parser.SQLParser;
+import com.akiban.sql.parser.TableName;
+import com.akiban.sql.unparser.NodeToString;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ViewRegistryTest
+{
+    protected SQLParser parser;
+    protected ViewRegistry registry;
+
+    @Before
+    public void before() throws Exception {
+        parser = new SQLParser();
+        registry = new ViewRegistry("test");
+    }
+
+    protected void create(String sql) throws StandardException {
+        registry.addView(new ViewDefinition(sql, parser));
+    }
+
+    protected TableName name(String tableName) throws StandardException {
+        return (TableName)parser.getNodeFactory()
+            .getNode(NodeTypes.TABLE_NAME,
+                     null, tableName, parser);
+    }
+
+    protected String expanded(String view) throws StandardException {
+        FromSubquery subquery = registry.copyExpandedSubquery(name(view), parser);
+        return new NodeToString().toString(subquery);
+    }
+
+    @Test
+    public void nestedViews() throws Exception {
+        create("CREATE VIEW v1 AS SELECT x, y FROM t WHERE x > 0");
+        create("CREATE VIEW v2 AS SELECT x FROM v1 WHERE y < 10");
+        create("CREATE VIEW v3 AS SELECT v.x, u.z FROM v2 AS v, u WHERE v.x = u.x");
+        assertEquals("(SELECT v.x AS x, u.z AS z FROM (SELECT x FROM (SELECT x, y FROM t WHERE x > 0) AS v1 WHERE y < 10) AS v, u WHERE v.x = u.x) AS v3",
+                     expanded("v3"));
+        assertNull(registry.copyExpandedSubquery(name("t"), parser));
+    }
+
+    @Test
+    public void cachedUntilInvalidated() throws Exception {
+        create("CREATE VIEW v1 AS SELECT x FROM t");
+        create("CREATE VIEW v2 AS SELECT x FROM v1");
+        create("CREATE VIEW v3 AS SELECT x FROM v2");
+        create("CREATE VIEW w AS SELECT x FROM t2");
+        FromSubquery v3 = registry.getExpandedSubquery(name("v3"));
+        FromSubquery w = registry.getExpandedSubquery(name("w"));
+        assertSame(v3, registry.getExpandedSubquery(name("v3")));
+        assertNotSame(v3, registry.copyExpandedSubquery(name("v3"), parser));
+
+        Set<String> dependents = new HashSet<String>();
+        for (TableName dependent : registry.getDependentViews(name("v1"))) {
+            dependents.add(dependent.getTableName());
+        }
+        assertEquals(new HashSet<String>(Arrays.asList("v2", "v3")),
+                     dependents);
+
+        assertNotNull(registry.dropView(name("v1")));
+        create("CREATE VIEW v1 AS SELECT x FROM t WHERE x IS NOT NULL");
+        assertNotSame(v3, registry.getExpandedSubquery(name("v3")));
+        assertSame(w, registry.getExpandedSubquery(name("w")));
+        assertEquals("(SELECT x FROM (SELECT x FROM (SELECT x FROM t WHERE NOT (x IS NULL)) AS v1) AS v2) AS v3",
+                     expanded("v3"));
+
+        // A view over a name that only later becomes a view.
+        create("CREATE VIEW v4 AS SELECT x FROM v5");
+        assertEquals("(SELECT x FROM v5) AS v4", expanded("v4"));
+        create("CREATE VIEW v5 AS SELECT x FROM test.w");
+        assertEquals("(SELECT x FROM (SELECT x FROM (SELECT x FROM t2) AS w) AS v5) AS v4", expanded("v4"));
+    }
+
+    @Test
+    public void rejectsCycles() throws Exception {
+        create("CREATE VIEW v1 AS SELECT x FROM v2");
+        create("CREATE VIEW v2 AS SELECT x FROM v3");
+        try {
+            create("CREATE VIEW v3 AS SELECT x FROM v1");
+            fail("cycle accepted");
+        }
+        catch (StandardException ex) {
+        }
+        try {
+            create("CREATE VIEW v1 AS SELECT x FROM t");
+            fail("duplicate accepted");
+        }
+        catch (StandardException ex) {
+        }
+        assertNull(registry.getView(name("v3")));
+    }
+
+}
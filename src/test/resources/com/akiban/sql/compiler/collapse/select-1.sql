@@ -0,0 +1 @@
+SELECT * FROM t WHERE x = 1 OR x = 2 OR x = 3
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t WHERE x = 1 OR y = 2 OR x = ? OR y > 3
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t WHERE x >= ? AND x <= ? AND y = 1
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t WHERE 10 >= x AND x >= 1
\ No newline at end of file
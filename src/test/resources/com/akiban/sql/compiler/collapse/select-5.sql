@@ -0,0 +1 @@
+SELECT * FROM t WHERE z = 0 AND (x = 1 OR x = 2) AND y >= 1 AND x <= 5
\ No newline at end of file
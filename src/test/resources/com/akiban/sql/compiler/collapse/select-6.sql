@@ -0,0 +1 @@
+SELECT * FROM t WHERE NOT (x <> 1 AND x <> 2)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t WHERE 1 = x OR x = 2 OR ? = x OR 3 = y
\ No newline at end of file
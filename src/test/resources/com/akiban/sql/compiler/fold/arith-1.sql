@@ -0,0 +1 @@
+SELECT 1 + 2 * 3, 10 / 4, MOD(10, 3), -(1 + 2) FROM t
\ No newline at end of file
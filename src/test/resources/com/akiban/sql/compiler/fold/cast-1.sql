@@ -0,0 +1 @@
+SELECT 'a' || 'b', CAST(12 AS VARCHAR(5)), CAST('42' AS INT), CAST(12345 AS CHAR(3)) FROM t
\ No newline at end of file
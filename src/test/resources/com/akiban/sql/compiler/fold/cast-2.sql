@@ -0,0 +1 @@
+SELECT CAST('1.5' AS INT), CAST('2.0' AS INT), CAST(1.25 AS DECIMAL(5,1)), CAST(1.2 AS DECIMAL(5,2)) FROM t
\ No newline at end of file
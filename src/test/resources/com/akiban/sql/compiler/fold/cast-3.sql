@@ -0,0 +1 @@
+SELECT CAST('2024-01-01' AS DATE), TIME '10:30:00', TIMESTAMP '2024-01-01 10:30:00', CAST('2024-02-30' AS DATE), CAST('tomorrow' AS DATE) FROM t
\ No newline at end of file
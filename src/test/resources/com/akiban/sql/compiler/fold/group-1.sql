@@ -0,0 +1 @@
+SELECT a, COUNT(*) FROM t GROUP BY 0 + 1, a HAVING COUNT(*) > 1 + 1
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT a FROM t GROUP BY a HAVING 1 = 1 AND COUNT(*) > 1 + 1
\ No newline at end of file
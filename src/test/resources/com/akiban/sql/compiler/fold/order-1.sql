@@ -0,0 +1 @@
+SELECT a, b FROM t WHERE 1 + 1 = b ORDER BY 1 + 1, a + (2 * 3)
\ No newline at end of file
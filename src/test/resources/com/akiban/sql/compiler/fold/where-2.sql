@@ -0,0 +1 @@
+SELECT * FROM t WHERE a = 1 AND 2 < 1
\ No newline at end of file
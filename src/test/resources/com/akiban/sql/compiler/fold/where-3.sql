@@ -0,0 +1 @@
+SELECT * FROM t WHERE 1 + 1 = 2 OR a > 5
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t WHERE NOT (1 > 2) AND b IS NULL AND 'abc' = 'abc  '
\ No newline at end of file
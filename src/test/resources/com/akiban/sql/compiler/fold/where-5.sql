@@ -0,0 +1 @@
+SELECT * FROM t WHERE a = 1 AND 0.1e0 = 0.1
\ No newline at end of file
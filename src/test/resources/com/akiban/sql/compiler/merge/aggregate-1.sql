@@ -0,0 +1 @@
+SELECT v.n FROM (SELECT COUNT(*) AS n FROM t) AS v
\ No newline at end of file
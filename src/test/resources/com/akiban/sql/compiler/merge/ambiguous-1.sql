@@ -0,0 +1 @@
+SELECT x FROM (SELECT a AS x FROM t) AS v, u
\ No newline at end of file
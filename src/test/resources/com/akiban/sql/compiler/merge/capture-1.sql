@@ -0,0 +1 @@
+SELECT v.a, t.b FROM (SELECT a FROM t) AS v, u AS t
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT v.y FROM (SELECT 2 AS x, a AS y, b AS z FROM t) AS v ORDER BY v.x
\ No newline at end of file
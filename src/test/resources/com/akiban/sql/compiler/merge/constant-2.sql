@@ -0,0 +1 @@
+SELECT v.y, COUNT(*) FROM (SELECT 1 AS x, a AS y FROM t) AS v GROUP BY v.x, v.y
\ No newline at end of file
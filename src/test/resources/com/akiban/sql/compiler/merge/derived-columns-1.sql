@@ -0,0 +1 @@
+SELECT v.p FROM (SELECT a, b FROM t) AS v(p, q) WHERE v.q IS NULL
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT v.a FROM (SELECT DISTINCT a FROM t) AS v
\ No newline at end of file
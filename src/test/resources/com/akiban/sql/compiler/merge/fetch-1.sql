@@ -0,0 +1 @@
+SELECT v.a FROM (SELECT a FROM t ORDER BY a FETCH FIRST 5 ROWS ONLY) AS v
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT v.x, u.y FROM (SELECT a AS x FROM t WHERE b = 1) AS v, u WHERE v.x = u.x
\ No newline at end of file
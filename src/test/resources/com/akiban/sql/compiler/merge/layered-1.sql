@@ -0,0 +1 @@
+SELECT w.n FROM (SELECT v.m + 1 AS n FROM (SELECT a * 2 AS m FROM t WHERE a > 0) AS v WHERE v.m < 100) AS w WHERE w.n <> 7
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT v.a FROM (SELECT a, b FROM t) AS v ORDER BY v.b DESC
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT v.x, v.z FROM (SELECT a AS x, b + 1 AS z FROM t WHERE c > 0) AS v WHERE v.z < 10
\ No newline at end of file
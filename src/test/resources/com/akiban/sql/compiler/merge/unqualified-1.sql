@@ -0,0 +1 @@
+SELECT x FROM (SELECT a AS x FROM t WHERE b = 1) AS v WHERE x > 5 ORDER BY x
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT v.r, v.a FROM (SELECT RANDOM() AS r, a FROM t) AS v WHERE v.r < 0.5
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT v.a FROM (SELECT RANDOM() AS r, a FROM t) AS v WHERE v.a > 1
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a, u.b FROM t LEFT OUTER JOIN u ON t.k = u.k WHERE COALESCE(u.x, 0) = 0
\ No newline at end of file
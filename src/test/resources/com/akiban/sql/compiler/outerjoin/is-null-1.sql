@@ -0,0 +1 @@
+SELECT t.a, u.b FROM t LEFT OUTER JOIN u ON t.k = u.k WHERE u.x IS NULL
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a, v.c FROM t LEFT OUTER JOIN u ON t.k = u.k LEFT OUTER JOIN v ON u.j = v.j WHERE v.c = 1
\ No newline at end of file
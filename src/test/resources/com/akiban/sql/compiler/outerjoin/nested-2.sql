@@ -0,0 +1 @@
+SELECT t.a, v.c FROM t LEFT OUTER JOIN (u LEFT OUTER JOIN v ON u.j = v.j) ON t.k = v.k
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a, u.b FROM t LEFT OUTER JOIN u ON t.k = u.k WHERE NOT (u.x IN (1, 3))
\ No newline at end of file
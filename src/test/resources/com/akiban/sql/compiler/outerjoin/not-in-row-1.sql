@@ -0,0 +1 @@
+SELECT t.a, u.b FROM t LEFT OUTER JOIN u ON t.k = u.k WHERE NOT ((u.x, t.y) IN ((1, 2), (3, 4)))
\ No newline at end of file
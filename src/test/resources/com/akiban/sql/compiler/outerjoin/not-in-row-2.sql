@@ -0,0 +1 @@
+SELECT t.a, u.b FROM t LEFT OUTER JOIN u ON t.k = u.k WHERE (u.x, t.y) NOT IN ((1, 2), (3, 4))
\ No newline at end of file
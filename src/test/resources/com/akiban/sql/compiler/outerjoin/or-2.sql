@@ -0,0 +1 @@
+SELECT t.a, u.b FROM t LEFT OUTER JOIN u ON t.k = u.k WHERE u.x = 1 OR t.y = 2
\ No newline at end of file
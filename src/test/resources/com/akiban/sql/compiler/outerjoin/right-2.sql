@@ -0,0 +1 @@
+SELECT t.a, u.b FROM t RIGHT OUTER JOIN u ON t.k = u.k WHERE u.y > 0
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t RIGHT OUTER JOIN u ON t.k = u.k
\ No newline at end of file
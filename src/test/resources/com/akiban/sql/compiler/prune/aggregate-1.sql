@@ -0,0 +1 @@
+SELECT s.k FROM (SELECT COUNT(*) AS n, 1 AS k FROM t) AS s
\ No newline at end of file
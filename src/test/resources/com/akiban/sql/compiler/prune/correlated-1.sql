@@ -0,0 +1 @@
+SELECT v.a FROM (SELECT a, b, c FROM t) AS v WHERE EXISTS (SELECT 1 FROM u WHERE u.x = v.b)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT v.a FROM (SELECT a, b, c FROM t) AS v ORDER BY v.b
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT w.x FROM (SELECT v.a AS x, v.b AS y FROM (SELECT a, b, c FROM t) AS v) AS w
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT v.a FROM (SELECT a, b, c FROM t ORDER BY b FETCH FIRST 3 ROWS ONLY) AS v
\ No newline at end of file
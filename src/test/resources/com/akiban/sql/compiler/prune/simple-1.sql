@@ -0,0 +1 @@
+SELECT v.a FROM (SELECT a, b, c + 1 AS d FROM t) AS v WHERE v.b > 0
\ No newline at end of file
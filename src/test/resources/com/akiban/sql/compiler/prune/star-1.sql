@@ -0,0 +1 @@
+SELECT * FROM (SELECT a, b FROM t) AS v
\ No newline at end of file
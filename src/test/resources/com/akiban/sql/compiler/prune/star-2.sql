@@ -0,0 +1 @@
+SELECT v.* FROM (SELECT a, b FROM t) AS v, (SELECT c, d FROM s) AS w WHERE v.a = w.c
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT u.a FROM (SELECT a, b FROM t UNION ALL SELECT c, d FROM s) AS u
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT COUNT(*) FROM (SELECT a, b FROM t) AS v
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT s.n FROM (SELECT COUNT(*) AS n, 1 AS k FROM x) AS s WHERE s.k = 1
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT a FROM (SELECT a, b FROM x) AS t WHERE a = 1 AND (b = 2 OR b = 3) AND TRUE
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT f.a FROM (SELECT a FROM x ORDER BY a FETCH FIRST 10 ROWS ONLY) AS f WHERE f.a = 1
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT g.k, g.n FROM (SELECT k, COUNT(*) AS n FROM x GROUP BY k) AS g WHERE g.k = 1 AND g.n > 10
\ No newline at end of file
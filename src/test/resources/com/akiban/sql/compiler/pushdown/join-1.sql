@@ -0,0 +1 @@
+SELECT v.a, w.b FROM (SELECT a FROM x) AS v, w WHERE v.a = 1 AND v.a = w.a AND w.b = 2
\ No newline at end of file
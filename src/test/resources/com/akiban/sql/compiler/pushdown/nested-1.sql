@@ -0,0 +1 @@
+SELECT o.z FROM (SELECT i.y + 1 AS z FROM (SELECT a * 2 AS y FROM x) AS i) AS o WHERE o.z > 3
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM (SELECT a, COUNT(*) AS n FROM t GROUP BY ROLLUP(a)) AS v WHERE v.a IS NULL
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a FROM (SELECT a, b FROM x WHERE c = 0) AS t WHERE t.a = 5 AND t.b > 1
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM (SELECT a FROM x UNION ALL SELECT c FROM y) AS u WHERE u.a = 1
\ No newline at end of file
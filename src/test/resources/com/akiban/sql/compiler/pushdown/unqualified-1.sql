@@ -0,0 +1 @@
+SELECT a FROM (SELECT a FROM x) AS t, y WHERE a = 1
\ No newline at end of file
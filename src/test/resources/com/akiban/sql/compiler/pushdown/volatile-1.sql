@@ -0,0 +1 @@
+SELECT * FROM (SELECT RANDOM() AS r, a FROM t) AS v WHERE v.r < 0.5 AND v.a > 1
\ No newline at end of file
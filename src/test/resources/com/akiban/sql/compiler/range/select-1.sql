@@ -0,0 +1 @@
+SELECT * FROM t WHERE x > 5 AND x > 10
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t WHERE x BETWEEN 1 AND 10 AND x < 3 AND y = 'a'
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t WHERE x >= 1 AND 5 >= x AND x <> 3 AND x <> 7
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t WHERE x > 1 AND x < 'a'
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t1 JOIN t2 ON t1.a = t2.a AND t1.b < 3 AND t1.b >= 3
\ No newline at end of file
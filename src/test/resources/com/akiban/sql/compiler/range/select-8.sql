@@ -0,0 +1 @@
+SELECT * FROM t WHERE (x = 1 OR y = 2) AND x > 5
\ No newline at end of file
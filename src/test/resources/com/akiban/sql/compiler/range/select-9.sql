@@ -0,0 +1 @@
+SELECT * FROM t WHERE x >= 0.1e0 AND x <= 0.1
\ No newline at end of file
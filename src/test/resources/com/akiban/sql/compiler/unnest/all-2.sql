@@ -0,0 +1 @@
+SELECT t.* FROM t WHERE t.a IN (SELECT s.b FROM s)
\ No newline at end of file
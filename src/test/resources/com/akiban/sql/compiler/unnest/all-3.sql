@@ -0,0 +1 @@
+SELECT * FROM t WHERE NOT EXISTS (SELECT 1 FROM s WHERE s.k = t.k)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT * FROM t WHERE t.x NOT IN (1, 2, 3, 4, 5)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a FROM t WHERE t.b = 1 OR EXISTS (SELECT 1 FROM s WHERE s.k = t.k)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a FROM t WHERE t.a IN (SELECT s.x FROM s ORDER BY s.x FETCH FIRST 3 ROWS ONLY)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a FROM t WHERE t.a IN (SELECT MAX(s.x) FROM s GROUP BY s.y)
\ No newline at end of file
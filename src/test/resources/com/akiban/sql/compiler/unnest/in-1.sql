@@ -0,0 +1 @@
+SELECT t.a FROM t WHERE t.b > 1 AND t.a IN (SELECT s.x FROM s WHERE s.v = 2)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a FROM t, u WHERE t.a = u.a AND t.b = ANY (SELECT s.x FROM s WHERE s.k = u.k)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a FROM t WHERE EXISTS (SELECT 1 FROM s WHERE s.k < t.k)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a FROM t, u WHERE t.a = u.a AND NOT EXISTS (SELECT 1 FROM s WHERE s.k = t.k AND t.c > 5)
\ No newline at end of file
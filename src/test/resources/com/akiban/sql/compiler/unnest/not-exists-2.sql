@@ -0,0 +1 @@
+SELECT t.a FROM t, u WHERE NOT EXISTS (SELECT 1 FROM s WHERE s.k = t.k AND s.j = u.j)
\ No newline at end of file
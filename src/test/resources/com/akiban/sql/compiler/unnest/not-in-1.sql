@@ -0,0 +1 @@
+SELECT t.a FROM t WHERE t.x NOT IN (SELECT s.y FROM s WHERE s.v > 0)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a, u.b FROM t, u WHERE t.k = u.k AND u.x <> ALL (SELECT s.y FROM s)
\ No newline at end of file
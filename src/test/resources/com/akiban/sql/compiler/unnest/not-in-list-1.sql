@@ -0,0 +1 @@
+SELECT t.a FROM t WHERE t.x NOT IN (1, 2, 3, 4, 5) AND t.y NOT IN (1, 2)
\ No newline at end of file
@@ -0,0 +1 @@
+SELECT t.a FROM t, u WHERE t.k = u.k AND u.x NOT IN ('a', 'b', NULL, 'c')
\ No newline at end of file
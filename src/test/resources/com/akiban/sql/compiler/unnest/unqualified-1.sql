@@ -0,0 +1 @@
+SELECT t.a FROM t WHERE t.a IN (SELECT s.b FROM s WHERE c = 1)
\ No newline at end of file